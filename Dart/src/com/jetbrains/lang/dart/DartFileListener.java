@@ -18,6 +18,8 @@ import com.intellij.openapi.roots.libraries.LibraryTable;
 import com.intellij.openapi.roots.libraries.LibraryTablesRegistrar;
 import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.SimpleModificationTracker;
 import com.intellij.openapi.util.registry.Registry;
 import com.intellij.openapi.vfs.*;
 import com.intellij.psi.search.FilenameIndex;
@@ -40,6 +42,8 @@ public class DartFileListener implements VirtualFileListener {
   private static final Key<Boolean> DART_PACKAGE_ROOTS_UPDATE_SCHEDULED_OR_IN_PROGRESS =
     Key.create("DART_PACKAGE_ROOTS_UPDATE_SCHEDULED_OR_IN_PROGRESS");
 
+  private static final SimpleModificationTracker ourPackagesModificationTracker = new SimpleModificationTracker();
+
   private final Project myProject;
 
   public DartFileListener(Project project) {
@@ -83,8 +87,21 @@ public class DartFileListener implements VirtualFileListener {
     fileChanged(myProject, event.getFile());
   }
 
+  /**
+   * Incremented on any VFS event for a pubspec.yaml or .packages file, so caches built from package configuration can depend on it.
+   */
+  @NotNull
+  public static ModificationTracker getPackagesModificationTracker() {
+    return ourPackagesModificationTracker;
+  }
+
   private static void fileChanged(@NotNull final Project project, @NotNull final VirtualFile file) {
+    if (PUBSPEC_YAML.equals(file.getName())) {
+      ourPackagesModificationTracker.incModificationCount();
+    }
+
     if (!DotPackagesFileUtil.DOT_PACKAGES.equals(file.getName())) return;
+    ourPackagesModificationTracker.incModificationCount();
     if (LocalFileSystem.getInstance() != file.getFileSystem() && !ApplicationManager.getApplication().isUnitTestMode()) return;
 
     final VirtualFile parent = file.getParent();
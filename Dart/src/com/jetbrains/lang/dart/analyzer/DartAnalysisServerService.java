@@ -147,7 +147,10 @@ public class DartAnalysisServerService implements Disposable {
   private final Map<String, Long> myFilePathWithOverlaidContentToTimestamp = new THashMap<>();
   private final List<String> myVisibleFiles = new ArrayList<>();
   private final Set<Document> myChangedDocuments = new THashSet<>();
+  // document changes collected since the overlaid content was sent last time, used if isIncrementalOverlaysEnabled()
+  private final Map<String, PendingContentChanges> myFilePathToPendingContentChanges = new THashMap<>();
   private final Alarm myUpdateFilesAlarm;
+  @NotNull private final DartContentUpdateStatistics myContentUpdateStatistics = new DartContentUpdateStatistics();
 
   @NotNull private final Queue<CompletionInfo> myCompletionInfos = new LinkedList<>();
   @NotNull private final Queue<SearchResultsSet> mySearchResultSets = new LinkedList<>();
@@ -624,6 +627,7 @@ public class DartAnalysisServerService implements Disposable {
         updateCurrentFile();
 
         if (isLocalAnalyzableFile(file)) {
+          myServerData.restoreFromPersistentCache(file);
           updateVisibleFiles();
         }
       }
@@ -663,6 +667,8 @@ public class DartAnalysisServerService implements Disposable {
 
         final VirtualFile file = FileDocumentManager.getInstance().getFile(e.getDocument());
         if (isLocalAnalyzableFile(file)) {
+          collectContentChange(file, e);
+
           for (VirtualFile fileInEditor : FileEditorManager.getInstance(myProject).getOpenFiles()) {
             if (fileInEditor.equals(file)) {
               synchronized (myLock) {
@@ -681,6 +687,34 @@ public class DartAnalysisServerService implements Disposable {
     EditorFactory.getInstance().getEventMulticaster().addDocumentListener(documentListener, myProject);
   }
 
+  private static boolean isIncrementalOverlaysEnabled() {
+    return Registry.is("dart.server.incremental.overlays", false);
+  }
+
+  private void collectContentChange(@NotNull final VirtualFile file, @NotNull final DocumentEvent e) {
+    if (!isIncrementalOverlaysEnabled()) return;
+
+    synchronized (myLock) {
+      PendingContentChanges changes = myFilePathToPendingContentChanges.get(file.getPath());
+      if (changes == null) {
+        // beforeDocumentChange(), so this is the stamp of the content that the first edit is applicable to
+        changes = new PendingContentChanges(e.getDocument().getModificationStamp());
+        myFilePathToPendingContentChanges.put(file.getPath(), changes);
+      }
+      changes.add(e);
+    }
+  }
+
+  private void restoreCachedDataForOpenFiles() {
+    ApplicationManager.getApplication().runReadAction(() -> {
+      for (VirtualFile file : FileEditorManager.getInstance(myProject).getOpenFiles()) {
+        if (isLocalAnalyzableFile(file)) {
+          myServerData.restoreFromPersistentCache(file);
+        }
+      }
+    });
+  }
+
   @NotNull
   public static DartAnalysisServerService getInstance(@NotNull final Project project) {
     return ServiceManager.getService(project, DartAnalysisServerService.class);
@@ -699,6 +733,7 @@ public class DartAnalysisServerService implements Disposable {
   @Override
   public void dispose() {
     stopServer();
+    myServerData.closePersistentCache();
   }
 
   private void handleClosingLabelPreferenceChanged() {
@@ -797,8 +832,6 @@ public class DartAnalysisServerService implements Disposable {
   }
 
   private void doUpdateFilesContent() {
-    // may be use DocumentListener to collect deltas instead of sending the whole Document.getText() each time?
-
     AnalysisServer server = myServer;
     if (server == null) {
       return;
@@ -807,6 +840,9 @@ public class DartAnalysisServerService implements Disposable {
     myUpdateFilesAlarm.cancelAllRequests();
 
     final Map<String, Object> filesToUpdate = new THashMap<>();
+    final List<String> incrementallyUpdatedFiles = new SmartList<>();
+    // system-independent paths of all files in filesToUpdate
+    final List<String> updatedFiles = new SmartList<>();
     ApplicationManager.getApplication().assertReadAccessAllowed();
     synchronized (myLock) {
       final Set<String> oldTrackedFiles = new THashSet<>(myFilePathWithOverlaidContentToTimestamp.keySet());
@@ -826,17 +862,33 @@ public class DartAnalysisServerService implements Disposable {
 
           final Long oldTimestamp = myFilePathWithOverlaidContentToTimestamp.get(file.getPath());
           if (oldTimestamp == null || document.getModificationStamp() != oldTimestamp) {
-            filesToUpdate.put(FileUtil.toSystemDependentName(file.getPath()), new AddContentOverlay(document.getText()));
+            final PendingContentChanges changes = myFilePathToPendingContentChanges.get(file.getPath());
+            final Object overlay;
+            if (oldTimestamp != null && changes != null && changes.isApplicableTo(oldTimestamp, document)) {
+              overlay = new ChangeContentOverlay(changes.myEdits);
+              incrementallyUpdatedFiles.add(file.getPath());
+              myContentUpdateStatistics.incrementalOverlaySent(changes.myReplacementLength);
+            }
+            else {
+              overlay = new AddContentOverlay(document.getText());
+              myContentUpdateStatistics.fullOverlaySent(document.getTextLength());
+            }
+            filesToUpdate.put(FileUtil.toSystemDependentName(file.getPath()), overlay);
+            updatedFiles.add(file.getPath());
             myFilePathWithOverlaidContentToTimestamp.put(file.getPath(), document.getModificationStamp());
           }
         }
       }
 
+      // collected changes are relative to the content that is either sent now or is not overlaid any more
+      myFilePathToPendingContentChanges.clear();
+
       // oldTrackedFiles at this point contains only those files that are not in FileDocumentManager.getUnsavedDocuments() any more
       for (String oldPath : oldTrackedFiles) {
         final Long removed = myFilePathWithOverlaidContentToTimestamp.remove(oldPath);
         LOG.assertTrue(removed != null, oldPath);
         filesToUpdate.put(FileUtil.toSystemDependentName(oldPath), new RemoveContentOverlay());
+        updatedFiles.add(oldPath);
       }
 
       if (LOG.isDebugEnabled()) {
@@ -851,12 +903,61 @@ public class DartAnalysisServerService implements Disposable {
         if (!oldTrackedFiles.isEmpty()) {
           LOG.debug("Removing overlaid content: " + StringUtil.join(oldTrackedFiles, ",\n"));
         }
+
+        LOG.debug("Content update statistics: " + myContentUpdateStatistics);
       }
     }
 
     if (!filesToUpdate.isEmpty()) {
-      server.analysis_updateContent(filesToUpdate, myServerData::onFilesContentUpdated);
+      server.analysis_updateContent(filesToUpdate, new UpdateContentConsumer() {
+        @Override
+        public void onResponse() {
+          myServerData.onFilesContentUpdated();
+        }
+
+        @Override
+        public void onError(RequestError requestError) {
+          if (RequestErrorCode.INVALID_OVERLAY_CHANGE.equals(requestError.getCode())) {
+            onOverlaysRejected(updatedFiles, incrementallyUpdatedFiles.size());
+          }
+          myServerData.onFilesContentUpdated();
+        }
+      });
+    }
+  }
+
+  /**
+   * The server rejects the whole updateContent request, so none of the overlays sent in it (full, incremental or removal) are applied
+   * and server and client disagree about the overlaid content of the files. Forget what was sent: files that are still unsaved
+   * get full content with the next update, the others get the removal again.
+   */
+  private void onOverlaysRejected(@NotNull final List<String> filePaths, int incrementalOverlayCount) {
+    LOG.info("Overlay change rejected by the server, content will be sent again for " + StringUtil.join(filePaths, ", "));
+
+    synchronized (myLock) {
+      for (String filePath : filePaths) {
+        // no document has negative modification stamp
+        myFilePathWithOverlaidContentToTimestamp.put(filePath, -1L);
+        myFilePathToPendingContentChanges.remove(filePath);
+      }
+      for (int i = 0; i < incrementalOverlayCount; i++) {
+        myContentUpdateStatistics.incrementalOverlayRejected();
+      }
     }
+
+    myUpdateFilesAlarm.cancelAllRequests();
+    myUpdateFilesAlarm.addRequest(this::updateFilesContent, 0);
+  }
+
+  @NotNull
+  public DartContentUpdateStatistics getContentUpdateStatistics() {
+    return myContentUpdateStatistics;
+  }
+
+  @Nullable
+  public RequestStatistics getRequestStatistics() {
+    final AnalysisServer server = myServer;
+    return server == null ? null : server.getRequestStatistics();
   }
 
   public boolean updateRoots(@NotNull final List<String> includedRoots, @NotNull final List<String> excludedRoots) {
@@ -941,7 +1042,7 @@ public class DartAnalysisServerService implements Disposable {
 
     final CountDownLatch latch = new CountDownLatch(1);
     final int offset = getOriginalOffset(file, _offset);
-    server.analysis_getHover(filePath, offset, new GetHoverConsumer() {
+    final GetHoverConsumer consumer = new GetHoverConsumer() {
       @Override
       public void computedHovers(HoverInformation[] hovers) {
         Collections.addAll(result, hovers);
@@ -953,9 +1054,10 @@ public class DartAnalysisServerService implements Disposable {
         logError("analysis_getHover()", filePath, error);
         latch.countDown();
       }
-    });
+    };
+    server.analysis_getHover(filePath, offset, consumer);
 
-    awaitForLatchCheckingCanceled(server, latch, GET_HOVER_TIMEOUT);
+    awaitForLatchCheckingCanceled(server, latch, GET_HOVER_TIMEOUT, consumer);
     return result;
   }
 
@@ -975,7 +1077,7 @@ public class DartAnalysisServerService implements Disposable {
     LOG.debug("analysis_getNavigation(" + filePath + ")");
 
     final int offset = getOriginalOffset(file, _offset);
-    server.analysis_getNavigation(filePath, offset, length, new GetNavigationConsumer() {
+    final GetNavigationConsumer consumer = new GetNavigationConsumer() {
       @Override
       public void computedNavigation(final List<NavigationRegion> regions) {
         final List<DartServerData.DartNavigationRegion> dartRegions = new ArrayList<>(regions.size());
@@ -1000,9 +1102,10 @@ public class DartAnalysisServerService implements Disposable {
 
         latch.countDown();
       }
-    });
+    };
+    server.analysis_getNavigation(filePath, offset, length, consumer);
 
-    awaitForLatchCheckingCanceled(server, latch, GET_NAVIGATION_TIMEOUT);
+    awaitForLatchCheckingCanceled(server, latch, GET_NAVIGATION_TIMEOUT, consumer);
 
     if (latch.getCount() > 0) {
       LOG.info("analysis_getNavigation() took more than " + GET_NAVIGATION_TIMEOUT + "ms for file " + filePath);
@@ -1257,7 +1360,7 @@ public class DartAnalysisServerService implements Disposable {
 
     final CountDownLatch latch = new CountDownLatch(1);
     final int offset = getOriginalOffset(file, _offset);
-    server.search_getTypeHierarchy(filePath, offset, superOnly, new GetTypeHierarchyConsumer() {
+    final GetTypeHierarchyConsumer consumer = new GetTypeHierarchyConsumer() {
       @Override
       public void computedHierarchy(List<TypeHierarchyItem> hierarchyItems) {
         results.addAll(hierarchyItems);
@@ -1269,9 +1372,10 @@ public class DartAnalysisServerService implements Disposable {
         logError("search_getTypeHierarchy()", filePath, error);
         latch.countDown();
       }
-    });
+    };
+    server.search_getTypeHierarchy(filePath, offset, superOnly, consumer);
 
-    awaitForLatchCheckingCanceled(server, latch, GET_TYPE_HIERARCHY_TIMEOUT);
+    awaitForLatchCheckingCanceled(server, latch, GET_TYPE_HIERARCHY_TIMEOUT, consumer);
     return results;
   }
 
@@ -1735,6 +1839,8 @@ public class DartAnalysisServerService implements Disposable {
           setDasLogger();
         }
 
+        restoreCachedDataForOpenFiles();
+
         startedServer.addAnalysisServerListener(myAnalysisServerListener);
         for (AnalysisServerListener listener : myAdditionalServerListeners) {
           startedServer.addAnalysisServerListener(listener);
@@ -1855,6 +1961,8 @@ public class DartAnalysisServerService implements Disposable {
       myFilePathWithOverlaidContentToTimestamp.clear();
       myVisibleFiles.clear();
       myChangedDocuments.clear();
+      myFilePathToPendingContentChanges.clear();
+      myContentUpdateStatistics.reset();
       myServerData.clearData();
       myRootsHandler.reset();
 
@@ -1963,6 +2071,26 @@ public class DartAnalysisServerService implements Disposable {
     }
   }
 
+  /**
+   * Same as {@link #awaitForLatchCheckingCanceled(AnalysisServer, CountDownLatch, long)}, but if the wait is given up the request
+   * is withdrawn from the server queue, so that an abandoned query doesn't delay the following ones.
+   */
+  private static boolean awaitForLatchCheckingCanceled(@NotNull final AnalysisServer server,
+                                                       @NotNull final CountDownLatch latch,
+                                                       final long timeoutInMillis,
+                                                       @NotNull final com.google.dart.server.Consumer consumer) {
+    boolean completed = false;
+    try {
+      completed = awaitForLatchCheckingCanceled(server, latch, timeoutInMillis);
+      return completed;
+    }
+    finally {
+      if (!completed) {
+        server.cancelQueuedRequest(consumer);
+      }
+    }
+  }
+
   private void registerPostfixCompletionTemplates() {
     ApplicationManager.getApplication().invokeLater(() -> {
       DartPostfixTemplateProvider.initializeTemplates(this);
@@ -2034,6 +2162,30 @@ public class DartAnalysisServerService implements Disposable {
     }
   }
 
+  /**
+   * Document edits that turn the content overlaid at {@link #myBaseModificationStamp} into the current document content.
+   */
+  private static class PendingContentChanges {
+    private final long myBaseModificationStamp;
+    @NotNull private final List<SourceEdit> myEdits = new ArrayList<>();
+    private int myReplacementLength;
+
+    private PendingContentChanges(long baseModificationStamp) {
+      myBaseModificationStamp = baseModificationStamp;
+    }
+
+    private void add(@NotNull final DocumentEvent e) {
+      final String replacement = e.getNewFragment().toString();
+      myEdits.add(new SourceEdit(e.getOffset(), e.getOldLength(), replacement, null));
+      myReplacementLength += replacement.length();
+    }
+
+    private boolean isApplicableTo(long overlaidModificationStamp, @NotNull final Document document) {
+      // if edits are as big as the document itself then it's cheaper to send the whole text
+      return myBaseModificationStamp == overlaidModificationStamp && myReplacementLength < document.getTextLength();
+    }
+  }
+
   /**
    * A set of {@link SearchResult}s.
    */
@@ -0,0 +1,107 @@
+// Copyright 2000-2018 JetBrains s.r.o.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.jetbrains.lang.dart.analyzer;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Counts file content overlays sent to the Dart Analysis Server in the 'analysis.updateContent' requests.
+ * Sizes are measured in characters of the sent file content or edit replacement text, JSON framing is not taken into account.
+ */
+public class DartContentUpdateStatistics {
+
+  private static final long WINDOW_MILLIS = 1000;
+
+  private long myFullOverlays;
+  private long myIncrementalOverlays;
+  private long myInvalidIncrementalOverlays;
+  private long myChars;
+
+  private long myWindowStart;
+  private int myWindowOverlays;
+  private long myWindowChars;
+
+  private int myOverlaysPerSecond;
+  private long myCharsPerSecond;
+
+  synchronized void fullOverlaySent(final int chars) {
+    myFullOverlays++;
+    overlaySent(chars);
+  }
+
+  synchronized void incrementalOverlaySent(final int chars) {
+    myIncrementalOverlays++;
+    overlaySent(chars);
+  }
+
+  synchronized void incrementalOverlayRejected() {
+    myInvalidIncrementalOverlays++;
+  }
+
+  synchronized void reset() {
+    myFullOverlays = myIncrementalOverlays = myInvalidIncrementalOverlays = myChars = 0;
+    myWindowStart = myWindowChars = myCharsPerSecond = 0;
+    myWindowOverlays = myOverlaysPerSecond = 0;
+  }
+
+  private void overlaySent(final int chars) {
+    myChars += chars;
+
+    final long now = System.currentTimeMillis();
+    if (now - myWindowStart >= WINDOW_MILLIS) {
+      // rates of the previous window are reported only if nothing was sent since then for less than one more window
+      final boolean adjacentWindow = now - myWindowStart < 2 * WINDOW_MILLIS;
+      myOverlaysPerSecond = adjacentWindow ? myWindowOverlays : 0;
+      myCharsPerSecond = adjacentWindow ? myWindowChars : 0;
+      myWindowStart = now;
+      myWindowOverlays = 0;
+      myWindowChars = 0;
+    }
+
+    myWindowOverlays++;
+    myWindowChars += chars;
+  }
+
+  public synchronized long getFullOverlays() {
+    return myFullOverlays;
+  }
+
+  public synchronized long getIncrementalOverlays() {
+    return myIncrementalOverlays;
+  }
+
+  public synchronized long getInvalidIncrementalOverlays() {
+    return myInvalidIncrementalOverlays;
+  }
+
+  public synchronized long getChars() {
+    return myChars;
+  }
+
+  public synchronized int getOverlaysPerSecond() {
+    return System.currentTimeMillis() - myWindowStart < 2 * WINDOW_MILLIS ? Math.max(myOverlaysPerSecond, myWindowOverlays) : 0;
+  }
+
+  public synchronized long getCharsPerSecond() {
+    return System.currentTimeMillis() - myWindowStart < 2 * WINDOW_MILLIS ? Math.max(myCharsPerSecond, myWindowChars) : 0;
+  }
+
+  @NotNull
+  @Override
+  public String toString() {
+    return "overlays/s: " + getOverlaysPerSecond() + ", chars/s: " + getCharsPerSecond() +
+           "; total overlays: " + getFullOverlays() + " full, " + getIncrementalOverlays() + " incremental (" +
+           getInvalidIncrementalOverlays() + " rejected), total chars: " + getChars();
+  }
+}
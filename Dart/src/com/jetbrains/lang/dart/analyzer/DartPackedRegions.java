@@ -0,0 +1,205 @@
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.util.ArrayUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Immutable list of regions packed into one int array: offset, length and optionally a type id per region.
+ * Editing doesn't modify an instance but produces a new one, so a reader can safely use an instance without any locking.
+ */
+final class DartPackedRegions {
+
+  static final DartPackedRegions EMPTY = new DartPackedRegions(ArrayUtil.EMPTY_INT_ARRAY, false);
+  static final DartPackedRegions EMPTY_TYPED = new DartPackedRegions(ArrayUtil.EMPTY_INT_ARRAY, true);
+
+  private static final int OFFSET = 0;
+  private static final int LENGTH = 1;
+  private static final int TYPE = 2;
+
+  @NotNull private final int[] myData;
+  private final int myStride;
+
+  private DartPackedRegions(@NotNull final int[] data, final boolean typed) {
+    myData = data;
+    myStride = typed ? 3 : 2;
+  }
+
+  int size() {
+    return myData.length / myStride;
+  }
+
+  boolean isEmpty() {
+    return myData.length == 0;
+  }
+
+  int getOffset(final int index) {
+    return myData[index * myStride + OFFSET];
+  }
+
+  int getLength(final int index) {
+    return myData[index * myStride + LENGTH];
+  }
+
+  int getTypeId(final int index) {
+    assert myStride > TYPE;
+    return myData[index * myStride + TYPE];
+  }
+
+  /**
+   * Shifts regions located after the change, updates the length of regions that contain the change and deletes other touched regions.
+   */
+  @NotNull
+  DartPackedRegions updateUpdatingTouched(final int eventOffset, final int oldLength, final int newLength) {
+    final int deltaLength = newLength - oldLength;
+    if (deltaLength == 0 || isEmpty()) return this;
+
+    final int[] newData = new int[myData.length];
+    int newSize = 0;
+
+    for (int i = 0; i < myData.length; i += myStride) {
+      int offset = myData[i + OFFSET];
+      int length = myData[i + LENGTH];
+
+      if (deltaLength > 0) {
+        // Something was typed. Shift untouched regions, update touched.
+        if (eventOffset <= offset) {
+          offset += deltaLength;
+        }
+        else if (offset < eventOffset && eventOffset < offset + length) {
+          length += deltaLength;
+        }
+      }
+      else {
+        // Some text was deleted. Shift untouched regions, delete or update touched.
+        final int eventRightOffset = eventOffset - deltaLength;
+        final int regionRightOffset = offset + length;
+
+        if (eventRightOffset <= offset) {
+          offset += deltaLength;
+        }
+        else if (offset <= eventOffset && eventRightOffset <= regionRightOffset && length != -deltaLength) {
+          length += deltaLength;
+        }
+        else if (eventOffset < regionRightOffset) {
+          continue;
+        }
+      }
+
+      newSize = copyRegion(i, offset, length, newData, newSize);
+    }
+
+    return createTrimmed(newData, newSize);
+  }
+
+  /**
+   * Shifts regions located after the change and deletes all touched regions.
+   * Returns this instance if nothing changed; a smaller instance is returned if at least one region has been deleted.
+   */
+  @NotNull
+  DartPackedRegions updateDeletingTouched(final int eventOffset, final int oldLength, final int newLength) {
+    final int deltaLength = newLength - oldLength;
+    if (deltaLength == 0 || isEmpty()) return this;
+
+    final int[] newData = new int[myData.length];
+    int newSize = 0;
+
+    for (int i = 0; i < myData.length; i += myStride) {
+      int offset = myData[i + OFFSET];
+      final int length = myData[i + LENGTH];
+
+      if (deltaLength > 0) {
+        // Something was typed. Shift untouched regions, delete touched.
+        if (eventOffset <= offset) {
+          offset += deltaLength;
+        }
+        else if (offset < eventOffset && eventOffset < offset + length) {
+          continue;
+        }
+      }
+      else {
+        // Some text was deleted. Shift untouched regions, delete touched.
+        final int eventRightOffset = eventOffset - deltaLength;
+
+        if (eventRightOffset <= offset) {
+          offset += deltaLength;
+        }
+        else if (eventOffset < offset + length) {
+          continue;
+        }
+      }
+
+      newSize = copyRegion(i, offset, length, newData, newSize);
+    }
+
+    return createTrimmed(newData, newSize);
+  }
+
+  private int copyRegion(final int index, final int offset, final int length, @NotNull final int[] newData, final int newSize) {
+    newData[newSize + OFFSET] = offset;
+    newData[newSize + LENGTH] = length;
+    if (myStride > TYPE) {
+      newData[newSize + TYPE] = myData[index + TYPE];
+    }
+    return newSize + myStride;
+  }
+
+  @NotNull
+  private DartPackedRegions createTrimmed(@NotNull final int[] data, final int size) {
+    if (size == 0) return myStride > TYPE ? EMPTY_TYPED : EMPTY;
+    return new DartPackedRegions(size == data.length ? data : Arrays.copyOf(data, size), myStride > TYPE);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof DartPackedRegions && myStride == ((DartPackedRegions)o).myStride && Arrays.equals(myData, ((DartPackedRegions)o).myData);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(myData);
+  }
+
+  static class Builder {
+    private final boolean myTyped;
+    private int[] myData;
+    private int mySize;
+
+    Builder(final int expectedRegionCount, final boolean typed) {
+      myTyped = typed;
+      myData = new int[expectedRegionCount * (typed ? 3 : 2)];
+    }
+
+    @NotNull
+    Builder add(final int offset, final int length) {
+      assert !myTyped;
+      ensureCapacity(2);
+      myData[mySize++] = offset;
+      myData[mySize++] = length;
+      return this;
+    }
+
+    @NotNull
+    Builder add(final int offset, final int length, final int typeId) {
+      assert myTyped;
+      ensureCapacity(3);
+      myData[mySize++] = offset;
+      myData[mySize++] = length;
+      myData[mySize++] = typeId;
+      return this;
+    }
+
+    private void ensureCapacity(final int additional) {
+      if (mySize + additional > myData.length) {
+        myData = Arrays.copyOf(myData, Math.max(myData.length * 2, mySize + additional));
+      }
+    }
+
+    @NotNull
+    DartPackedRegions build() {
+      if (mySize == 0) return myTyped ? EMPTY_TYPED : EMPTY;
+      return new DartPackedRegions(mySize == myData.length ? myData : Arrays.copyOf(myData, mySize), myTyped);
+    }
+  }
+}
@@ -4,22 +4,26 @@ import com.google.common.collect.Sets;
 import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.event.DocumentEvent;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.registry.Registry;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.impl.source.resolve.ResolveCache;
 import com.intellij.psi.search.SearchScope;
 import com.intellij.util.EventDispatcher;
+import com.intellij.util.ArrayUtil;
 import com.intellij.util.SmartList;
-import gnu.trove.THashMap;
+import com.intellij.util.containers.ContainerUtil;
 import org.dartlang.analysis.server.protocol.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 
 public class DartServerData {
 
@@ -31,23 +35,118 @@ public class DartServerData {
 
   private final EventDispatcher<OutlineListener> myEventDispatcher = EventDispatcher.create(OutlineListener.class);
 
-  private final Map<String, List<DartError>> myErrorData = Collections.synchronizedMap(new THashMap<>());
-  private final Map<String, List<DartHighlightRegion>> myHighlightData = Collections.synchronizedMap(new THashMap<>());
-  private final Map<String, List<DartNavigationRegion>> myNavigationData = Collections.synchronizedMap(new THashMap<>());
-  private final Map<String, List<DartOverrideMember>> myOverrideData = Collections.synchronizedMap(new THashMap<>());
-  private final Map<String, List<DartRegion>> myImplementedClassData = Collections.synchronizedMap(new THashMap<>());
-  private final Map<String, List<DartRegion>> myImplementedMemberData = Collections.synchronizedMap(new THashMap<>());
-  private final Map<String, Outline> myOutlineData = Collections.synchronizedMap(new THashMap<>());
+  // highlight region types come from a small fixed set, DartPackedRegions keep type ids only
+  private static final ConcurrentMap<String, Integer> ourHighlightTypeToId = ContainerUtil.newConcurrentMap();
+  private static volatile String[] ourHighlightTypes = ArrayUtil.EMPTY_STRING_ARRAY;
+
+  private final ConcurrentMap<String, List<DartError>> myErrorData = ContainerUtil.newConcurrentMap();
+  // packed regions are immutable, DocumentListener replaces them with shifted copies, so readers don't need any locking
+  private final ConcurrentMap<String, DartPackedRegions> myHighlightData = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, List<DartNavigationRegion>> myNavigationData = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, List<DartOverrideMember>> myOverrideData = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, DartPackedRegions> myImplementedClassData = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, DartPackedRegions> myImplementedMemberData = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, Outline> myOutlineData = ContainerUtil.newConcurrentMap();
 
   private final Set<String> myFilePathsWithUnsentChanges = Sets.newConcurrentHashSet();
 
   // keeps track of files in which error regions have been deleted by DocumentListener (typing inside an error region)
   private final Set<String> myFilePathsWithLostErrorInfo = Sets.newConcurrentHashSet();
 
+  @Nullable private DartServerDataCache myPersistentCache;
+
   DartServerData(@NotNull final DartAnalysisServerService service) {
     myService = service;
   }
 
+  @Nullable
+  private synchronized DartServerDataCache getPersistentCache() {
+    if (myPersistentCache == null && Registry.is("dart.server.persistent.results.cache", false)) {
+      myPersistentCache = new DartServerDataCache(myService.getProject());
+    }
+    return myPersistentCache;
+  }
+
+  synchronized void closePersistentCache() {
+    if (myPersistentCache != null) {
+      // after the pending saves
+      myPersistentCache.execute(myPersistentCache::close);
+      myPersistentCache = null;
+    }
+  }
+
+  /**
+   * Shows the results cached in the previous IDE session in the editor of the given file, if the file has not been changed since then
+   * and the server hasn't sent any results for it yet.
+   */
+  void restoreFromPersistentCache(@NotNull final VirtualFile file) {
+    final DartServerDataCache cache = getPersistentCache();
+    if (cache == null) return;
+
+    final String filePath = file.getPath();
+    if (myHighlightData.containsKey(filePath) || myFilePathsWithUnsentChanges.contains(filePath)) return;
+
+    final Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+    if (document == null) return;
+
+    final CharSequence text = document.getImmutableCharSequence();
+    final long modificationStamp = document.getModificationStamp();
+
+    cache.execute(() -> {
+      final DartServerDataCache.FileData data = cache.get(filePath);
+      if (data == null || data.myContentHash != DartServerDataCache.getContentHash(text)) return;
+
+      // offsets are valid only for the text that has been hashed; fresh results that have come in the meantime are not replaced
+      if (document.getModificationStamp() != modificationStamp ||
+          myHighlightData.containsKey(filePath) ||
+          myFilePathsWithUnsentChanges.contains(filePath)) {
+        return;
+      }
+
+      if (myErrorData.putIfAbsent(filePath, new ArrayList<>(data.myErrors)) == null) {
+        // makes sure that the first errors notification from the server replaces cached errors even if the server reports no errors
+        myFilePathsWithLostErrorInfo.add(filePath);
+      }
+      myHighlightData.putIfAbsent(filePath, data.myHighlights);
+      myImplementedClassData.putIfAbsent(filePath, data.myImplementedClasses);
+      myImplementedMemberData.putIfAbsent(filePath, data.myImplementedMembers);
+
+      forceFileAnnotation(file, false);
+    });
+  }
+
+  private void saveToPersistentCache(@NotNull final String filePath) {
+    final DartServerDataCache cache = getPersistentCache();
+    if (cache == null) return;
+
+    final DartPackedRegions highlights = myHighlightData.get(filePath);
+    final List<DartError> errors = myErrorData.get(filePath);
+    // errors are not saved if some of them have been lost because of editing, or if they are still the cached ones
+    if (highlights == null || errors == null || myFilePathsWithLostErrorInfo.contains(filePath)) return;
+
+    final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(filePath);
+    final Document document = file == null ? null : FileDocumentManager.getInstance().getCachedDocument(file);
+    if (document == null) return;
+
+    final DartPackedRegions implementedClasses = myImplementedClassData.get(filePath);
+    final DartPackedRegions implementedMembers = myImplementedMemberData.get(filePath);
+    // regions are shifted on typing, so they match the current document content. Errors are shifted in place, so they are copied
+    // to be saved in another thread, packed regions are immutable.
+    final List<DartError> errorsCopy = new ArrayList<>(errors.size());
+    for (DartError error : errors) {
+      errorsCopy.add(new DartError(error.getOffset(), error.getLength(), error.getAnalysisErrorFileSD(), error.getSeverity(),
+                                   error.getCode(), error.getMessage()));
+    }
+    final CharSequence text = document.getImmutableCharSequence();
+
+    cache.execute(() -> cache.put(filePath, new DartServerDataCache.FileData(
+      DartServerDataCache.getContentHash(text),
+      errorsCopy,
+      highlights,
+      implementedClasses != null ? implementedClasses : DartPackedRegions.EMPTY,
+      implementedMembers != null ? implementedMembers : DartPackedRegions.EMPTY)));
+  }
+
   boolean isErrorInfoLost(@NotNull final String filePath) {
     return myFilePathsWithLostErrorInfo.contains(filePath);
   }
@@ -87,18 +186,18 @@ public class DartServerData {
   void computedHighlights(@NotNull final String filePath, @NotNull final List<HighlightRegion> regions) {
     if (myFilePathsWithUnsentChanges.contains(filePath)) return;
 
-    final List<DartHighlightRegion> newRegions = new ArrayList<>(regions.size());
+    final DartPackedRegions.Builder newRegions = new DartPackedRegions.Builder(regions.size(), true);
     final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(filePath);
 
     for (HighlightRegion region : regions) {
       if (region.getLength() > 0) {
         final int offset = myService.getConvertedOffset(file, region.getOffset());
         final int length = myService.getConvertedOffset(file, region.getOffset() + region.getLength()) - offset;
-        newRegions.add(new DartHighlightRegion(offset, length, region.getType()));
+        newRegions.add(offset, length, getHighlightTypeId(region.getType()));
       }
     }
 
-    myHighlightData.put(filePath, newRegions);
+    myHighlightData.put(filePath, newRegions.build());
     forceFileAnnotation(file, false);
   }
 
@@ -166,28 +265,30 @@ public class DartServerData {
 
     final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(filePath);
 
-    final List<DartRegion> newImplementedClasses = new ArrayList<>(implementedClasses.size());
+    final DartPackedRegions.Builder classesBuilder = new DartPackedRegions.Builder(implementedClasses.size(), false);
     for (ImplementedClass implementedClass : implementedClasses) {
       final int offset = myService.getConvertedOffset(file, implementedClass.getOffset());
       final int length = myService.getConvertedOffset(file, implementedClass.getOffset() + implementedClass.getLength()) - offset;
-      newImplementedClasses.add(new DartRegion(offset, length));
+      classesBuilder.add(offset, length);
     }
+    final DartPackedRegions newImplementedClasses = classesBuilder.build();
 
-    final List<DartRegion> newImplementedMembers = new ArrayList<>(implementedMembers.size());
+    final DartPackedRegions.Builder membersBuilder = new DartPackedRegions.Builder(implementedMembers.size(), false);
     for (ImplementedMember implementedMember : implementedMembers) {
       final int offset = myService.getConvertedOffset(file, implementedMember.getOffset());
       final int length = myService.getConvertedOffset(file, implementedMember.getOffset() + implementedMember.getLength()) - offset;
-      newImplementedMembers.add(new DartRegion(offset, length));
+      membersBuilder.add(offset, length);
     }
+    final DartPackedRegions newImplementedMembers = membersBuilder.build();
 
     boolean hasChanges = false;
-    final List<DartRegion> oldClasses = myImplementedClassData.get(filePath);
+    final DartPackedRegions oldClasses = myImplementedClassData.get(filePath);
     if (oldClasses == null || !oldClasses.equals(newImplementedClasses)) {
       hasChanges = true;
       myImplementedClassData.put(filePath, newImplementedClasses);
     }
 
-    final List<DartRegion> oldMembers = myImplementedMemberData.get(filePath);
+    final DartPackedRegions oldMembers = myImplementedMemberData.get(filePath);
     if (oldMembers == null || !oldMembers.equals(newImplementedMembers)) {
       hasChanges = true;
       myImplementedMemberData.put(filePath, newImplementedMembers);
@@ -202,12 +303,10 @@ public class DartServerData {
   List<DartError> getErrors(@NotNull final SearchScope scope) {
     final List<DartError> errors = new ArrayList<>();
 
-    synchronized (myErrorData) {
-      for (Map.Entry<String, List<DartError>> entry : myErrorData.entrySet()) {
-        final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(entry.getKey());
-        if (file != null && scope.contains(file)) {
-          errors.addAll(entry.getValue());
-        }
+    for (Map.Entry<String, List<DartError>> entry : myErrorData.entrySet()) {
+      final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(entry.getKey());
+      if (file != null && scope.contains(file)) {
+        errors.addAll(entry.getValue());
       }
     }
 
@@ -222,8 +321,8 @@ public class DartServerData {
 
   @NotNull
   List<DartHighlightRegion> getHighlight(@NotNull final VirtualFile file) {
-    final List<DartHighlightRegion> regions = myHighlightData.get(file.getPath());
-    return regions != null ? regions : Collections.emptyList();
+    final DartPackedRegions regions = myHighlightData.get(file.getPath());
+    return regions != null && !regions.isEmpty() ? new HighlightRegionsView(regions) : Collections.emptyList();
   }
 
   @NotNull
@@ -240,14 +339,14 @@ public class DartServerData {
 
   @NotNull
   List<DartRegion> getImplementedClasses(@NotNull final VirtualFile file) {
-    final List<DartRegion> classes = myImplementedClassData.get(file.getPath());
-    return classes != null ? classes : Collections.emptyList();
+    final DartPackedRegions classes = myImplementedClassData.get(file.getPath());
+    return classes != null && !classes.isEmpty() ? new RegionsView(classes) : Collections.emptyList();
   }
 
   @NotNull
   List<DartRegion> getImplementedMembers(@NotNull final VirtualFile file) {
-    final List<DartRegion> classes = myImplementedMemberData.get(file.getPath());
-    return classes != null ? classes : Collections.emptyList();
+    final DartPackedRegions members = myImplementedMemberData.get(file.getPath());
+    return members != null && !members.isEmpty() ? new RegionsView(members) : Collections.emptyList();
   }
 
   @Nullable
@@ -285,6 +384,8 @@ public class DartServerData {
   }
 
   void onFileClosed(@NotNull final VirtualFile file) {
+    saveToPersistentCache(file.getPath());
+
     // do not remove from myErrorData, this map is always kept up-to-date for all files, not only for visible
     myHighlightData.remove(file.getPath());
     myNavigationData.remove(file.getPath());
@@ -333,6 +434,11 @@ public class DartServerData {
   }
 
   void clearData() {
+    // highlighting data is kept only for files opened in editors
+    for (String filePath : myHighlightData.keySet()) {
+      saveToPersistentCache(filePath);
+    }
+
     myErrorData.clear();
     myHighlightData.clear();
     myNavigationData.clear();
@@ -353,11 +459,14 @@ public class DartServerData {
     if (someRegionDeleted) {
       myFilePathsWithLostErrorInfo.add(filePath);
     }
-    updateRegionsUpdatingTouched(myHighlightData.get(filePath), e);
+    final int offset = e.getOffset();
+    final int oldLength = e.getOldLength();
+    final int newLength = e.getNewLength();
+    myHighlightData.computeIfPresent(filePath, (path, regions) -> regions.updateUpdatingTouched(offset, oldLength, newLength));
     updateRegionsDeletingTouched(filePath, myNavigationData.get(filePath), e);
     updateRegionsDeletingTouched(filePath, myOverrideData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myImplementedClassData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myImplementedMemberData.get(filePath), e);
+    myImplementedClassData.computeIfPresent(filePath, (path, regions) -> regions.updateDeletingTouched(offset, oldLength, newLength));
+    myImplementedMemberData.computeIfPresent(filePath, (path, regions) -> regions.updateDeletingTouched(offset, oldLength, newLength));
     // A bit outdated outline data is not a big problem, updated data will come shortly
   }
 
@@ -415,41 +524,64 @@ public class DartServerData {
     return regionDeleted;
   }
 
-  private static void updateRegionsUpdatingTouched(@Nullable final List<? extends DartRegion> regions,
-                                                   @NotNull final DocumentEvent e) {
-    if (regions == null) return;
+  @NotNull
+  static String getHighlightType(final int typeId) {
+    return ourHighlightTypes[typeId];
+  }
 
-    final int eventOffset = e.getOffset();
-    final int deltaLength = e.getNewLength() - e.getOldLength();
+  static int getHighlightTypeId(@NotNull final String type) {
+    final Integer id = ourHighlightTypeToId.get(type);
+    if (id != null) return id;
 
-    final Iterator<? extends DartRegion> iterator = regions.iterator();
-    while (iterator.hasNext()) {
-      final DartRegion region = iterator.next();
+    synchronized (ourHighlightTypeToId) {
+      final Integer existingId = ourHighlightTypeToId.get(type);
+      if (existingId != null) return existingId;
 
-      if (deltaLength > 0) {
-        // Something was typed. Shift untouched regions, update touched.
-        if (eventOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-        }
-        else if (region.myOffset < eventOffset && eventOffset < region.myOffset + region.myLength) {
-          region.myLength += deltaLength;
-        }
-      }
-      else if (deltaLength < 0) {
-        // Some text was deleted. Shift untouched regions, delete or update touched.
-        final int eventRightOffset = eventOffset - deltaLength;
-        final int regionRightOffset = region.myOffset + region.myLength;
+      final String internedType = type.intern();
+      final int newId = ourHighlightTypes.length;
+      // publish the type before its id, so that any id obtained by a reader is already resolvable
+      ourHighlightTypes = ArrayUtil.append(ourHighlightTypes, internedType);
+      ourHighlightTypeToId.put(internedType, newId);
+      return newId;
+    }
+  }
 
-        if (eventRightOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-        }
-        else if (region.myOffset <= eventOffset && eventRightOffset <= regionRightOffset && region.myLength != -deltaLength) {
-          region.myLength += deltaLength;
-        }
-        else if (eventOffset < regionRightOffset) {
-          iterator.remove();
-        }
-      }
+  /**
+   * Read-only view of {@link DartPackedRegions}; region objects are created on access and are not retained.
+   */
+  private static class RegionsView extends AbstractList<DartRegion> implements RandomAccess {
+    @NotNull private final DartPackedRegions myRegions;
+
+    private RegionsView(@NotNull final DartPackedRegions regions) {
+      myRegions = regions;
+    }
+
+    @Override
+    public DartRegion get(int index) {
+      return new DartRegion(myRegions.getOffset(index), myRegions.getLength(index));
+    }
+
+    @Override
+    public int size() {
+      return myRegions.size();
+    }
+  }
+
+  private static class HighlightRegionsView extends AbstractList<DartHighlightRegion> implements RandomAccess {
+    @NotNull private final DartPackedRegions myRegions;
+
+    private HighlightRegionsView(@NotNull final DartPackedRegions regions) {
+      myRegions = regions;
+    }
+
+    @Override
+    public DartHighlightRegion get(int index) {
+      return new DartHighlightRegion(myRegions.getOffset(index), myRegions.getLength(index), ourHighlightTypes[myRegions.getTypeId(index)]);
+    }
+
+    @Override
+    public int size() {
+      return myRegions.size();
     }
   }
 
@@ -486,7 +618,7 @@ public class DartServerData {
 
     private DartHighlightRegion(final int offset, final int length, @NotNull final String type) {
       super(offset, length);
-      this.type = type.intern();
+      this.type = type;
     }
 
     public String getType() {
@@ -508,6 +640,19 @@ public class DartServerData {
       myMessage = error.getMessage();
     }
 
+    DartError(final int offset,
+              final int length,
+              @NotNull final String analysisErrorFileSD,
+              @NotNull final String severity,
+              @Nullable final String code,
+              @NotNull final String message) {
+      super(offset, length);
+      myAnalysisErrorFileSD = analysisErrorFileSD.intern();
+      mySeverity = severity.intern();
+      myCode = code == null ? null : code.intern();
+      myMessage = message;
+    }
+
     public String getAnalysisErrorFileSD() {
       return myAnalysisErrorFileSD;
     }
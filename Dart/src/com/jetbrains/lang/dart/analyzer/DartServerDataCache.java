@@ -0,0 +1,271 @@
+// Copyright 2000-2018 JetBrains s.r.o.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.SequentialTaskExecutor;
+import com.intellij.util.io.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Keeps the last known errors, highlighting and implemented markers of the files opened in editors across IDE restarts,
+ * so that editors are highlighted right after project opening, long before the Dart Analysis Server finishes initial analysis.
+ * Each entry remembers a hash of the file content that the offsets are valid for, a cached entry is used only if the file content is the same.
+ * Cached data is replaced with the fresh one as soon as the server sends it.
+ * <p/>
+ * Data is stored in the {@link PersistentHashMap} (backed by memory-mapped paged storage) in the IDE system directory, separately per project.
+ * The storage never shrinks: values replaced by {@link #put} stay in it as garbage. So when it is found bigger than the limit on opening,
+ * it is deleted and the cache starts from scratch.
+ * <p/>
+ * Disk IO is done in {@link #execute} tasks, which run one by one on a pooled thread.
+ */
+class DartServerDataCache {
+  private static final Logger LOG = Logger.getInstance(DartServerDataCache.class.getName());
+
+  // increase when the format of the stored data changes
+  private static final int VERSION = 1;
+
+  private static final long MAX_STORAGE_SIZE = 32 * 1024 * 1024;
+
+  static class FileData {
+    final long myContentHash;
+    @NotNull final List<DartServerData.DartError> myErrors;
+    @NotNull final DartPackedRegions myHighlights;
+    @NotNull final DartPackedRegions myImplementedClasses;
+    @NotNull final DartPackedRegions myImplementedMembers;
+
+    FileData(final long contentHash,
+             @NotNull final List<DartServerData.DartError> errors,
+             @NotNull final DartPackedRegions highlights,
+             @NotNull final DartPackedRegions implementedClasses,
+             @NotNull final DartPackedRegions implementedMembers) {
+      myContentHash = contentHash;
+      myErrors = errors;
+      myHighlights = highlights;
+      myImplementedClasses = implementedClasses;
+      myImplementedMembers = implementedMembers;
+    }
+  }
+
+  @NotNull private final File myFile;
+  private final long myMaxStorageSize;
+  @NotNull private final ExecutorService myExecutor = SequentialTaskExecutor.createSequentialApplicationPoolExecutor("DartServerDataCache");
+  @Nullable private PersistentHashMap<String, FileData> myMap;
+  private boolean myBroken;
+
+  DartServerDataCache(@NotNull final Project project) {
+    this(new File(PathManager.getSystemPath(), "dart-server-data/" + project.getLocationHash() + "/results." + VERSION), MAX_STORAGE_SIZE);
+  }
+
+  DartServerDataCache(@NotNull final File file, final long maxStorageSize) {
+    myFile = file;
+    myMaxStorageSize = maxStorageSize;
+  }
+
+  /**
+   * Runs the task on a pooled thread after all tasks executed earlier; {@link #get}, {@link #put} and {@link #close} are expected
+   * to be called from such tasks, not from the EDT.
+   */
+  void execute(@NotNull final Runnable task) {
+    myExecutor.execute(task);
+  }
+
+  /**
+   * Hash of the text that the stored offsets are valid for. Results depend also on other files, but stale data is shown only
+   * until the server sends fresh results, so the hash of the file itself is enough.
+   */
+  static long getContentHash(@NotNull final CharSequence text) {
+    long hash = 0xcbf29ce484222325L; // FNV-1a
+    for (int i = 0; i < text.length(); i++) {
+      hash ^= text.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  @Nullable
+  synchronized FileData get(@NotNull final String filePath) {
+    final PersistentHashMap<String, FileData> map = getMap();
+    if (map == null) return null;
+
+    try {
+      return map.get(filePath);
+    }
+    catch (IOException e) {
+      onError(e);
+      return null;
+    }
+  }
+
+  synchronized void put(@NotNull final String filePath, @NotNull final FileData data) {
+    final PersistentHashMap<String, FileData> map = getMap();
+    if (map == null) return;
+
+    try {
+      map.put(filePath, data);
+    }
+    catch (IOException e) {
+      onError(e);
+    }
+  }
+
+  synchronized void close() {
+    if (myMap != null) {
+      try {
+        myMap.close();
+      }
+      catch (IOException e) {
+        LOG.info(e);
+      }
+      myMap = null;
+    }
+  }
+
+  @Nullable
+  private PersistentHashMap<String, FileData> getMap() {
+    if (myMap == null && !myBroken) {
+      try {
+        myMap = createMap();
+      }
+      catch (IOException e) {
+        LOG.info(e);
+        IOUtil.deleteAllFilesStartingWith(myFile);
+        try {
+          myMap = createMap();
+        }
+        catch (IOException e1) {
+          LOG.warn(e1);
+          myBroken = true;
+        }
+      }
+    }
+    return myMap;
+  }
+
+  @NotNull
+  private PersistentHashMap<String, FileData> createMap() throws IOException {
+    if (getStorageSize() > myMaxStorageSize) {
+      LOG.info("Dropping Dart server data cache of " + getStorageSize() + " bytes");
+      IOUtil.deleteAllFilesStartingWith(myFile);
+    }
+    return new PersistentHashMap<>(myFile, EnumeratorStringDescriptor.INSTANCE, new FileDataExternalizer());
+  }
+
+  long getStorageSize() {
+    long size = 0;
+    final File[] files = myFile.getParentFile().listFiles((dir, name) -> name.startsWith(myFile.getName()));
+    if (files != null) {
+      for (File file : files) {
+        size += file.length();
+      }
+    }
+    return size;
+  }
+
+  private void onError(@NotNull final IOException e) {
+    // the cache is only an optimization, start from scratch next time
+    LOG.info(e);
+    close();
+    IOUtil.deleteAllFilesStartingWith(myFile);
+  }
+
+  private static class FileDataExternalizer implements DataExternalizer<FileData> {
+    @Override
+    public void save(@NotNull final DataOutput out, final FileData data) throws IOException {
+      out.writeLong(data.myContentHash);
+
+      DataInputOutputUtil.writeINT(out, data.myErrors.size());
+      for (DartServerData.DartError error : data.myErrors) {
+        DataInputOutputUtil.writeINT(out, error.getOffset());
+        DataInputOutputUtil.writeINT(out, error.getLength());
+        IOUtil.writeUTF(out, error.getAnalysisErrorFileSD());
+        IOUtil.writeUTF(out, error.getSeverity());
+        out.writeBoolean(error.getCode() != null);
+        if (error.getCode() != null) {
+          IOUtil.writeUTF(out, error.getCode());
+        }
+        IOUtil.writeUTF(out, error.getMessage());
+      }
+
+      final DartPackedRegions highlights = data.myHighlights;
+      DataInputOutputUtil.writeINT(out, highlights.size());
+      for (int i = 0; i < highlights.size(); i++) {
+        DataInputOutputUtil.writeINT(out, highlights.getOffset(i));
+        DataInputOutputUtil.writeINT(out, highlights.getLength(i));
+        // type ids are assigned at runtime, so the type itself is stored
+        IOUtil.writeUTF(out, DartServerData.getHighlightType(highlights.getTypeId(i)));
+      }
+
+      saveRegions(out, data.myImplementedClasses);
+      saveRegions(out, data.myImplementedMembers);
+    }
+
+    @Override
+    public FileData read(@NotNull final DataInput in) throws IOException {
+      final long contentHash = in.readLong();
+
+      final int errorCount = DataInputOutputUtil.readINT(in);
+      final List<DartServerData.DartError> errors = new ArrayList<>(errorCount);
+      for (int i = 0; i < errorCount; i++) {
+        final int offset = DataInputOutputUtil.readINT(in);
+        final int length = DataInputOutputUtil.readINT(in);
+        final String fileSD = IOUtil.readUTF(in);
+        final String severity = IOUtil.readUTF(in);
+        final String code = in.readBoolean() ? IOUtil.readUTF(in) : null;
+        final String message = IOUtil.readUTF(in);
+        errors.add(new DartServerData.DartError(offset, length, fileSD, severity, code, message));
+      }
+
+      final int highlightCount = DataInputOutputUtil.readINT(in);
+      final DartPackedRegions.Builder highlights = new DartPackedRegions.Builder(highlightCount, true);
+      for (int i = 0; i < highlightCount; i++) {
+        final int offset = DataInputOutputUtil.readINT(in);
+        final int length = DataInputOutputUtil.readINT(in);
+        highlights.add(offset, length, DartServerData.getHighlightTypeId(IOUtil.readUTF(in)));
+      }
+
+      return new FileData(contentHash, errors, highlights.build(), readRegions(in), readRegions(in));
+    }
+
+    private static void saveRegions(@NotNull final DataOutput out, @NotNull final DartPackedRegions regions) throws IOException {
+      DataInputOutputUtil.writeINT(out, regions.size());
+      for (int i = 0; i < regions.size(); i++) {
+        DataInputOutputUtil.writeINT(out, regions.getOffset(i));
+        DataInputOutputUtil.writeINT(out, regions.getLength(i));
+      }
+    }
+
+    @NotNull
+    private static DartPackedRegions readRegions(@NotNull final DataInput in) throws IOException {
+      final int count = DataInputOutputUtil.readINT(in);
+      final DartPackedRegions.Builder builder = new DartPackedRegions.Builder(count, false);
+      for (int i = 0; i < count; i++) {
+        final int offset = DataInputOutputUtil.readINT(in);
+        builder.add(offset, DataInputOutputUtil.readINT(in));
+      }
+      return builder.build();
+    }
+  }
+}
@@ -1,12 +1,13 @@
 package com.jetbrains.lang.dart.analyzer;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.containers.IntArrayList;
 import com.intellij.util.text.CharArrayUtil;
-import gnu.trove.THashMap;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
@@ -14,7 +15,6 @@ import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
-import java.util.Map;
 
 public class FileOffsetsManager {
 
@@ -23,7 +23,15 @@ public class FileOffsetsManager {
     return ServiceManager.getService(FileOffsetsManager.class);
   }
 
-  private final Map<VirtualFile, LineOffsets> myLineOffsetsMap = new THashMap<>();
+  // total number of cached line offsets (2 per line); files with LF-only line separators cost 1 regardless of their size
+  private static final int MAX_CACHED_OFFSETS = 2 * 1024 * 1024;
+
+  // Concurrent, so that several highlighting threads may convert offsets in parallel. Bounded, so that files that were
+  // analyzed once during a long session do not stay in memory forever.
+  private final Cache<VirtualFile, LineOffsets> myLineOffsetsCache = CacheBuilder.newBuilder()
+    .maximumWeight(MAX_CACHED_OFFSETS)
+    .weigher((VirtualFile file, LineOffsets offsets) -> offsets.getWeight())
+    .build();
 
   private static class LineOffsets {
     private final long myFileModificationStamp; // todo stamp outside of this class
@@ -36,10 +44,15 @@ public class FileOffsetsManager {
         : originalLineOffsets.length + " " + convertedLineOffsets.length;
 
       myFileModificationStamp = modificationStamp;
-      myOriginalLineOffsets = originalLineOffsets;
-      myConvertedLineOffsets = convertedLineOffsets;
       myLineOffsetsAreTheSame =
         originalLineOffsets[originalLineOffsets.length - 1] == convertedLineOffsets[convertedLineOffsets.length - 1];
+      // offsets are not converted at all in this case, no need to keep them
+      myOriginalLineOffsets = myLineOffsetsAreTheSame ? ArrayUtil.EMPTY_INT_ARRAY : originalLineOffsets;
+      myConvertedLineOffsets = myLineOffsetsAreTheSame ? ArrayUtil.EMPTY_INT_ARRAY : convertedLineOffsets;
+    }
+
+    private int getWeight() {
+      return Math.max(1, myOriginalLineOffsets.length + myConvertedLineOffsets.length);
     }
   }
 
@@ -69,14 +82,16 @@ public class FileOffsetsManager {
   }
 
   @NotNull
-  private synchronized LineOffsets getLineOffsets(@NotNull final VirtualFile file) {
-    LineOffsets offsets = myLineOffsetsMap.get(file);
+  private LineOffsets getLineOffsets(@NotNull final VirtualFile file) {
+    LineOffsets offsets = myLineOffsetsCache.getIfPresent(file);
     if (offsets != null && file.getModificationStamp() == offsets.myFileModificationStamp) {
       return offsets;
     }
 
+    // Threads that miss the cache for the same file at the same time load equal offsets, the last one wins.
+    // If the file has been changed meanwhile then the stamp check above makes the next caller reload offsets.
     offsets = loadLineOffsets(file);
-    myLineOffsetsMap.put(file, offsets);
+    myLineOffsetsCache.put(file, offsets);
     return offsets;
   }
 
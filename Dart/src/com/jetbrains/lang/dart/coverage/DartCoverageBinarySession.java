@@ -0,0 +1,98 @@
+/*
+ * Copyright 2000-2018 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jetbrains.lang.dart.coverage;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.IOUtil;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.Map;
+
+/**
+ * Coverage session already mapped to local file paths, stored next to the coverage JSON file.
+ * Reopening a session from this file needs neither JSON parsing nor the Analysis Server to map source URIs.
+ * The file is ignored if the JSON file has been changed since the session was written.
+ */
+class DartCoverageBinarySession {
+  private static final Logger LOG = Logger.getInstance(DartCoverageBinarySession.class.getName());
+
+  private static final int MAGIC = 0xDAC0BE01;
+  private static final String EXTENSION = ".bin";
+
+  @NotNull
+  static File getBinaryFile(@NotNull final File sessionDataFile) {
+    return new File(sessionDataFile.getPath() + EXTENSION);
+  }
+
+  static void write(@NotNull final File sessionDataFile, @NotNull final Map<String, int[]> filePathToLineHits) {
+    final File binaryFile = getBinaryFile(sessionDataFile);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryFile)))) {
+      out.writeInt(MAGIC);
+      out.writeLong(sessionDataFile.length());
+      out.writeLong(sessionDataFile.lastModified());
+      DataInputOutputUtil.writeINT(out, filePathToLineHits.size());
+
+      for (Map.Entry<String, int[]> entry : filePathToLineHits.entrySet()) {
+        IOUtil.writeUTF(out, entry.getKey());
+        final int[] lineHits = entry.getValue();
+        DataInputOutputUtil.writeINT(out, lineHits.length);
+        for (int hits : lineHits) {
+          // NOT_COVERABLE (-1) is stored as 0, hit counts are shifted by one
+          DataInputOutputUtil.writeINT(out, hits + 1);
+        }
+      }
+    }
+    catch (IOException e) {
+      LOG.warn(e);
+      FileUtil.delete(binaryFile);
+    }
+  }
+
+  @Nullable
+  static Map<String, int[]> read(@NotNull final File sessionDataFile) {
+    final File binaryFile = getBinaryFile(sessionDataFile);
+    if (!binaryFile.isFile()) return null;
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(binaryFile)))) {
+      if (in.readInt() != MAGIC ||
+          in.readLong() != sessionDataFile.length() ||
+          in.readLong() != sessionDataFile.lastModified()) {
+        return null;
+      }
+
+      final int size = DataInputOutputUtil.readINT(in);
+      final Map<String, int[]> result = new THashMap<>(size);
+      for (int i = 0; i < size; i++) {
+        final String filePath = IOUtil.readUTF(in);
+        final int[] lineHits = new int[DataInputOutputUtil.readINT(in)];
+        for (int line = 0; line < lineHits.length; line++) {
+          lineHits[line] = DataInputOutputUtil.readINT(in) - 1;
+        }
+        result.put(filePath, lineHits);
+      }
+      return result;
+    }
+    catch (IOException e) {
+      LOG.warn(e);
+      return null;
+    }
+  }
+}
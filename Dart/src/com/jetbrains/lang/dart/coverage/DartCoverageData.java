@@ -15,82 +15,186 @@
  */
 package com.jetbrains.lang.dart.coverage;
 
-import com.intellij.util.containers.hash.HashMap;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.util.ArrayUtil;
+import gnu.trove.THashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
+/**
+ * Line hits from the coverage JSON produced by {@code package:coverage}, merged per source URI.
+ * The JSON is read as a stream, so neither the whole document nor boxed line numbers are kept in memory.
+ */
 public class DartCoverageData {
-  @Nullable private List<DartFileCoverageData> coverage;
-
-  @Nullable
-  public List<DartFileCoverageData> getCoverage() {
-    return coverage;
-  }
+  static final int NOT_COVERABLE = -1;
 
-  public void setCoverage(@Nullable List<DartFileCoverageData> coverage) {
-    this.coverage = coverage;
-  }
+  @NotNull private final Map<String, LineHits> mySourceToHits = new THashMap<>();
 
   @NotNull
-  public Map<String, SortedMap<Integer, Integer>> getMergedDartFileCoverageData() {
-    Map<String, SortedMap<Integer, Integer>> mergedCoverageData = new HashMap<>();
-    List<DartFileCoverageData> coverageData = getCoverage();
-    if (coverageData != null) {
-      for (DartFileCoverageData item : coverageData) {
-        String source = item.getSource();
-        if (source == null) {
-          continue;
-        }
-        if (!mergedCoverageData.containsKey(source)) {
-          mergedCoverageData.put(source, new TreeMap<>());
+  public static DartCoverageData parse(@NotNull final Reader reader) throws IOException {
+    final DartCoverageData data = new DartCoverageData();
+    final JsonReader jsonReader = new JsonReader(reader);
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      if ("coverage".equals(jsonReader.nextName()) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+          ProgressManager.checkCanceled();
+          data.readFileCoverage(jsonReader);
         }
+        jsonReader.endArray();
+      }
+      else {
+        jsonReader.skipValue();
+      }
+    }
+    jsonReader.endObject();
+    return data;
+  }
 
-        SortedMap<Integer, Integer> fileData = mergedCoverageData.get(source);
-        List<Integer> hits = item.getHits();
-        if (hits == null) {
-          continue;
-        }
-        for (int i = 0; i < hits.size(); i += 2) {
-          Integer lineNumber = hits.get(i);
-          Integer hitCount = hits.get(i + 1);
-          if (!fileData.containsKey(lineNumber)) {
-            fileData.put(lineNumber, 0);
-          }
+  private void readFileCoverage(@NotNull final JsonReader reader) throws IOException {
+    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+      reader.skipValue();
+      return;
+    }
+
+    String source = null;
+    int[] hits = ArrayUtil.EMPTY_INT_ARRAY;
+    int hitsSize = 0;
 
-          fileData.put(lineNumber, fileData.get(lineNumber) + hitCount);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      final String name = reader.nextName();
+      if ("source".equals(name) && reader.peek() == JsonToken.STRING) {
+        source = reader.nextString();
+      }
+      else if ("hits".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+        // pairs of line (or 'first-last' line range) and hit count; a range is kept as two negative numbers
+        reader.beginArray();
+        boolean lineExpected = true;
+        while (reader.hasNext()) {
+          if (hitsSize + 2 > hits.length) {
+            hits = Arrays.copyOf(hits, Math.max(16, hits.length * 2));
+          }
+          if (!lineExpected) {
+            hits[hitsSize++] = reader.nextInt();
+          }
+          else if (reader.peek() == JsonToken.STRING) {
+            final String range = reader.nextString();
+            final int dash = range.indexOf('-');
+            if (dash > 0) {
+              hits[hitsSize++] = -1 - parseLine(range.substring(0, dash));
+              hits[hitsSize++] = -1 - parseLine(range.substring(dash + 1));
+            }
+            else {
+              hits[hitsSize++] = parseLine(range);
+            }
+          }
+          else {
+            hits[hitsSize++] = Math.max(0, reader.nextInt());
+          }
+          lineExpected = !lineExpected;
         }
+        reader.endArray();
+      }
+      else {
+        reader.skipValue();
       }
     }
+    reader.endObject();
+
+    if (source == null) return;
+
+    LineHits lineHits = mySourceToHits.get(source);
+    if (lineHits == null) {
+      lineHits = new LineHits();
+      mySourceToHits.put(source, lineHits);
+    }
 
-    return mergedCoverageData;
+    int i = 0;
+    while (i + 1 < hitsSize) {
+      final int line = hits[i++];
+      if (line < 0) {
+        if (i + 2 > hitsSize) break;
+        final int lastLine = -1 - hits[i++];
+        final int count = hits[i++];
+        for (int rangeLine = -1 - line; rangeLine <= lastLine; rangeLine++) {
+          lineHits.add(rangeLine, count);
+        }
+      }
+      else {
+        lineHits.add(line, hits[i++]);
+      }
+    }
   }
-}
 
+  private static int parseLine(@NotNull final String line) {
+    try {
+      return Math.max(0, Integer.parseInt(line.trim()));
+    }
+    catch (NumberFormatException e) {
+      return 0;
+    }
+  }
 
-class DartFileCoverageData {
-  @Nullable private String source;
-  @Nullable private List<Integer> hits;
+  @NotNull
+  public Iterable<String> getSources() {
+    return mySourceToHits.keySet();
+  }
 
-  @Nullable
-  public String getSource() {
-    return source;
+  /**
+   * @return hit count per line number, {@link #NOT_COVERABLE} for the lines not mentioned in the coverage data
+   */
+  @NotNull
+  public int[] getLineHits(@NotNull final String source) {
+    final LineHits lineHits = mySourceToHits.get(source);
+    return lineHits == null ? ArrayUtil.EMPTY_INT_ARRAY : lineHits.toArray();
   }
 
-  public void setSource(@Nullable String source) {
-    this.source = source;
+  /**
+   * Adds the hits to the {@code target} array, which is grown if needed.
+   */
+  @NotNull
+  static int[] mergeLineHits(@NotNull final int[] target, @NotNull final int[] hits) {
+    final int[] result = hits.length > target.length ? grow(target, hits.length) : target;
+    for (int line = 0; line < hits.length; line++) {
+      if (hits[line] != NOT_COVERABLE) {
+        result[line] = result[line] == NOT_COVERABLE ? hits[line] : result[line] + hits[line];
+      }
+    }
+    return result;
   }
 
-  @Nullable
-  public List<Integer> getHits() {
-    return hits;
+  @NotNull
+  private static int[] grow(@NotNull final int[] hits, final int minLength) {
+    final int oldLength = hits.length;
+    final int[] result = Arrays.copyOf(hits, minLength);
+    Arrays.fill(result, oldLength, result.length, NOT_COVERABLE);
+    return result;
   }
 
-  public void setHits(@Nullable List<Integer> hits) {
-    this.hits = hits;
+  private static class LineHits {
+    @NotNull private int[] myHits = ArrayUtil.EMPTY_INT_ARRAY;
+    private int myLastLine = -1;
+
+    private void add(final int line, final int count) {
+      if (line >= myHits.length) {
+        myHits = grow(myHits, Math.max(line + 1, myHits.length * 2));
+      }
+      myHits[line] = myHits[line] == NOT_COVERABLE ? count : myHits[line] + count;
+      myLastLine = Math.max(myLastLine, line);
+    }
+
+    @NotNull
+    private int[] toArray() {
+      return myHits.length == myLastLine + 1 ? myHits : Arrays.copyOf(myHits, myLastLine + 1);
+    }
   }
-}
\ No newline at end of file
+}
@@ -15,30 +15,29 @@
  */
 package com.jetbrains.lang.dart.coverage;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
 import com.intellij.coverage.CoverageEngine;
 import com.intellij.coverage.CoverageRunner;
 import com.intellij.coverage.CoverageSuite;
 import com.intellij.execution.process.ProcessHandler;
+import com.intellij.concurrency.JobLauncher;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.CharsetToolkit;
 import com.intellij.rt.coverage.data.ClassData;
 import com.intellij.rt.coverage.data.LineData;
 import com.intellij.rt.coverage.data.ProjectData;
+import com.intellij.util.containers.ContainerUtil;
 import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
+import gnu.trove.THashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.*;
+import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
 
 public class DartCoverageRunner extends CoverageRunner {
   private static final String ID = "DartCoverageRunner";
@@ -69,7 +68,13 @@ public class DartCoverageRunner extends CoverageRunner {
   private static ProjectData doLoadCoverageData(@NotNull final File sessionDataFile, @NotNull final DartCoverageSuite coverageSuite) {
     final ProcessHandler coverageProcess = coverageSuite.getCoverageProcess();
     // coverageProcess == null means that we are switching to data gathered earlier
-    if (coverageProcess != null) {
+    if (coverageProcess == null) {
+      final Map<String, int[]> filePathToLineHits = DartCoverageBinarySession.read(sessionDataFile);
+      if (filePathToLineHits != null) {
+        return createProjectData(filePathToLineHits);
+      }
+    }
+    else {
       for (int i = 0; i < 100; ++i) {
         ProgressManager.checkCanceled();
 
@@ -95,45 +100,88 @@ public class DartCoverageRunner extends CoverageRunner {
       return null;
     }
 
-    final ProjectData projectData = new ProjectData();
-
+    final Map<String, int[]> filePathToLineHits;
     try {
-      DartCoverageData data = new Gson().fromJson(new BufferedReader(new FileReader(sessionDataFile)), DartCoverageData.class);
-      if (data == null) {
-        LOG.warn("Coverage file does not contain valid data.");
-        return null;
+      final DartCoverageData data;
+      try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(sessionDataFile), CharsetToolkit.UTF8_CHARSET))) {
+        data = DartCoverageData.parse(reader);
       }
 
-      for (Map.Entry<String, SortedMap<Integer, Integer>> entry : data.getMergedDartFileCoverageData().entrySet()) {
-        ProgressManager.checkCanceled();
-
-        String filePath = getFileForUri(project, contextId, entry.getKey());
-        if (filePath == null) {
-          // File is not found.
-          continue;
-        }
-        SortedMap<Integer, Integer> lineHits = entry.getValue();
-        ClassData classData = projectData.getOrCreateClassData(filePath);
-        if (lineHits.size() == 0) {
-          classData.setLines(new LineData[1]);
-          continue;
-        }
-        LineData[] lines = new LineData[lineHits.lastKey() + 1];
-        for (Map.Entry<Integer, Integer> hit : lineHits.entrySet()) {
-          LineData lineData = new LineData(hit.getKey(), null);
-          lineData.setHits(hit.getValue());
-          lines[hit.getKey()] = lineData;
-        }
-        classData.setLines(lines);
+      filePathToLineHits = mapSourcesToFiles(project, contextId, data);
+      if (filePathToLineHits == null) {
+        return null;
       }
     }
-    catch (FileNotFoundException | JsonSyntaxException e) {
-      LOG.warn(e);
+    catch (IOException | IllegalStateException | NumberFormatException e) {
+      LOG.warn("Coverage file does not contain valid data.", e);
+      return new ProjectData();
     }
     finally {
       DartAnalysisServerService.getInstance(project).execution_deleteContext(contextId);
     }
 
+    DartCoverageBinarySession.write(sessionDataFile, filePathToLineHits);
+    return createProjectData(filePathToLineHits);
+  }
+
+  /**
+   * Source URIs are mapped to file paths concurrently, each mapping is a round trip to the Analysis Server.
+   * Returns {@code null} if canceled.
+   */
+  @Nullable
+  private static Map<String, int[]> mapSourcesToFiles(@NotNull final Project project,
+                                                      @NotNull final String contextId,
+                                                      @NotNull final DartCoverageData data) {
+    final List<String> sources = ContainerUtil.newArrayList(data.getSources());
+    final Map<String, String> sourceToFilePath = ContainerUtil.newConcurrentMap();
+
+    final boolean completed = JobLauncher.getInstance().invokeConcurrentlyUnderProgress(
+      sources, ProgressManager.getInstance().getProgressIndicator(), true, source -> {
+        final String filePath = getFileForUri(project, contextId, source);
+        if (filePath != null) {
+          sourceToFilePath.put(source, filePath);
+        }
+        return true;
+      });
+    if (!completed) {
+      return null;
+    }
+
+    // different URIs, e.g. 'file:' and 'package:' ones, may point to the same file
+    final Map<String, int[]> filePathToLineHits = new THashMap<>();
+    for (String source : sources) {
+      final String filePath = sourceToFilePath.get(source);
+      if (filePath == null) {
+        // File is not found.
+        continue;
+      }
+      final int[] lineHits = data.getLineHits(source);
+      final int[] existing = filePathToLineHits.get(filePath);
+      filePathToLineHits.put(filePath, existing == null ? lineHits : DartCoverageData.mergeLineHits(existing, lineHits));
+    }
+    return filePathToLineHits;
+  }
+
+  @NotNull
+  private static ProjectData createProjectData(@NotNull final Map<String, int[]> filePathToLineHits) {
+    final ProjectData projectData = new ProjectData();
+    for (Map.Entry<String, int[]> entry : filePathToLineHits.entrySet()) {
+      final int[] lineHits = entry.getValue();
+      final ClassData classData = projectData.getOrCreateClassData(entry.getKey());
+      if (lineHits.length == 0) {
+        classData.setLines(new LineData[1]);
+        continue;
+      }
+      final LineData[] lines = new LineData[lineHits.length];
+      for (int line = 0; line < lineHits.length; line++) {
+        if (lineHits[line] != DartCoverageData.NOT_COVERABLE) {
+          final LineData lineData = new LineData(line, null);
+          lineData.setHits(lineHits[line]);
+          lines[line] = lineData;
+        }
+      }
+      classData.setLines(lines);
+    }
     return projectData;
   }
 
@@ -16,6 +16,7 @@
 package com.jetbrains.lang.dart.ide.errorTreeView;
 
 import com.google.dart.server.GetServerPortConsumer;
+import com.google.dart.server.RequestStatistics;
 import com.intellij.ide.BrowserUtil;
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationType;
@@ -27,6 +28,8 @@ import com.jetbrains.lang.dart.DartBundle;
 import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
 import org.dartlang.analysis.server.protocol.RequestError;
 
+import java.util.Map;
+
 public class AnalysisServerDiagnosticsAction extends DumbAwareAction {
   private static final String GROUP_DISPLAY_ID = "Dart Analysis Server";
 
@@ -42,6 +45,23 @@ public class AnalysisServerDiagnosticsAction extends DumbAwareAction {
     // Get the current analysis server.
     DartAnalysisServerService server = DartAnalysisServerService.getInstance(project);
 
+    // Show what the IDE side sends to the server, the server's own page doesn't know about it.
+    final StringBuilder statistics = new StringBuilder();
+    statistics.append(DartBundle.message("analysis.server.show.diagnostics.content.updates", server.getContentUpdateStatistics()));
+    final RequestStatistics requestStatistics = server.getRequestStatistics();
+    if (requestStatistics != null) {
+      for (Map.Entry<String, RequestStatistics.MethodStatistics> entry : requestStatistics.getMethodStatistics().entrySet()) {
+        statistics.append("<br>")
+          .append(DartBundle.message("analysis.server.show.diagnostics.request.latency", entry.getKey(), entry.getValue()));
+      }
+    }
+
+    Notifications.Bus.notify(new Notification(
+      GROUP_DISPLAY_ID,
+      DartBundle.message("analysis.server.show.diagnostics.client.statistics"),
+      statistics.toString(),
+      NotificationType.INFORMATION), project);
+
     // Ask it for the diagnostics port.
     server.diagnostic_getServerPort(new GetServerPortConsumer() {
       @Override
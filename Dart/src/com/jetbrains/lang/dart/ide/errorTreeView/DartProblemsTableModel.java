@@ -10,6 +10,7 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.ui.ColumnInfo;
 import com.intellij.util.ui.ListTableModel;
 import com.jetbrains.lang.dart.ide.annotator.DartAnnotator;
+import gnu.trove.THashMap;
 import icons.DartIcons;
 import org.dartlang.analysis.server.protocol.AnalysisError;
 import org.dartlang.analysis.server.protocol.AnalysisErrorSeverity;
@@ -23,7 +24,15 @@ import java.awt.*;
 import java.util.*;
 import java.util.List;
 
+/**
+ * Items are kept in the order they are shown: new problems are inserted at their sorted positions, and the whole list is sorted
+ * only when the sort key or grouping changes. Comparators given to the table's row sorter keep this model order. So the row sorter
+ * never really sorts, which matters because {@link DefaultRowSorter} falls back to full sorting on every change for more than
+ * 10000 rows.
+ */
 class DartProblemsTableModel extends ListTableModel<DartProblem> {
+  // the row sorter falls back to model order for equal values
+  private static final Comparator<DartProblem> MODEL_ORDER = (problem1, problem2) -> 0;
 
   private static final TableCellRenderer MESSAGE_RENDERER = new DefaultTableCellRenderer() {
     @Override
@@ -66,9 +75,14 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
   @NotNull private final DartProblemsPresentationHelper myPresentationHelper;
 
   // Kind of hack to keep a reference to the live collection used in a super class, but it allows to improve performance greatly.
-  // Having it in hand we can do bulk rows removal with a single fireTableRowsDeleted() call afterwards
+  // Having it in hand we can do bulk rows removal and insertion with a single fireTableRowsDeleted()/fireTableRowsInserted() call
   private final List<DartProblem> myItems;
 
+  // Errors shown in the table for each file, i.e. after the filtering in getErrorsToShow(). The server reports errors for all files
+  // after each analysis round, mostly unchanged, comparing with this map allows to touch table rows only for the files that have
+  // really changed. A file without entry is unknown and is always updated.
+  private final Map<String, List<AnalysisError>> myFilePathToShownErrors = new THashMap<>();
+
   private RowSorter.SortKey mySortKey = new RowSorter.SortKey(1, SortOrder.ASCENDING);
 
   private int myErrorCount = 0;
@@ -97,7 +111,7 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
       @Nullable
       @Override
       public Comparator<DartProblem> getComparator() {
-        return myDescriptionComparator;
+        return MODEL_ORDER;
       }
 
       @Nullable
@@ -120,7 +134,7 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
       @Nullable
       @Override
       public Comparator<DartProblem> getComparator() {
-        return myLocationComparator;
+        return MODEL_ORDER;
       }
 
       @Nullable
@@ -160,14 +174,14 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
   public void removeRows(final int firstRow, final int lastRow) {
     assert lastRow >= firstRow;
 
-    for (int i = lastRow; i >= firstRow; i--) {
-      final DartProblem removed = myItems.remove(i);
-
+    final List<DartProblem> removedProblems = myItems.subList(firstRow, lastRow + 1);
+    for (DartProblem removed : removedProblems) {
       if (AnalysisErrorSeverity.ERROR.equals(removed.getSeverity())) myErrorCount--;
       if (AnalysisErrorSeverity.WARNING.equals(removed.getSeverity())) myWarningCount--;
       if (AnalysisErrorSeverity.INFO.equals(removed.getSeverity())) myHintCount--;
       updateProblemsCountAfterFilter(removed, false);
     }
+    removedProblems.clear();
 
     fireTableRowsDeleted(firstRow, lastRow);
   }
@@ -178,6 +192,7 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
       myItems.clear();
       fireTableRowsDeleted(0, rowCount - 1);
     }
+    myFilePathToShownErrors.clear();
 
     myErrorCount = 0;
     myWarningCount = 0;
@@ -187,6 +202,13 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
     myHintCountAfterFilter = 0;
   }
 
+  /**
+   * Whether errors of a file are shown depends on the content roots; after they change all files are updated with the next report.
+   */
+  public void onContentRootsChanged() {
+    myFilePathToShownErrors.clear();
+  }
+
   /**
    * If {@code selectedProblem} was removed and similar one added again then this method returns the added one,
    * so that the caller could update selected row in the table
@@ -194,72 +216,69 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
   @Nullable
   public DartProblem setErrorsAndReturnReplacementForSelection(@NotNull final Map<String, List<AnalysisError>> filePathToErrors,
                                                                @Nullable final DartProblem selectedProblem) {
-    final boolean selectedProblemRemoved = removeRowsForFilesInSet(filePathToErrors.keySet(), selectedProblem);
-    return addErrorsAndReturnReplacementForSelection(filePathToErrors, selectedProblemRemoved ? selectedProblem : null);
-  }
-
-  private boolean removeRowsForFilesInSet(@NotNull final Set<String> filePaths, @Nullable final DartProblem selectedProblem) {
-    // Looks for regions in table items that should be removed and removes them.
-    // For performance reasons we try to call removeRows() as rare as possible, that means with regions as big as possible.
-    // Logic is based on the fact that all errors for each particular file are stored continuously in the myItems model
+    final Map<String, List<AnalysisError>> changedFilePathToErrors = new THashMap<>();
+    for (Map.Entry<String, List<AnalysisError>> entry : filePathToErrors.entrySet()) {
+      final String filePath = entry.getKey();
+      final List<AnalysisError> errors = getErrorsToShow(filePath, entry.getValue());
+      if (errors.equals(myFilePathToShownErrors.put(filePath, errors))) continue;
 
-    boolean selectedProblemRemoved = false;
+      changedFilePathToErrors.put(filePath, errors);
+    }
 
-    int matchedFilesCount = 0;
+    if (changedFilePathToErrors.isEmpty()) return null;
 
-    for (int i = getRowCount() - 1; i >= 0; i--) {
-      final DartProblem problem = getItem(i);
-      if (filePaths.contains(problem.getSystemIndependentPath())) {
-        matchedFilesCount++;
-        final int lastRowToDelete = i;
+    final boolean selectedProblemRemoved = removeRowsForFilesInSet(changedFilePathToErrors.keySet(), selectedProblem);
+    return addErrorsAndReturnReplacementForSelection(changedFilePathToErrors, selectedProblemRemoved ? selectedProblem : null);
+  }
 
-        if (problem == selectedProblem) {
-          selectedProblemRemoved = true;
+  @NotNull
+  private List<AnalysisError> getErrorsToShow(@NotNull final String filePath, @NotNull final List<AnalysisError> errors) {
+    if (errors.isEmpty()) return AnalysisError.EMPTY_LIST;
+
+    final VirtualFile vFile = LocalFileSystem.getInstance().findFileByPath(filePath);
+    if (vFile == null || !ProjectFileIndex.getInstance(myProject).isInContent(vFile)) return AnalysisError.EMPTY_LIST;
+
+    List<AnalysisError> result = null;
+    for (int i = 0; i < errors.size(); i++) {
+      final AnalysisError error = errors.get(i);
+      if (DartAnnotator.shouldIgnoreMessageFromDartAnalyzer(filePath, error.getLocation().getFile())) {
+        if (result == null) {
+          result = new ArrayList<>(errors.subList(0, i));
         }
+      }
+      else if (result != null) {
+        result.add(error);
+      }
+    }
+    return result == null ? errors : result.isEmpty() ? AnalysisError.EMPTY_LIST : result;
+  }
 
-        DartProblem lastProblemForCurrentFile = problem;
-
-        int j = i - 1;
-        while (j >= 0) {
-          final DartProblem previousProblem = getItem(j);
-
-          if (previousProblem.getSystemIndependentPath().equals(lastProblemForCurrentFile.getSystemIndependentPath())) {
-            // previousProblem should be removed from the table as well
-            j--;
-
-            if (previousProblem == selectedProblem) {
-              selectedProblemRemoved = true;
-            }
-
-            continue;
-          }
+  private boolean removeRowsForFilesInSet(@NotNull final Set<String> filePaths, @Nullable final DartProblem selectedProblem) {
+    // Removes the problems of the given files with as few removeRows() calls as possible, i.e. by the biggest continuous regions.
+    // When sorted by location all problems of a file form a single region.
+    boolean selectedProblemRemoved = false;
 
-          if (filePaths.contains(previousProblem.getSystemIndependentPath())) {
-            matchedFilesCount++;
-            // continue iterating the table because we met a range of problems for another file that also should be removed
-            lastProblemForCurrentFile = previousProblem;
-            j--;
+    for (int i = getRowCount() - 1; i >= 0; i--) {
+      if (!filePaths.contains(getItem(i).getSystemIndependentPath())) continue;
 
-            if (previousProblem == selectedProblem) {
-              selectedProblemRemoved = true;
-            }
+      final int lastRowToDelete = i;
+      int firstRowToDelete = i;
+      while (firstRowToDelete > 0 && filePaths.contains(getItem(firstRowToDelete - 1).getSystemIndependentPath())) {
+        firstRowToDelete--;
+      }
 
-            continue;
+      if (selectedProblem != null && !selectedProblemRemoved) {
+        for (int j = firstRowToDelete; j <= lastRowToDelete; j++) {
+          if (getItem(j) == selectedProblem) {
+            selectedProblemRemoved = true;
+            break;
           }
-
-          break;
-        }
-
-        final int firstRowToDelete = j + 1;
-        removeRows(firstRowToDelete, lastRowToDelete);
-
-        if (matchedFilesCount == filePaths.size()) {
-          break;
         }
-
-        //noinspection AssignmentToForLoopParameter
-        i = j + 1; // rewind according to the amount of removed rows
       }
+
+      removeRows(firstRowToDelete, lastRowToDelete);
+      //noinspection AssignmentToForLoopParameter
+      i = firstRowToDelete;
     }
 
     return selectedProblemRemoved;
@@ -271,18 +290,8 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
     DartProblem newSelectedProblem = null;
 
     final List<DartProblem> problemsToAdd = new ArrayList<>();
-    for (Map.Entry<String, List<AnalysisError>> entry : filePathToErrors.entrySet()) {
-      final String filePath = entry.getKey();
-      final VirtualFile vFile = LocalFileSystem.getInstance().findFileByPath(filePath);
-      final List<AnalysisError> errors = vFile != null && ProjectFileIndex.getInstance(myProject).isInContent(vFile)
-                                         ? entry.getValue()
-                                         : AnalysisError.EMPTY_LIST;
-
+    for (List<AnalysisError> errors : filePathToErrors.values()) {
       for (AnalysisError analysisError : errors) {
-        if (DartAnnotator.shouldIgnoreMessageFromDartAnalyzer(filePath, analysisError.getLocation().getFile())) {
-          continue;
-        }
-
         final DartProblem problem = new DartProblem(myProject, analysisError);
         problemsToAdd.add(problem);
 
@@ -303,12 +312,59 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
     }
 
     if (!problemsToAdd.isEmpty()) {
-      addRows(problemsToAdd);
+      insertSorted(problemsToAdd);
     }
 
     return newSelectedProblem;
   }
 
+  /**
+   * Inserts problems at their sorted positions. Problems that go to the same position are inserted with a single
+   * fireTableRowsInserted() call, when sorted by location these are all problems of a file.
+   */
+  private void insertSorted(@NotNull final List<DartProblem> problems) {
+    final Comparator<DartProblem> comparator = getRowComparator();
+    problems.sort(comparator);
+
+    int start = 0;
+    while (start < problems.size()) {
+      final int index = upperBound(problems.get(start), comparator);
+      int end = start + 1;
+      while (end < problems.size() && (index == myItems.size() || comparator.compare(problems.get(end), myItems.get(index)) < 0)) {
+        end++;
+      }
+
+      myItems.addAll(index, problems.subList(start, end));
+      fireTableRowsInserted(index, index + end - start - 1);
+      start = end;
+    }
+  }
+
+  // index of the first item that is greater than the given problem
+  private int upperBound(@NotNull final DartProblem problem, @NotNull final Comparator<DartProblem> comparator) {
+    int low = 0;
+    int high = myItems.size();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (comparator.compare(myItems.get(mid), problem) <= 0) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  @NotNull
+  private Comparator<DartProblem> getRowComparator() {
+    final Comparator<DartProblem> comparator = mySortKey.getColumn() == DartProblemsComparator.MESSAGE_COLUMN_ID
+                                               ? myDescriptionComparator
+                                               : myLocationComparator;
+    // the comparators return ascending order for the sort column, descending order is applied here as the row sorter would do
+    return mySortKey.getSortOrder() == SortOrder.DESCENDING ? comparator.reversed() : comparator;
+  }
+
   private static boolean lookSimilar(@NotNull final DartProblem problem1, @NotNull final DartProblem problem2) {
     return problem1.getSeverity().equals(problem2.getSeverity()) &&
            problem1.getErrorMessage().equals(problem2.getErrorMessage()) &&
@@ -331,7 +387,20 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
   }
 
   public void setSortKey(@NotNull final RowSorter.SortKey sortKey) {
-    mySortKey = sortKey;
+    if (!sortKey.equals(mySortKey)) {
+      mySortKey = sortKey;
+      sortAll();
+    }
+  }
+
+  /**
+   * Sorts all rows again, e.g. after grouping by severity is switched. Selection is not preserved.
+   */
+  public void sortAll() {
+    if (!myItems.isEmpty()) {
+      myItems.sort(getRowComparator());
+      fireTableDataChanged();
+    }
   }
 
   public void onFilterChanged() {
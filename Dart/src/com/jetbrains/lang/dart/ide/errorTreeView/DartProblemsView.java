@@ -15,6 +15,7 @@
  */
 package com.jetbrains.lang.dart.ide.errorTreeView;
 
+import com.intellij.ProjectTopics;
 import com.intellij.execution.runners.ExecutionUtil;
 import com.intellij.ide.projectView.ProjectView;
 import com.intellij.ide.projectView.impl.ProjectViewPane;
@@ -28,6 +29,8 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.components.*;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -65,6 +68,7 @@ public class DartProblemsView implements PersistentStateComponent<DartProblemsVi
     NotificationGroup.toolWindowGroup(TOOLWINDOW_ID, TOOLWINDOW_ID, false);
 
   private static final int TABLE_REFRESH_PERIOD = 300;
+  private static final int MAX_TABLE_REFRESH_PERIOD = 3000;
 
   private final Project myProject;
   private final DartProblemsPresentationHelper myPresentationHelper;
@@ -73,6 +77,8 @@ public class DartProblemsView implements PersistentStateComponent<DartProblemsVi
   private final Object myLock = new Object(); // use this lock to access myScheduledFilePathToErrors and myAlarm
   private final Map<String, List<AnalysisError>> myScheduledFilePathToErrors = new THashMap<>();
   private final Alarm myAlarm;
+  // Grows if table updates are slow, so that they take not more than about 1/5 of the EDT time while errors keep coming
+  private volatile int myTableRefreshPeriod = TABLE_REFRESH_PERIOD;
 
   private ToolWindow myToolWindow;
   private Icon myCurrentIcon;
@@ -100,7 +106,10 @@ public class DartProblemsView implements PersistentStateComponent<DartProblemsVi
         myScheduledFilePathToErrors.clear();
       }
 
+      final long start = System.currentTimeMillis();
       myPanel.setErrors(filePathToErrors);
+      final long duration = System.currentTimeMillis() - start;
+      myTableRefreshPeriod = (int)Math.min(MAX_TABLE_REFRESH_PERIOD, Math.max(TABLE_REFRESH_PERIOD, duration * 4));
     }
   };
 
@@ -110,6 +119,15 @@ public class DartProblemsView implements PersistentStateComponent<DartProblemsVi
     myAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, project);
     Disposer.register(project, myAlarm);
 
+    project.getMessageBus().connect(project).subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
+      @Override
+      public void rootsChanged(ModuleRootEvent event) {
+        if (myPanel != null) {
+          myPanel.onContentRootsChanged();
+        }
+      }
+    });
+
     UIUtil.invokeLaterIfNeeded(() -> {
       if (project.isDisposed()) {
         return;
@@ -275,7 +293,7 @@ public class DartProblemsView implements PersistentStateComponent<DartProblemsVi
   public void updateErrorsForFile(@NotNull final String filePath, @NotNull final List<AnalysisError> errors) {
     synchronized (myLock) {
       if (myScheduledFilePathToErrors.isEmpty()) {
-        myAlarm.addRequest(myUpdateRunnable, TABLE_REFRESH_PERIOD, ModalityState.NON_MODAL);
+        myAlarm.addRequest(myUpdateRunnable, myTableRefreshPeriod, ModalityState.NON_MODAL);
       }
 
       myScheduledFilePathToErrors.put(filePath, errors);
@@ -114,11 +114,15 @@ public class DartProblemsViewPanel extends SimpleToolWindowPanel implements Data
 
     //noinspection unchecked
     ((DefaultRowSorter)table.getRowSorter()).setRowFilter(myPresentationHelper.getRowFilter());
+    // Rows are sorted by the model, the row sorter only keeps model order, see DartProblemsTableModel
+    ((DefaultRowSorter)table.getRowSorter()).setSortsOnUpdates(true);
 
     table.getRowSorter().addRowSorterListener(e -> {
       final List<? extends RowSorter.SortKey> sortKeys = myTable.getRowSorter().getSortKeys();
       assert sortKeys.size() == 1 : sortKeys;
+      final DartProblem selectedProblem = myTable.getSelectedObject();
       ((DartProblemsTableModel)myTable.getModel()).setSortKey(sortKeys.get(0));
+      restoreSelection(selectedProblem);
     });
 
     new TableSpeedSearch(table, object -> object instanceof DartProblem
@@ -222,11 +226,25 @@ public class DartProblemsViewPanel extends SimpleToolWindowPanel implements Data
   }
 
   void fireGroupingOrFilterChanged() {
+    final DartProblemsTableModel model = (DartProblemsTableModel)myTable.getModel();
+    final DartProblem selectedProblem = myTable.getSelectedObject();
+    model.sortAll();
     myTable.getRowSorter().allRowsChanged();
-    ((DartProblemsTableModel)myTable.getModel()).onFilterChanged();
+    model.onFilterChanged();
+    restoreSelection(selectedProblem);
     updateStatusDescription();
   }
 
+  void onContentRootsChanged() {
+    ((DartProblemsTableModel)myTable.getModel()).onContentRootsChanged();
+  }
+
+  private void restoreSelection(@Nullable final DartProblem problem) {
+    if (problem != null && myTable.getSelectedObject() != problem) {
+      myTable.setSelection(Collections.singletonList(problem));
+    }
+  }
+
   private void showFiltersPopup() {
     final DartProblemsFilterForm form = new DartProblemsFilterForm();
     form.reset(myPresentationHelper);
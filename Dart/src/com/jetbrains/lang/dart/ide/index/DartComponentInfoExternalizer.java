@@ -5,6 +5,7 @@ import com.intellij.util.io.DataInputOutputUtil;
 import com.intellij.util.io.IOUtil;
 import com.jetbrains.lang.dart.DartComponentType;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -14,21 +15,40 @@ public class DartComponentInfoExternalizer implements DataExternalizer<DartCompo
 
   @Override
   public void save(@NotNull final DataOutput out, @NotNull final DartComponentInfo componentInfo) throws IOException {
-    final DartComponentType dartComponentType = componentInfo.getComponentType();
-    final int key = dartComponentType == null ? -1 : dartComponentType.getKey();
-    DataInputOutputUtil.writeINT(out, key);
-    final String libraryName = componentInfo.getLibraryName();
-    out.writeBoolean(libraryName != null);
-    if (libraryName != null) {
-      IOUtil.writeUTF(out, libraryName);
-    }
+    saveInfo(out, componentInfo);
   }
 
   @Override
   public DartComponentInfo read(@NotNull DataInput in) throws IOException {
-    final int componentTypeKey = DataInputOutputUtil.readINT(in);
-    final boolean hasLibraryName = in.readBoolean();
-    final String libraryName = hasLibraryName ? IOUtil.readUTF(in) : null;
-    return new DartComponentInfo(DartComponentType.valueOf(componentTypeKey), libraryName);
+    return readInfo(in);
+  }
+
+  /**
+   * Component type key (+1, so that a missing type is 0) and presence of the library name are packed into one varint,
+   * which takes a single byte for all component types.
+   */
+  static void saveInfo(@NotNull final DataOutput out, @NotNull final DartComponentInfo componentInfo) throws IOException {
+    saveHeader(out, componentInfo, componentInfo.getLibraryName() != null);
+    if (componentInfo.getLibraryName() != null) {
+      IOUtil.writeUTF(out, componentInfo.getLibraryName());
+    }
+  }
+
+  @NotNull
+  static DartComponentInfo readInfo(@NotNull final DataInput in) throws IOException {
+    final int header = DataInputOutputUtil.readINT(in);
+    return new DartComponentInfo(readComponentType(header), (header & 1) != 0 ? IOUtil.readUTF(in) : null);
+  }
+
+  static void saveHeader(@NotNull final DataOutput out, @NotNull final DartComponentInfo componentInfo, final boolean flag)
+    throws IOException {
+    final DartComponentType dartComponentType = componentInfo.getComponentType();
+    final int key = dartComponentType == null ? -1 : dartComponentType.getKey();
+    DataInputOutputUtil.writeINT(out, (key + 1) << 1 | (flag ? 1 : 0));
+  }
+
+  @Nullable
+  static DartComponentType readComponentType(final int header) {
+    return DartComponentType.valueOf((header >> 1) - 1);
   }
 }
@@ -1,9 +1,9 @@
 package com.jetbrains.lang.dart.ide.index;
 
+import com.intellij.openapi.util.Comparing;
 import com.intellij.util.io.DataExternalizer;
 import com.intellij.util.io.DataInputOutputUtil;
 import com.intellij.util.io.IOUtil;
-import com.jetbrains.lang.dart.DartComponentType;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.DataInput;
@@ -15,17 +15,24 @@ import java.util.List;
 
 public class DartComponentInfoListExternalizer implements DataExternalizer<List<DartComponentInfo>> {
 
+  /**
+   * Components of a list usually come from the same library, so the library name is written only when it differs from the one
+   * of the previous component, which is flagged in the header written by {@link DartComponentInfoExternalizer#saveHeader}.
+   */
   @Override
   public void save(@NotNull final DataOutput out, @NotNull final List<DartComponentInfo> infos) throws IOException {
     DataInputOutputUtil.writeINT(out, infos.size());
+    String previousLibraryName = null;
     for (DartComponentInfo componentInfo : infos) {
-      final DartComponentType dartComponentType = componentInfo.getComponentType();
-      final int key = dartComponentType == null ? -1 : dartComponentType.getKey();
-      DataInputOutputUtil.writeINT(out, key);
       final String libraryName = componentInfo.getLibraryName();
-      out.writeBoolean(libraryName != null);
-      if (libraryName != null) {
-        IOUtil.writeUTF(out, libraryName);
+      final boolean libraryNameChanged = !Comparing.equal(libraryName, previousLibraryName);
+      DartComponentInfoExternalizer.saveHeader(out, componentInfo, libraryNameChanged);
+      if (libraryNameChanged) {
+        out.writeBoolean(libraryName != null);
+        if (libraryName != null) {
+          IOUtil.writeUTF(out, libraryName);
+        }
+        previousLibraryName = libraryName;
       }
     }
   }
@@ -37,11 +44,13 @@ public class DartComponentInfoListExternalizer implements DataExternalizer<List<
 
     List<DartComponentInfo> result = new ArrayList<>(size);
 
+    String libraryName = null;
     for (int i = 0; i < size; i++) {
-      final int componentTypeKey = DataInputOutputUtil.readINT(in);
-      final boolean hasLibraryName = in.readBoolean();
-      final String libraryName = hasLibraryName ? IOUtil.readUTF(in) : null;
-      result.add(new DartComponentInfo(DartComponentType.valueOf(componentTypeKey), libraryName));
+      final int header = DataInputOutputUtil.readINT(in);
+      if ((header & 1) != 0) {
+        libraryName = in.readBoolean() ? IOUtil.readUTF(in) : null;
+      }
+      result.add(new DartComponentInfo(DartComponentInfoExternalizer.readComponentType(header), libraryName));
     }
 
     return result;
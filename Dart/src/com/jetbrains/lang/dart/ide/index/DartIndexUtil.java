@@ -12,13 +12,15 @@ import com.jetbrains.lang.dart.util.DartResolveUtil;
 import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
 
 import static com.jetbrains.lang.dart.ide.index.DartImportOrExportInfo.Kind;
 
 public class DartIndexUtil {
   // inc when change parser
-  public static final int INDEX_VERSION = 23;
+  public static final int INDEX_VERSION = 25;
 
   private static final Key<DartFileIndexData> ourDartCachesData = Key.create("dart.caches.index.data");
 
@@ -30,6 +32,8 @@ public class DartIndexUtil {
       indexData = content.getUserData(ourDartCachesData);
       if (indexData != null) return indexData;
       indexData = indexFileRoots(content.getPsiFile());
+      // all Dart indices are built from the same data, compute it once per file
+      content.putUserData(ourDartCachesData, indexData);
     }
 
     return indexData;
@@ -41,6 +45,9 @@ public class DartIndexUtil {
     result.setLibraryName(DartResolveUtil.getLibraryName(psiFile));
     result.setIsPart(PsiTreeUtil.getChildOfType(psiFile, DartPartOfStatement.class) != null);
 
+    // components of one type share the same immutable info within a file
+    final Map<DartComponentType, DartComponentInfo> typeToComponentInfo = new EnumMap<>(DartComponentType.class);
+
     for (PsiElement rootElement : DartResolveUtil.findDartRoots(psiFile)) {
       PsiElement[] children = rootElement.getChildren();
 
@@ -55,7 +62,12 @@ public class DartIndexUtil {
         PsiElement parent = componentName.getParent();
         final DartComponentType type = DartComponentType.typeOf(parent);
         if (type != null) {
-          result.addComponentInfo(name, new DartComponentInfo(type, result.getLibraryName()));
+          DartComponentInfo info = typeToComponentInfo.get(type);
+          if (info == null) {
+            info = new DartComponentInfo(type, result.getLibraryName());
+            typeToComponentInfo.put(type, info);
+          }
+          result.addComponentInfo(name, info);
         }
         if (parent instanceof DartClass) {
           result.addClassName(name);
@@ -0,0 +1,100 @@
+package com.jetbrains.lang.dart.ide.runner.server.vmService;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Maps token positions of a script to 0-based line and column numbers.
+ * Token positions are kept in a sorted int array, lookup is a binary search.
+ */
+class DartTokenPosTable {
+  @NotNull private final int[] myTokenPositions;
+  @NotNull private final int[] myLines;
+  @NotNull private final int[] myColumns;
+
+  private DartTokenPosTable(@NotNull final int[] tokenPositions, @NotNull final int[] lines, @NotNull final int[] columns) {
+    myTokenPositions = tokenPositions;
+    myLines = lines;
+    myColumns = columns;
+  }
+
+  @NotNull
+  static DartTokenPosTable create(@NotNull final List<List<Integer>> tokenPosTable) {
+    int size = 0;
+    for (List<Integer> lineAndPairs : tokenPosTable) {
+      size += (lineAndPairs.size() - 1) / 2;
+    }
+
+    int[] tokenPositions = new int[size];
+    int[] lines = new int[size];
+    int[] columns = new int[size];
+    int index = 0;
+    boolean sorted = true;
+
+    // Each subarray consists of a line number followed by (tokenPos, columnNumber) pairs
+    // see https://github.com/dart-lang/vm_service_drivers/blob/master/dart/tool/service.md#script
+    for (List<Integer> lineAndPairs : tokenPosTable) {
+      final Iterator<Integer> iterator = lineAndPairs.iterator();
+      final int line = Math.max(0, iterator.next() - 1);
+      while (iterator.hasNext()) {
+        final int tokenPos = iterator.next();
+        if (!iterator.hasNext()) break;
+        final int column = Math.max(0, iterator.next() - 1);
+
+        sorted &= index == 0 || tokenPositions[index - 1] < tokenPos;
+        tokenPositions[index] = tokenPos;
+        lines[index] = line;
+        columns[index] = column;
+        index++;
+      }
+    }
+
+    if (!sorted) {
+      // VM sends lines in order, so this normally doesn't happen
+      final long[] tokenPosAndIndex = new long[index];
+      for (int i = 0; i < index; i++) {
+        tokenPosAndIndex[i] = (long)tokenPositions[i] << 32 | i;
+      }
+      Arrays.sort(tokenPosAndIndex);
+
+      final int[] sortedTokenPositions = new int[index];
+      final int[] sortedLines = new int[index];
+      final int[] sortedColumns = new int[index];
+      for (int i = 0; i < index; i++) {
+        final int oldIndex = (int)tokenPosAndIndex[i];
+        sortedTokenPositions[i] = tokenPositions[oldIndex];
+        sortedLines[i] = lines[oldIndex];
+        sortedColumns[i] = columns[oldIndex];
+      }
+      tokenPositions = sortedTokenPositions;
+      lines = sortedLines;
+      columns = sortedColumns;
+    }
+    else if (index < size) {
+      tokenPositions = Arrays.copyOf(tokenPositions, index);
+      lines = Arrays.copyOf(lines, index);
+      columns = Arrays.copyOf(columns, index);
+    }
+
+    return new DartTokenPosTable(tokenPositions, lines, columns);
+  }
+
+  /**
+   * @return index to be passed to {@link #getLine(int)} and {@link #getColumn(int)}, or -1 if the token position is unknown
+   */
+  int indexOf(final int tokenPos) {
+    final int index = Arrays.binarySearch(myTokenPositions, tokenPos);
+    return index >= 0 ? index : -1;
+  }
+
+  int getLine(final int index) {
+    return myLines[index];
+  }
+
+  int getColumn(final int index) {
+    return myColumns[index];
+  }
+}
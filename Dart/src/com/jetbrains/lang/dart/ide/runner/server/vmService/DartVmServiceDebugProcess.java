@@ -13,7 +13,6 @@ import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.Key;
-import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -24,6 +23,7 @@ import com.intellij.psi.search.GlobalSearchScopesCore;
 import com.intellij.testFramework.LightVirtualFile;
 import com.intellij.util.PathUtil;
 import com.intellij.util.TimeoutUtil;
+import com.intellij.util.containers.SLRUMap;
 import com.intellij.xdebugger.*;
 import com.intellij.xdebugger.breakpoints.XBreakpointHandler;
 import com.intellij.xdebugger.evaluation.XDebuggerEditorsProvider;
@@ -42,7 +42,6 @@ import com.jetbrains.lang.dart.util.DartResolveUtil;
 import com.jetbrains.lang.dart.util.DartUrlResolver;
 import gnu.trove.THashMap;
 import gnu.trove.THashSet;
-import gnu.trove.TIntObjectHashMap;
 import org.dartlang.vm.service.VmService;
 import org.dartlang.vm.service.element.*;
 import org.dartlang.vm.service.logging.Logging;
@@ -71,8 +70,11 @@ public class DartVmServiceDebugProcess extends XDebugProcess {
   private String myLatestCurrentIsolateId;
 
   private final Map<String, LightVirtualFile> myScriptIdToContentMap = new THashMap<>();
-  private final Map<String, TIntObjectHashMap<Pair<Integer, Integer>>> myScriptIdToLinesAndColumnsMap =
-    new THashMap<>();
+  // Token position tables of big apps take a lot of memory, only recently used ones are kept, others are requested from the VM again
+  private static final int TOKEN_POS_TABLES_PROTECTED_SIZE = 100;
+  private static final int TOKEN_POS_TABLES_PROBATIONAL_SIZE = 50;
+  private final SLRUMap<String, DartTokenPosTable> myScriptIdToTokenPosTable =
+    new SLRUMap<>(TOKEN_POS_TABLES_PROTECTED_SIZE, TOKEN_POS_TABLES_PROBATIONAL_SIZE);
 
   @Nullable private final String myDASExecutionContextId;
   private final boolean myRemoteDebug;
@@ -525,12 +527,13 @@ public class DartVmServiceDebugProcess extends XDebugProcess {
       file = myScriptIdToContentMap.get(scriptRef.getId());
     }
 
-    TIntObjectHashMap<Pair<Integer, Integer>> tokenPosToLineAndColumn = myScriptIdToLinesAndColumnsMap.get(scriptRef.getId());
+    DartTokenPosTable tokenPosTable;
+    synchronized (myScriptIdToTokenPosTable) {
+      tokenPosTable = myScriptIdToTokenPosTable.get(scriptRef.getId());
+    }
 
-    if (file != null && tokenPosToLineAndColumn != null) {
-      final Pair<Integer, Integer> lineAndColumn = tokenPosToLineAndColumn.get(tokenPos);
-      if (lineAndColumn == null) return XDebuggerUtil.getInstance().createPositionByOffset(file, 0);
-      return XDebuggerUtil.getInstance().createPosition(file, lineAndColumn.first, lineAndColumn.second);
+    if (file != null && tokenPosTable != null) {
+      return createPosition(file, tokenPosTable, tokenPos);
     }
 
     final Script script = myVmServiceWrapper.getScriptSync(isolateId, scriptRef.getId());
@@ -542,14 +545,23 @@ public class DartVmServiceDebugProcess extends XDebugProcess {
       myScriptIdToContentMap.put(scriptRef.getId(), (LightVirtualFile)file);
     }
 
-    if (tokenPosToLineAndColumn == null) {
-      tokenPosToLineAndColumn = createTokenPosToLineAndColumnMap(script.getTokenPosTable());
-      myScriptIdToLinesAndColumnsMap.put(scriptRef.getId(), tokenPosToLineAndColumn);
+    if (tokenPosTable == null) {
+      tokenPosTable = DartTokenPosTable.create(script.getTokenPosTable());
+      synchronized (myScriptIdToTokenPosTable) {
+        myScriptIdToTokenPosTable.put(scriptRef.getId(), tokenPosTable);
+      }
     }
 
-    final Pair<Integer, Integer> lineAndColumn = tokenPosToLineAndColumn.get(tokenPos);
-    if (lineAndColumn == null) return XDebuggerUtil.getInstance().createPositionByOffset(file, 0);
-    return XDebuggerUtil.getInstance().createPosition(file, lineAndColumn.first, lineAndColumn.second);
+    return createPosition(file, tokenPosTable, tokenPos);
+  }
+
+  @Nullable
+  private static XSourcePosition createPosition(@NotNull final VirtualFile file,
+                                                @NotNull final DartTokenPosTable tokenPosTable,
+                                                final int tokenPos) {
+    final int index = tokenPosTable.indexOf(tokenPos);
+    if (index < 0) return XDebuggerUtil.getInstance().createPositionByOffset(file, 0);
+    return XDebuggerUtil.getInstance().createPosition(file, tokenPosTable.getLine(index), tokenPosTable.getColumn(index));
   }
 
   private static boolean isDartPatchUri(@NotNull final String uri) {
@@ -557,25 +569,6 @@ public class DartVmServiceDebugProcess extends XDebugProcess {
     return uri.startsWith("dart:_") || uri.startsWith("dart:") && uri.contains("-patch/");
   }
 
-  @NotNull
-  private static TIntObjectHashMap<Pair<Integer, Integer>> createTokenPosToLineAndColumnMap(@NotNull final List<List<Integer>> tokenPosTable) {
-    // Each subarray consists of a line number followed by (tokenPos, columnNumber) pairs
-    // see https://github.com/dart-lang/vm_service_drivers/blob/master/dart/tool/service.md#script
-    final TIntObjectHashMap<Pair<Integer, Integer>> result = new TIntObjectHashMap<>();
-
-    for (List<Integer> lineAndPairs : tokenPosTable) {
-      final Iterator<Integer> iterator = lineAndPairs.iterator();
-      int line = Math.max(0, iterator.next() - 1);
-      while (iterator.hasNext()) {
-        final int tokenPos = iterator.next();
-        final int column = Math.max(0, iterator.next() - 1);
-        result.put(tokenPos, Pair.create(line, column));
-      }
-    }
-
-    return result;
-  }
-
   @NotNull
   private static String threeSlashize(@NotNull final String uri) {
     if (!uri.startsWith("file:")) return uri;
@@ -12,16 +12,14 @@ import com.intellij.util.PathUtil;
 import com.jetbrains.lang.dart.ide.runner.util.DartTestLocationProvider;
 import com.jetbrains.lang.dart.util.DartUrlResolver;
 import gnu.trove.TIntLongHashMap;
+import gnu.trove.TIntObjectHashMap;
 import jetbrains.buildServer.messages.serviceMessages.ServiceMessageVisitor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Type;
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -84,6 +82,7 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   private static final String TEAR_DOWN_ALL_VIRTUAL_TEST_NAME = "(tearDownAll)";
 
   private static final Gson GSON = new Gson();
+  private static final JsonParser JSON_PARSER = new JsonParser();
 
   @NotNull private final DartUrlResolver myUrlResolver;
 
@@ -91,20 +90,36 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   private Key myCurrentOutputType;
   private ServiceMessageVisitor myCurrentVisitor;
   private final TIntLongHashMap myTestIdToTimestamp;
-  private final Map<Integer, Test> myTestData;
-  private final Map<Integer, Group> myGroupData;
-  private final Map<Integer, Suite> mySuiteData;
+  private final TIntObjectHashMap<Test> myTestData;
+  private final TIntObjectHashMap<Group> myGroupData;
+  private final TIntObjectHashMap<Suite> mySuiteData;
   private int mySuitCount;
 
+  // Consecutive 'print' events of one test that came in one output chunk are reported as a single testStdOut message.
+  @Nullable private Test myPendingOutputTest;
+  @NotNull private final StringBuilder myPendingOutput = new StringBuilder();
+
   public DartTestEventsConverter(@NotNull final String testFrameworkName,
                                  @NotNull final TestConsoleProperties consoleProperties,
                                  @NotNull final DartUrlResolver urlResolver) {
     super(testFrameworkName, consoleProperties);
     myUrlResolver = urlResolver;
     myTestIdToTimestamp = new TIntLongHashMap();
-    myTestData = new HashMap<>();
-    myGroupData = new HashMap<>();
-    mySuiteData = new HashMap<>();
+    myTestData = new TIntObjectHashMap<>();
+    myGroupData = new TIntObjectHashMap<>();
+    mySuiteData = new TIntObjectHashMap<>();
+  }
+
+  @Override
+  public void process(final String text, final Key outputType) {
+    super.process(text, outputType);
+    flushPendingOutputSafely();
+  }
+
+  @Override
+  public void flushBufferBeforeTerminating() {
+    flushPendingOutputSafely();
+    super.flushBufferBeforeTerminating();
   }
 
   protected boolean processServiceMessages(final String text, final Key outputType, final ServiceMessageVisitor visitor)
@@ -117,12 +132,18 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   }
 
   private boolean processEventText(final String text) throws JsonSyntaxException, ParseException {
-    JsonParser jp = new JsonParser();
-    JsonElement elem;
-    try {
-      elem = jp.parse(text);
+    JsonElement elem = null;
+    // events are JSON objects, do not pay for a parse attempt and an exception for any other output line
+    if (StringUtil.startsWithChar(text.trim(), '{')) {
+      try {
+        elem = JSON_PARSER.parse(text);
+      }
+      catch (JsonSyntaxException ignore) {/**/}
     }
-    catch (JsonSyntaxException ex) {
+
+    if (elem == null) {
+      flushPendingOutput();
+
       if (text.contains("\"json\" is not an allowed value for option \"reporter\"")) {
         final ServiceMessageBuilder testStarted = ServiceMessageBuilder.testStarted("Failed to start");
         final ServiceMessageBuilder testFailed = ServiceMessageBuilder.testFailed("Failed to start");
@@ -133,7 +154,7 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
 
       return doProcessServiceMessages(text);
     }
-    if (elem == null || !elem.isJsonObject()) return false;
+    if (!elem.isJsonObject()) return false;
     return process(elem.getAsJsonObject());
   }
 
@@ -144,6 +165,10 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
 
   private boolean process(JsonObject obj) throws JsonSyntaxException, ParseException {
     String type = obj.get(JSON_TYPE).getAsString();
+    if (!TYPE_PRINT.equals(type)) {
+      flushPendingOutput();
+    }
+
     if (TYPE_TEST_START.equals(type)) {
       return handleTestStart(obj);
     }
@@ -364,10 +389,34 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
       result = finishMessage(testStarted, test.getId(), test.getValidParentId());
     }
 
-    ServiceMessageBuilder message = ServiceMessageBuilder.testStdOut(test.getBaseName());
-    message.addAttribute("out", appendLineBreakIfNeeded(getMessage(obj)));
+    if (myPendingOutputTest != test) {
+      result &= flushPendingOutput();
+      myPendingOutputTest = test;
+    }
+    myPendingOutput.append(appendLineBreakIfNeeded(getMessage(obj)));
+
+    return result;
+  }
+
+  private boolean flushPendingOutput() throws ParseException {
+    final Test test = myPendingOutputTest;
+    if (test == null) return true;
+
+    final ServiceMessageBuilder message = ServiceMessageBuilder.testStdOut(test.getBaseName());
+    message.addAttribute("out", myPendingOutput.toString());
+    myPendingOutputTest = null;
+    myPendingOutput.setLength(0);
+
+    return finishMessage(message, test.getId(), test.getValidParentId());
+  }
 
-    return result & finishMessage(message, test.getId(), test.getValidParentId());
+  private void flushPendingOutputSafely() {
+    try {
+      flushPendingOutput();
+    }
+    catch (ParseException e) {
+      LOG.warn(e);
+    }
   }
 
   private boolean handleStart(JsonObject obj) throws ParseException {
@@ -388,7 +437,7 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
 
   private void processAllTestsDone() {
     // All tests are done.
-    for (Group group : myGroupData.values()) {
+    myGroupData.forEachValue(group -> {
       // For package: test prior to v. 0.12.9 there were no Group.testCount field, so need to finish them all at the end.
       // AFAIK the order does not matter. A depth-first post-order traversal of the tree would work
       // if order does matter. Note: Currently, there is no tree representation, just parent links.
@@ -401,7 +450,8 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
           // ignore it
         }
       }
-    }
+      return true;
+    });
     myTestIdToTimestamp.clear();
     myTestData.clear();
     myGroupData.clear();
@@ -477,7 +527,7 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   }
 
   @NotNull
-  private <T extends Item> T getItem(JsonObject obj, Map<Integer, T> items) throws ParseException {
+  private <T extends Item> T getItem(JsonObject obj, TIntObjectHashMap<T> items) throws ParseException {
     if (obj == null) throw new ParseException("Unexpected null json object", 0);
     T item;
     JsonElement id = obj.get(JSON_ID);
@@ -569,7 +619,7 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
       return Metadata.from(obj.get(DEF_METADATA));
     }
 
-    static Suite lookupSuite(JsonObject obj, Map<Integer, Suite> suites) {
+    static Suite lookupSuite(JsonObject obj, TIntObjectHashMap<Suite> suites) {
       JsonElement suiteObj = obj.get(JSON_SUITE_ID);
       Suite suite = null;
       if (suiteObj != null && suiteObj.isJsonPrimitive()) {
@@ -702,11 +752,12 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     private boolean myTestStartReported = false;
     private boolean myTestErrorReported = false;
 
-    static Test from(JsonObject obj, Map<Integer, Group> groups, Map<Integer, Suite> suites) {
-      int[] groupIds = GSON.fromJson(obj.get(JSON_GROUP_IDS), (Type)int[].class);
+    static Test from(JsonObject obj, TIntObjectHashMap<Group> groups, TIntObjectHashMap<Suite> suites) {
+      JsonElement groupIds = obj.get(JSON_GROUP_IDS);
       Group parent = null;
-      if (groupIds != null && groupIds.length > 0) {
-        parent = groups.get(groupIds[groupIds.length - 1]);
+      if (groupIds != null && groupIds.isJsonArray() && groupIds.getAsJsonArray().size() > 0) {
+        final JsonArray groupIdArray = groupIds.getAsJsonArray();
+        parent = groups.get(groupIdArray.get(groupIdArray.size() - 1).getAsInt());
       }
       Suite suite = lookupSuite(obj, suites);
       final int line = extractInt(obj, JSON_LINE);
@@ -730,7 +781,7 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     private int myTestCount = 0;
     private int myDoneTestsCount = 0;
 
-    static Group from(JsonObject obj, Map<Integer, Group> groups, Map<Integer, Suite> suites) {
+    static Group from(JsonObject obj, TIntObjectHashMap<Group> groups, TIntObjectHashMap<Suite> suites) {
       JsonElement parentObj = obj.get(JSON_PARENT_ID);
       Group parent = null;
       if (parentObj != null && parentObj.isJsonPrimitive()) {
@@ -796,12 +847,18 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   }
 
   private static class Metadata {
-    @SuppressWarnings("unused") private boolean skip; // assigned by GSON via reflection
-    @SuppressWarnings("unused") private String skipReason; // assigned by GSON via reflection
+    private boolean skip;
+    private String skipReason;
 
     static Metadata from(JsonElement elem) {
-      if (elem == null) return new Metadata();
-      return GSON.fromJson(elem, (Type)Metadata.class);
+      final Metadata metadata = new Metadata();
+      if (elem == null || !elem.isJsonObject()) return metadata;
+
+      final JsonElement skip = elem.getAsJsonObject().get("skip");
+      metadata.skip = skip != null && skip.isJsonPrimitive() && skip.getAsBoolean();
+      final JsonElement skipReason = elem.getAsJsonObject().get("skipReason");
+      metadata.skipReason = skipReason != null && skipReason.isJsonPrimitive() ? skipReason.getAsString() : null;
+      return metadata;
     }
   }
 }
@@ -1,15 +1,24 @@
 package com.jetbrains.lang.dart.util;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.util.PairConsumer;
+import com.intellij.util.containers.ContainerUtil;
+import com.jetbrains.lang.dart.DartFileListener;
 import com.jetbrains.lang.dart.ide.index.DartLibraryIndex;
 import com.jetbrains.lang.dart.sdk.DartSdk;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
+import java.util.Map;
 
 public abstract class DartUrlResolver {
 
@@ -24,9 +33,12 @@ public abstract class DartUrlResolver {
   public static final String PACKAGES_FOLDER_NAME = "packages";
   public static final String DART_CORE_URI = "dart:core";
 
+  private static final Key<CachedValue<ResolverCache>> RESOLVER_CACHE_KEY = Key.create("DART_URL_RESOLVER_CACHE");
+
   /**
    * Returned instance becomes obsolete if/when pubspec.yaml file is added or deleted or if module-specific custom package roots are changed,
-   * so do not keep returned instance too long.
+   * so do not keep returned instance too long. Instances are cached per project and shared by all files of one pub package until
+   * file structure, project roots, pubspec.yaml or .packages files change.
    *
    * @param project
    * @param contextFile may be pubspec.yaml file, its parent folder or any file/folder within this parent folder; in case of import statements resolve this must be an analyzed file
@@ -34,7 +46,35 @@ public abstract class DartUrlResolver {
    */
   @NotNull
   public static DartUrlResolver getInstance(final @NotNull Project project, final @NotNull VirtualFile contextFile) {
-    return new DartUrlResolverImpl(project, contextFile);
+    final ResolverCache cache = CachedValuesManager.getManager(project).getCachedValue(project, RESOLVER_CACHE_KEY, () ->
+      new CachedValueProvider.Result<>(new ResolverCache(),
+                                       ProjectRootManager.getInstance(project),
+                                       VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS,
+                                       DartFileListener.getPackagesModificationTracker()), false);
+
+    final DartUrlResolverImpl cached = cache.myContextFileToResolver.get(contextFile);
+    if (cached != null && cached.isPubspecYamlUpToDate()) return cached;
+
+    final VirtualFile pubspecYamlFile = PubspecYamlUtil.findPubspecYamlFile(project, contextFile);
+    if (pubspecYamlFile == null) {
+      // resolver depends on the module of the context file, not worth sharing
+      final DartUrlResolverImpl resolver = new DartUrlResolverImpl(project, contextFile, null);
+      cache.myContextFileToResolver.put(contextFile, resolver);
+      return resolver;
+    }
+
+    DartUrlResolverImpl resolver = cache.myPubspecToResolver.get(pubspecYamlFile);
+    if (resolver == null || !resolver.isPubspecYamlUpToDate()) {
+      resolver = new DartUrlResolverImpl(project, contextFile, pubspecYamlFile);
+      cache.myPubspecToResolver.put(pubspecYamlFile, resolver);
+    }
+    cache.myContextFileToResolver.put(contextFile, resolver);
+    return resolver;
+  }
+
+  private static class ResolverCache {
+    private final Map<VirtualFile, DartUrlResolverImpl> myContextFileToResolver = ContainerUtil.newConcurrentMap();
+    private final Map<VirtualFile, DartUrlResolverImpl> myPubspecToResolver = ContainerUtil.newConcurrentMap();
   }
 
   @Nullable
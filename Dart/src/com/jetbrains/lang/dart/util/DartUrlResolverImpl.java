@@ -38,15 +38,21 @@ public class DartUrlResolverImpl extends DartUrlResolver {
   @NotNull private final Project myProject;
   @Nullable private final DartSdk myDartSdk;
   @Nullable private final VirtualFile myPubspecYamlFile;
+  private final long myPubspecYamlStamp;
   // myLivePackageNameToDirMap also contains packages map from .packages file if applicable
   @NotNull private final Map<String, VirtualFile> myLivePackageNameToDirMap = new THashMap<>();
   // myPackagesMapFromLib is not empty only if pubspec.yaml file is null
   @NotNull private final Map<String, List<String>> myPackagesMapFromLib = new THashMap<>();
 
   public DartUrlResolverImpl(final @NotNull Project project, final @NotNull VirtualFile contextFile) {
+    this(project, contextFile, PubspecYamlUtil.findPubspecYamlFile(project, contextFile));
+  }
+
+  DartUrlResolverImpl(final @NotNull Project project, final @NotNull VirtualFile contextFile, final @Nullable VirtualFile pubspecYamlFile) {
     myProject = project;
     myDartSdk = DartSdk.getDartSdk(project);
-    myPubspecYamlFile = PubspecYamlUtil.findPubspecYamlFile(myProject, contextFile);
+    myPubspecYamlFile = pubspecYamlFile;
+    myPubspecYamlStamp = pubspecYamlFile == null ? -1 : PubspecYamlUtil.getModificationStamp(pubspecYamlFile);
 
     initLivePackageNameToDirMap();
 
@@ -60,6 +66,14 @@ public class DartUrlResolverImpl extends DartUrlResolver {
     return myPubspecYamlFile;
   }
 
+  /**
+   * VFS events are handled by the resolver cache, this check is for the unsaved pubspec.yaml changes.
+   */
+  boolean isPubspecYamlUpToDate() {
+    return myPubspecYamlFile == null ||
+           myPubspecYamlFile.isValid() && myPubspecYamlStamp == PubspecYamlUtil.getModificationStamp(myPubspecYamlFile);
+  }
+
   public void processLivePackages(final @NotNull PairConsumer<String, VirtualFile> packageNameAndDirConsumer) {
     for (Map.Entry<String, VirtualFile> entry : myLivePackageNameToDirMap.entrySet()) {
       packageNameAndDirConsumer.consume(entry.getKey(), entry.getValue());
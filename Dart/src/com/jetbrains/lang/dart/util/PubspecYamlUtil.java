@@ -123,14 +123,20 @@ public class PubspecYamlUtil {
     }
   }
 
+  /**
+   * Takes unsaved changes into account, as {@link #getDartProjectName(VirtualFile)} and other methods reading pubspec.yaml do.
+   */
+  static long getModificationStamp(@NotNull final VirtualFile pubspecYamlFile) {
+    final Document cachedDocument = FileDocumentManager.getInstance().getCachedDocument(pubspecYamlFile);
+    return cachedDocument != null ? cachedDocument.getModificationStamp() : pubspecYamlFile.getModificationCount();
+  }
+
   @Nullable
   private static Map<String, Object> getPubspecYamlInfo(final @NotNull VirtualFile pubspecYamlFile) {
     // do not use Yaml plugin here - IntelliJ IDEA Community Edition doesn't contain it.
     Pair<Long, Map<String, Object>> data = pubspecYamlFile.getUserData(MOD_STAMP_TO_PUBSPEC_NAME);
 
-    final FileDocumentManager documentManager = FileDocumentManager.getInstance();
-    final Document cachedDocument = documentManager.getCachedDocument(pubspecYamlFile);
-    final Long currentTimestamp = cachedDocument != null ? cachedDocument.getModificationStamp() : pubspecYamlFile.getModificationCount();
+    final Long currentTimestamp = getModificationStamp(pubspecYamlFile);
     final Long cachedTimestamp = data == null ? null : data.first;
 
     if (cachedTimestamp == null || !cachedTimestamp.equals(currentTimestamp)) {
@@ -0,0 +1,138 @@
+package com.google.dart.server.internal.remote;
+
+import com.google.dart.server.Consumer;
+import com.google.gson.JsonObject;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RequestSchedulerTest extends TestCase {
+  private final List<String> mySent = new ArrayList<>();
+  private final RequestScheduler myScheduler = new RequestScheduler((id, request, consumer) -> mySent.add(id));
+  private int myNextId;
+
+  @NotNull
+  private String submit(@NotNull final String method, @NotNull final String file) {
+    return submit(method, file, new Consumer() {
+    });
+  }
+
+  @NotNull
+  private String submit(@NotNull final String method, @NotNull final String file, @NotNull final Consumer consumer) {
+    final String id = String.valueOf(myNextId++);
+    final JsonObject params = new JsonObject();
+    params.addProperty("file", file);
+    final JsonObject request = new JsonObject();
+    request.addProperty("id", id);
+    request.addProperty("method", method);
+    request.add("params", params);
+    myScheduler.submit(id, request, consumer);
+    return id;
+  }
+
+  private void assertSent(@NotNull final String... ids) {
+    assertEquals(Arrays.asList(ids), mySent);
+    mySent.clear();
+  }
+
+  public void testLanes() {
+    assertEquals(RequestScheduler.Lane.IMMEDIATE, RequestScheduler.getLane("completion.getSuggestions"));
+    assertEquals(RequestScheduler.Lane.IMMEDIATE, RequestScheduler.getLane("analysis.updateContent"));
+    assertEquals(RequestScheduler.Lane.NAVIGATION, RequestScheduler.getLane("analysis.getHover"));
+    assertEquals(RequestScheduler.Lane.BACKGROUND, RequestScheduler.getLane("analysis.getErrors"));
+  }
+
+  public void testImmediateRequestsAreNotQueued() {
+    final String hover1 = submit("analysis.getHover", "/a.dart");
+    final String hover2 = submit("analysis.getHover", "/b.dart");
+    final String hover3 = submit("analysis.getHover", "/c.dart");
+    assertSent(hover1, hover2);
+
+    final String completion = submit("completion.getSuggestions", "/a.dart");
+    assertSent(completion);
+
+    myScheduler.responseReceived(hover1);
+    assertSent(hover3);
+  }
+
+  public void testQueuedRequestsAreSentInSubmissionOrder() {
+    final List<String> hovers = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      hovers.add(submit("analysis.getHover", "/" + i + ".dart"));
+    }
+    assertSent(hovers.get(0), hovers.get(1));
+
+    for (int i = 0; i < 4; i++) {
+      myScheduler.responseReceived(hovers.get(i));
+      assertSent(hovers.get(i + 2));
+    }
+  }
+
+  public void testSlowBackgroundRequestDoesNotBlockOtherMethods() {
+    final String errors1 = submit("analysis.getErrors", "/a.dart");
+    final String errors2 = submit("analysis.getErrors", "/b.dart");
+    final String search1 = submit("search.findElementReferences", "/a.dart");
+    final String search2 = submit("search.findMemberDeclarations", "/a.dart");
+    final String search3 = submit("search.findTopLevelDeclarations", "/a.dart");
+    // getErrors is limited to one request at a time, the others pass the queued one
+    assertSent(errors1, search1, search2);
+
+    myScheduler.responseReceived(search1);
+    assertSent(search3);
+
+    myScheduler.responseReceived(search2);
+    myScheduler.responseReceived(search3);
+    assertSent();
+
+    myScheduler.responseReceived(errors1);
+    assertSent(errors2);
+  }
+
+  public void testIdenticalQueriesAreCoalesced() {
+    final Consumer first = new Consumer() {
+    };
+    final Consumer second = new Consumer() {
+    };
+    final String id = submit("analysis.getHover", "/a.dart", first);
+    submit("analysis.getHover", "/a.dart", second);
+    assertSent(id);
+    assertEquals(Collections.singletonList(second), myScheduler.responseReceived(id));
+  }
+
+  public void testStateChangeStopsCoalescing() {
+    final String hover1 = submit("analysis.getHover", "/a.dart");
+    submit("analysis.updateContent", "/a.dart");
+    final String hover2 = submit("analysis.getHover", "/a.dart");
+    assertEquals(3, mySent.size());
+    assertTrue(mySent.contains(hover1) && mySent.contains(hover2));
+  }
+
+  public void testCancelQueuedRequest() {
+    final Consumer cancelled = new Consumer() {
+    };
+    final String hover1 = submit("analysis.getHover", "/a.dart");
+    final String hover2 = submit("analysis.getHover", "/b.dart");
+    submit("analysis.getHover", "/c.dart", cancelled);
+    final String hover4 = submit("analysis.getHover", "/d.dart");
+    assertSent(hover1, hover2);
+
+    assertTrue(myScheduler.cancel(cancelled));
+    assertFalse(myScheduler.cancel(cancelled));
+    myScheduler.responseReceived(hover1);
+    assertSent(hover4);
+  }
+
+  public void testReset() {
+    final String errors1 = submit("analysis.getErrors", "/a.dart");
+    submit("analysis.getErrors", "/b.dart");
+    assertSent(errors1);
+
+    myScheduler.reset();
+    final String errors3 = submit("analysis.getErrors", "/c.dart");
+    assertSent(errors3);
+  }
+}
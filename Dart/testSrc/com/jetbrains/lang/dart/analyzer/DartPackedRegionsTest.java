@@ -0,0 +1,64 @@
+package com.jetbrains.lang.dart.analyzer;
+
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+public class DartPackedRegionsTest extends TestCase {
+
+  @NotNull
+  private static DartPackedRegions typed(final int... offsetLengthType) {
+    final DartPackedRegions.Builder builder = new DartPackedRegions.Builder(0, true);
+    for (int i = 0; i < offsetLengthType.length; i += 3) {
+      builder.add(offsetLengthType[i], offsetLengthType[i + 1], offsetLengthType[i + 2]);
+    }
+    return builder.build();
+  }
+
+  @NotNull
+  private static DartPackedRegions untyped(final int... offsetLength) {
+    final DartPackedRegions.Builder builder = new DartPackedRegions.Builder(0, false);
+    for (int i = 0; i < offsetLength.length; i += 2) {
+      builder.add(offsetLength[i], offsetLength[i + 1]);
+    }
+    return builder.build();
+  }
+
+  public void testBuilder() {
+    final DartPackedRegions regions = typed(0, 5, 1, 10, 3, 2, 20, 1, 1);
+    assertEquals(3, regions.size());
+    assertEquals(10, regions.getOffset(1));
+    assertEquals(3, regions.getLength(1));
+    assertEquals(2, regions.getTypeId(1));
+    assertSame(DartPackedRegions.EMPTY, untyped());
+    assertSame(DartPackedRegions.EMPTY_TYPED, typed());
+  }
+
+  public void testTypingUpdatesTouched() {
+    final DartPackedRegions regions = typed(0, 5, 1, 10, 3, 2, 20, 1, 1);
+    // typing inside the second region, right before the third one
+    assertEquals(typed(0, 5, 1, 10, 5, 2, 22, 1, 1), regions.updateUpdatingTouched(11, 0, 2));
+    // typing at the very start of the region shifts it
+    assertEquals(typed(0, 5, 1, 12, 3, 2, 22, 1, 1), regions.updateUpdatingTouched(10, 0, 2));
+    // nothing changed in length
+    assertSame(regions, regions.updateUpdatingTouched(11, 1, 1));
+  }
+
+  public void testDeletingUpdatesTouched() {
+    final DartPackedRegions regions = typed(0, 5, 1, 10, 3, 2, 20, 1, 1);
+    // deleting inside the second region
+    assertEquals(typed(0, 5, 1, 10, 2, 2, 19, 1, 1), regions.updateUpdatingTouched(11, 1, 0));
+    // deleting the whole second region
+    assertEquals(typed(0, 5, 1, 17, 1, 1), regions.updateUpdatingTouched(10, 3, 0));
+    // deleting across the region boundary
+    assertEquals(typed(0, 5, 1, 17, 1, 1), regions.updateUpdatingTouched(12, 3, 0));
+  }
+
+  public void testDeletingTouched() {
+    final DartPackedRegions regions = untyped(0, 5, 10, 3, 20, 1);
+    assertEquals(untyped(0, 5, 22, 1), regions.updateDeletingTouched(11, 0, 2));
+    assertEquals(untyped(0, 5, 12, 3, 22, 1), regions.updateDeletingTouched(10, 0, 2));
+    assertEquals(untyped(0, 5, 19, 1), regions.updateDeletingTouched(11, 1, 0));
+    assertEquals(untyped(0, 5, 9, 3, 19, 1), regions.updateDeletingTouched(5, 1, 0));
+    assertSame(DartPackedRegions.EMPTY, untyped(3, 2).updateDeletingTouched(4, 0, 1));
+  }
+}
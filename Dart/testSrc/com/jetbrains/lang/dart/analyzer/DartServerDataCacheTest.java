@@ -0,0 +1,146 @@
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.LightPlatformTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class DartServerDataCacheTest extends LightPlatformTestCase {
+  private File myDir;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    myDir = FileUtil.createTempDirectory("dart-server-data", null);
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  @NotNull
+  private DartServerDataCache createCache(final long maxStorageSize) {
+    return new DartServerDataCache(new File(myDir, "results"), maxStorageSize);
+  }
+
+  @NotNull
+  private static DartServerDataCache.FileData createData(final long contentHash, final int errorCount) {
+    final List<DartServerData.DartError> errors = Collections.nCopies(errorCount, new DartServerData.DartError(
+      10, 5, "/project/a.dart", "ERROR", "undefined_identifier", "Undefined name 'foo'."));
+
+    final DartPackedRegions.Builder highlights = new DartPackedRegions.Builder(0, true);
+    highlights.add(0, 6, DartServerData.getHighlightTypeId("KEYWORD"));
+    highlights.add(7, 3, DartServerData.getHighlightTypeId("CLASS"));
+
+    final DartPackedRegions.Builder implemented = new DartPackedRegions.Builder(0, false);
+    implemented.add(7, 3);
+
+    return new DartServerDataCache.FileData(contentHash, errors, highlights.build(), implemented.build(), DartPackedRegions.EMPTY);
+  }
+
+  private static void assertSameData(@NotNull final DartServerDataCache.FileData expected,
+                                     @NotNull final DartServerDataCache.FileData actual) {
+    assertEquals(expected.myContentHash, actual.myContentHash);
+    assertEquals(expected.myErrors.size(), actual.myErrors.size());
+    for (int i = 0; i < expected.myErrors.size(); i++) {
+      final DartServerData.DartError expectedError = expected.myErrors.get(i);
+      final DartServerData.DartError actualError = actual.myErrors.get(i);
+      assertEquals(expectedError, actualError); // offset and length
+      assertEquals(expectedError.getAnalysisErrorFileSD(), actualError.getAnalysisErrorFileSD());
+      assertEquals(expectedError.getSeverity(), actualError.getSeverity());
+      assertEquals(expectedError.getCode(), actualError.getCode());
+      assertEquals(expectedError.getMessage(), actualError.getMessage());
+    }
+    assertEquals(expected.myHighlights, actual.myHighlights);
+    assertEquals(expected.myImplementedClasses, actual.myImplementedClasses);
+    assertEquals(expected.myImplementedMembers, actual.myImplementedMembers);
+  }
+
+  public void testContentHash() {
+    assertEquals(DartServerDataCache.getContentHash("class A {}"), DartServerDataCache.getContentHash(new StringBuilder("class A {}")));
+    assertFalse(DartServerDataCache.getContentHash("class A {}") == DartServerDataCache.getContentHash("class B {}"));
+  }
+
+  public void testDataIsKeptAfterReopening() {
+    final DartServerDataCache.FileData data = createData(42, 3);
+
+    DartServerDataCache cache = createCache(Long.MAX_VALUE);
+    assertNull(cache.get("/project/a.dart"));
+    cache.put("/project/a.dart", data);
+    cache.close();
+
+    cache = createCache(Long.MAX_VALUE);
+    final DartServerDataCache.FileData restored = cache.get("/project/a.dart");
+    assertNotNull(restored);
+    assertSameData(data, restored);
+    assertNull(cache.get("/project/b.dart"));
+    cache.close();
+  }
+
+  public void testStorageBiggerThanLimitIsDropped() {
+    DartServerDataCache cache = createCache(Long.MAX_VALUE);
+    for (int i = 0; i < 100; i++) {
+      cache.put("/project/file" + i + ".dart", createData(i, 100));
+    }
+    cache.close();
+    final long size = cache.getStorageSize();
+
+    cache = createCache(size + 1);
+    assertNotNull(cache.get("/project/file0.dart"));
+    cache.close();
+
+    cache = createCache(size / 2);
+    assertNull(cache.get("/project/file1.dart"));
+    cache.put("/project/file0.dart", createData(0, 1));
+    assertNotNull(cache.get("/project/file0.dart"));
+    cache.close();
+  }
+
+  public void testCorruptedStorageIsRecreated() throws IOException {
+    DartServerDataCache cache = createCache(Long.MAX_VALUE);
+    cache.put("/project/a.dart", createData(1, 1));
+    cache.close();
+
+    final File[] files = myDir.listFiles();
+    assertNotNull(files);
+    for (File file : files) {
+      FileUtil.writeToFile(file, "garbage");
+    }
+
+    cache = createCache(Long.MAX_VALUE);
+    assertNull(cache.get("/project/a.dart"));
+    cache.put("/project/a.dart", createData(2, 1));
+    assertEquals(2, cache.get("/project/a.dart").myContentHash);
+    cache.close();
+  }
+
+  public void testTasksAreExecutedInOrder() throws InterruptedException {
+    final DartServerDataCache cache = createCache(Long.MAX_VALUE);
+    final DartServerDataCache.FileData data = createData(1, 1);
+    final DartServerDataCache.FileData[] restored = new DartServerDataCache.FileData[2];
+    final CountDownLatch done = new CountDownLatch(1);
+
+    cache.execute(() -> cache.put("/project/a.dart", data));
+    cache.execute(() -> restored[0] = cache.get("/project/a.dart"));
+    cache.execute(cache::close);
+    cache.execute(() -> restored[1] = cache.get("/project/a.dart"));
+    cache.execute(cache::close);
+    cache.execute(done::countDown);
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertSameData(data, restored[0]);
+    assertSameData(data, restored[1]);
+  }
+}
@@ -0,0 +1,122 @@
+package com.jetbrains.lang.dart.analyzer;
+
+import com.google.dart.server.AnalysisServerListenerAdapter;
+import com.google.dart.server.internal.remote.processor.NotificationAnalysisHighlightsProcessor;
+import com.google.dart.server.internal.remote.processor.NotificationAnalysisNavigationProcessor;
+import com.google.dart.server.internal.remote.processor.NotificationProcessor;
+import com.google.dart.server.internal.remote.processor.StreamingNotificationDecoder;
+import com.google.gson.JsonParser;
+import junit.framework.TestCase;
+import org.dartlang.analysis.server.protocol.HighlightRegion;
+import org.dartlang.analysis.server.protocol.NavigationRegion;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Listener calls made by {@link StreamingNotificationDecoder} must be the same as the ones made by the regular processors.
+ */
+public class DartStreamingNotificationDecoderTest extends TestCase {
+  private static final String HIGHLIGHTS =
+    "{\"event\":\"analysis.highlights\",\"params\":{\"file\":\"/project/a.dart\",\"regions\":[" +
+    "{\"type\":\"KEYWORD\",\"offset\":0,\"length\":5},{\"type\":\"CLASS\",\"offset\":6,\"length\":3,\"unknown\":[1,2]}," +
+    "{\"type\":\"KEYWORD\",\"offset\":10,\"length\":4}]}}";
+
+  private static final String NAVIGATION =
+    "{\"event\":\"analysis.navigation\",\"params\":{\"file\":\"/project/a.dart\"," +
+    "\"regions\":[{\"offset\":1,\"length\":2,\"targets\":[0,1]},{\"offset\":20,\"length\":3,\"targets\":[1]}]," +
+    "\"targets\":[{\"kind\":\"CLASS\",\"fileIndex\":0,\"offset\":10,\"length\":3,\"startLine\":2,\"startColumn\":4}," +
+    "{\"kind\":\"METHOD\",\"fileIndex\":1,\"offset\":30,\"length\":6,\"startLine\":5,\"startColumn\":1}]," +
+    "\"files\":[\"/project/b.dart\",\"/sdk/core.dart\"]}}";
+
+  public void testHighlights() throws Exception {
+    final RecordingListener listener = new RecordingListener();
+    assertSameCalls(HIGHLIGHTS, new NotificationAnalysisHighlightsProcessor(listener), listener);
+  }
+
+  public void testNavigation() throws Exception {
+    final RecordingListener listener = new RecordingListener();
+    assertSameCalls(NAVIGATION, new NotificationAnalysisNavigationProcessor(listener), listener);
+  }
+
+  public void testMembersInOtherOrder() throws Exception {
+    final String line = "{\"event\":\"analysis.highlights\",\"params\":{\"regions\":[{\"length\":5,\"offset\":0,\"type\":\"KEYWORD\"}]," +
+                        "\"file\":\"/project/a.dart\"},\"id\":\"1\"}";
+    final RecordingListener listener = new RecordingListener();
+    assertSameCalls(line, new NotificationAnalysisHighlightsProcessor(listener), listener);
+  }
+
+  public void testOtherEventsAreNotDecoded() {
+    final RecordingListener listener = new RecordingListener();
+    final StreamingNotificationDecoder decoder = new StreamingNotificationDecoder(listener);
+    assertFalse(decoder.decode("{\"event\":\"analysis.errors\",\"params\":{\"file\":\"/project/a.dart\",\"errors\":[]}}"));
+    assertFalse(decoder.decode("{\"id\":\"1\",\"result\":{}}"));
+    assertTrue(listener.calls.isEmpty());
+  }
+
+  public void testIncompleteNotificationIsNotDecoded() {
+    final RecordingListener listener = new RecordingListener();
+    final StreamingNotificationDecoder decoder = new StreamingNotificationDecoder(listener);
+    assertFalse(decoder.decode("{\"event\":\"analysis.highlights\",\"params\":{\"file\":\"/project/a.dart\"}}"));
+    assertFalse(decoder.decode("{\"event\":\"analysis.highlights\",\"params\":{\"file\":\"/project/a.dart\",\"regions\":[{\"type\":\"KEYWORD\"}]}}"));
+    assertFalse(decoder.decode("{\"event\":\"analysis.navigation\",\"params\":{\"file\":\"/project/a.dart\",\"regions\":[" +
+                               "{\"offset\":1,\"length\":2,\"targets\":[5]}],\"targets\":[],\"files\":[]}}"));
+    assertFalse(decoder.decode("{\"event\":\"analysis.highlights\",\"params\":{\"file\":\"/project/a.dart\",\"regions\":[{\"type\":"));
+    assertTrue(listener.calls.isEmpty());
+  }
+
+  public void testListenerExceptionIsNotSwallowed() {
+    final int[] calls = {0};
+    final StreamingNotificationDecoder decoder = new StreamingNotificationDecoder(new AnalysisServerListenerAdapter() {
+      @Override
+      public void computedHighlights(String file, List<HighlightRegion> highlights) {
+        calls[0]++;
+        throw new IllegalStateException();
+      }
+    });
+
+    try {
+      decoder.decode(HIGHLIGHTS);
+      fail();
+    }
+    catch (IllegalStateException ignored) {
+    }
+    assertEquals(1, calls[0]);
+  }
+
+  private static void assertSameCalls(@NotNull final String line,
+                                      @NotNull final NotificationProcessor processor,
+                                      @NotNull final RecordingListener processorListener) throws Exception {
+    processor.process(new JsonParser().parse(line).getAsJsonObject());
+    final List<String> expected = processorListener.calls;
+
+    final RecordingListener listener = new RecordingListener();
+    assertTrue(new StreamingNotificationDecoder(listener).decode(line));
+    assertEquals(1, expected.size());
+    assertEquals(expected, listener.calls);
+  }
+
+  private static class RecordingListener extends AnalysisServerListenerAdapter {
+    private final List<String> calls = new ArrayList<>();
+
+    @Override
+    public void computedHighlights(String file, List<HighlightRegion> highlights) {
+      calls.add("highlights " + file + " " + highlights);
+    }
+
+    @Override
+    public void computedNavigation(String file, List<NavigationRegion> regions) {
+      final StringBuilder builder = new StringBuilder("navigation ").append(file);
+      for (NavigationRegion region : regions) {
+        builder.append(' ').append(region.getOffset()).append(':').append(region.getLength()).append(Arrays.toString(region.getTargets()))
+          .append(" -> ").append(region.getTargetObjects());
+        for (int i = 0; i < region.getTargetObjects().size(); i++) {
+          builder.append(' ').append(region.getTargetObjects().get(i).getFile());
+        }
+      }
+      calls.add(builder.toString());
+    }
+  }
+}
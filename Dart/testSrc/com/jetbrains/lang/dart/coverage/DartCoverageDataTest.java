@@ -0,0 +1,40 @@
+package com.jetbrains.lang.dart.coverage;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+public class DartCoverageDataTest extends TestCase {
+
+  private static final int N = DartCoverageData.NOT_COVERABLE;
+
+  private static void assertHits(final int[] expected, final int[] actual) {
+    assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+  }
+
+  public void testMergeSameSource() throws IOException {
+    final DartCoverageData data = DartCoverageData.parse(new StringReader(
+      "{\"type\":\"CodeCoverage\",\"coverage\":[" +
+      "{\"source\":\"package:foo/foo.dart\",\"script\":{\"type\":\"@Script\"},\"hits\":[1,2,3,0]}," +
+      "{\"hits\":[3,4,5,1],\"source\":\"package:foo/foo.dart\"}," +
+      "{\"source\":\"dart:core\",\"hits\":[]}," +
+      "{\"hits\":[1,1]}" +
+      "]}"));
+    assertHits(new int[]{N, 2, N, 4, N, 1}, data.getLineHits("package:foo/foo.dart"));
+    assertHits(new int[0], data.getLineHits("dart:core"));
+    assertHits(new int[0], data.getLineHits("package:foo/bar.dart"));
+  }
+
+  public void testLineRanges() throws IOException {
+    final DartCoverageData data = DartCoverageData.parse(new StringReader(
+      "{\"coverage\":[{\"source\":\"file:///a.dart\",\"hits\":[\"2-4\",3,\"5\",0,6]}]}"));
+    assertHits(new int[]{N, N, 3, 3, 3, 0}, data.getLineHits("file:///a.dart"));
+  }
+
+  public void testMergeLineHits() {
+    assertHits(new int[]{1, N, 5, 0}, DartCoverageData.mergeLineHits(new int[]{1, N, 2}, new int[]{N, N, 3, 0}));
+    assertHits(new int[]{1, 2, 2}, DartCoverageData.mergeLineHits(new int[]{1, N, 2}, new int[]{N, 2}));
+  }
+}
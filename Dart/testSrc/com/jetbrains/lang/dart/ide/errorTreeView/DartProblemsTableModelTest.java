@@ -0,0 +1,192 @@
+package com.jetbrains.lang.dart.ide.errorTreeView;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.PsiTestUtil;
+import com.intellij.testFramework.fixtures.CodeInsightFixtureTestCase;
+import com.intellij.ui.table.TableView;
+import gnu.trove.THashMap;
+import org.dartlang.analysis.server.protocol.AnalysisError;
+import org.dartlang.analysis.server.protocol.AnalysisErrorSeverity;
+import org.dartlang.analysis.server.protocol.AnalysisErrorType;
+import org.dartlang.analysis.server.protocol.Location;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.event.TableModelEvent;
+import java.util.*;
+
+public class DartProblemsTableModelTest extends CodeInsightFixtureTestCase {
+  private static final int FILES = 30;
+  private static final int ERRORS_PER_FILE = 400;
+
+  private DartProblemsTableModel myModel;
+  private final List<TableModelEvent> myEvents = new ArrayList<>();
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    myModel = new DartProblemsTableModel(getProject(), new DartProblemsPresentationHelper(getProject()));
+    myModel.addTableModelListener(myEvents::add);
+  }
+
+  @NotNull
+  private String addFile(@NotNull final String relativePath) {
+    return myFixture.addFileToProject(relativePath, "").getVirtualFile().getPath();
+  }
+
+  @NotNull
+  private static List<AnalysisError> createErrors(@NotNull final String filePath, final int count) {
+    final List<AnalysisError> errors = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      // lines in reverse order to make sure that the model sorts them
+      final int line = count - i;
+      errors.add(createError(filePath, line, "error " + line));
+    }
+    return errors;
+  }
+
+  @NotNull
+  private static AnalysisError createError(@NotNull final String filePath, final int line, @NotNull final String message) {
+    return new AnalysisError(AnalysisErrorSeverity.WARNING, AnalysisErrorType.HINT, new Location(filePath, line, 1, line, 1),
+                             message, null, null, false);
+  }
+
+  private void assertSortedByLocation() {
+    for (int i = 1; i < myModel.getRowCount(); i++) {
+      final DartProblem previous = myModel.getItem(i - 1);
+      final DartProblem current = myModel.getItem(i);
+      final int result = previous.getPresentableLocationWithoutLineNumber().compareTo(current.getPresentableLocationWithoutLineNumber());
+      assertTrue(previous.getPresentableLocation() + " goes before " + current.getPresentableLocation(),
+                 result < 0 || result == 0 && previous.getLineNumber() <= current.getLineNumber());
+    }
+  }
+
+  public void testManyRowsAreInsertedInSortedOrder() {
+    final TableView<DartProblem> table = new TableView<>(myModel);
+    table.getRowSorter().setSortKeys(Collections.singletonList(new RowSorter.SortKey(1, SortOrder.ASCENDING)));
+
+    final List<String> filePaths = new ArrayList<>();
+    for (int i = 0; i < FILES; i++) {
+      filePaths.add(addFile("file" + (char)('a' + i % 26) + i + ".dart"));
+    }
+    Collections.shuffle(filePaths, new Random(0));
+
+    // files are reported in random order, several at a time
+    for (int i = 0; i < FILES; i += 3) {
+      final Map<String, List<AnalysisError>> filePathToErrors = new THashMap<>();
+      for (String filePath : filePaths.subList(i, Math.min(FILES, i + 3))) {
+        filePathToErrors.put(filePath, createErrors(filePath, ERRORS_PER_FILE));
+      }
+      myEvents.clear();
+      myModel.setErrorsAndReturnReplacementForSelection(filePathToErrors, null);
+      // one event per file as problems of a file are inserted together
+      assertEquals(filePathToErrors.size(), myEvents.size());
+      for (TableModelEvent event : myEvents) {
+        assertEquals(TableModelEvent.INSERT, event.getType());
+        assertEquals(ERRORS_PER_FILE - 1, event.getLastRow() - event.getFirstRow());
+      }
+    }
+
+    assertEquals(FILES * ERRORS_PER_FILE, myModel.getRowCount());
+    assertTrue(myModel.getRowCount() > 10000);
+    assertSortedByLocation();
+
+    // errors of one file changed: only its rows are touched, the row sorter keeps model order
+    final String changedFile = filePaths.get(FILES / 2);
+    myEvents.clear();
+    myModel.setErrorsAndReturnReplacementForSelection(Collections.singletonMap(changedFile, createErrors(changedFile, 10)), null);
+    assertEquals(2, myEvents.size());
+    assertEquals(TableModelEvent.DELETE, myEvents.get(0).getType());
+    assertEquals(TableModelEvent.INSERT, myEvents.get(1).getType());
+    assertEquals((FILES - 1) * ERRORS_PER_FILE + 10, myModel.getRowCount());
+    assertSortedByLocation();
+
+    assertEquals(myModel.getRowCount(), table.getRowCount());
+    for (int i = 0; i < table.getRowCount(); i++) {
+      assertEquals(i, table.convertRowIndexToModel(i));
+    }
+  }
+
+  public void testSortKeyChange() {
+    final String filePath1 = addFile("a.dart");
+    final String filePath2 = addFile("b.dart");
+    final Map<String, List<AnalysisError>> filePathToErrors = new THashMap<>();
+    filePathToErrors.put(filePath1, Arrays.asList(createError(filePath1, 1, "b"), createError(filePath1, 2, "c")));
+    filePathToErrors.put(filePath2, Collections.singletonList(createError(filePath2, 1, "a")));
+    myModel.setErrorsAndReturnReplacementForSelection(filePathToErrors, null);
+    assertMessages("b", "c", "a");
+
+    myModel.setSortKey(new RowSorter.SortKey(1, SortOrder.DESCENDING));
+    // lines within a file are always in ascending order
+    assertMessages("a", "b", "c");
+
+    myModel.setSortKey(new RowSorter.SortKey(0, SortOrder.ASCENDING));
+    assertMessages("a", "b", "c");
+
+    myModel.setSortKey(new RowSorter.SortKey(0, SortOrder.DESCENDING));
+    assertMessages("c", "b", "a");
+
+    myModel.setErrorsAndReturnReplacementForSelection(
+      Collections.singletonMap(filePath2, Arrays.asList(createError(filePath2, 1, "a"), createError(filePath2, 2, "d"))), null);
+    assertMessages("d", "c", "b", "a");
+  }
+
+  private void assertMessages(@NotNull final String... messages) {
+    final List<String> actual = new ArrayList<>();
+    for (int i = 0; i < myModel.getRowCount(); i++) {
+      actual.add(myModel.getItem(i).getErrorMessage());
+    }
+    assertEquals(Arrays.asList(messages), actual);
+  }
+
+  public void testUnchangedErrorsAreSkipped() {
+    final String filePath = addFile("a.dart");
+    final Map<String, List<AnalysisError>> filePathToErrors = Collections.singletonMap(filePath, createErrors(filePath, 3));
+    myModel.setErrorsAndReturnReplacementForSelection(filePathToErrors, null);
+    assertEquals(3, myModel.getRowCount());
+
+    myEvents.clear();
+    myModel.setErrorsAndReturnReplacementForSelection(Collections.singletonMap(filePath, createErrors(filePath, 3)), null);
+    assertEmpty(myEvents);
+
+    myModel.setErrorsAndReturnReplacementForSelection(Collections.singletonMap(filePath, AnalysisError.EMPTY_LIST), null);
+    assertEquals(0, myModel.getRowCount());
+  }
+
+  public void testIgnoredErrorsAreNotRemembered() {
+    final String filePath = addFile("a.dart");
+    final String otherFilePath = addFile("b.dart");
+    final List<AnalysisError> errors = Arrays.asList(createError(otherFilePath, 1, "reported for other file"),
+                                                     createError(filePath, 2, "shown"));
+    myModel.setErrorsAndReturnReplacementForSelection(Collections.singletonMap(filePath, errors), null);
+    assertMessages("shown");
+
+    // the same errors after the filtering, nothing to update
+    myEvents.clear();
+    myModel.setErrorsAndReturnReplacementForSelection(Collections.singletonMap(filePath, errors.subList(1, 2)), null);
+    assertEmpty(myEvents);
+    assertMessages("shown");
+  }
+
+  public void testErrorsOutsideContentAreShownAfterRootsChange() {
+    final String filePath = addFile("excluded/a.dart");
+    final VirtualFile excludedDir = myFixture.findFileInTempDir("excluded");
+    final Map<String, List<AnalysisError>> filePathToErrors = Collections.singletonMap(filePath, createErrors(filePath, 2));
+
+    PsiTestUtil.addExcludedRoot(myModule, excludedDir);
+    myModel.setErrorsAndReturnReplacementForSelection(filePathToErrors, null);
+    assertEquals(0, myModel.getRowCount());
+
+    PsiTestUtil.removeExcludedRoot(myModule, excludedDir);
+    myModel.onContentRootsChanged();
+    myModel.setErrorsAndReturnReplacementForSelection(filePathToErrors, null);
+    assertEquals(2, myModel.getRowCount());
+    assertTrue(myModel.hasWarnings());
+
+    PsiTestUtil.addExcludedRoot(myModule, excludedDir);
+    myModel.onContentRootsChanged();
+    myModel.setErrorsAndReturnReplacementForSelection(filePathToErrors, null);
+    assertEquals(0, myModel.getRowCount());
+    assertFalse(myModel.hasWarnings());
+  }
+}
@@ -0,0 +1,117 @@
+package com.jetbrains.lang.dart.ide.index;
+
+import com.intellij.openapi.util.io.BufferExposingByteArrayOutputStream;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.util.indexing.FileContentImpl;
+import com.intellij.util.indexing.IndexingDataKeys;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.IOUtil;
+import com.jetbrains.lang.dart.DartCodeInsightFixtureTestCase;
+import com.jetbrains.lang.dart.DartComponentType;
+import com.jetbrains.lang.dart.DartFileType;
+import com.jetbrains.lang.dart.util.DartTestUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class DartIndexPerformanceTest extends DartCodeInsightFixtureTestCase {
+
+  @NotNull
+  private static List<VirtualFile> getSdkDartFiles() {
+    final VirtualFile sdkLib = LocalFileSystem.getInstance().refreshAndFindFileByPath(DartTestUtils.SDK_HOME_PATH + "/lib");
+    assertNotNull(sdkLib);
+
+    final List<VirtualFile> result = new ArrayList<>();
+    VfsUtilCore.iterateChildrenRecursively(sdkLib, null, file -> {
+      if (!file.isDirectory() && file.getFileType() == DartFileType.INSTANCE) {
+        result.add(file);
+      }
+      return true;
+    });
+    assertFalse(result.isEmpty());
+    return result;
+  }
+
+  @NotNull
+  private Map<String, DartComponentInfo> indexFile(@NotNull final VirtualFile file) throws IOException {
+    final FileContentImpl content = new FileContentImpl(file, VfsUtilCore.loadText(file), -1);
+    content.putUserData(IndexingDataKeys.PROJECT, getProject());
+    return DartIndexUtil.indexFile(content).getComponentInfoMap();
+  }
+
+  // the format used before type packing, for comparison
+  private static void saveLegacy(@NotNull final DataOutputStream out, @NotNull final DartComponentInfo info) throws IOException {
+    final DartComponentType type = info.getComponentType();
+    DataInputOutputUtil.writeINT(out, type == null ? -1 : type.getKey());
+    out.writeBoolean(info.getLibraryName() != null);
+    if (info.getLibraryName() != null) {
+      IOUtil.writeUTF(out, info.getLibraryName());
+    }
+  }
+
+  public void testComponentIndexSize() throws IOException {
+    final BufferExposingByteArrayOutputStream legacyBytes = new BufferExposingByteArrayOutputStream();
+    final BufferExposingByteArrayOutputStream bytes = new BufferExposingByteArrayOutputStream();
+    final List<DartComponentInfo> infos = new ArrayList<>();
+
+    try (DataOutputStream legacyOut = new DataOutputStream(legacyBytes); DataOutputStream out = new DataOutputStream(bytes)) {
+      for (VirtualFile file : getSdkDartFiles()) {
+        for (DartComponentInfo info : indexFile(file).values()) {
+          saveLegacy(legacyOut, info);
+          DartComponentInfoExternalizer.saveInfo(out, info);
+          infos.add(info);
+        }
+      }
+    }
+
+    assertTrue(bytes.size() + " bytes, was " + legacyBytes.size(), bytes.size() < legacyBytes.size());
+
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.getInternalBuffer(), 0, bytes.size()))) {
+      for (DartComponentInfo info : infos) {
+        assertEquals(info, DartComponentInfoExternalizer.readInfo(in));
+      }
+    }
+  }
+
+  public void testComponentInfoList() throws IOException {
+    final List<DartComponentInfo> infos = Arrays.asList(new DartComponentInfo(DartComponentType.CLASS, "dart.core"),
+                                                        new DartComponentInfo(DartComponentType.METHOD, "dart.core"),
+                                                        new DartComponentInfo(DartComponentType.FIELD, null),
+                                                        new DartComponentInfo(null, "dart.async"),
+                                                        new DartComponentInfo(DartComponentType.FUNCTION, "dart.async"));
+    final DartComponentInfoListExternalizer externalizer = new DartComponentInfoListExternalizer();
+    final BufferExposingByteArrayOutputStream bytes = new BufferExposingByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      externalizer.save(out, infos);
+    }
+
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.getInternalBuffer(), 0, bytes.size()))) {
+      assertEquals(infos, externalizer.read(in));
+      assertEquals(-1, in.read());
+    }
+  }
+
+  public void testIndexingPerformance() {
+    final List<VirtualFile> files = getSdkDartFiles();
+    PlatformTestUtil.startPerformanceTest("Dart SDK indexing", 10_000, () -> {
+      final BufferExposingByteArrayOutputStream bytes = new BufferExposingByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+        for (VirtualFile file : files) {
+          for (DartComponentInfo info : indexFile(file).values()) {
+            DartComponentInfoExternalizer.saveInfo(out, info);
+          }
+        }
+      }
+    }).assertTiming();
+  }
+}
@@ -0,0 +1,37 @@
+package com.jetbrains.lang.dart.ide.runner.server.vmService;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class DartTokenPosTableTest extends TestCase {
+
+  private static void assertPosition(final DartTokenPosTable table, final int tokenPos, final int line, final int column) {
+    final int index = table.indexOf(tokenPos);
+    assertTrue(index >= 0);
+    assertEquals(line, table.getLine(index));
+    assertEquals(column, table.getColumn(index));
+  }
+
+  public void testLookup() {
+    final List<List<Integer>> tokenPosTable = Arrays.asList(Arrays.asList(1, 0, 1, 5, 7),
+                                                            Arrays.asList(3),
+                                                            Arrays.asList(4, 20, 3, 25, 10));
+    final DartTokenPosTable table = DartTokenPosTable.create(tokenPosTable);
+    assertPosition(table, 0, 0, 0);
+    assertPosition(table, 5, 0, 6);
+    assertPosition(table, 20, 3, 2);
+    assertPosition(table, 25, 3, 9);
+    assertEquals(-1, table.indexOf(1));
+    assertEquals(-1, table.indexOf(30));
+  }
+
+  public void testUnsortedInput() {
+    final List<List<Integer>> tokenPosTable = Arrays.asList(Arrays.asList(4, 20, 3), Arrays.asList(1, 10, 1, 0, 5));
+    final DartTokenPosTable table = DartTokenPosTable.create(tokenPosTable);
+    assertPosition(table, 0, 0, 4);
+    assertPosition(table, 10, 0, 0);
+    assertPosition(table, 20, 3, 2);
+  }
+}
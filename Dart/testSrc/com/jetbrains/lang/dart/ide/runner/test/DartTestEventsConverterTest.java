@@ -13,6 +13,8 @@ import com.intellij.execution.ui.ConsoleViewContentType;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.testFramework.PlatformTestUtil;
 import com.jetbrains.lang.dart.util.DartUrlResolver;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -338,6 +340,89 @@ public class DartTestEventsConverterTest extends BaseSMTRunnerTestCase {
     runTest(events, signals, new int[]{});
   }
 
+  public void testPrintsCoalescedInOneChunk() {
+    String[] events = {
+      "{'protocolVersion':'0.1.0','runnerVersion':'0.12.10','type':'start','time':0}\n",
+      "{'group':{'id':1,'parentID':null,'name':null,'metadata':{'skip':false,'skipReason':null},'testCount':1},'type':'group','time':0}\n",
+      "{'test':{'id':2,'name':'chatty','groupIDs':[1],'metadata':{'skip':false,'skipReason':null}},'type':'testStart','time':1}\n" +
+      "{'testID':2,'message':'one','type':'print','time':2}\n" +
+      "{'testID':2,'message':'two','type':'print','time':3}\n",
+      "{'testID':2,'message':'three','type':'print','time':4}\n" +
+      "{'testID':2,'result':'success','hidden':false,'type':'testDone','time':5}\n",
+      "{'success':true,'type':'done','time':6}\n",
+    };
+    String[] signals = {
+      "start chatty",
+      "print chatty one\ntwo\n",
+      "print chatty three\n",
+      "finish chatty",
+    };
+    runTest(events, signals, new int[]{});
+  }
+
+  /**
+   * Replays a log shaped like the output of {@code pub run test --reporter json} for a large suite.
+   */
+  public void testReplayPerformance() {
+    final int groups = 250;
+    final int testsPerGroup = 200;
+    final List<String> chunks = createReplayChunks(groups, testsPerGroup, 64);
+
+    final TestConsoleProperties consoleProperties = createConsoleProperties();
+    final DartTestEventsConverter converter = new DartTestEventsConverter(DartTestRunningState.DART_FRAMEWORK_NAME, consoleProperties,
+                                                                          DartUrlResolver.getInstance(getProject(), getSourceRoot()));
+    final CountingEventsProcessor processor = new CountingEventsProcessor(consoleProperties.getProject());
+    converter.setProcessor(processor);
+    try {
+      final Key key = new Key("stdout");
+      PlatformTestUtil.startPerformanceTest("Dart test events replay", 5_000, () -> {
+        processor.signals.clear();
+        for (String chunk : chunks) {
+          converter.process(chunk, key);
+        }
+        converter.flushBufferBeforeTerminating();
+        // start, print and finish for each test, started and finished for each group and the file-level group
+        assertEquals(groups * testsPerGroup * 3 + (groups + 1) * 2, processor.signals.size());
+      }).assertTiming();
+    }
+    finally {
+      Disposer.dispose(converter);
+      Disposer.dispose(processor);
+    }
+  }
+
+  @NotNull
+  private static List<String> createReplayChunks(final int groups, final int testsPerGroup, final int linesPerChunk) {
+    final List<String> lines = new ArrayList<>();
+    lines.add("{\"protocolVersion\":\"0.1.0\",\"runnerVersion\":\"0.12.20\",\"type\":\"start\",\"time\":0}\n");
+    lines.add("{\"count\":1,\"type\":\"allSuites\",\"time\":0}\n");
+    lines.add("{\"suite\":{\"id\":0,\"platform\":\"vm\",\"path\":\"/project/test/big_test.dart\"},\"type\":\"suite\",\"time\":0}\n");
+    lines.add("{\"group\":{\"id\":1,\"suiteID\":0,\"parentID\":null,\"name\":null,\"metadata\":{\"skip\":false,\"skipReason\":null}," +
+              "\"testCount\":" + groups * testsPerGroup + "},\"type\":\"group\",\"time\":1}\n");
+    int id = 2;
+    for (int g = 0; g < groups; g++) {
+      final int groupId = id++;
+      lines.add("{\"group\":{\"id\":" + groupId + ",\"suiteID\":0,\"parentID\":1,\"name\":\"group " + g + "\"," +
+                "\"metadata\":{\"skip\":false,\"skipReason\":null},\"testCount\":" + testsPerGroup + ",\"line\":" + (g + 1) +
+                ",\"column\":3,\"url\":\"file:///project/test/big_test.dart\"},\"type\":\"group\",\"time\":2}\n");
+      for (int t = 0; t < testsPerGroup; t++) {
+        final int testId = id++;
+        lines.add("{\"test\":{\"id\":" + testId + ",\"name\":\"group " + g + " test " + t + "\",\"suiteID\":0," +
+                  "\"groupIDs\":[1," + groupId + "],\"metadata\":{\"skip\":false,\"skipReason\":null},\"line\":" + (t + 1) +
+                  ",\"column\":5,\"url\":\"file:///project/test/big_test.dart\"},\"type\":\"testStart\",\"time\":3}\n");
+        lines.add("{\"testID\":" + testId + ",\"messageType\":\"print\",\"message\":\"output of test " + t + "\",\"type\":\"print\",\"time\":4}\n");
+        lines.add("{\"testID\":" + testId + ",\"result\":\"success\",\"hidden\":false,\"skipped\":false,\"type\":\"testDone\",\"time\":5}\n");
+      }
+    }
+    lines.add("{\"success\":true,\"type\":\"done\",\"time\":6}\n");
+
+    final List<String> chunks = new ArrayList<>();
+    for (int i = 0; i < lines.size(); i += linesPerChunk) {
+      chunks.add(StringUtil.join(lines.subList(i, Math.min(i + linesPerChunk, lines.size())), ""));
+    }
+    return chunks;
+  }
+
   private void runTest(String[] jsonEvents, String[] signals, int[] parents) {
     DartTestEventsConverter parser = myEventsConverter;
     Key key = new Key("stdout");
@@ -424,6 +509,25 @@ public class DartTestEventsConverterTest extends BaseSMTRunnerTestCase {
     }
   }
 
+  /**
+   * Records signals only, without building the test tree, so that the replay measures the events conversion.
+   */
+  private class CountingEventsProcessor extends DartTestEventsProcessor {
+    public CountingEventsProcessor(Project project) {
+      super(project, DartTestRunningState.DART_FRAMEWORK_NAME);
+    }
+
+    @Override
+    public void onTestStarted(@NotNull TestStartedEvent testStartedEvent) {
+      signals.add("start " + testStartedEvent.getName());
+    }
+
+    @Override
+    public void onSuiteStarted(@NotNull TestSuiteStartedEvent suiteStartedEvent) {
+      signals.add("suite started " + suiteStartedEvent.getName());
+    }
+  }
+
   private class DartTestEventsProcessor extends GeneralTestEventsProcessor {
     List<String> signals = new ArrayList<>();
 
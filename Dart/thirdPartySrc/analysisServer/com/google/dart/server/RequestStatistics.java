@@ -0,0 +1,133 @@
+package com.google.dart.server;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-method statistics of the requests sent to the analysis server: how many requests were sent,
+ * coalesced with an identical pending request or cancelled before sending, and a histogram of
+ * the time from the request submission to the response.
+ */
+public class RequestStatistics {
+  /**
+   * Upper bounds (exclusive) of the latency histogram buckets, in milliseconds. The last bucket
+   * is unbounded.
+   */
+  private static final long[] BUCKET_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+  public static class MethodStatistics {
+    private final long[] buckets = new long[BUCKET_BOUNDS.length + 1];
+    private long responses;
+    private long totalMillis;
+    private long maxMillis;
+    private long totalQueuedMillis;
+    private long coalesced;
+    private long cancelled;
+
+    private void responseReceived(long queuedMillis, long totalMillis) {
+      responses++;
+      this.totalMillis += totalMillis;
+      totalQueuedMillis += queuedMillis;
+      maxMillis = Math.max(maxMillis, totalMillis);
+
+      int bucket = 0;
+      while (bucket < BUCKET_BOUNDS.length && totalMillis >= BUCKET_BOUNDS[bucket]) {
+        bucket++;
+      }
+      buckets[bucket]++;
+    }
+
+    public long getResponses() {
+      return responses;
+    }
+
+    public long getAverageMillis() {
+      return responses == 0 ? 0 : totalMillis / responses;
+    }
+
+    public long getAverageQueuedMillis() {
+      return responses == 0 ? 0 : totalQueuedMillis / responses;
+    }
+
+    public long getMaxMillis() {
+      return maxMillis;
+    }
+
+    public long getCoalesced() {
+      return coalesced;
+    }
+
+    public long getCancelled() {
+      return cancelled;
+    }
+
+    /**
+     * Return the smallest bucket bound that is not less than the given percentile of the latencies,
+     * or {@link #getMaxMillis()} if the percentile falls into the last, unbounded bucket.
+     */
+    public long getPercentileMillis(int percentile) {
+      long threshold = (responses * percentile + 99) / 100;
+      long count = 0;
+      for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+        count += buckets[i];
+        if (count >= threshold) {
+          return BUCKET_BOUNDS[i];
+        }
+      }
+      return maxMillis;
+    }
+
+    private MethodStatistics copy() {
+      MethodStatistics copy = new MethodStatistics();
+      System.arraycopy(buckets, 0, copy.buckets, 0, buckets.length);
+      copy.responses = responses;
+      copy.totalMillis = totalMillis;
+      copy.maxMillis = maxMillis;
+      copy.totalQueuedMillis = totalQueuedMillis;
+      copy.coalesced = coalesced;
+      copy.cancelled = cancelled;
+      return copy;
+    }
+
+    @Override
+    public String toString() {
+      return responses + " responses, avg " + getAverageMillis() + "ms (queued " + getAverageQueuedMillis() + "ms), p50 <" +
+             getPercentileMillis(50) + "ms, p95 <" + getPercentileMillis(95) + "ms, max " + maxMillis + "ms; " +
+             coalesced + " coalesced, " + cancelled + " cancelled";
+    }
+  }
+
+  private final Map<String, MethodStatistics> methodToStatistics = new TreeMap<String, MethodStatistics>();
+
+  public synchronized void responseReceived(String method, long queuedMillis, long totalMillis) {
+    getOrCreate(method).responseReceived(queuedMillis, totalMillis);
+  }
+
+  public synchronized void requestCoalesced(String method) {
+    getOrCreate(method).coalesced++;
+  }
+
+  public synchronized void requestCancelled(String method) {
+    getOrCreate(method).cancelled++;
+  }
+
+  /**
+   * Return a snapshot of the statistics, sorted by method name.
+   */
+  public synchronized Map<String, MethodStatistics> getMethodStatistics() {
+    Map<String, MethodStatistics> result = new TreeMap<String, MethodStatistics>();
+    for (Map.Entry<String, MethodStatistics> entry : methodToStatistics.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().copy());
+    }
+    return result;
+  }
+
+  private MethodStatistics getOrCreate(String method) {
+    MethodStatistics statistics = methodToStatistics.get(method);
+    if (statistics == null) {
+      statistics = new MethodStatistics();
+      methodToStatistics.put(method, statistics);
+    }
+    return statistics;
+  }
+}
@@ -13,6 +13,8 @@
  */
 package com.google.dart.server;
 
+import org.dartlang.analysis.server.protocol.RequestError;
+
 /**
  * The interface {@code UpdateContentConsumer} defines the behavior of objects that consume
  * 'analysis.updateContent' responses.
@@ -24,4 +26,12 @@ public interface UpdateContentConsumer extends Consumer {
    * A response to the request was received.
    */
   public void onResponse();
+
+  /**
+   * The server failed to apply the content changes, for example because of an
+   * {@code INVALID_OVERLAY_CHANGE}.
+   */
+  default void onError(RequestError requestError) {
+    onResponse();
+  }
 }
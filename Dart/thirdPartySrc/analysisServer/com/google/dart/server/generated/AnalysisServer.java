@@ -717,4 +717,17 @@ public interface AnalysisServer {
    * from the analysis server.
    */
   public long getLastResponseMillis();
+
+  /**
+   * Forget the given consumer if the request it was passed with has not been sent to the analysis
+   * server yet, or if the consumer waits for the response to an identical request.
+   *
+   * @return {@code true} if the consumer will not be notified
+   */
+  public boolean cancelQueuedRequest(Consumer consumer);
+
+  /**
+   * Return the per-method statistics of the requests sent to the analysis server.
+   */
+  public RequestStatistics getRequestStatistics();
 }
@@ -86,6 +86,8 @@ public class ByteResponseStream implements ResponseStream {
    */
   private final BlockingQueue<String> lineQueue = new LinkedBlockingQueue<String>();
 
+  private volatile LineHandler lineHandler;
+
   /**
    * Initializes a newly created response stream.
    *
@@ -103,9 +105,18 @@ public class ByteResponseStream implements ResponseStream {
   public void lastRequestProcessed() {
   }
 
+  @Override
+  public void setLineHandler(LineHandler lineHandler) {
+    this.lineHandler = lineHandler;
+  }
+
   @Override
   public JsonObject take() throws Exception {
     String line = lineQueue.take();
+    LineHandler handler = lineHandler;
+    while (handler != null && line != EOF_LINE && handler.handleLine(line)) {
+      line = lineQueue.take();
+    }
     if (line == EOF_LINE) {
       lineQueue.add(line);
       return null;
@@ -113,6 +113,16 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
    */
   private final Object consumerMapLock = new Object();
 
+  /**
+   * Decides when the requests are actually sent, see {@link RequestScheduler}.
+   */
+  private final RequestScheduler requestScheduler = new RequestScheduler(new RequestScheduler.Sender() {
+    @Override
+    public void send(String id, JsonObject request, Consumer consumer) {
+      doSendRequestToServer(id, request, consumer);
+    }
+  });
+
   /**
    * The unique ID for the next request.
    */
@@ -603,12 +613,32 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
 
     // handle result
     JsonObject resultObject = (JsonObject)response.get("result");
+    try {
+      dispatchResponse(idString, consumer, resultObject, requestError);
+    }
+    finally {
+      synchronized (consumerMapLock) {
+        consumerMap.remove(idString);
+      }
+      // consumers of identical requests that have not been sent share the response
+      for (Consumer follower : requestScheduler.responseReceived(idString)) {
+        dispatchResponse(idString, follower, resultObject, requestError);
+      }
+    }
+  }
 
+  private void dispatchResponse(String idString, Consumer consumer, JsonObject resultObject, RequestError requestError)
+    throws Exception {
     //
     // Analysis Domain
     //
     if (consumer instanceof UpdateContentConsumer) {
-      ((UpdateContentConsumer)consumer).onResponse();
+      if (requestError != null) {
+        ((UpdateContentConsumer)consumer).onError(requestError);
+      }
+      else {
+        ((UpdateContentConsumer)consumer).onResponse();
+      }
     }
     //
     // Completion Domain
@@ -716,9 +746,11 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
     else if (consumer instanceof JsonConsumer) {
       ((JsonConsumer)consumer).onResponse(resultObject, requestError);
     }
+  }
 
-    synchronized (consumerMapLock) {
-      consumerMap.remove(idString);
+  private boolean hasResponseListeners() {
+    synchronized (responseListenerList) {
+      return !responseListenerList.isEmpty();
     }
   }
 
@@ -744,7 +776,9 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
   }
 
   /**
-   * Sends the request and associates the request with the passed {@link Consumer}.
+   * Sends the request and associates the request with the passed {@link Consumer}. The request may
+   * be held back by the {@link RequestScheduler} or answered with the response to an identical
+   * pending request.
    *
    * @param id       the identifier of the request
    * @param request  the request to send
@@ -752,6 +786,10 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
    */
   @Override
   public void sendRequestToServer(String id, JsonObject request, Consumer consumer) {
+    requestScheduler.submit(id, request, consumer);
+  }
+
+  private void doSendRequestToServer(String id, JsonObject request, Consumer consumer) {
     synchronized (consumerMapLock) {
       consumerMap.put(id, consumer);
     }
@@ -764,8 +802,21 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
   private void startServer() throws Exception {
     socket.start();
     consumerMap.clear();
+    requestScheduler.reset();
     requestSink = socket.getRequestSink();
     responseStream = socket.getResponseStream();
+    final StreamingNotificationDecoder streamingDecoder = new StreamingNotificationDecoder(listener);
+    responseStream.setLineHandler(new ResponseStream.LineHandler() {
+      @Override
+      public boolean handleLine(String line) {
+        // response listeners expect every response as a JsonObject
+        if (hasResponseListeners() || !streamingDecoder.decode(line)) {
+          return false;
+        }
+        lastResponseTime.set(System.currentTimeMillis());
+        return true;
+      }
+    });
     errorStream = socket.getErrorStream();
     new ServerResponseReaderThread(responseStream).start();
     if (errorStream != null) {
@@ -916,6 +967,16 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
     }
   }
 
+  @Override
+  public boolean cancelQueuedRequest(Consumer consumer) {
+    return requestScheduler.cancel(consumer);
+  }
+
+  @Override
+  public RequestStatistics getRequestStatistics() {
+    return requestScheduler.getStatistics();
+  }
+
   public long getLastRequestMillis() {
     return lastRequestTime.get();
   }
@@ -0,0 +1,275 @@
+package com.google.dart.server.internal.remote;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.dart.server.Consumer;
+import com.google.dart.server.RequestStatistics;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.*;
+
+/**
+ * Decides when a request is passed to the {@link RequestSink}.
+ *
+ * Requests are assigned to lanes by their method. Typing, completion, formatting, quick fixes and
+ * all requests that change the server state are sent immediately. Navigation-like queries and
+ * background searches are limited in the number of requests concurrently waiting for the server
+ * response, the rest wait in a per-lane queue. So a burst of background requests can't occupy the
+ * server input in front of an interactive request. Background requests are also limited per method:
+ * {@code analysis.getErrors} may wait for the analysis for a long time, it must not hold back searches.
+ * Within a lane requests are sent in the order of submission, a request whose method is at its
+ * limit is passed by the later requests of other methods.
+ *
+ * An idempotent query that is identical to a query still waiting for its response is not sent
+ * again, its consumer receives the response of the pending one. A request that is still queued
+ * can be cancelled if its caller is no longer interested in the result.
+ *
+ * @coverage dart.server.remote
+ */
+class RequestScheduler {
+  enum Lane {
+    IMMEDIATE(Integer.MAX_VALUE, Integer.MAX_VALUE),
+    NAVIGATION(2, 2),
+    BACKGROUND(3, 1);
+
+    final int maxInFlight;
+    final int maxInFlightPerMethod;
+
+    Lane(int maxInFlight, int maxInFlightPerMethod) {
+      this.maxInFlight = maxInFlight;
+      this.maxInFlightPerMethod = maxInFlightPerMethod;
+    }
+  }
+
+  interface Sender {
+    void send(String id, JsonObject request, Consumer consumer);
+  }
+
+  private static final Set<String> NAVIGATION_METHODS = ImmutableSet.of(
+    "analysis.getHover",
+    "analysis.getNavigation",
+    "edit.getAvailableRefactorings");
+
+  private static final Set<String> BACKGROUND_METHODS = ImmutableSet.of(
+    "analysis.getErrors",
+    "analysis.getLibraryDependencies",
+    "search.findElementReferences",
+    "search.findMemberDeclarations",
+    "search.findMemberReferences",
+    "search.findTopLevelDeclarations",
+    "search.getTypeHierarchy");
+
+  /**
+   * Queries without side effects that are answered directly in the response, so one response can
+   * be given to several consumers. Search requests are not here because their results are bound to
+   * the search id.
+   */
+  private static final Set<String> COALESCABLE_METHODS = ImmutableSet.of(
+    "analysis.getErrors",
+    "analysis.getHover",
+    "analysis.getImportedElements",
+    "analysis.getLibraryDependencies",
+    "analysis.getNavigation",
+    "edit.getAssists",
+    "edit.getAvailableRefactorings",
+    "edit.getFixes",
+    "execution.mapUri",
+    "search.getTypeHierarchy");
+
+  private static class PendingRequest {
+    private final String id;
+    private final String method;
+    private final Lane lane;
+    private final JsonObject request;
+    private final String coalescingKey;
+    private final long submitTime = System.currentTimeMillis();
+    private long sendTime = -1;
+    private Consumer consumer;
+    private final List<Consumer> followers = new ArrayList<Consumer>(0);
+
+    private PendingRequest(String id, String method, JsonObject request, Consumer consumer, String coalescingKey) {
+      this.id = id;
+      this.method = method;
+      this.lane = getLane(method);
+      this.request = request;
+      this.consumer = consumer;
+      this.coalescingKey = coalescingKey;
+    }
+  }
+
+  private final Sender sender;
+  private final RequestStatistics statistics = new RequestStatistics();
+
+  // all fields below are guarded by this
+  private final Map<String, PendingRequest> idToRequest = new HashMap<String, PendingRequest>();
+  private final Map<String, PendingRequest> coalescingKeyToRequest = new HashMap<String, PendingRequest>();
+  private final Map<Lane, Deque<PendingRequest>> queues = new EnumMap<Lane, Deque<PendingRequest>>(Lane.class);
+  private final int[] inFlight = new int[Lane.values().length];
+  private final Map<String, Integer> methodToInFlight = new HashMap<String, Integer>();
+
+  RequestScheduler(Sender sender) {
+    this.sender = sender;
+    for (Lane lane : Lane.values()) {
+      queues.put(lane, new ArrayDeque<PendingRequest>());
+    }
+  }
+
+  static Lane getLane(String method) {
+    if (NAVIGATION_METHODS.contains(method)) {
+      return Lane.NAVIGATION;
+    }
+    if (BACKGROUND_METHODS.contains(method)) {
+      return Lane.BACKGROUND;
+    }
+    return Lane.IMMEDIATE;
+  }
+
+  RequestStatistics getStatistics() {
+    return statistics;
+  }
+
+  synchronized void submit(String id, JsonObject request, Consumer consumer) {
+    String method = getMethod(request);
+    String coalescingKey = null;
+    if (COALESCABLE_METHODS.contains(method)) {
+      JsonElement params = request.get("params");
+      coalescingKey = method + (params != null ? params.toString() : "");
+      PendingRequest pending = coalescingKeyToRequest.get(coalescingKey);
+      if (pending != null) {
+        pending.followers.add(consumer);
+        statistics.requestCoalesced(method);
+        return;
+      }
+    }
+    else {
+      // The request may change what the server would answer, e.g. 'analysis.updateContent',
+      // identical queries submitted later must not get the results computed before it.
+      coalescingKeyToRequest.clear();
+    }
+
+    PendingRequest pending = new PendingRequest(id, method, request, consumer, coalescingKey);
+    idToRequest.put(id, pending);
+    if (coalescingKey != null) {
+      coalescingKeyToRequest.put(coalescingKey, pending);
+    }
+
+    if (canSend(pending)) {
+      send(pending);
+    }
+    else {
+      queues.get(pending.lane).addLast(pending);
+    }
+  }
+
+  /**
+   * Removes the given consumer from the requests that haven't got a response yet. A request that
+   * has not been sent yet is dropped if no other consumer waits for it.
+   *
+   * @return {@code true} if the consumer has been found
+   */
+  synchronized boolean cancel(Consumer consumer) {
+    for (PendingRequest pending : idToRequest.values()) {
+      if (pending.followers.remove(consumer)) {
+        statistics.requestCancelled(pending.method);
+        return true;
+      }
+      if (pending.consumer == consumer && pending.sendTime < 0) {
+        statistics.requestCancelled(pending.method);
+        if (!pending.followers.isEmpty()) {
+          pending.consumer = pending.followers.remove(0);
+        }
+        else {
+          queues.get(pending.lane).remove(pending);
+          forget(pending);
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Notifies the scheduler that the response to the request with the given id has been received,
+   * sends the next queued request of the same lane, if any.
+   *
+   * @return the consumers that have been coalesced with the request and should get the same response
+   */
+  synchronized List<Consumer> responseReceived(String id) {
+    PendingRequest pending = idToRequest.get(id);
+    if (pending == null) {
+      return Collections.emptyList();
+    }
+
+    forget(pending);
+    long now = System.currentTimeMillis();
+    statistics.responseReceived(pending.method, pending.sendTime - pending.submitTime, now - pending.submitTime);
+
+    inFlight[pending.lane.ordinal()]--;
+    Integer methodInFlight = methodToInFlight.get(pending.method);
+    if (methodInFlight != null) {
+      if (methodInFlight <= 1) {
+        methodToInFlight.remove(pending.method);
+      }
+      else {
+        methodToInFlight.put(pending.method, methodInFlight - 1);
+      }
+    }
+    sendQueued(pending.lane);
+    return pending.followers;
+  }
+
+  /**
+   * Forgets all pending requests, used when the server is (re)started.
+   */
+  synchronized void reset() {
+    idToRequest.clear();
+    coalescingKeyToRequest.clear();
+    for (Deque<PendingRequest> queue : queues.values()) {
+      queue.clear();
+    }
+    Arrays.fill(inFlight, 0);
+    methodToInFlight.clear();
+  }
+
+  private boolean canSend(PendingRequest pending) {
+    if (inFlight[pending.lane.ordinal()] >= pending.lane.maxInFlight) {
+      return false;
+    }
+    Integer methodInFlight = methodToInFlight.get(pending.method);
+    return methodInFlight == null || methodInFlight < pending.lane.maxInFlightPerMethod;
+  }
+
+  /**
+   * Sends queued requests of the given lane, oldest first, while the lane has free capacity.
+   */
+  private void sendQueued(Lane lane) {
+    Iterator<PendingRequest> iterator = queues.get(lane).iterator();
+    while (inFlight[lane.ordinal()] < lane.maxInFlight && iterator.hasNext()) {
+      PendingRequest next = iterator.next();
+      if (canSend(next)) {
+        iterator.remove();
+        send(next);
+      }
+    }
+  }
+
+  private void send(PendingRequest pending) {
+    pending.sendTime = System.currentTimeMillis();
+    inFlight[pending.lane.ordinal()]++;
+    Integer methodInFlight = methodToInFlight.get(pending.method);
+    methodToInFlight.put(pending.method, methodInFlight == null ? 1 : methodInFlight + 1);
+    sender.send(pending.id, pending.request, pending.consumer);
+  }
+
+  private void forget(PendingRequest pending) {
+    idToRequest.remove(pending.id);
+    if (pending.coalescingKey != null && coalescingKeyToRequest.get(pending.coalescingKey) == pending) {
+      coalescingKeyToRequest.remove(pending.coalescingKey);
+    }
+  }
+
+  private static String getMethod(JsonObject request) {
+    JsonElement method = request.get("method");
+    return method != null ? method.getAsString() : "";
+  }
+}
@@ -30,4 +30,20 @@ public interface ResponseStream {
    * Takes the the next response from the stream. Blocks if no response available.
    */
   JsonObject take() throws Exception;
+
+  /**
+   * Sets the {@link LineHandler} that is given each response line before it is parsed into a
+   * {@link JsonObject}. Lines completely handled by it are not returned from {@link #take()}.
+   */
+  void setLineHandler(LineHandler lineHandler);
+
+  /**
+   * Handles responses in their raw text form, see {@link #setLineHandler(LineHandler)}.
+   */
+  interface LineHandler {
+    /**
+     * Returns {@code true} if the given response line has been completely handled.
+     */
+    boolean handleLine(String line);
+  }
 }
@@ -0,0 +1,337 @@
+package com.google.dart.server.internal.remote.processor;
+
+import com.google.dart.server.AnalysisServerListener;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.dartlang.analysis.server.protocol.HighlightRegion;
+import org.dartlang.analysis.server.protocol.NavigationRegion;
+import org.dartlang.analysis.server.protocol.NavigationTarget;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the biggest and most frequent notifications, "analysis.highlights" and "analysis.navigation",
+ * straight from the response text with a {@link JsonReader}, without building an intermediate
+ * {@link com.google.gson.JsonObject} tree. All other responses are left for the regular processors.
+ *
+ * Handles only responses that start with the "event" member, which is what the server sends. If a
+ * response has an unexpected structure then {@link #decode(String)} returns {@code false} without
+ * notifying the listener, so that the response is processed the regular way.
+ *
+ * @coverage dart.server.remote
+ */
+public class StreamingNotificationDecoder {
+  private static final String ANALYSIS_NOTIFICATION_HIGHLIGHTS = "analysis.highlights";
+  private static final String ANALYSIS_NOTIFICATION_NAVIGATION = "analysis.navigation";
+
+  private final AnalysisServerListener listener;
+
+  /**
+   * Highlight and navigation kinds come from small fixed sets, there's no need to keep a copy per region.
+   * Accessed only from the response reader thread.
+   */
+  private final Map<String, String> kindsCache = new HashMap<String, String>();
+
+  public StreamingNotificationDecoder(AnalysisServerListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Returns {@code true} if the given response line was completely handled and the listener was
+   * notified, {@code false} if the line should be processed the regular way.
+   */
+  public boolean decode(String line) {
+    Runnable notification;
+    try {
+      notification = doDecode(line);
+    }
+    catch (IOException e) {
+      return false;
+    }
+    catch (IllegalStateException e) {
+      return false;
+    }
+    catch (NumberFormatException e) {
+      return false;
+    }
+    catch (IndexOutOfBoundsException e) {
+      return false;
+    }
+
+    if (notification == null) {
+      return false;
+    }
+    // outside of the try: an exception thrown by the listener must not make the line be processed again
+    notification.run();
+    return true;
+  }
+
+  /**
+   * Returns the notification of the listener, or {@code null} if the line should be processed the regular way.
+   */
+  private Runnable doDecode(String line) throws IOException {
+    JsonReader reader = new JsonReader(new StringReader(line));
+    reader.beginObject();
+    if (!reader.hasNext() || !"event".equals(reader.nextName()) || reader.peek() != JsonToken.STRING) {
+      return null;
+    }
+
+    String event = reader.nextString();
+    Runnable notification = null;
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("params".equals(name)) {
+        if (ANALYSIS_NOTIFICATION_HIGHLIGHTS.equals(event)) {
+          notification = readHighlightsParams(reader);
+        }
+        else if (ANALYSIS_NOTIFICATION_NAVIGATION.equals(event)) {
+          notification = readNavigationParams(reader);
+        }
+        else {
+          return null;
+        }
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return notification;
+  }
+
+  private Runnable readHighlightsParams(JsonReader reader) throws IOException {
+    String file = null;
+    List<HighlightRegion> regions = null;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("file".equals(name)) {
+        file = reader.nextString();
+      }
+      else if ("regions".equals(name)) {
+        regions = new ArrayList<HighlightRegion>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          regions.add(readHighlightRegion(reader));
+        }
+        reader.endArray();
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    if (file == null || regions == null) {
+      throw new IllegalStateException("Incomplete analysis.highlights notification");
+    }
+    final String finalFile = file;
+    final List<HighlightRegion> finalRegions = regions;
+    return new Runnable() {
+      @Override
+      public void run() {
+        listener.computedHighlights(finalFile, finalRegions);
+      }
+    };
+  }
+
+  private HighlightRegion readHighlightRegion(JsonReader reader) throws IOException {
+    String type = null;
+    int offset = -1;
+    int length = -1;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("type".equals(name)) {
+        type = internKind(reader.nextString());
+      }
+      else if ("offset".equals(name)) {
+        offset = reader.nextInt();
+      }
+      else if ("length".equals(name)) {
+        length = reader.nextInt();
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    if (type == null || offset < 0 || length < 0) {
+      throw new IllegalStateException("Incomplete HighlightRegion");
+    }
+    return new HighlightRegion(type, offset, length);
+  }
+
+  private Runnable readNavigationParams(JsonReader reader) throws IOException {
+    String file = null;
+    List<NavigationRegion> regions = null;
+    List<NavigationTarget> targets = null;
+    String[] files = null;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("file".equals(name)) {
+        file = reader.nextString();
+      }
+      else if ("regions".equals(name)) {
+        regions = new ArrayList<NavigationRegion>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          regions.add(readNavigationRegion(reader));
+        }
+        reader.endArray();
+      }
+      else if ("targets".equals(name)) {
+        targets = new ArrayList<NavigationTarget>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          targets.add(readNavigationTarget(reader));
+        }
+        reader.endArray();
+      }
+      else if ("files".equals(name)) {
+        List<String> fileList = new ArrayList<String>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          fileList.add(reader.nextString());
+        }
+        reader.endArray();
+        files = fileList.toArray(new String[fileList.size()]);
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    if (file == null || regions == null || targets == null || files == null) {
+      throw new IllegalStateException("Incomplete analysis.navigation notification");
+    }
+    // same post-processing as in NotificationAnalysisNavigationProcessor
+    for (NavigationTarget target : targets) {
+      target.lookupFile(files);
+    }
+    for (NavigationRegion region : regions) {
+      region.lookupTargets(targets);
+    }
+
+    final String finalFile = file;
+    final List<NavigationRegion> finalRegions = regions;
+    return new Runnable() {
+      @Override
+      public void run() {
+        listener.computedNavigation(finalFile, finalRegions);
+      }
+    };
+  }
+
+  private static NavigationRegion readNavigationRegion(JsonReader reader) throws IOException {
+    int offset = -1;
+    int length = -1;
+    int[] targets = null;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("offset".equals(name)) {
+        offset = reader.nextInt();
+      }
+      else if ("length".equals(name)) {
+        length = reader.nextInt();
+      }
+      else if ("targets".equals(name)) {
+        targets = readIntArray(reader);
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    if (offset < 0 || length < 0 || targets == null) {
+      throw new IllegalStateException("Incomplete NavigationRegion");
+    }
+    return new NavigationRegion(offset, length, targets);
+  }
+
+  private NavigationTarget readNavigationTarget(JsonReader reader) throws IOException {
+    String kind = null;
+    int fileIndex = -1;
+    int offset = -1;
+    int length = -1;
+    int startLine = -1;
+    int startColumn = -1;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("kind".equals(name)) {
+        kind = internKind(reader.nextString());
+      }
+      else if ("fileIndex".equals(name)) {
+        fileIndex = reader.nextInt();
+      }
+      else if ("offset".equals(name)) {
+        offset = reader.nextInt();
+      }
+      else if ("length".equals(name)) {
+        length = reader.nextInt();
+      }
+      else if ("startLine".equals(name)) {
+        startLine = reader.nextInt();
+      }
+      else if ("startColumn".equals(name)) {
+        startColumn = reader.nextInt();
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    if (kind == null || fileIndex < 0 || offset < 0 || length < 0 || startLine < 0 || startColumn < 0) {
+      throw new IllegalStateException("Incomplete NavigationTarget");
+    }
+    return new NavigationTarget(kind, fileIndex, offset, length, startLine, startColumn);
+  }
+
+  private static int[] readIntArray(JsonReader reader) throws IOException {
+    int[] ints = new int[4];
+    int size = 0;
+    reader.beginArray();
+    while (reader.hasNext()) {
+      if (size == ints.length) {
+        int[] newInts = new int[size * 2];
+        System.arraycopy(ints, 0, newInts, 0, size);
+        ints = newInts;
+      }
+      ints[size++] = reader.nextInt();
+    }
+    reader.endArray();
+
+    if (size == ints.length) {
+      return ints;
+    }
+    int[] result = new int[size];
+    System.arraycopy(ints, 0, result, 0, size);
+    return result;
+  }
+
+  private String internKind(String kind) {
+    String cached = kindsCache.get(kind);
+    if (cached != null) {
+      return cached;
+    }
+    kindsCache.put(kind, kind);
+    return kind;
+  }
+}
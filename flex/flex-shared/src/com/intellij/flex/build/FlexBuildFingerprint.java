@@ -0,0 +1,253 @@
+package com.intellij.flex.build;
+
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash of everything that the output of a build configuration depends on: compiler configuration files, files they refer to
+ * (libraries, SDK SWCs, manifests, stylesheets, etc.) and source files. Hashes are stored in the build data directory of the project,
+ * which is the same for IDE and external build, so a BC compiled by either of them is not recompiled by the other one,
+ * also after IDE restart and when timestamps have changed but the content hasn't (e.g. after VCS checkout).
+ */
+public class FlexBuildFingerprint {
+
+  public static final String[] TAGS_FOR_FILE_PATHS_IN_CONFIG_FILE =
+    {"<flex-config><compiler><external-library-path><path-element>", "<flex-config><compiler><local-font-paths><path-element>",
+      "<flex-config><compiler><library-path><path-element>", "<flex-config><compiler><namespaces><namespace><manifest>",
+      "<flex-config><compiler><source-path><path-element>", "<flex-config><include-sources><path-element>",
+      "<flex-config><compiler><theme><filename>", "<flex-config><include-file><path>",
+      "<flex-config><include-stylesheet><path>", "<flex-config><file-specs><path-element>",
+      "<flex-config><compiler><include-libraries><library>", "<flex-config><compiler><local-fonts-snapshot>",
+      "<flex-config><compiler><defaults-css-url>", "<flex-config><compiler><defaults-css-files><filename>",
+      "<flex-config><load-config>", "<flex-config><load-externs>", "<flex-config><link-report>",
+      "<flex-config><services>", "<flex-config><metadata><raw-metadata>",
+    };
+
+  private static final String DIR_NAME = "flex-fingerprints";
+  private static final int MAX_CACHED_FILE_HASHES = 100000;
+
+  // hashes of files that didn't change since they were hashed, so that unchanged SWCs and sources are not read on each build
+  private static final Map<String, FileHash> ourFileHashes = new ConcurrentHashMap<>();
+
+  private final String myInputsHash;
+  private final String myOutputHash;
+
+  private FlexBuildFingerprint(final String inputsHash, final String outputHash) {
+    myInputsHash = inputsHash;
+    myOutputHash = outputHash;
+  }
+
+  @NotNull
+  public static String getKey(@NotNull final String moduleName, @NotNull final String bcName, @NotNull final String outputFilePath) {
+    return moduleName + "\n" + bcName + "\n" + FileUtil.toSystemIndependentName(outputFilePath);
+  }
+
+  /**
+   * @param configFiles  compiler configuration files of the BC
+   * @param baseDirPaths directories to resolve relative paths found in configuration files against, in addition to the directory of the file
+   * @return null if some input can't be read
+   */
+  @Nullable
+  public static FlexBuildFingerprint compute(@NotNull final Collection<File> configFiles,
+                                             @NotNull final Collection<String> baseDirPaths,
+                                             @NotNull final File outputFile) {
+    try {
+      final MessageDigest digest = createDigest();
+
+      for (File configFile : configFiles) {
+        // generated configuration files are located in different temp directories for IDE and external build, so only content matters
+        digest.update(getFileHash(configFile));
+
+        final List<String> dirs = new ArrayList<>(baseDirPaths.size() + 1);
+        dirs.add(configFile.getParent());
+        dirs.addAll(baseDirPaths);
+        for (String path : findPathsInConfigFile(configFile)) {
+          final File file = resolve(path, dirs);
+          if (file != null) {
+            updateWithFileOrDir(digest, file);
+          }
+        }
+      }
+
+      final String inputsHash = StringUtil.toHexString(digest.digest());
+      final String outputHash = outputFile.isFile() ? StringUtil.toHexString(getFileHash(outputFile)) : "";
+      return new FlexBuildFingerprint(inputsHash, outputHash);
+    }
+    catch (IOException | JDOMException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @param key see {@link #getKey(String, String, String)}
+   */
+  public static boolean isUpToDate(@NotNull final File dataStorageRoot, @NotNull final String key, @NotNull final FlexBuildFingerprint current) {
+    if (current.myOutputHash.isEmpty()) return false;
+
+    final File file = getFile(dataStorageRoot, key);
+    if (!file.isFile()) return false;
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      return current.myInputsHash.equals(in.readUTF()) && current.myOutputHash.equals(in.readUTF());
+    }
+    catch (IOException e) {
+      return false;
+    }
+  }
+
+  public static void save(@NotNull final File dataStorageRoot, @NotNull final String key, @NotNull final FlexBuildFingerprint fingerprint) {
+    if (fingerprint.myOutputHash.isEmpty()) return;
+
+    final File file = getFile(dataStorageRoot, key);
+    try {
+      FileUtil.createParentDirs(file);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+        out.writeUTF(fingerprint.myInputsHash);
+        out.writeUTF(fingerprint.myOutputHash);
+      }
+    }
+    catch (IOException e) {
+      FileUtil.delete(file);
+    }
+  }
+
+  public static void remove(@NotNull final File dataStorageRoot, @NotNull final String key) {
+    FileUtil.delete(getFile(dataStorageRoot, key));
+  }
+
+  public static void removeAll(@NotNull final File dataStorageRoot) {
+    FileUtil.delete(new File(dataStorageRoot, DIR_NAME));
+  }
+
+  @NotNull
+  private static File getFile(@NotNull final File dataStorageRoot, @NotNull final String key) {
+    try {
+      return new File(dataStorageRoot, DIR_NAME + "/" + StringUtil.toHexString(createDigest().digest(key.getBytes(StandardCharsets.UTF_8))));
+    }
+    catch (IOException e) {
+      return new File(dataStorageRoot, DIR_NAME + "/" + Integer.toHexString(key.hashCode()));
+    }
+  }
+
+  @NotNull
+  private static List<String> findPathsInConfigFile(@NotNull final File configFile) throws IOException, JDOMException {
+    final List<String> result = new ArrayList<>();
+    final Element root = JDOMUtil.load(configFile);
+    for (String tag : TAGS_FOR_FILE_PATHS_IN_CONFIG_FILE) {
+      // tag has format "<root_tag><child_tag>"
+      final List<String> names = StringUtil.split(StringUtil.replace(tag, ">", ""), "<");
+      if (names.isEmpty() || !root.getName().equals(names.get(0))) continue;
+      collectTexts(root, names, 1, result);
+    }
+    return result;
+  }
+
+  private static void collectTexts(@NotNull final Element element,
+                                   @NotNull final List<String> names,
+                                   final int depth,
+                                   @NotNull final List<String> result) {
+    if (depth == names.size()) {
+      final String text = element.getTextNormalize();
+      if (!text.isEmpty()) result.add(text);
+      return;
+    }
+    for (Element child : element.getChildren(names.get(depth), element.getNamespace())) {
+      collectTexts(child, names, depth + 1, result);
+    }
+  }
+
+  @Nullable
+  private static File resolve(@NotNull final String path, @NotNull final List<String> baseDirs) {
+    final File file = new File(FileUtil.toSystemDependentName(path));
+    if (file.isAbsolute()) return file.exists() ? file : null;
+
+    for (String baseDir : baseDirs) {
+      if (baseDir == null) continue;
+      final File file1 = new File(FileUtil.toSystemDependentName(baseDir + '/' + path));
+      if (file1.exists()) return file1;
+    }
+    return null;
+  }
+
+  private static void updateWithFileOrDir(@NotNull final MessageDigest digest, @NotNull final File file) throws IOException {
+    if (!file.isDirectory()) {
+      updateWithFile(digest, file);
+      return;
+    }
+
+    final File[] children = file.listFiles();
+    if (children == null) return;
+    Arrays.sort(children);
+    for (File child : children) {
+      digest.update(child.getName().getBytes(StandardCharsets.UTF_8));
+      updateWithFileOrDir(digest, child);
+    }
+  }
+
+  private static void updateWithFile(@NotNull final MessageDigest digest, @NotNull final File file) throws IOException {
+    digest.update(FileUtil.toSystemIndependentName(file.getPath()).getBytes(StandardCharsets.UTF_8));
+    digest.update(getFileHash(file));
+  }
+
+  @NotNull
+  private static byte[] getFileHash(@NotNull final File file) throws IOException {
+    final String path = file.getPath();
+    final long length = file.length();
+    final long timestamp = file.lastModified();
+
+    final FileHash cached = ourFileHashes.get(path);
+    if (cached != null && cached.length == length && cached.timestamp == timestamp) {
+      return cached.hash;
+    }
+
+    final MessageDigest digest = createDigest();
+    try (InputStream in = new FileInputStream(file)) {
+      final byte[] buffer = new byte[64 * 1024];
+      int read;
+      while ((read = in.read(buffer)) > 0) {
+        digest.update(buffer, 0, read);
+      }
+    }
+
+    final byte[] hash = digest.digest();
+    if (ourFileHashes.size() > MAX_CACHED_FILE_HASHES) {
+      ourFileHashes.clear();
+    }
+    ourFileHashes.put(path, new FileHash(length, timestamp, hash));
+    return hash;
+  }
+
+  @NotNull
+  private static MessageDigest createDigest() throws IOException {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static class FileHash {
+    private final long length;
+    private final long timestamp;
+    private final byte[] hash;
+
+    private FileHash(final long length, final long timestamp, final byte[] hash) {
+      this.length = length;
+      this.timestamp = timestamp;
+      this.hash = hash;
+    }
+  }
+}
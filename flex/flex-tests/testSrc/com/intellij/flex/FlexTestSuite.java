@@ -1,5 +1,6 @@
 package com.intellij.flex;
 
+import com.intellij.flex.bc.FlexBuildFingerprintTest;
 import com.intellij.flex.bc.FlexCompilerConfigTest;
 import com.intellij.flex.bc.FlexProjectConfigTest;
 import com.intellij.flex.codeInsight.*;
@@ -27,6 +28,10 @@ import com.intellij.flex.refactoring.*;
 import com.intellij.flex.resolver.ActionScriptResolveTest;
 import com.intellij.flex.resolver.FlexCssNavigationTest;
 import com.intellij.flex.uml.FlashUmlTest;
+import com.intellij.javascript.flex.compiled.SwfStubCacheTest;
+import com.intellij.javascript.flex.mxml.schema.CodeContextTest;
+import com.intellij.lang.javascript.flex.build.FlexCompilationManagerTest;
+import com.intellij.lang.javascript.flex.debug.FdbOutputReaderTest;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -38,6 +43,7 @@ public class FlexTestSuite extends TestCase {
     final TestSuite testSuite = new TestSuite(FlexTestSuite.class.getSimpleName());
 
     // com.intellij.flex.bc.*
+    testSuite.addTestSuite(FlexBuildFingerprintTest.class);
     testSuite.addTestSuite(FlexCompilerConfigTest.class);
     testSuite.addTestSuite(FlexProjectConfigTest.class);
 
@@ -136,6 +142,18 @@ public class FlexTestSuite extends TestCase {
     //com.intellij.flex.uml.*
     testSuite.addTestSuite(FlashUmlTest.class);
 
+    //com.intellij.javascript.flex.compiled.*
+    testSuite.addTestSuite(SwfStubCacheTest.class);
+
+    //com.intellij.javascript.flex.mxml.schema.*
+    testSuite.addTestSuite(CodeContextTest.class);
+
+    //com.intellij.lang.javascript.flex.build.*
+    testSuite.addTestSuite(FlexCompilationManagerTest.class);
+
+    //com.intellij.lang.javascript.flex.debug.*
+    testSuite.addTestSuite(FdbOutputReaderTest.class);
+
     return testSuite;
   }
 }
@@ -0,0 +1,120 @@
+package com.intellij.flex.bc;
+
+import com.intellij.flex.build.FlexBuildFingerprint;
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+public class FlexBuildFingerprintTest extends TestCase {
+  private File myDir;
+  private File myDataStorageRoot;
+  private File myConfigFile;
+  private File mySourceFile;
+  private File myLibraryFile;
+  private File myOutputFile;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myDir = FileUtil.createTempDirectory("flex-fingerprint", null);
+    myDataStorageRoot = new File(myDir, "data");
+
+    mySourceFile = new File(myDir, "src/foo/Foo.as");
+    FileUtil.writeToFile(mySourceFile, "package foo { public class Foo {} }");
+    myLibraryFile = new File(myDir, "lib/lib.swc");
+    FileUtil.writeToFile(myLibraryFile, "library content");
+    myOutputFile = new File(myDir, "out/Foo.swf");
+    FileUtil.writeToFile(myOutputFile, "output content");
+
+    myConfigFile = new File(myDir, "config.xml");
+    FileUtil.writeToFile(myConfigFile,
+                         "<flex-config xmlns=\"http://www.adobe.com/2006/flex-config\">\n" +
+                         "  <compiler>\n" +
+                         "    <source-path><path-element>src</path-element></source-path>\n" +
+                         "    <library-path><path-element>" + myLibraryFile.getPath() + "</path-element></library-path>\n" +
+                         "  </compiler>\n" +
+                         "</flex-config>");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  private FlexBuildFingerprint compute() {
+    final FlexBuildFingerprint fingerprint =
+      FlexBuildFingerprint.compute(Collections.singletonList(myConfigFile), Collections.singletonList(myDir.getPath()), myOutputFile);
+    assertNotNull(fingerprint);
+    return fingerprint;
+  }
+
+  private boolean isUpToDate() {
+    return FlexBuildFingerprint.isUpToDate(myDataStorageRoot, getKey(), compute());
+  }
+
+  private String getKey() {
+    return FlexBuildFingerprint.getKey("module", "bc", myOutputFile.getPath());
+  }
+
+  private static void modify(final File file, final String text) throws IOException {
+    final long timestamp = file.lastModified();
+    FileUtil.writeToFile(file, text);
+    file.setLastModified(timestamp + 2000);
+  }
+
+  public void testUnchangedContent() throws IOException {
+    assertFalse(isUpToDate());
+    FlexBuildFingerprint.save(myDataStorageRoot, getKey(), compute());
+    assertTrue(isUpToDate());
+
+    // e.g. VCS checkout of the same revision
+    modify(mySourceFile, "package foo { public class Foo {} }");
+    modify(myLibraryFile, "library content");
+    assertTrue(isUpToDate());
+    assertFalse(FlexBuildFingerprint.isUpToDate(myDataStorageRoot, FlexBuildFingerprint.getKey("module", "other", myOutputFile.getPath()),
+                                                compute()));
+  }
+
+  public void testChangedInputs() throws IOException {
+    FlexBuildFingerprint.save(myDataStorageRoot, getKey(), compute());
+    modify(mySourceFile, "package foo { public class Foo { var a; } }");
+    assertFalse(isUpToDate());
+
+    FlexBuildFingerprint.save(myDataStorageRoot, getKey(), compute());
+    modify(myLibraryFile, "new library content");
+    assertFalse(isUpToDate());
+
+    FlexBuildFingerprint.save(myDataStorageRoot, getKey(), compute());
+    FileUtil.writeToFile(new File(myDir, "src/foo/Bar.as"), "package foo { public class Bar {} }");
+    assertFalse(isUpToDate());
+  }
+
+  public void testChangedOrMissingOutput() throws IOException {
+    FlexBuildFingerprint.save(myDataStorageRoot, getKey(), compute());
+    modify(myOutputFile, "changed output");
+    assertFalse(isUpToDate());
+
+    FlexBuildFingerprint.save(myDataStorageRoot, getKey(), compute());
+    assertTrue(isUpToDate());
+    FileUtil.delete(myOutputFile);
+    assertFalse(isUpToDate());
+  }
+
+  public void testRemove() {
+    FlexBuildFingerprint.save(myDataStorageRoot, getKey(), compute());
+    FlexBuildFingerprint.remove(myDataStorageRoot, getKey());
+    assertFalse(isUpToDate());
+
+    FlexBuildFingerprint.save(myDataStorageRoot, getKey(), compute());
+    FlexBuildFingerprint.removeAll(myDataStorageRoot);
+    assertFalse(isUpToDate());
+  }
+}
@@ -5,12 +5,15 @@ import com.intellij.lang.javascript.flex.importer.FlexImporter;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.CharsetToolkit;
+import com.intellij.testFramework.PlatformTestUtil;
 import junit.framework.TestCase;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -69,23 +72,42 @@ public class FlexImporterTest extends TestCase {
     doTestFor("hotbook.swf");
   }
 
-  private void doTestFor(final String fileName) throws IOException {
-    final File file = new File(getTestDataPath() + fileName);
-    final byte[] contents;
+  public final void testDecodingPerformance() throws Exception {
+    final List<byte[]> libraries = new ArrayList<>();
+    for (File file : new File(getTestDataPath()).listFiles()) {
+      if (file.getName().endsWith(".swc") || file.getName().endsWith(".swf")) {
+        libraries.add(loadContents(file));
+      }
+    }
 
+    PlatformTestUtil.startPerformanceTest("SWC/SWF decoding", 3_000, () -> {
+      for (byte[] contents : libraries) {
+        FlexImporter.buildInterfaceFromBytes(contents);
+      }
+    }).assertTiming();
+  }
+
+  private static byte[] loadContents(final File file) throws IOException {
     if (file.getName().endsWith(".swc")) {
       final ZipFile zipFile = new ZipFile(file);
       final ZipEntry zipEntry = zipFile.getEntry("library.swf");
       final InputStream inputStream = zipFile.getInputStream(zipEntry);
-      contents = FileUtil.loadBytes(inputStream, (int)zipEntry.getSize());
+      final byte[] contents = FileUtil.loadBytes(inputStream, (int)zipEntry.getSize());
       inputStream.close();
       zipFile.close();
+      return contents;
     }
     else {
-      contents = FileUtil.loadFileBytes(file);
+      return FileUtil.loadFileBytes(file);
     }
+  }
+
+  private void doTestFor(final String fileName) throws IOException {
+    final File file = new File(getTestDataPath() + fileName);
+    final byte[] contents = loadContents(file);
 
     String result = FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(contents));
+    assertEquals(result, FlexImporter.buildInterfaceFromBytes(contents));
     String resultFileName = getTestDataPath() + fileName + ".txt";
 
     try {
@@ -0,0 +1,131 @@
+package com.intellij.javascript.flex.compiled;
+
+import com.intellij.flex.util.FlexTestUtils;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.impl.DebugUtil;
+import com.intellij.psi.stubs.PsiFileStub;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.testFramework.LightPlatformTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+
+public class SwfStubCacheTest extends LightPlatformTestCase {
+  private static final int STUB_VERSION = 1;
+
+  private File myDir;
+  private byte[] myContent;
+  private PsiFileStub myStub;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    myDir = FileUtil.createTempDirectory("flex-swf-stubs", null);
+
+    final VirtualFile file = LocalFileSystem.getInstance().refreshAndFindFileByPath(FlexTestUtils.getTestDataPath("projectView/lib/library.swf"));
+    assertNotNull(file);
+    myContent = file.contentsToByteArray();
+    myStub = SwfFileStubBuilder.buildFileStub(file, myContent);
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  @NotNull
+  private SwfStubCache createCache(final long maxStorageSize) {
+    return new SwfStubCache(myDir, maxStorageSize);
+  }
+
+  private void assertCached(@NotNull final SwfStubCache cache, @NotNull final String key, final int stubVersion) {
+    final StubElement cached = cache.get(key, stubVersion);
+    assertNotNull(cached);
+    assertEquals(DebugUtil.stubTreeToString(myStub), DebugUtil.stubTreeToString(cached));
+  }
+
+  public void testDisabledByDefault() {
+    assertFalse(SwfStubCache.isEnabled());
+  }
+
+  public void testKey() {
+    final byte[] otherContent = myContent.clone();
+    otherContent[otherContent.length - 1]++;
+
+    assertEquals(SwfStubCache.getKey(myContent), SwfStubCache.getKey(myContent.clone()));
+    assertFalse(SwfStubCache.getKey(myContent).equals(SwfStubCache.getKey(otherContent)));
+  }
+
+  public void testStubIsKeptAfterReopening() {
+    final String key = SwfStubCache.getKey(myContent);
+
+    SwfStubCache cache = createCache(Long.MAX_VALUE);
+    assertNull(cache.get(key, STUB_VERSION));
+    cache.put(key, STUB_VERSION, myStub);
+    assertCached(cache, key, STUB_VERSION);
+    cache.close();
+
+    cache = createCache(Long.MAX_VALUE);
+    assertCached(cache, key, STUB_VERSION);
+    cache.close();
+  }
+
+  public void testOtherStubVersionIsDropped() {
+    final String key = SwfStubCache.getKey(myContent);
+
+    final SwfStubCache cache = createCache(Long.MAX_VALUE);
+    cache.put(key, STUB_VERSION, myStub);
+    assertNull(cache.get(key, STUB_VERSION + 1));
+    assertFalse(new File(myDir, String.valueOf(STUB_VERSION)).exists());
+    assertNull(cache.get(key, STUB_VERSION));
+    cache.close();
+  }
+
+  public void testStorageBiggerThanLimitIsDropped() {
+    SwfStubCache cache = createCache(Long.MAX_VALUE);
+    for (int i = 0; i < 10; i++) {
+      cache.put("key" + i, STUB_VERSION, myStub);
+    }
+    cache.close();
+    final long size = cache.getStorageSize(STUB_VERSION);
+
+    cache = createCache(size + 1);
+    assertCached(cache, "key0", STUB_VERSION);
+    cache.close();
+
+    cache = createCache(size / 2);
+    assertNull(cache.get("key1", STUB_VERSION));
+    cache.put("key1", STUB_VERSION, myStub);
+    assertCached(cache, "key1", STUB_VERSION);
+    cache.close();
+  }
+
+  public void testCorruptedStorageIsRecreated() throws IOException {
+    final String key = SwfStubCache.getKey(myContent);
+
+    SwfStubCache cache = createCache(Long.MAX_VALUE);
+    cache.put(key, STUB_VERSION, myStub);
+    cache.close();
+
+    final File[] files = new File(myDir, String.valueOf(STUB_VERSION)).listFiles();
+    assertNotNull(files);
+    for (File file : files) {
+      FileUtil.writeToFile(file, "garbage");
+    }
+
+    cache = createCache(Long.MAX_VALUE);
+    assertNull(cache.get(key, STUB_VERSION));
+    assertFalse(cache.isBroken());
+    cache.put(key, STUB_VERSION, myStub);
+    assertCached(cache, key, STUB_VERSION);
+    cache.close();
+  }
+}
@@ -0,0 +1,97 @@
+package com.intellij.javascript.flex.mxml.schema;
+
+import com.intellij.flex.util.FlexTestUtils;
+import com.intellij.javascript.flex.css.FlexStylesIndexableSetContributor;
+import com.intellij.javascript.flex.mxml.MxmlJSClass;
+import com.intellij.lang.javascript.JSDaemonAnalyzerTestCase;
+import com.intellij.lang.javascript.JSTestOption;
+import com.intellij.lang.javascript.JSTestOptions;
+import com.intellij.lang.javascript.flex.FlexModuleType;
+import com.intellij.lang.javascript.flex.FlexUtils;
+import com.intellij.lang.javascript.flex.projectStructure.model.impl.Factory;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleType;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.vfs.newvfs.impl.VfsRootAccess;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.xml.XmlAttributeDescriptor;
+import com.intellij.xml.XmlElementDescriptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.intellij.openapi.vfs.VfsUtilCore.convertFromUrl;
+import static com.intellij.openapi.vfs.VfsUtilCore.urlToPath;
+
+public class CodeContextTest extends JSDaemonAnalyzerTestCase {
+  private static final String[] NAMESPACES = {MxmlJSClass.MXML_URI4, MxmlJSClass.MXML_URI6};
+
+  @Override
+  public void setUp() throws Exception {
+    VfsRootAccess.allowRootAccess(getTestRootDisposable(),
+                                  urlToPath(convertFromUrl(FlexSchemaHandler.class.getResource("z.xsd"))),
+                                  urlToPath(convertFromUrl(FlexStylesIndexableSetContributor.class.getResource("FlexStyles.as"))));
+    super.setUp();
+  }
+
+  @Override
+  protected ModuleType getModuleType() {
+    return FlexModuleType.getInstance();
+  }
+
+  @Override
+  protected void setUpJdk() {
+    FlexTestUtils.setupFlexSdk(myModule, getTestName(false), getClass(), getTestRootDisposable());
+  }
+
+  protected String getBasePath() {
+    return "/";
+  }
+
+  @Override
+  protected String getTestDataPath() {
+    return FlexTestUtils.getTestDataPath("");
+  }
+
+  protected String getExtension() {
+    return "mxml";
+  }
+
+  @JSTestOptions({JSTestOption.WithGumboSdk})
+  public void testConcurrentGetContextInTwoModules() throws Exception {
+    final Module module2 = FlexTestUtils.createModule(myProject, "module2", null);
+    final Sdk sdk = FlexUtils.getSdkForActiveBC(myModule);
+    FlexTestUtils.modifyConfigs(myProject, editor -> editor.getConfigurations(module2)[0].getDependencies()
+      .setSdkEntry(Factory.createSdkEntry(sdk.getName())));
+
+    // contexts of both modules and attributes of their descriptors are computed by several threads at once
+    final List<Future<XmlAttributeDescriptor[]>> futures = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      for (final Module module : new Module[]{myModule, module2}) {
+        for (final String namespace : NAMESPACES) {
+          futures.add(ApplicationManager.getApplication().executeOnPooledThread(() -> ReadAction.compute(() -> {
+            final XmlElementDescriptor descriptor = CodeContext.getContext(namespace, module).getElementDescriptor("Button", (XmlTag)null);
+            return descriptor == null ? null : descriptor.getAttributesDescriptors(null);
+          })));
+        }
+      }
+    }
+    for (Future<XmlAttributeDescriptor[]> future : futures) {
+      final XmlAttributeDescriptor[] attributes = future.get(1, TimeUnit.MINUTES);
+      assertNotNull(attributes);
+      assertTrue(attributes.length > 0);
+    }
+
+    for (String namespace : NAMESPACES) {
+      final CodeContext context1 = CodeContext.getContext(namespace, myModule);
+      final CodeContext context2 = CodeContext.getContext(namespace, module2);
+      assertSame(myModule, context1.module);
+      assertSame(module2, context2.module);
+      assertEquals(context1.getAllDescriptorsSize(), context2.getAllDescriptorsSize());
+    }
+  }
+}
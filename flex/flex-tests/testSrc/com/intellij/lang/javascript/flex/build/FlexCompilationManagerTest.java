@@ -0,0 +1,106 @@
+package com.intellij.lang.javascript.flex.build;
+
+import com.intellij.flex.model.bc.OutputType;
+import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfiguration;
+import com.intellij.lang.javascript.flex.projectStructure.model.ModifiableFlexBuildConfiguration;
+import com.intellij.lang.javascript.flex.projectStructure.model.impl.Factory;
+import com.intellij.testFramework.LightPlatformTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Order in which {@link FlexCompilationManager} considers BCs for starting.
+ */
+public class FlexCompilationManagerTest extends LightPlatformTestCase {
+  public void testIndependentTasksKeepOrder() {
+    final FlexCompilationTask a = createTask("a");
+    final FlexCompilationTask b = createTask("b");
+    final FlexCompilationTask c = createTask("c");
+    assertOrder(Arrays.asList(a, b, c), a, b, c);
+  }
+
+  public void testDependentChainGoesFirst() {
+    final FlexCompilationTask lib1 = createTask("lib1");
+    final FlexCompilationTask lib2 = createTask("lib2", lib1);
+    final FlexCompilationTask app = createTask("app", lib2);
+    final FlexCompilationTask other1 = createTask("other1");
+    final FlexCompilationTask other2 = createTask("other2");
+    // lib1 and lib2 have dependent BCs, so they go before independent ones; the rest keep the original order
+    assertOrder(Arrays.asList(other1, app, lib2, lib1, other2), lib1, lib2, other1, app, other2);
+  }
+
+  public void testLongestChainGoesFirst() {
+    final FlexCompilationTask shortLib = createTask("shortLib");
+    final FlexCompilationTask shortApp = createTask("shortApp", shortLib);
+    final FlexCompilationTask lib1 = createTask("lib1");
+    final FlexCompilationTask lib2 = createTask("lib2", lib1);
+    final FlexCompilationTask longApp = createTask("longApp", lib2);
+    assertOrder(Arrays.asList(shortLib, shortApp, longApp, lib2, lib1), lib1, shortLib, lib2, shortApp, longApp);
+  }
+
+  public void testRLMAfterMainApplication() {
+    final FlexCompilationTask app = createTask("app");
+    final ModifiableFlexBuildConfiguration rlmBC = Factory.getTemporaryCopyForCompilation(app.getBC());
+    rlmBC.setOutputType(OutputType.RuntimeLoadedModule);
+    rlmBC.setMainClass("foo.Module");
+    final FlexCompilationTask rlm = new TestTask(rlmBC, new ArrayList<>());
+    final FlexCompilationTask other = createTask("other");
+
+    assertTrue(FlexCompilationManager.dependsOn(rlm, app));
+    assertFalse(FlexCompilationManager.dependsOn(app, rlm));
+    assertOrder(Arrays.asList(other, rlm, app), app, other, rlm);
+  }
+
+  public void testCyclicDependencies() {
+    final List<FlexCompilationTask> tasks = new ArrayList<>();
+    final FlexCompilationTask a = createTask("a");
+    final FlexCompilationTask b = createTask("b", a);
+    a.getDependencies().add(b.getBC());
+    final FlexCompilationTask c = createTask("c");
+    tasks.add(c);
+    tasks.add(a);
+    tasks.add(b);
+    final List<FlexCompilationTask> sorted = FlexCompilationManager.sortByCriticalPath(tasks);
+    assertEquals(3, sorted.size());
+    assertSame(c, sorted.getLast());
+  }
+
+  private static void assertOrder(@NotNull final Collection<FlexCompilationTask> tasks, @NotNull final FlexCompilationTask... expected) {
+    assertEquals(Arrays.asList(expected), FlexCompilationManager.sortByCriticalPath(tasks));
+  }
+
+  @NotNull
+  private static FlexCompilationTask createTask(@NotNull final String name, @NotNull final FlexCompilationTask... dependencies) {
+    final ModifiableFlexBuildConfiguration bc = Factory.createBuildConfiguration();
+    bc.setName(name);
+    final List<FlexBuildConfiguration> dependencyBCs = new ArrayList<>();
+    for (FlexCompilationTask dependency : dependencies) {
+      dependencyBCs.add(dependency.getBC());
+    }
+    return new TestTask(bc, dependencyBCs);
+  }
+
+  private static class TestTask extends FlexCompilationTask {
+    private TestTask(@NotNull final FlexBuildConfiguration bc, @NotNull final Collection<FlexBuildConfiguration> dependencies) {
+      super(getModule(), bc, dependencies);
+    }
+
+    @Override
+    protected void doStart(final FlexCompilationManager compilationManager) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void doCancel() {
+    }
+
+    @Override
+    public String toString() {
+      return getPresentableName();
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package com.intellij.lang.javascript.flex.debug;
+
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * {@link FlexDebugProcess.MyFdbOutputReader} fed with canned fdb transcripts, chunks of the transcript come in separate reads.
+ */
+public class FdbOutputReaderTest extends TestCase {
+  private static final String PROMPT = "(fdb) ";
+
+  private final List<Boolean> mySuspendedStates = new ArrayList<>();
+
+  @NotNull
+  private FlexDebugProcess.MyFdbOutputReader createReader(@NotNull final String... chunks) {
+    return new FlexDebugProcess.MyFdbOutputReader(new ChunkedInputStream(Arrays.asList(chunks)), mySuspendedStates::add);
+  }
+
+  private static void assertResponses(@NotNull final FlexDebugProcess.MyFdbOutputReader reader,
+                                      @NotNull final List<String> responses) throws IOException {
+    for (String response : responses) {
+      assertEquals(response, reader.readLine(false));
+    }
+  }
+
+  public void testPromptSplitBetweenReads() throws IOException {
+    final String transcript = "$1 = 5\n" + PROMPT + "$2 = \"(fdb)\"\n" + PROMPT;
+    for (int i = 1; i < transcript.length(); i++) {
+      final FlexDebugProcess.MyFdbOutputReader reader = createReader(transcript.substring(0, i), transcript.substring(i));
+      assertResponses(reader, Arrays.asList("$1 = 5\n", "$2 = \"(fdb)\"\n"));
+      assertNull(reader.readLine(false));
+    }
+  }
+
+  public void testMergedPrompts() throws IOException {
+    final FlexDebugProcess.MyFdbOutputReader reader =
+      createReader("#0   this = [Object 1, class='A'].foo() at A.as:10\n" + PROMPT + "$1 = 1\n" + PROMPT + "Really quit? (y or n)" +
+                   "Attempting to resolve breakpoint 1\n" + PROMPT);
+    assertResponses(reader, Arrays.asList("#0   this = [Object 1, class='A'].foo() at A.as:10\n", "$1 = 1\n", "Really quit? ",
+                                          "Attempting to resolve breakpoint 1\n"));
+    assertEquals(Arrays.asList(true, true, true, true), mySuspendedStates);
+  }
+
+  public void testManyPipelinedCommands() throws IOException {
+    // pipelined frame and print commands, the transcript is longer than the read buffer
+    final List<String> responses = new ArrayList<>();
+    final StringBuilder transcript = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      final String frameResponse = "#" + i + "   this = [Object " + i + ", class='A'].method" + i + "() at A.as:" + i + "\n";
+      final String printResponse = "$" + i + " = \"" + repeat('x', i * 3) + "\"\n";
+      responses.add(frameResponse);
+      responses.add(printResponse);
+      transcript.append(frameResponse).append(PROMPT).append(printResponse).append(PROMPT);
+    }
+    assertTrue(transcript.length() > 8192);
+
+    final Random random = new Random(0);
+    for (int attempt = 0; attempt < 20; attempt++) {
+      final FlexDebugProcess.MyFdbOutputReader reader = createReader(split(transcript.toString(), random));
+      assertResponses(reader, responses);
+      assertNull(reader.readLine(false));
+    }
+  }
+
+  public void testErrorInTheMiddleOfPipeline() throws IOException {
+    final FlexDebugProcess.MyFdbOutputReader reader =
+      createReader("$1 = 1\n" + PROMPT + "Expression could not be evaluated.\n" + PROMPT, "$2 = 2\n" + PROMPT);
+    assertResponses(reader, Arrays.asList("$1 = 1\n", "Expression could not be evaluated.\n", "$2 = 2\n"));
+  }
+
+  public void testTerminatedInTheMiddleOfPipeline() throws IOException {
+    final FlexDebugProcess.MyFdbOutputReader reader = createReader("$1 = 1\n" + PROMPT + "[trace] bye\nPlayer session terminated\n");
+    assertEquals("$1 = 1\n", reader.readLine(false));
+    assertEquals("[trace] bye\nPlayer session terminated\n", reader.readLine(true));
+    assertEquals(Arrays.asList(true, false), mySuspendedStates);
+  }
+
+  public void testPostedCommandsReadInAnyOrder() throws IOException {
+    // frame switch that nobody reads, then two commands written to fdb in one batch
+    final FlexDebugProcess.PostedCommands posted = new FlexDebugProcess.PostedCommands(
+      createReader("#0   this = [Object 1, class='A'].foo() at A.as:10\n" + PROMPT + "#1   this = [Object 2, class='B'].bar() at B.as:20\n" +
+                   PROMPT + "$1 = 1\n" + PROMPT, "$2 = 2\n" + PROMPT));
+    final DebuggerCommand first = new DebuggerCommand("frame 1\nprint a", CommandOutputProcessingType.DEFAULT_PROCESSING);
+    final DebuggerCommand second = new DebuggerCommand("print b", CommandOutputProcessingType.DEFAULT_PROCESSING);
+    posted.add(null, null, 1);
+    posted.add(first, first.getText(), 2);
+    posted.add(second, null, 1);
+
+    assertEquals("$2 = 2\n", posted.readResponse(second));
+    assertFalse(posted.contains(second));
+    assertFalse(posted.hasUnreadResponses());
+    assertEquals("#1   this = [Object 2, class='B'].bar() at B.as:20\n", posted.readResponse(first));
+    assertEquals("$1 = 1\n", posted.readResponse(first));
+    assertFalse(posted.contains(first));
+    assertEquals(Arrays.asList("#1   this = [Object 2, class='B'].bar() at B.as:20\n", "$1 = 1\n"),
+                 posted.getCachedResponses(first.getText()));
+  }
+
+  public void testPostedCommandNotReadCompletely() throws IOException {
+    final FlexDebugProcess.PostedCommands posted = new FlexDebugProcess.PostedCommands(
+      createReader("#0   this = [Object 1, class='A'].foo() at A.as:10\n" + PROMPT + "$1 = 1\n" + PROMPT,
+                   "Breakpoint 1, bar() at B.as:20\n" + PROMPT));
+    final DebuggerCommand query = new DebuggerCommand("frame 0\nprint a", CommandOutputProcessingType.DEFAULT_PROCESSING);
+    posted.add(query, query.getText(), 2);
+    assertEquals("#0   this = [Object 1, class='A'].foo() at A.as:10\n", posted.readResponse(query));
+
+    // the command that changes the VM state gets its own response, the rest of the batch is forgotten
+    posted.clear();
+    assertFalse(posted.contains(query));
+    assertFalse(posted.hasUnreadResponses());
+    assertNull(posted.getCachedResponses(query.getText()));
+    final DebuggerCommand next = new DebuggerCommand("next", CommandOutputProcessingType.DEFAULT_PROCESSING);
+    assertEquals("Breakpoint 1, bar() at B.as:20\n", posted.readResponse(next));
+    assertNull(posted.readResponse(next));
+  }
+
+  public void testStripTraceOutput() {
+    assertEquals("$1 = 1\n", FlexDebugProcess.stripTraceOutput("$1 = 1\n"));
+    assertEquals("$1 = 1\n$2 = 2", FlexDebugProcess.stripTraceOutput("[trace] a\n$1 = 1\n[trace] b\n$2 = 2"));
+  }
+
+  @NotNull
+  private static String[] split(@NotNull final String text, @NotNull final Random random) {
+    final List<String> chunks = new ArrayList<>();
+    for (int start = 0; start < text.length(); ) {
+      final int end = Math.min(text.length(), start + 1 + random.nextInt(random.nextBoolean() ? 10 : 10000));
+      chunks.add(text.substring(start, end));
+      start = end;
+    }
+    return chunks.toArray(new String[chunks.size()]);
+  }
+
+  @NotNull
+  private static String repeat(final char c, final int count) {
+    final char[] chars = new char[count];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+
+  /**
+   * Gives one chunk per read, like a pipe that fdb writes to.
+   */
+  private static class ChunkedInputStream extends InputStream {
+    private final Queue<byte[]> myChunks = new LinkedList<>();
+    private byte[] myChunk = new byte[0];
+    private int myPosition;
+
+    private ChunkedInputStream(@NotNull final List<String> chunks) {
+      for (String chunk : chunks) {
+        myChunks.add(chunk.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    @Override
+    public int read() throws IOException {
+      final byte[] b = new byte[1];
+      return read(b, 0, 1) == -1 ? -1 : b[0];
+    }
+
+    @Override
+    public int read(@NotNull final byte[] b, final int off, final int len) throws IOException {
+      if (len == 0) return 0;
+      if (myPosition == myChunk.length) {
+        if (myChunks.isEmpty()) return -1;
+        myChunk = myChunks.poll();
+        myPosition = 0;
+      }
+      final int count = Math.min(len, myChunk.length - myPosition);
+      System.arraycopy(myChunk, myPosition, b, off, count);
+      myPosition += count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return myChunk.length - myPosition;
+    }
+  }
+}
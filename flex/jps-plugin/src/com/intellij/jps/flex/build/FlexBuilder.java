@@ -3,6 +3,7 @@ package com.intellij.jps.flex.build;
 import com.intellij.flex.FlexCommonBundle;
 import com.intellij.flex.FlexCommonUtils;
 import com.intellij.flex.build.CompilerConfigGeneratorRt;
+import com.intellij.flex.build.FlexBuildFingerprint;
 import com.intellij.flex.build.FlexBuildTarget;
 import com.intellij.flex.build.FlexBuildTargetType;
 import com.intellij.flex.model.JpsFlexCompilerProjectExtension;
@@ -19,6 +20,7 @@ import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.PathUtilRt;
 import com.intellij.util.concurrency.Semaphore;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.builders.BuildOutputConsumer;
 import org.jetbrains.jps.builders.BuildRootDescriptor;
 import org.jetbrains.jps.builders.DirtyFilesHolder;
@@ -34,6 +36,7 @@ import org.jetbrains.jps.incremental.messages.ProgressMessage;
 import org.jetbrains.jps.model.JpsProject;
 import org.jetbrains.jps.model.library.sdk.JpsSdk;
 import org.jetbrains.jps.model.module.JpsModule;
+import org.jetbrains.jps.service.SharedThreadPool;
 
 import java.io.File;
 import java.io.IOException;
@@ -41,6 +44,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTarget> {
 
@@ -133,35 +142,186 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
       }
     }
 
-    for (JpsFlexBuildConfiguration bc : bcsToCompile) {
-      final Status status = compileBuildConfiguration(context, bc, myBuiltInCompilerHandler);
+    if (!context.getScope().isBuildForced(buildTarget) && !FlexCommonUtils.isFlexUnitBC(mainBC) &&
+        areFingerprintsUpToDate(context, bcsToCompile)) {
+      LOG.debug("content of inputs hasn't changed since the previous compilation");
+      for (JpsFlexBuildConfiguration bc : bcsToCompile) {
+        outputConsumer.registerOutputFile(new File(mainBC.getActualOutputFilePath()), dirtyFilePaths);
+        FlexBuilderUtils.performPostCompileActions(context, bc, dirtyFilePaths, outputConsumer);
+      }
+      return;
+    }
 
-      switch (status) {
-        case Ok:
-          outputConsumer.registerOutputFile(new File(mainBC.getActualOutputFilePath()), dirtyFilePaths);
-          FlexBuilderUtils.performPostCompileActions(context, bc, dirtyFilePaths, outputConsumer);
-          context.processMessage(
-            new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
-                                FlexCommonBundle.message("compilation.successful")));
-          break;
+    final long start = System.currentTimeMillis();
+    final Status mainStatus = compileBuildConfiguration(context, mainBC, myBuiltInCompilerHandler);
+    final long mainTime = System.currentTimeMillis() - start;
+    if (!processStatus(context, mainBC, mainStatus, mainBC, dirtyFilePaths, outputConsumer) || bcsToCompile.size() == 1) return;
+
+    // RLMs and runtime stylesheets depend only on the main application, so they are compiled in parallel as soon as it is ready
+    final List<JpsFlexBuildConfiguration> dependentBCs = bcsToCompile.subList(1, bcsToCompile.size());
+    final int maxParallelCompilations =
+      Math.max(1, JpsFlexCompilerProjectExtension.getInstance(mainBC.getModule().getProject()).MAX_PARALLEL_COMPILATIONS);
+    final CompletionService<CompilationResult> completionService =
+      new ExecutorCompletionService<>(SharedThreadPool.getInstance());
+
+    final List<CompilationTask> tasks = new ArrayList<>();
+    int submitted = 0;
+    int running = 0;
+    boolean failed = false;
+    boolean cancelled = false;
+    long longestTime = 0;
+    JpsFlexBuildConfiguration longestBC = null;
+
+    while (submitted < dependentBCs.size() || running > 0) {
+      while (submitted < dependentBCs.size() && running < maxParallelCompilations && !failed && !cancelled) {
+        final CompilationTask task = new CompilationTask(context, dependentBCs.get(submitted++), myBuiltInCompilerHandler);
+        task.myFuture = completionService.submit(task);
+        tasks.add(task);
+        running++;
+      }
+      if (running == 0) break;
 
-        case Failed:
-          final String message = bc.getOutputType() == OutputType.Application
-                                 ? FlexCommonBundle.message("compilation.failed")
-                                 : FlexCommonBundle.message("compilation.failed.dependent.will.be.skipped");
-          context.processMessage(new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO, message));
+      final CompilationResult result;
+      try {
+        result = completionService.take().get();
+      }
+      catch (InterruptedException e) {
+        cancelAndWait(tasks);
+        Thread.currentThread().interrupt();
+        throw new ProjectBuildException(e);
+      }
+      catch (ExecutionException e) {
+        cancelAndWait(tasks);
+        final Throwable cause = e.getCause();
+        if (cause instanceof ProjectBuildException) throw (ProjectBuildException)cause;
+        if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+        if (cause instanceof Error) throw (Error)cause;
+        throw new ProjectBuildException(cause);
+      }
+      running--;
+      if (result.time > longestTime) {
+        longestTime = result.time;
+        longestBC = result.bc;
+      }
 
-          throw new StopBuildException();
+      try {
+        if (!processStatus(context, result.bc, result.status, mainBC, dirtyFilePaths, outputConsumer)) {
+          cancelled = true;
+        }
+      }
+      catch (StopBuildException e) {
+        // let the compilations that are already running finish
+        failed = true;
+      }
+    }
 
-        case Cancelled:
-          context.processMessage(
-            new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
-                                FlexCommonBundle.message("compilation.cancelled")));
-          return;
+    if (longestBC != null) {
+      final String path = FlexBuilderUtils.getCompilerName(mainBC) + " -> " + FlexBuilderUtils.getCompilerName(longestBC);
+      context.processMessage(new CompilerMessage(FlexBuilderUtils.getCompilerName(mainBC), BuildMessage.Kind.INFO,
+                                                 FlexCommonBundle.message("compilation.critical.path",
+                                                                          StringUtil.formatDuration(System.currentTimeMillis() - start),
+                                                                          StringUtil.formatDuration(mainTime + longestTime), path)));
+    }
+
+    if (failed) throw new StopBuildException();
+  }
+
+  /**
+   * Compilations that have not started yet are cancelled, the running ones are waited for, so that no compilation is left running
+   * on the shared pool after the build has failed.
+   */
+  private static void cancelAndWait(@NotNull final List<CompilationTask> tasks) {
+    for (CompilationTask task : tasks) {
+      task.cancelAndWait();
+    }
+  }
+
+  private static class CompilationTask implements Callable<CompilationResult> {
+    private final CompileContext myContext;
+    private final JpsFlexBuildConfiguration myBC;
+    private final JpsBuiltInFlexCompilerHandler myBuiltInCompilerHandler;
+    private final AtomicBoolean myStarted = new AtomicBoolean();
+    private final Semaphore myFinished = new Semaphore();
+    private Future<CompilationResult> myFuture;
+
+    private CompilationTask(final CompileContext context,
+                            final JpsFlexBuildConfiguration bc,
+                            final JpsBuiltInFlexCompilerHandler builtInCompilerHandler) {
+      myContext = context;
+      myBC = bc;
+      myBuiltInCompilerHandler = builtInCompilerHandler;
+      myFinished.down();
+    }
+
+    @Override
+    public CompilationResult call() {
+      if (!myStarted.compareAndSet(false, true)) return null;
+
+      try {
+        final long start = System.currentTimeMillis();
+        final Status status = compileBuildConfiguration(myContext, myBC, myBuiltInCompilerHandler);
+        return new CompilationResult(myBC, status, System.currentTimeMillis() - start);
+      }
+      finally {
+        myFinished.up();
+      }
+    }
+
+    private void cancelAndWait() {
+      myFuture.cancel(false);
+      if (!myStarted.compareAndSet(false, true)) {
+        myFinished.waitFor();
       }
     }
   }
 
+  private static class CompilationResult {
+    private final JpsFlexBuildConfiguration bc;
+    private final Status status;
+    private final long time;
+
+    private CompilationResult(final JpsFlexBuildConfiguration bc, final Status status, final long time) {
+      this.bc = bc;
+      this.status = status;
+      this.time = time;
+    }
+  }
+
+  /**
+   * @return false if compilation was cancelled
+   */
+  private static boolean processStatus(final CompileContext context,
+                                       final JpsFlexBuildConfiguration bc,
+                                       final Status status,
+                                       final JpsFlexBuildConfiguration mainBC,
+                                       final Collection<String> dirtyFilePaths,
+                                       final BuildOutputConsumer outputConsumer) throws ProjectBuildException, IOException {
+    switch (status) {
+      case Ok:
+        outputConsumer.registerOutputFile(new File(mainBC.getActualOutputFilePath()), dirtyFilePaths);
+        FlexBuilderUtils.performPostCompileActions(context, bc, dirtyFilePaths, outputConsumer);
+        context.processMessage(
+          new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
+                              FlexCommonBundle.message("compilation.successful")));
+        return true;
+
+      case Failed:
+        final String message = bc.getOutputType() == OutputType.Application
+                               ? FlexCommonBundle.message("compilation.failed")
+                               : FlexCommonBundle.message("compilation.failed.dependent.will.be.skipped");
+        context.processMessage(new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO, message));
+
+        throw new StopBuildException();
+
+      case Cancelled:
+      default:
+        context.processMessage(
+          new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
+                              FlexCommonBundle.message("compilation.cancelled")));
+        return false;
+    }
+  }
+
   /**
    * This is a hacky workaround, needed because IDEA doesn't report files changed under .idea folder as dirty
    */
@@ -296,7 +456,9 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
         return Status.Failed;
       }
 
-      return doCompile(context, bc, configFiles, compilerName, builtInCompilerHandler);
+      final Status status = doCompile(context, bc, configFiles, compilerName, builtInCompilerHandler);
+      updateFingerprint(context, bc, configFiles, status);
+      return status;
     }
     catch (IOException e) {
       context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, e.getMessage()));
@@ -304,6 +466,50 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
     }
   }
 
+  private static boolean areFingerprintsUpToDate(final CompileContext context, final List<JpsFlexBuildConfiguration> bcs) {
+    for (JpsFlexBuildConfiguration bc : bcs) {
+      final FlexBuildFingerprint fingerprint;
+      try {
+        fingerprint = computeFingerprint(bc, createConfigFiles(bc, context.getProjectDescriptor()));
+      }
+      catch (IOException e) {
+        return false;
+      }
+      if (fingerprint == null || !FlexBuildFingerprint.isUpToDate(getDataStorageRoot(context), getFingerprintKey(bc), fingerprint)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void updateFingerprint(final CompileContext context,
+                                        final JpsFlexBuildConfiguration bc,
+                                        final List<File> configFiles,
+                                        final Status status) {
+    final FlexBuildFingerprint fingerprint = status == Status.Ok ? computeFingerprint(bc, configFiles) : null;
+    if (fingerprint != null) {
+      FlexBuildFingerprint.save(getDataStorageRoot(context), getFingerprintKey(bc), fingerprint);
+    }
+    else {
+      FlexBuildFingerprint.remove(getDataStorageRoot(context), getFingerprintKey(bc));
+    }
+  }
+
+  @Nullable
+  private static FlexBuildFingerprint computeFingerprint(final JpsFlexBuildConfiguration bc, final List<File> configFiles) {
+    return FlexBuildFingerprint.compute(configFiles,
+                                        Collections.singletonList(FlexCommonUtils.getFlexCompilerWorkDirPath(bc.getModule().getProject())),
+                                        new File(bc.getActualOutputFilePath()));
+  }
+
+  private static String getFingerprintKey(final JpsFlexBuildConfiguration bc) {
+    return FlexBuildFingerprint.getKey(bc.getModule().getName(), bc.getName(), bc.getActualOutputFilePath());
+  }
+
+  private static File getDataStorageRoot(final CompileContext context) {
+    return context.getProjectDescriptor().dataManager.getDataPaths().getDataStorageRoot();
+  }
+
   private static boolean ensureCanCreateFile(@NotNull File file) {
     final int maxAttempts = 3; // FileUtil.ensureCanCreateFile() may return false because of race conditions
 
@@ -359,11 +565,12 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
                           (JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).PREFER_ASC_20 ||
                            FlexCommonUtils.isAirSdkWithoutFlex(sdk));
     final boolean builtIn = !asc20 &&
-                            JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).USE_BUILT_IN_COMPILER &&
-                            builtInCompilerHandler.canBeUsedForSdk(sdk.getHomePath());
+                            JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).USE_BUILT_IN_COMPILER;
 
     if (builtIn) {
-      return doCompileWithBuiltInCompiler(context, bc, configFiles, compilerName, builtInCompilerHandler);
+      final Status status = doCompileWithBuiltInCompiler(context, bc, configFiles, compilerName, builtInCompilerHandler);
+      if (status != null) return status;
+      // all built-in compiler processes are busy with other SDKs
     }
 
     final List<String> compilerCommand = asc20 ? getASC20Command(bc.getModule().getProject(), sdk, app)
@@ -393,19 +600,15 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
     }
   }
 
+  /**
+   * @return null if there is no built-in compiler process available for the SDK of the BC
+   */
+  @Nullable
   private static Status doCompileWithBuiltInCompiler(final CompileContext context,
                                                      final JpsFlexBuildConfiguration bc,
                                                      final List<File> configFiles,
                                                      final String compilerName,
                                                      final JpsBuiltInFlexCompilerHandler builtInCompilerHandler) {
-    try {
-      builtInCompilerHandler.startCompilerIfNeeded(bc.getSdk(), context, compilerName);
-    }
-    catch (IOException e) {
-      context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, e.toString()));
-      return Status.Failed;
-    }
-
     final List<String> mxmlcOrCompc = Collections.singletonList(bc.getOutputType() == OutputType.Library ? "compc" : "mxmlc");
     final List<String> command = buildCommand(mxmlcOrCompc, configFiles, bc);
     final String plainCommand = StringUtil.join(command,
@@ -414,11 +617,17 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
     final Semaphore semaphore = new Semaphore();
     semaphore.down();
 
-    context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.INFO, plainCommand));
-
     final BuiltInCompilerListener listener = new BuiltInCompilerListener(context, compilerName, () -> semaphore.up());
 
-    builtInCompilerHandler.sendCompilationCommand(plainCommand, listener);
+    try {
+      if (!builtInCompilerHandler.startCompilation(bc.getSdk(), context, compilerName, plainCommand, listener)) return null;
+    }
+    catch (IOException e) {
+      context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, e.toString()));
+      return Status.Failed;
+    }
+
+    context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.INFO, plainCommand));
 
     semaphore.waitFor();
     builtInCompilerHandler.removeListener(listener);
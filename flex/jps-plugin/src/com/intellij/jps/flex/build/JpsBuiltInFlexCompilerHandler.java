@@ -1,9 +1,9 @@
 package com.intellij.jps.flex.build;
 
 import com.intellij.flex.FlexCommonUtils;
+import com.intellij.flex.model.JpsFlexCompilerProjectExtension;
 import com.intellij.flex.model.sdk.JpsFlexSdkType;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import gnu.trove.THashMap;
@@ -17,25 +17,34 @@ import org.jetbrains.jps.service.SharedThreadPool;
 import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Keeps a built-in compiler process per Flex SDK, so BCs with different SDKs don't restart the compiler for each other.
+ * Each process compiles several BCs at the same time; commands and output lines are prefixed with the command number.
+ * When all process slots are taken, an idle process of another SDK is stopped to make room for the new SDK.
+ */
 public class JpsBuiltInFlexCompilerHandler {
 
   private static final Logger LOG = Logger.getInstance(JpsBuiltInFlexCompilerHandler.class.getName());
   private static final String CONNECTION_SUCCESSFUL = "Connection successful";
   public static final String COMPILATION_FINISHED = "Compilation finished";
+  private static final String CANCEL_COMMAND = "Cancel";
+  private static final String PROTOCOL_VERSION = "Protocol version:";
+  // flex-compiler.jar that doesn't report its protocol version knows only 'Cancel' of all compilations
+  private static final int CANCEL_ONE_COMPILATION_PROTOCOL_VERSION = 2;
+  private static final String MAX_PARALLEL_COMPILATIONS_PROPERTY = "flex.compiler.max.parallel.compilations";
 
-  private final JpsProject myProject;
+  // each compiler process is a separate JVM with its own heap
+  private static final int MAX_COMPILER_PROCESSES = 2;
 
-  private String mySdkHome;
+  private final JpsProject myProject;
 
-  private ServerSocket myServerSocket;
-  private DataInputStream myDataInputStream;
-  private DataOutputStream myDataOutputStream;
+  private final Map<String, CompilerProcess> myProcesses = new THashMap<>(); // SDK home -> process
 
   private int commandNumber = 1;
-  private final Map<String, Listener> myActiveListeners = new THashMap<>();
 
   public interface Listener {
     void textAvailable(String text);
@@ -47,40 +56,64 @@ public class JpsBuiltInFlexCompilerHandler {
     myProject = project;
   }
 
-  public synchronized boolean canBeUsedForSdk(final String sdkHome) {
-    return mySdkHome == null || mySdkHome.equals(sdkHome);
+  /**
+   * Sends the command to the compiler process for the SDK, starting the process if needed. Finding a process slot, starting the process
+   * and registering the listener happen under one lock, so parallel compilations can't start more than {@link #MAX_COMPILER_PROCESSES}
+   * processes, and a process can't be stopped as idle between being chosen and getting the command.
+   *
+   * @return false if all processes are busy compiling for other SDKs, so the command has not been sent
+   */
+  public synchronized boolean startCompilation(final JpsSdk<?> sdk,
+                                               final CompileContext context,
+                                               final String compilerName,
+                                               final String command,
+                                               final Listener listener) throws IOException {
+    final String sdkHome = sdk.getHomePath();
+    if (!myProcesses.containsKey(sdkHome)) {
+      if (myProcesses.size() >= MAX_COMPILER_PROCESSES) {
+        final CompilerProcess idleProcess = findIdleProcess();
+        if (idleProcess == null) return false;
+        stopCompilerProcess(idleProcess);
+      }
+      startCompilerProcess(sdk, context, compilerName);
+    }
+
+    sendCompilationCommand(myProcesses.get(sdkHome), command, listener);
+    return true;
   }
 
-  public synchronized void startCompilerIfNeeded(final JpsSdk<?> sdk,
-                                                 final CompileContext context,
-                                                 final String compilerName) throws IOException {
-    if (!Comparing.equal(sdk.getHomePath(), mySdkHome)) {
-      stopCompilerProcess();
+  private CompilerProcess findIdleProcess() {
+    for (CompilerProcess process : myProcesses.values()) {
+      if (process.myActiveListeners.isEmpty()) return process;
     }
+    return null;
+  }
 
-    if (myServerSocket == null) {
-      try {
-        //context.processMessage(new ProgressMessage("Starting Flex compiler"));
-        myServerSocket = new ServerSocket(0);
-        myServerSocket.setSoTimeout(10000);
-        final int port = myServerSocket.getLocalPort();
-
-        startCompilerProcess(sdk, port, context, compilerName);
-
-        final Socket socket = myServerSocket.accept();
-        myDataInputStream = new DataInputStream(socket.getInputStream());
-        myDataOutputStream = new DataOutputStream(socket.getOutputStream());
-        mySdkHome = sdk.getHomePath();
-        scheduleInputReading();
-      }
-      catch (IOException e) {
-        stopCompilerProcess();
-        throw e;
-      }
+  private void startCompilerProcess(final JpsSdk<?> sdk, final CompileContext context, final String compilerName) throws IOException {
+    final String sdkHome = sdk.getHomePath();
+    final CompilerProcess process = new CompilerProcess(sdkHome);
+    try {
+      //context.processMessage(new ProgressMessage("Starting Flex compiler"));
+      process.myServerSocket = new ServerSocket(0);
+      process.myServerSocket.setSoTimeout(10000);
+      final int port = process.myServerSocket.getLocalPort();
+
+      startCompilerProcess(process, sdk, port, context, compilerName);
+
+      final Socket socket = process.myServerSocket.accept();
+      process.myDataInputStream = new DataInputStream(socket.getInputStream());
+      process.myDataOutputStream = new DataOutputStream(socket.getOutputStream());
+      myProcesses.put(sdkHome, process);
+      scheduleInputReading(process);
+    }
+    catch (IOException e) {
+      stopCompilerProcess(process);
+      throw e;
     }
   }
 
-  private void startCompilerProcess(final JpsSdk<?> sdk,
+  private void startCompilerProcess(final CompilerProcess compilerProcess,
+                                    final JpsSdk<?> sdk,
                                     final int port,
                                     final CompileContext context,
                                     final String compilerName) throws IOException {
@@ -96,6 +129,9 @@ public class JpsBuiltInFlexCompilerHandler {
 
     final List<String> commandLine =
       FlexCommonUtils.getCommandLineForSdkTool(myProject, sdk, classpath.toString(), "com.intellij.flex.compiler.FlexCompiler");
+    // not a parameter after the port: older flex-compiler.jar fails on it, while an unknown property is just ignored
+    final int maxParallelCompilations = Math.max(1, JpsFlexCompilerProjectExtension.getInstance(myProject).MAX_PARALLEL_COMPILATIONS);
+    commandLine.add(commandLine.size() - 1, "-D" + MAX_PARALLEL_COMPILATIONS_PROPERTY + "=" + maxParallelCompilations);
     commandLine.add(String.valueOf(port));
 
     final ProcessBuilder processBuilder = new ProcessBuilder(commandLine);
@@ -106,10 +142,13 @@ public class JpsBuiltInFlexCompilerHandler {
     context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.INFO, "Starting Flex compiler:\n" + plainCommand));
 
     final Process process = processBuilder.start();
-    readInputStreamUntilConnected(process, context, compilerName);
+    readInputStreamUntilConnected(compilerProcess, process, context, compilerName);
   }
 
-  private void readInputStreamUntilConnected(final Process process, final CompileContext context, final String compilerName) {
+  private void readInputStreamUntilConnected(final CompilerProcess compilerProcess,
+                                             final Process process,
+                                             final CompileContext context,
+                                             final String compilerName) {
     SharedThreadPool.getInstance().executeOnPooledThread(() -> {
       final InputStreamReader reader = FlexCommonUtils.createInputStreamReader(process.getInputStream());
 
@@ -122,13 +161,13 @@ public class JpsBuiltInFlexCompilerHandler {
             break;
           }
           else {
-            closeSocket();
+            closeSocket(compilerProcess);
             context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, output));
           }
         }
       }
       catch (IOException e) {
-        closeSocket();
+        closeSocket(compilerProcess);
         context.processMessage(
           new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, "Failed to start Flex compiler: " + e.toString()));
       }
@@ -141,11 +180,11 @@ public class JpsBuiltInFlexCompilerHandler {
     });
   }
 
-  private void scheduleInputReading() {
+  private void scheduleInputReading(final CompilerProcess process) {
     SharedThreadPool.getInstance().executeOnPooledThread(() -> {
       final StringBuilder buffer = new StringBuilder();
       while (true) {
-        final DataInputStream dataInputStream = myDataInputStream;
+        final DataInputStream dataInputStream = process.myDataInputStream;
         if (dataInputStream != null) {
           try {
             buffer.append(dataInputStream.readUTF());
@@ -154,12 +193,12 @@ public class JpsBuiltInFlexCompilerHandler {
             while ((index = buffer.indexOf("\n")) > -1) {
               final String line = buffer.substring(0, index);
               buffer.delete(0, index + 1);
-              handleInputLine(line);
+              handleInputLine(process, line);
             }
           }
           catch (IOException e) {
-            if (dataInputStream == myDataInputStream) {
-              stopCompilerProcess();
+            if (dataInputStream == process.myDataInputStream) {
+              stopCompilerProcess(process);
             }
             break;
           }
@@ -171,9 +210,14 @@ public class JpsBuiltInFlexCompilerHandler {
     });
   }
 
-  private synchronized void handleInputLine(final String line) {
+  private synchronized void handleInputLine(final CompilerProcess process, final String line) {
     LOG.debug("RECEIVED: [" + line + "]");
 
+    if (line.startsWith(PROTOCOL_VERSION)) {
+      process.myProtocolVersion = StringUtil.parseInt(line.substring(PROTOCOL_VERSION.length()).trim(), 1);
+      return;
+    }
+
     final int colonPos = line.indexOf(":");
     if (colonPos <= 0) {
       LOG.error("Incorrect command: [" + line + "]");
@@ -181,7 +225,7 @@ public class JpsBuiltInFlexCompilerHandler {
     }
 
     final String prefix = line.substring(0, colonPos + 1);
-    final Listener listener = myActiveListeners.get(prefix);
+    final Listener listener = process.myActiveListeners.get(prefix);
     if (listener == null) {
       LOG.warn("No active listener for input line: [" + line + "]");  // could be message from cancelled compilation
     }
@@ -189,7 +233,7 @@ public class JpsBuiltInFlexCompilerHandler {
       final String text = line.substring(colonPos + 1);
       if (text.startsWith(COMPILATION_FINISHED)) {
         listener.compilationFinished();
-        myActiveListeners.remove(prefix);
+        process.myActiveListeners.remove(prefix);
       }
       else {
         listener.textAvailable(text);
@@ -197,8 +241,8 @@ public class JpsBuiltInFlexCompilerHandler {
     }
   }
 
-  public synchronized void sendCompilationCommand(final String command, final Listener listener) {
-    if (myDataOutputStream == null) {
+  private void sendCompilationCommand(final CompilerProcess process, final String command, final Listener listener) {
+    if (process == null || process.myDataOutputStream == null) {
       listener.textAvailable("Error: Compiler process is not started.");
       listener.compilationFinished();
       return;
@@ -208,8 +252,8 @@ public class JpsBuiltInFlexCompilerHandler {
       final String prefix = String.valueOf(commandNumber++) + ":";
       final String commandToSend = prefix + command + "\n";
       LOG.debug("SENDING: [" + commandToSend + "]");
-      myDataOutputStream.writeUTF(commandToSend);
-      myActiveListeners.put(prefix, listener);
+      process.myDataOutputStream.writeUTF(commandToSend);
+      process.myActiveListeners.put(prefix, listener);
     }
     catch (IOException e) {
       listener.textAvailable("Error: Can't start compilation: " + e.toString());
@@ -217,66 +261,112 @@ public class JpsBuiltInFlexCompilerHandler {
     }
   }
 
-  private synchronized void cancelAllCompilations(final boolean reportError) {
-    for (final Listener listener : myActiveListeners.values()) {
+  private synchronized void cancelAllCompilations(final CompilerProcess process, final boolean reportError) {
+    for (final Listener listener : process.myActiveListeners.values()) {
       if (reportError) {
         listener.textAvailable("Error: Compilation terminated");
       }
       listener.compilationFinished();
     }
-    myActiveListeners.clear();
+    process.myActiveListeners.clear();
   }
 
   public synchronized void stopCompilerProcess() {
-    cancelAllCompilations(true);
-    closeSocket();
+    for (CompilerProcess process : new ArrayList<>(myProcesses.values())) {
+      stopCompilerProcess(process);
+    }
+  }
+
+  private synchronized void stopCompilerProcess(final CompilerProcess process) {
+    cancelAllCompilations(process, true);
+    closeSocket(process);
+    if (myProcesses.get(process.mySdkHome) == process) {
+      myProcesses.remove(process.mySdkHome);
+    }
   }
 
-  private synchronized void closeSocket() {
+  private synchronized void closeSocket(final CompilerProcess process) {
     // compiler process exits when socket closes, so it's enough just to close streams
 
-    if (myDataInputStream != null) {
+    if (process.myDataInputStream != null) {
       try {
-        myDataInputStream.close();
+        process.myDataInputStream.close();
       }
       catch (IOException ignored) {/**/}
     }
 
-    if (myDataOutputStream != null) {
+    if (process.myDataOutputStream != null) {
       try {
-        myDataOutputStream.close();
+        process.myDataOutputStream.close();
       }
       catch (IOException ignored) {/**/}
     }
 
-    if (myServerSocket != null) {
+    if (process.myServerSocket != null) {
       try {
-        myServerSocket.close();
+        process.myServerSocket.close();
       }
       catch (IOException ignored) {/**/}
     }
 
-    myServerSocket = null;
-    myDataInputStream = null;
-    myDataOutputStream = null;
+    process.myServerSocket = null;
+    process.myDataInputStream = null;
+    process.myDataOutputStream = null;
   }
 
+  /**
+   * If the compilation is still running (i.e. it was cancelled) then compiler process is asked to drop it.
+   */
   public synchronized void removeListener(final Listener listener) {
-    String toRemove = null;
-    for (final Map.Entry<String, Listener> entry : myActiveListeners.entrySet()) {
-      if (entry.getValue() == listener) {
-        toRemove = entry.getKey();
-        break;
+    for (CompilerProcess process : myProcesses.values()) {
+      String toRemove = null;
+      for (final Map.Entry<String, Listener> entry : process.myActiveListeners.entrySet()) {
+        if (entry.getValue() == listener) {
+          toRemove = entry.getKey();
+          break;
+        }
+      }
+
+      if (toRemove != null) {
+        process.myActiveListeners.remove(toRemove);
+        sendCancelCommand(process, toRemove);
+        return;
       }
     }
+  }
 
-    if (toRemove != null) {
-      myActiveListeners.remove(toRemove);
+  private static void sendCancelCommand(final CompilerProcess process, final String prefix) {
+    // an older compiler process would take the command for a compilation, so its compilation finishes unattended
+    if (process.myDataOutputStream == null || process.myProtocolVersion < CANCEL_ONE_COMPILATION_PROTOCOL_VERSION) return;
+
+    try {
+      final String commandToSend = CANCEL_COMMAND + ":" + prefix.substring(0, prefix.length() - 1) + "\n";
+      LOG.debug("SENDING: [" + commandToSend + "]");
+      process.myDataOutputStream.writeUTF(commandToSend);
+    }
+    catch (IOException e) {
+      LOG.debug(e);
     }
   }
 
   public synchronized int getActiveCompilationsNumber() {
-    return myActiveListeners.size();
+    int result = 0;
+    for (CompilerProcess process : myProcesses.values()) {
+      result += process.myActiveListeners.size();
+    }
+    return result;
   }
-}
 
+  private static class CompilerProcess {
+    private final String mySdkHome;
+    private ServerSocket myServerSocket;
+    private DataInputStream myDataInputStream;
+    private DataOutputStream myDataOutputStream;
+    private final Map<String, Listener> myActiveListeners = new THashMap<>();
+    private int myProtocolVersion = 1;
+
+    private CompilerProcess(final String sdkHome) {
+      mySdkHome = sdkHome;
+    }
+  }
+}
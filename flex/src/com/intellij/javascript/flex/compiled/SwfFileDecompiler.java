@@ -19,7 +19,7 @@ public class SwfFileDecompiler implements BinaryFileDecompiler {
     final Project project = findProject();
     if (project == null) return "";
     try {
-      return FlexImporter.buildInterfaceFromStream(file.getInputStream());
+      return FlexImporter.buildInterfaceFromBytes(file.contentsToByteArray());
     }
     catch (IOException ex) {
       return ArrayUtil.EMPTY_CHAR_SEQUENCE;
@@ -11,13 +11,10 @@ import com.intellij.openapi.vfs.JarFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.stubs.BinaryFileStubBuilder;
 import com.intellij.psi.stubs.PsiFileStub;
-import com.intellij.psi.stubs.PsiFileStubImpl;
 import com.intellij.psi.stubs.StubElement;
 import com.intellij.util.indexing.FileContent;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.ByteArrayInputStream;
-
 /**
  * @author Maxim.Mossienko
  */
@@ -30,25 +27,50 @@ public class SwfFileStubBuilder implements BinaryFileStubBuilder {
   }
 
   public StubElement buildStubTree(FileContent fileContent) {
-    return buildFileStub(fileContent.getFile(), fileContent.getContent());
+    final byte[] content = fileContent.getContent();
+    if (!SwfStubCache.isEnabled()) {
+      return buildFileStub(fileContent.getFile(), content);
+    }
+
+    final SwfStubCache cache = SwfStubCache.getInstance();
+    final String key = SwfStubCache.getKey(content);
+    final StubElement cached = cache.get(key, getStubVersion());
+    if (cached != null) return cached;
+
+    final PsiFileStub stub = createFileStub();
+    try {
+      FlexImporter.buildStubsInterfaceFromBytes(content, stub);
+    }
+    catch (Exception ex) {
+      // a partially decoded stub is returned as before, but not cached, so that the file is decoded again next time
+      logDecodingError(fileContent.getFile(), ex);
+      return stub;
+    }
+    cache.put(key, getStubVersion(), stub);
+    return stub;
   }
 
   static PsiFileStub buildFileStub(VirtualFile file, byte[] content) {
-    PsiFileStubImpl stub = new JSFileStubImpl(JavaScriptSupportLoader.ECMA_SCRIPT_L4, new JSFileCachedData());
+    final PsiFileStub stub = createFileStub();
     try {
 
-      FlexImporter.buildStubsInterfaceFromStream(
-        new ByteArrayInputStream(content),
-        stub
-      );
+      FlexImporter.buildStubsInterfaceFromBytes(content, stub);
 
     } catch (Exception ex) {
-      Logger.getInstance(SwfFileStubBuilder.class.getName()).warn(file.getPath(), ex);
+      logDecodingError(file, ex);
     }
 
     return stub;
   }
 
+  private static PsiFileStub createFileStub() {
+    return new JSFileStubImpl(JavaScriptSupportLoader.ECMA_SCRIPT_L4, new JSFileCachedData());
+  }
+
+  private static void logDecodingError(VirtualFile file, Exception ex) {
+    Logger.getInstance(SwfFileStubBuilder.class.getName()).warn(file.getPath(), ex);
+  }
+
   public int getStubVersion() {
     return JSFileElementType.getVersion() + VERSION;
   }
@@ -0,0 +1,230 @@
+package com.intellij.javascript.flex.compiled;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.ShutDownTracker;
+import com.intellij.openapi.util.io.BufferExposingByteArrayOutputStream;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.psi.stubs.SerializationManagerEx;
+import com.intellij.psi.stubs.Stub;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.util.io.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Stub trees of library.swf files keyed by the hash of the file content. The same SWC is usually referenced from many places
+ * (Flex SDK copies, the same library in several projects, Maven repository and unpacked copies), stub index keeps a stub per file,
+ * so without this cache every copy is decoded again.
+ * <p/>
+ * Serialized stubs refer to stub serializers by ids from the name storage in the index root, so the cache lives in the index root too
+ * and is deleted together with it, e.g. by Invalidate Caches or after index corruption. The storage never shrinks, so when it is found
+ * bigger than the limit on opening it is deleted. The cache is turned on with the flex.swf.stub.cache registry key.
+ */
+class SwfStubCache {
+  private static final Logger LOG = Logger.getInstance(SwfStubCache.class.getName());
+
+  private static final long MAX_STORAGE_SIZE = 256 * 1024 * 1024;
+
+  private static SwfStubCache ourInstance;
+
+  @NotNull private final File myDir;
+  private final long myMaxStorageSize;
+  @Nullable private PersistentHashMap<String, byte[]> myMap;
+  private int myStubVersion;
+  private boolean myBroken;
+
+  SwfStubCache(@NotNull final File dir, final long maxStorageSize) {
+    myDir = dir;
+    myMaxStorageSize = maxStorageSize;
+  }
+
+  static boolean isEnabled() {
+    return Registry.is("flex.swf.stub.cache", false);
+  }
+
+  @NotNull
+  static synchronized SwfStubCache getInstance() {
+    if (ourInstance == null) {
+      final SwfStubCache cache = new SwfStubCache(new File(PathManager.getIndexRoot(), "flex-swf-stubs"), MAX_STORAGE_SIZE);
+      ShutDownTracker.getInstance().registerShutdownTask(cache::close);
+      ourInstance = cache;
+    }
+    return ourInstance;
+  }
+
+  @Nullable
+  StubElement get(@NotNull final String key, final int stubVersion) {
+    final byte[] bytes;
+    synchronized (this) {
+      final PersistentHashMap<String, byte[]> map = getMap(stubVersion);
+      if (map == null) return null;
+      try {
+        bytes = map.get(key);
+      }
+      catch (IOException e) {
+        onError(e);
+        return null;
+      }
+    }
+    if (bytes == null) return null;
+
+    try {
+      final Stub stub = SerializationManagerEx.getInstanceEx().deserialize(new ByteArrayInputStream(bytes));
+      return stub instanceof StubElement ? (StubElement)stub : null;
+    }
+    catch (Exception e) {
+      LOG.info(e);
+      return null;
+    }
+  }
+
+  void put(@NotNull final String key, final int stubVersion, @NotNull final StubElement stub) {
+    final BufferExposingByteArrayOutputStream out = new BufferExposingByteArrayOutputStream();
+    try {
+      SerializationManagerEx.getInstanceEx().serialize(stub, out);
+    }
+    catch (Exception e) {
+      LOG.info(e);
+      return;
+    }
+    final byte[] bytes = out.toByteArray();
+
+    synchronized (this) {
+      final PersistentHashMap<String, byte[]> map = getMap(stubVersion);
+      if (map == null) return;
+      try {
+        map.put(key, bytes);
+      }
+      catch (IOException e) {
+        onError(e);
+      }
+    }
+  }
+
+  synchronized void close() {
+    if (myMap != null) {
+      try {
+        myMap.close();
+      }
+      catch (IOException e) {
+        LOG.info(e);
+      }
+      myMap = null;
+    }
+  }
+
+  synchronized boolean isBroken() {
+    return myBroken;
+  }
+
+  @NotNull
+  static String getKey(@NotNull final byte[] content) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      final StringBuilder key = new StringBuilder(41);
+      for (byte b : digest.digest(content)) {
+        key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return key.append('.').append(content.length).toString();
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @NotNull
+  private File getFile(final int stubVersion) {
+    return new File(myDir, stubVersion + "/stubs");
+  }
+
+  long getStorageSize(final int stubVersion) {
+    final File file = getFile(stubVersion);
+    long size = 0;
+    final File[] files = file.getParentFile().listFiles((dir, name) -> name.startsWith(file.getName()));
+    if (files != null) {
+      for (File f : files) {
+        size += f.length();
+      }
+    }
+    return size;
+  }
+
+  @Nullable
+  private PersistentHashMap<String, byte[]> getMap(final int stubVersion) {
+    if (myBroken) return null;
+    if (myMap != null && myStubVersion == stubVersion) return myMap;
+
+    close();
+    deleteOtherVersions(stubVersion);
+
+    final File file = getFile(stubVersion);
+    if (getStorageSize(stubVersion) > myMaxStorageSize) {
+      LOG.info("Dropping SWF stub cache of " + getStorageSize(stubVersion) + " bytes");
+      IOUtil.deleteAllFilesStartingWith(file);
+    }
+
+    try {
+      myMap = createMap(file);
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      IOUtil.deleteAllFilesStartingWith(file);
+      try {
+        myMap = createMap(file);
+      }
+      catch (IOException e1) {
+        LOG.warn(e1);
+        myBroken = true;
+        return null;
+      }
+    }
+    myStubVersion = stubVersion;
+    return myMap;
+  }
+
+  @NotNull
+  private static PersistentHashMap<String, byte[]> createMap(@NotNull final File file) throws IOException {
+    return new PersistentHashMap<>(file, EnumeratorStringDescriptor.INSTANCE, ByteArrayExternalizer.INSTANCE);
+  }
+
+  private void deleteOtherVersions(final int stubVersion) {
+    final File[] versionDirs = myDir.listFiles();
+    if (versionDirs == null) return;
+    for (File dir : versionDirs) {
+      if (!dir.getName().equals(String.valueOf(stubVersion))) {
+        FileUtil.delete(dir);
+      }
+    }
+  }
+
+  private void onError(@NotNull final IOException e) {
+    // the cache is only an optimization: don't use it till restart, start from scratch next time
+    LOG.info(e);
+    close();
+    IOUtil.deleteAllFilesStartingWith(getFile(myStubVersion));
+    myBroken = true;
+  }
+
+  private static class ByteArrayExternalizer implements DataExternalizer<byte[]> {
+    static final ByteArrayExternalizer INSTANCE = new ByteArrayExternalizer();
+
+    @Override
+    public void save(@NotNull final DataOutput out, final byte[] value) throws IOException {
+      DataInputOutputUtil.writeINT(out, value.length);
+      out.write(value);
+    }
+
+    @Override
+    public byte[] read(@NotNull final DataInput in) throws IOException {
+      final byte[] value = new byte[DataInputOutputUtil.readINT(in)];
+      in.readFully(value);
+      return value;
+    }
+  }
+}
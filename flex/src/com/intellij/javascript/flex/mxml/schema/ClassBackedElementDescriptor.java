@@ -496,7 +496,7 @@ public class ClassBackedElementDescriptor extends IconProvider implements XmlEle
     Map<String, AnnotationBackedDescriptor> map;
     Map<String, Map<String, AnnotationBackedDescriptor>> packageToInternalDescriptors;
 
-    synchronized (CodeContext.class) {
+    synchronized (context.getLock()) {
       map = myDescriptors;
       packageToInternalDescriptors = myPackageToInternalDescriptors;
       if (map != null && packageToInternalDescriptors != null) return;
@@ -47,6 +47,7 @@ import com.intellij.psi.xml.XmlTag;
 import com.intellij.util.Consumer;
 import com.intellij.util.PairConsumer;
 import com.intellij.util.Processor;
+import com.intellij.util.containers.ContainerUtil;
 import com.intellij.xml.XmlElementDescriptor;
 import gnu.trove.THashMap;
 import gnu.trove.THashSet;
@@ -81,10 +82,11 @@ public class CodeContext {
   private final Map<String, ClassBackedElementDescriptor> myNameToDescriptorsMap;
   public final String namespace;
   public final Module module;
-  private final Set<Object> dependencies = new THashSet<>();
+  private final Set<Object> dependencies = ContainerUtil.newConcurrentSet();
 
   CodeContext(String _namespace, Module _module) {
-    myNameToDescriptorsMap = new THashMap<>(100);
+    // standard contexts get more descriptors when libraries are handled, while they are already used by other threads
+    myNameToDescriptorsMap = ContainerUtil.newConcurrentMap(100);
     namespace = _namespace;
     module = _module;
     if (JavaScriptSupportLoader.isLanguageNamespace(namespace)) {
@@ -136,6 +138,14 @@ public class CodeContext {
     return dependencies.toArray();
   }
 
+  /**
+   * Descriptors of the context compute their attributes lazily under the same lock as the contexts of the module are created.
+   */
+  @NotNull
+  Object getLock() {
+    return module == null ? this : CodeContextHolder.getInstance(module.getProject()).getModuleLock(module);
+  }
+
   public static CodeContext getContext(final String namespace, final Module module) {
     if (StringUtil.isEmptyOrSpaces(namespace) ||
         module == null || module.isDisposed() || !(ModuleType.get(module) instanceof FlexModuleType)) {
@@ -145,14 +155,22 @@ public class CodeContext {
     final FlexBuildConfiguration bc = FlexBuildConfigurationManager.getInstance(module).getActiveConfiguration();
     if (bc == null) return CodeContextHolder.EMPTY;
 
-    CodeContext codeContext;
-
-    synchronized (CodeContext.class) {
-      if (isStdNamespace(namespace)) {
+    final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
+    if (isStdNamespace(namespace)) {
+      if (contextHolder.areSdkComponentsHandledForModule(module)) {
+        final CodeContext context = contextHolder.getStandardContext(namespace, module);
+        return context != null ? context : CodeContextHolder.EMPTY;
+      }
+      synchronized (contextHolder.getModuleLock(module)) {
         return getStdCodeContext(namespace, module, bc);
       }
+    }
 
-      final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
+    CodeContext codeContext = contextHolder.getCodeContext(namespace, module);
+    if (codeContext != null) return codeContext;
+
+    synchronized (contextHolder.getModuleLock(module)) {
+      // another thread may have created it while we were waiting
       codeContext = contextHolder.getCodeContext(namespace, module);
 
       if (codeContext == null) {
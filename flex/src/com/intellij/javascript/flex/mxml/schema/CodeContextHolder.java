@@ -6,20 +6,22 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootEvent;
 import com.intellij.openapi.roots.ModuleRootListener;
-import gnu.trove.THashMap;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Maxim.Mossienko
 */
 public class CodeContextHolder extends AbstractProjectComponent {
-  private final Set<Module> myModulesWithSdkComponentsHandled = new HashSet<>();
-  private final Map<String, Map<Module, CodeContext>> myStandardContexts = new HashMap<>();
-  private final Map<String, Map<Module, CodeContext>> myNSToCodeContextMap = new THashMap<>();
+  private final Set<Module> myModulesWithSdkComponentsHandled = ContainerUtil.newConcurrentSet();
+  private final ConcurrentMap<String, ConcurrentMap<Module, CodeContext>> myStandardContexts = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, ConcurrentMap<Module, CodeContext>> myNSToCodeContextMap = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<Module, Object> myModuleLocks = ContainerUtil.createConcurrentWeakMap();
   static final CodeContext EMPTY = new CodeContext(null, null);
 
   public CodeContextHolder(Project project) {
@@ -27,11 +29,9 @@ public class CodeContextHolder extends AbstractProjectComponent {
     project.getMessageBus().connect().subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
       @Override
       public void rootsChanged(final ModuleRootEvent event) {
-        synchronized (CodeContextHolder.this) {
-          myNSToCodeContextMap.clear();
-          myStandardContexts.clear();
-          myModulesWithSdkComponentsHandled.clear();
-        }
+        myNSToCodeContextMap.clear();
+        myStandardContexts.clear();
+        myModulesWithSdkComponentsHandled.clear();
       }
     });
   }
@@ -44,22 +44,17 @@ public class CodeContextHolder extends AbstractProjectComponent {
   }
 
   @Nullable
-  public synchronized CodeContext getCodeContext(@NotNull final String namespace, @NotNull final Module module) {
+  public CodeContext getCodeContext(@NotNull final String namespace, @NotNull final Module module) {
     final Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
     if (map != null) return map.get(module);
     return null;
   }
 
-  public synchronized void putCodeContext(@NotNull final String namespace, @NotNull final Module module, @NotNull final CodeContext codeContext) {
-    Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
-    if (map == null) {
-      map = new THashMap<>();
-      myNSToCodeContextMap.put(namespace, map);
-    }
-    map.put(module, codeContext);
+  public void putCodeContext(@NotNull final String namespace, @NotNull final Module module, @NotNull final CodeContext codeContext) {
+    getOrCreate(myNSToCodeContextMap, namespace).put(module, codeContext);
   }
 
-  public synchronized void clearCodeContext(@NotNull final String namespace, @NotNull final Module module) {
+  public void clearCodeContext(@NotNull final String namespace, @NotNull final Module module) {
     Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
     if (map != null) {
       map.remove(module);
@@ -71,19 +66,19 @@ public class CodeContextHolder extends AbstractProjectComponent {
   }
 
   @Nullable
-  public synchronized CodeContext getStandardContext(final String namespace, final Module module) {
+  public CodeContext getStandardContext(final String namespace, final Module module) {
     final Map<Module, CodeContext> map = myStandardContexts.get(namespace);
     return map == null ? null : map.get(module);
   }
 
-  public synchronized Collection<String> getNamespaces(final Module module) {
+  public Collection<String> getNamespaces(final Module module) {
     final List<String> result = new ArrayList<>();
-    for (final Map.Entry<String, Map<Module, CodeContext>> entry : myStandardContexts.entrySet()) {
+    for (final Map.Entry<String, ConcurrentMap<Module, CodeContext>> entry : myStandardContexts.entrySet()) {
       if (entry.getValue().containsKey(module)) {
         result.add(entry.getKey());
       }
     }
-    for (final Map.Entry<String, Map<Module, CodeContext>> entry : myNSToCodeContextMap.entrySet()) {
+    for (final Map.Entry<String, ConcurrentMap<Module, CodeContext>> entry : myNSToCodeContextMap.entrySet()) {
       if (entry.getValue().containsKey(module)) {
         result.add(entry.getKey());
       }
@@ -91,20 +86,30 @@ public class CodeContextHolder extends AbstractProjectComponent {
     return result;
   }
 
-  synchronized void putStandardContext(final String namespace, final Module module, final CodeContext codeContext) {
-    Map<Module, CodeContext> map = myStandardContexts.get(namespace);
-    if (map == null) {
-      map = new HashMap<>();
-      myStandardContexts.put(namespace, map);
-    }
-    map.put(module, codeContext);
+  void putStandardContext(final String namespace, final Module module, final CodeContext codeContext) {
+    getOrCreate(myStandardContexts, namespace).put(module, codeContext);
   }
 
-  synchronized boolean areSdkComponentsHandledForModule(final Module module) {
+  boolean areSdkComponentsHandledForModule(final Module module) {
     return myModulesWithSdkComponentsHandled.contains(module);
   }
 
-  synchronized boolean setSdkComponentsHandledForModule(final Module module) {
+  boolean setSdkComponentsHandledForModule(final Module module) {
     return myModulesWithSdkComponentsHandled.add(module);
   }
+
+  /**
+   * Contexts of a module share its standard contexts and are filled together, so they are created under the lock of the module.
+   * Contexts of different modules are created in parallel, lookups of already created contexts don't lock at all.
+   */
+  @NotNull
+  Object getModuleLock(@NotNull final Module module) {
+    return myModuleLocks.computeIfAbsent(module, m -> new Object());
+  }
+
+  @NotNull
+  private static ConcurrentMap<Module, CodeContext> getOrCreate(@NotNull final ConcurrentMap<String, ConcurrentMap<Module, CodeContext>> map,
+                                                                @NotNull final String namespace) {
+    return map.computeIfAbsent(namespace, ns -> ContainerUtil.newConcurrentMap());
+  }
 }
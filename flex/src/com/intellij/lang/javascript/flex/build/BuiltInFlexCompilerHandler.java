@@ -28,6 +28,10 @@ public class BuiltInFlexCompilerHandler {
   private static final Logger LOG = Logger.getInstance(BuiltInFlexCompilerHandler.class.getName());
   private static final String CONNECTION_SUCCESSFUL = "Connection successful";
   public static final String COMPILATION_FINISHED = "Compilation finished";
+  private static final String CANCEL_COMMAND = "Cancel";
+  private static final String PROTOCOL_VERSION = "Protocol version:";
+  // flex-compiler.jar that doesn't report its protocol version knows only 'Cancel' of all compilations
+  private static final int CANCEL_ONE_COMPILATION_PROTOCOL_VERSION = 2;
 
   private final Project myProject;
 
@@ -35,6 +39,7 @@ public class BuiltInFlexCompilerHandler {
   private ServerSocket myServerSocket;
   private DataInputStream myDataInputStream;
   private DataOutputStream myDataOutputStream;
+  private int myProtocolVersion = 1;
 
   private int commandNumber = 1;
   private final Map<String, Listener> myActiveListeners = new THashMap<>();
@@ -166,6 +171,11 @@ public class BuiltInFlexCompilerHandler {
   private synchronized void handleInputLine(final String line) {
     LOG.debug("RECEIVED: [" + line + "]");
 
+    if (line.startsWith(PROTOCOL_VERSION)) {
+      myProtocolVersion = StringUtil.parseInt(line.substring(PROTOCOL_VERSION.length()).trim(), 1);
+      return;
+    }
+
     final int colonPos = line.indexOf(":");
     if (colonPos <= 0) {
       LOG.error("Incorrect command: [" + line + "]");
@@ -261,6 +271,7 @@ public class BuiltInFlexCompilerHandler {
     myServerSocket = null;
     myDataInputStream = null;
     myDataOutputStream = null;
+    myProtocolVersion = 1;
   }
 
   public synchronized void removeListener(final Listener listener) {
@@ -274,6 +285,21 @@ public class BuiltInFlexCompilerHandler {
 
     if (toRemove != null) {
       myActiveListeners.remove(toRemove);
+      sendCancelCommand(toRemove);
+    }
+  }
+
+  private void sendCancelCommand(final String prefix) {
+    // compilation is still running, let compiler process drop it; an older one would take the command for a compilation
+    if (myDataOutputStream == null || myProtocolVersion < CANCEL_ONE_COMPILATION_PROTOCOL_VERSION) return;
+
+    try {
+      final String commandToSend = CANCEL_COMMAND + ":" + prefix.substring(0, prefix.length() - 1) + "\n";
+      LOG.debug("SENDING: [" + commandToSend + "]");
+      myDataOutputStream.writeUTF(commandToSend);
+    }
+    catch (IOException e) {
+      LOG.debug(e);
     }
   }
 
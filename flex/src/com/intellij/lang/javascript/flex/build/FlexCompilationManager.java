@@ -15,11 +15,15 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.util.NullableComputable;
 import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,6 +39,11 @@ public class FlexCompilationManager {
   private boolean myCompilationFinished;
   private final FlexCompilerDependenciesCache myCompilerDependenciesCache;
 
+  // wakes up the compile() loop as soon as some task finishes
+  private final BlockingQueue<FlexCompilationTask> myFinishEvents = new LinkedBlockingQueue<>();
+  private final Map<FlexCompilationTask, Long> myStartTimes = new HashMap<>();
+  private final Map<FlexCompilationTask, Long> myFinishTimes = new HashMap<>();
+
   static final Pattern OUTPUT_FILE_CREATED_PATTERN = Pattern.compile("(\\[.*\\] )?(.+) \\(([0-9]+) bytes\\)");
   private static final String BYTES_WRITTEN_TO = " bytes written to ";
 
@@ -42,7 +51,7 @@ public class FlexCompilationManager {
     myCompileContext = context;
     myMaxParallelCompilations = FlexCompilerProjectConfiguration.getInstance(context.getProject()).MAX_PARALLEL_COMPILATIONS;
     myTasksAmount = compilationTasks.size();
-    myNotStartedTasks = new LinkedList<>(compilationTasks);
+    myNotStartedTasks = sortByCriticalPath(compilationTasks);
     myInProgressTasks = new LinkedList<>();
     myFinishedTasks = new LinkedList<>();
     myCompilationFinished = false;
@@ -50,7 +59,10 @@ public class FlexCompilationManager {
   }
 
   public void compile() {
+    final long start = System.currentTimeMillis();
     try {
+      startNewTaskIfPossible();
+
       while (!myNotStartedTasks.isEmpty() || !myInProgressTasks.isEmpty()) {
 
         if (myCompileContext.getProgressIndicator().isCanceled()) {
@@ -60,18 +72,13 @@ public class FlexCompilationManager {
           break;
         }
 
+        updateProgressIndicator();
+        waitForFinishedTask();
         checkFinishedTasks();
         startNewTaskIfPossible();
-        updateProgressIndicator();
-
-        try {
-          //noinspection BusyWait
-          Thread.sleep(200);
-        }
-        catch (InterruptedException e) {
-          assert false;
-        }
       }
+
+      reportCriticalPath(System.currentTimeMillis() - start);
     }
     finally {
       //noinspection SynchronizeOnThis
@@ -81,6 +88,21 @@ public class FlexCompilationManager {
     }
   }
 
+  void taskFinished(final FlexCompilationTask task) {
+    myFinishEvents.offer(task);
+  }
+
+  private void waitForFinishedTask() {
+    try {
+      // timeout only to check for cancellation of the progress indicator
+      myFinishEvents.poll(200, TimeUnit.MILLISECONDS);
+      myFinishEvents.clear();
+    }
+    catch (InterruptedException e) {
+      assert false;
+    }
+  }
+
   public synchronized void addMessage(final FlexCompilationTask task,
                                       CompilerMessageCategory category,
                                       final String message,
@@ -143,6 +165,7 @@ public class FlexCompilationManager {
       if (task.isFinished()) {
         iterator.remove();
         myFinishedTasks.add(task);
+        myFinishTimes.put(task, System.currentTimeMillis());
 
         if (task.isCompilationFailed()) {
           final Collection<FlexCompilationTask> cancelledTasks = cancelNotStartedDependentTasks(task);
@@ -271,7 +294,8 @@ public class FlexCompilationManager {
       if (taskToStart != null) {
         myNotStartedTasks.remove(taskToStart);
 
-        if (myCompilerDependenciesCache.isNothingChangedSincePreviousCompilation(taskToStart.getModule(), taskToStart.getBC())) {
+        if (!isRebuild() &&
+            myCompilerDependenciesCache.isNothingChangedSincePreviousCompilation(taskToStart.getModule(), taskToStart.getBC())) {
           addMessage(taskToStart, CompilerMessageCategory.INFORMATION, FlexBundle.message("compilation.skipped.because.nothing.changed"),
                      null, -1, -1);
           taskToStart.cancel();
@@ -285,8 +309,9 @@ public class FlexCompilationManager {
           }
         }
         else {
-          taskToStart.start(this);
+          myStartTimes.put(taskToStart, System.currentTimeMillis());
           myInProgressTasks.add(taskToStart);
+          taskToStart.start(this);
         }
 
         startNewTaskIfPossible();
@@ -320,6 +345,94 @@ public class FlexCompilationManager {
     return false;
   }
 
+  /**
+   * Tasks that have more tasks waiting for them (transitively) go first, so that the longest chain of dependent BCs starts as early as possible.
+   */
+  static LinkedList<FlexCompilationTask> sortByCriticalPath(final Collection<FlexCompilationTask> tasks) {
+    final Map<FlexCompilationTask, Integer> chainLengths = new HashMap<>();
+    for (FlexCompilationTask task : tasks) {
+      getDependentChainLength(task, tasks, chainLengths);
+    }
+
+    final LinkedList<FlexCompilationTask> result = new LinkedList<>(tasks);
+    result.sort((task1, task2) -> chainLengths.get(task2) - chainLengths.get(task1)); // stable, so the original order is kept otherwise
+    return result;
+  }
+
+  private static int getDependentChainLength(final FlexCompilationTask task,
+                                             final Collection<FlexCompilationTask> tasks,
+                                             final Map<FlexCompilationTask, Integer> chainLengths) {
+    final Integer cached = chainLengths.get(task);
+    if (cached != null) return cached;
+
+    chainLengths.put(task, 1); // guards against cyclic dependencies
+    int length = 1;
+    for (FlexCompilationTask otherTask : tasks) {
+      if (otherTask != task && dependsOn(otherTask, task)) {
+        length = Math.max(length, 1 + getDependentChainLength(otherTask, tasks, chainLengths));
+      }
+    }
+    chainLengths.put(task, length);
+    return length;
+  }
+
+  static boolean dependsOn(final FlexCompilationTask task, final FlexCompilationTask dependency) {
+    //noinspection ConstantConditions
+    if (task.getDependencies().contains(dependency.getBC())) return true;
+
+    // RLMs are compiled after the main application
+    final FlexBuildConfiguration bc = task.getBC();
+    final FlexBuildConfiguration dependencyBC = dependency.getBC();
+    return BCUtils.isRLMTemporaryBC(bc) &&
+           task.getModule() == dependency.getModule() &&
+           bc.getName().equals(dependencyBC.getName()) &&
+           !BCUtils.isRLMTemporaryBC(dependencyBC) &&
+           !BCUtils.isRuntimeStyleSheetBC(dependencyBC);
+  }
+
+  /**
+   * Reports the chain of compiled BCs that determined the total compilation time: starting from the task that finished last,
+   * each previous element is the dependency that finished last.
+   */
+  private void reportCriticalPath(final long totalTime) {
+    if (myStartTimes.size() < 2 || myCompileContext.getProgressIndicator().isCanceled()) return;
+
+    FlexCompilationTask last = null;
+    for (FlexCompilationTask task : myStartTimes.keySet()) {
+      if (myFinishTimes.containsKey(task) && (last == null || myFinishTimes.get(task) > myFinishTimes.get(last))) {
+        last = task;
+      }
+    }
+    if (last == null) return;
+
+    final LinkedList<FlexCompilationTask> path = new LinkedList<>();
+    long pathTime = 0;
+    for (FlexCompilationTask task = last; task != null && !path.contains(task); ) {
+      path.addFirst(task);
+      pathTime += myFinishTimes.get(task) - myStartTimes.get(task);
+
+      FlexCompilationTask previous = null;
+      for (FlexCompilationTask other : myStartTimes.keySet()) {
+        if (other != task && myFinishTimes.containsKey(other) && dependsOn(task, other) &&
+            (previous == null || myFinishTimes.get(other) > myFinishTimes.get(previous))) {
+          previous = other;
+        }
+      }
+      task = previous;
+    }
+
+    final StringBuilder names = new StringBuilder();
+    for (FlexCompilationTask task : path) {
+      if (names.length() > 0) names.append(" -> ");
+      names.append(task.getPresentableName());
+    }
+
+    myCompileContext.addMessage(CompilerMessageCategory.STATISTICS,
+                                FlexCommonBundle.message("compilation.critical.path", StringUtil.formatDuration(totalTime),
+                                                         StringUtil.formatDuration(pathTime), names.toString()),
+                                null, -1, -1);
+  }
+
   private void updateProgressIndicator() {
     final ProgressIndicator progressIndicator = myCompileContext.getProgressIndicator();
     progressIndicator.setFraction(1. * myFinishedTasks.size() / myTasksAmount);
@@ -1,6 +1,8 @@
 package com.intellij.lang.javascript.flex.build;
 
 import com.intellij.ProjectTopics;
+import com.intellij.compiler.server.BuildManager;
+import com.intellij.flex.build.FlexBuildFingerprint;
 import com.intellij.flex.model.bc.BuildConfigurationNature;
 import com.intellij.lang.javascript.flex.FlexUtils;
 import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfiguration;
@@ -13,6 +15,8 @@ import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.containers.ContainerUtil;
 import gnu.trove.THashMap;
@@ -28,19 +32,6 @@ public class FlexCompilerDependenciesCache {
   private final Project myProject;
   private final Map<Module, Collection<BCInfo>> myCache = new THashMap<>();
 
-  private static final String[] TAGS_FOR_FILE_PATHS_IN_CONFIG_FILE =
-    {"<flex-config><compiler><external-library-path><path-element>", "<flex-config><compiler><local-font-paths><path-element>",
-      "<flex-config><compiler><library-path><path-element>", "<flex-config><compiler><namespaces><namespace><manifest>",
-      /*"<flex-config><compiler><source-path><path-element>", "<flex-config><include-sources><path-element>",*/
-      "<flex-config><compiler><theme><filename>", "<flex-config><include-file><path>",
-      "<flex-config><include-stylesheet><path>", "<flex-config><file-specs><path-element>",
-      "<flex-config><compiler><include-libraries><library>", "<flex-config><compiler><local-fonts-snapshot>",
-      "<flex-config><compiler><defaults-css-url>", "<flex-config><compiler><defaults-css-files><filename>",
-      "<flex-config><load-config>", "<flex-config><load-externs>", "<flex-config><link-report>",
-      "<flex-config><services>", "<flex-config><metadata><raw-metadata>",
-      // "<flex-config><output>"   intentionally excluded, because already handled
-    };
-
   public FlexCompilerDependenciesCache(final Project project) {
     myProject = project;
 
@@ -53,6 +44,11 @@ public class FlexCompilerDependenciesCache {
 
   public void clear() {
     myCache.clear();
+
+    final File dataStorageRoot = getDataStorageRoot();
+    if (dataStorageRoot != null) {
+      FlexBuildFingerprint.removeAll(dataStorageRoot);
+    }
   }
 
   public void markModuleDirty(final Module module) {
@@ -60,6 +56,11 @@ public class FlexCompilerDependenciesCache {
   }
 
   public void markBCDirty(final Module module, final FlexBuildConfiguration bc) {
+    final File dataStorageRoot = getDataStorageRoot();
+    if (dataStorageRoot != null) {
+      FlexBuildFingerprint.remove(dataStorageRoot, getFingerprintKey(module, bc));
+    }
+
     final Collection<BCInfo> infosForModule = myCache.get(module);
     final BCInfo existingInfo = infosForModule == null ? null : findCacheForBC(infosForModule, bc);
     if (existingInfo != null) {
@@ -84,7 +85,7 @@ public class FlexCompilerDependenciesCache {
     final Collection<BCInfo> infosForModule = myCache.get(module);
     final BCInfo existingInfo = infosForModule == null ? null : findCacheForBC(infosForModule, bc);
     if (existingInfo == null) {
-      return false;
+      return isFingerprintUpToDate(module, bc);
     }
 
     final String[] currentSourceRoots = ModuleRootManager.getInstance(module).getSourceRootUrls();
@@ -93,12 +94,65 @@ public class FlexCompilerDependenciesCache {
       if (infosForModule.isEmpty()) {
         myCache.remove(module);
       }
+      // timestamps change also when content doesn't, e.g. after VCS checkout
+      return isFingerprintUpToDate(module, bc);
+    }
+
+    return true;
+  }
+
+  /**
+   * Fingerprints survive IDE restart and are shared with external build, see {@link FlexBuildFingerprint}.
+   */
+  private boolean isFingerprintUpToDate(final Module module, final FlexBuildConfiguration bc) {
+    final File dataStorageRoot = getDataStorageRoot();
+    if (dataStorageRoot == null) return false;
+
+    final List<VirtualFile> configFiles = new ArrayList<>(2);
+    try {
+      configFiles.add(CompilerConfigGenerator.getOrCreateConfigFile(module, bc));
+    }
+    catch (IOException e) {
+      return false;
+    }
+
+    final String additionalConfigFilePath = bc.getCompilerOptions().getAdditionalConfigFilePath();
+    if (!bc.isTempBCForCompilation() && !additionalConfigFilePath.isEmpty()) {
+      final VirtualFile additionalConfigFile = LocalFileSystem.getInstance().findFileByPath(additionalConfigFilePath);
+      if (additionalConfigFile == null) return false;
+      configFiles.add(additionalConfigFile);
+    }
+
+    final FlexBuildFingerprint fingerprint = computeFingerprint(module, bc, configFiles);
+    if (fingerprint == null || !FlexBuildFingerprint.isUpToDate(dataStorageRoot, getFingerprintKey(module, bc), fingerprint)) {
       return false;
     }
 
+    cacheBC(module, bc, configFiles);
     return true;
   }
 
+  @Nullable
+  private static FlexBuildFingerprint computeFingerprint(final Module module,
+                                                         final FlexBuildConfiguration bc,
+                                                         final List<VirtualFile> configFiles) {
+    final List<File> files = new ArrayList<>(configFiles.size());
+    for (VirtualFile configFile : configFiles) {
+      files.add(VfsUtilCore.virtualToIoFile(configFile));
+    }
+    return FlexBuildFingerprint.compute(files, Collections.singletonList(FlexUtils.getFlexCompilerWorkDirPath(module.getProject(), null)),
+                                        new File(bc.getActualOutputFilePath()));
+  }
+
+  private static String getFingerprintKey(final Module module, final FlexBuildConfiguration bc) {
+    return FlexBuildFingerprint.getKey(module.getName(), bc.getName(), bc.getActualOutputFilePath());
+  }
+
+  @Nullable
+  private File getDataStorageRoot() {
+    return myProject.isDefault() ? null : BuildManager.getInstance().getProjectSystemDirectory(myProject);
+  }
+
   public void cacheBC(final Module module, final FlexBuildConfiguration bc, final List<VirtualFile> configFiles) {
     Collection<BCInfo> infosForModule = myCache.get(module);
     if (infosForModule == null) {
@@ -115,6 +169,14 @@ public class FlexCompilerDependenciesCache {
     final VirtualFile outputFile = FlexCompilationManager.refreshAndFindFileInWriteAction(bc.getActualOutputFilePath());
     if (outputFile == null) return;
 
+    final File dataStorageRoot = getDataStorageRoot();
+    if (dataStorageRoot != null) {
+      final FlexBuildFingerprint fingerprint = computeFingerprint(module, bc, configFiles);
+      if (fingerprint != null) {
+        FlexBuildFingerprint.save(dataStorageRoot, getFingerprintKey(module, bc), fingerprint);
+      }
+    }
+
     final BCInfo bcInfo = new BCInfo(Factory.getCopy(bc), ModuleRootManager.getInstance(module).getSourceRootUrls());
     infosForModule.add(bcInfo);
 
@@ -157,7 +219,7 @@ public class FlexCompilerDependenciesCache {
 
     try {
       final Map<String, List<String>> elementsMap =
-        FlexUtils.findXMLElements(configFile.getInputStream(), Arrays.asList(TAGS_FOR_FILE_PATHS_IN_CONFIG_FILE));
+        FlexUtils.findXMLElements(configFile.getInputStream(), Arrays.asList(FlexBuildFingerprint.TAGS_FOR_FILE_PATHS_IN_CONFIG_FILE));
       for (List<String> filePathList : elementsMap.values()) {
         for (String filePath : filePathList) {
           bcInfo.addFileDependency(filePath, configFile.getParent().getPath(), workDirPath);
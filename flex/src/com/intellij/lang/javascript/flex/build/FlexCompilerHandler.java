@@ -191,7 +191,6 @@ public class FlexCompilerHandler extends AbstractProjectComponent {
       myBuiltInFlexCompilerHandler.stopCompilerProcess();
     }
     quitCompilerShell();
-    myCompilerDependenciesCache.clear();
     FlexCommonUtils.deleteTempFlexConfigFiles(myProject.getName());
     FlexCompilationUtils.deleteUnzippedANEFiles();
     myWidget.destroy();
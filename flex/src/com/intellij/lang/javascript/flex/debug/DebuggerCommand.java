@@ -42,6 +42,15 @@ class DebuggerCommand {
     return CommandOutputProcessingMode.DONE;
   }
 
+  /**
+   * @return true if the response depends only on the command text and the place where the VM is suspended. Such commands
+   * starting with a <code>frame</code> line are answered from the cache of the suspend context and may be pipelined,
+   * see {@link FlexDebugProcess#doSendCommandText}
+   */
+  boolean isResponseReusable() {
+    return false;
+  }
+
   @Override
   public String toString() {
     return getClass().getName();
@@ -60,8 +60,10 @@ import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.ui.HyperlinkAdapter;
 import com.intellij.util.Alarm;
 import com.intellij.util.ArrayUtil;
+import com.intellij.util.Consumer;
 import com.intellij.util.Function;
 import com.intellij.util.PathUtil;
+import com.intellij.util.containers.ContainerUtil;
 import com.intellij.xdebugger.*;
 import com.intellij.xdebugger.breakpoints.XBreakpointHandler;
 import com.intellij.xdebugger.breakpoints.XBreakpointProperties;
@@ -70,6 +72,7 @@ import com.intellij.xdebugger.evaluation.XDebuggerEditorsProvider;
 import com.intellij.xdebugger.frame.XSuspendContext;
 import com.intellij.xdebugger.frame.XValueMarkerProvider;
 import com.intellij.xdebugger.stepping.XSmartStepIntoHandler;
+import gnu.trove.THashMap;
 import gnu.trove.THashSet;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -113,9 +116,13 @@ public class FlexDebugProcess extends XDebugProcess {
   @NonNls static final String RESOLVED_BREAKPOINT_MARKER = "Resolved breakpoint ";
   @NonNls static final String BREAKPOINT_MARKER = "Breakpoint ";
   @NonNls private static final String FDB_MARKER = "(fdb) ";
+  @NonNls private static final String CONFIRMATION_MARKER = "(y or n)";
   @NonNls private static final String WAITING_PLAYER_MARKER_1 = "Waiting for Player to connect";
   @NonNls private static final String WAITING_PLAYER_MARKER_2 = "Trying to connect to Player";
   @NonNls static final String ATTEMPTING_TO_RESOLVE_BREAKPOINT_MARKER = "Attempting to resolve breakpoint ";
+  @NonNls private static final String FRAME_COMMAND = "frame";
+  @NonNls private static final Set<String> QUERY_COMMANDS = ContainerUtil.newHashSet(FRAME_COMMAND, "print", "info", "bt", "show");
+  private static final int MAX_PIPELINED_COMMANDS = 16;
 
   @NonNls private static final String ADL_PREFIX = "[AIR Debug Launcher]: ";
 
@@ -169,6 +176,10 @@ public class FlexDebugProcess extends XDebugProcess {
     }
   };
 
+  private final PostedCommands myPostedCommands;
+  // frame selected by the last command answered from the cache, not sent to fdb yet
+  private String myPendingFrameCommand;
+
   private boolean suspended;
   private boolean fdbWaitingForPlayerStateReached;
   private boolean startupDone;
@@ -277,7 +288,8 @@ public class FlexDebugProcess extends XDebugProcess {
       sendCommand(new StartDebuggingCommand());
     }
 
-    reader = new MyFdbOutputReader(fdbProcess.getInputStream());
+    reader = new MyFdbOutputReader(fdbProcess.getInputStream(), this::setSuspended);
+    myPostedCommands = new PostedCommands(reader);
 
     startCommandProcessingThread();
   }
@@ -499,7 +511,7 @@ public class FlexDebugProcess extends XDebugProcess {
     do {
       final CommandOutputProcessingType outputProcessingType = command.getOutputProcessingMode();
       if (outputProcessingType == CommandOutputProcessingType.NO_PROCESSING ||
-          (outputProcessingType == CommandOutputProcessingType.DEFAULT_PROCESSING && !reader.hasSomeDataPending())) {
+          (outputProcessingType == CommandOutputProcessingType.DEFAULT_PROCESSING && !hasUnexpectedOutput())) {
         return;
       }
 
@@ -659,7 +671,7 @@ public class FlexDebugProcess extends XDebugProcess {
 
       if (toInsertContinue) insertCommand(new ContinueCommand());
     }
-    while (explicitlyContinueRead || reader.hasSomeDataPending());
+    while (explicitlyContinueRead || hasUnexpectedOutput());
   }
 
   private boolean evaluateCondition(@Nullable XExpression expression, FlexStackFrame frame) {
@@ -698,7 +710,23 @@ public class FlexDebugProcess extends XDebugProcess {
   }
 
   String defaultReadCommand(DebuggerCommand command) throws IOException {
-    return reader.readLine(command.getEndVMState() == VMState.RUNNING);
+    return myPostedCommands.readResponse(command);
+  }
+
+  private boolean hasUnexpectedOutput() throws IOException {
+    return !myPostedCommands.hasUnreadResponses() && reader.hasSomeDataPending();
+  }
+
+  /**
+   * Player output that came along with a response has been printed already, so it's not a part of the reused response
+   */
+  static String stripTraceOutput(String response) {
+    if (!response.contains(TRACE_MARKER)) return response;
+    final StringBuilder result = new StringBuilder();
+    for (String line : StringUtil.splitByLinesKeepSeparators(response)) {
+      if (!line.startsWith(TRACE_MARKER)) result.append(line);
+    }
+    return result.toString();
   }
 
   private boolean handleStdResponse(String line, ResponseLineIterator iterator) {
@@ -953,6 +981,7 @@ public class FlexDebugProcess extends XDebugProcess {
 
   private DebuggerCommand postCommand() throws IOException {
     DebuggerCommand command = commandsToWrite.removeFirst();
+    if (myPostedCommands.contains(command)) return command; // written to fdb together with previous command
     final boolean currentlyExecuting = !suspended && startupDone;
 
     if (command.getStartVMState() == VMState.RUNNING) {
@@ -978,11 +1007,49 @@ public class FlexDebugProcess extends XDebugProcess {
     if (currentlyExecuting) {
       command = new SuspendResumeDebuggerCommand(command);
     }
+    else if (startupDone && isPipelinable(command)) {
+      final List<DebuggerCommand> batch = new ArrayList<>();
+      batch.add(command);
+      synchronized (commandsToWrite) {
+        for (DebuggerCommand nextCommand : commandsToWrite) {
+          if (batch.size() == MAX_PIPELINED_COMMANDS || !isPipelinable(nextCommand)) break;
+          batch.add(nextCommand);
+        }
+      }
+      if (batch.size() > 1) {
+        doSendCommandsText(batch);
+      }
+    }
 
     command.post(this);
     return command;
   }
 
+  private static boolean isPipelinable(DebuggerCommand command) {
+    return command.getOutputProcessingMode() == CommandOutputProcessingType.SPECIAL_PROCESSING &&
+           command.getStartVMState() == VMState.SUSPENDED &&
+           command.getEndVMState() == VMState.SUSPENDED &&
+           isCacheable(command);
+  }
+
+  private static boolean isCacheable(DebuggerCommand command) {
+    final String text = command.getText();
+    return command.isResponseReusable() && getCommandName(text).equals(FRAME_COMMAND) && isQuery(text);
+  }
+
+  private static boolean isQuery(String text) {
+    for (String line : StringUtil.split(text, "\n")) {
+      if (!QUERY_COMMANDS.contains(getCommandName(line))) return false;
+    }
+    return true;
+  }
+
+  private static String getCommandName(String text) {
+    int end = 0;
+    while (end < text.length() && !Character.isWhitespace(text.charAt(end))) end++;
+    return text.substring(0, end);
+  }
+
   boolean isDebuggerFromSdk3() {
     return myDebuggerVersion != null && myDebuggerVersion.startsWith("3.");
   }
@@ -992,13 +1059,56 @@ public class FlexDebugProcess extends XDebugProcess {
            StringUtil.compareVersionNumbers(myDebuggerVersion, "4.12") > 0;
   }
 
+  /**
+   * Commands that start with a frame selection and consist of queries only ({@link DebuggerCommand#isResponseReusable()})
+   * are answered from the cache while the VM stays suspended, their responses are kept until any other command is sent.
+   * Several such commands may be written at once ({@link #postCommand()}); responses are told apart by fdb prompts, one per line
+   * of command text, and are consumed in the order of writing ({@link #defaultReadCommand}).
+   */
   void doSendCommandText(final DebuggerCommand command) throws IOException {
-    final String text = command.getText();
+    if (myPostedCommands.contains(command)) return; // already written as a part of pipelined batch
+    doSendCommandsText(Collections.singletonList(command));
+  }
+
+  private void doSendCommandsText(final List<DebuggerCommand> commands) throws IOException {
+    final StringBuilder text = new StringBuilder();
+    DebuggerCommand lastSentCommand = null;
 
-    setSuspended(
-      command.getOutputProcessingMode() == CommandOutputProcessingType.NO_PROCESSING && command.getEndVMState() == VMState.SUSPENDED);
-    log("Sent:" + text);
-    fdbProcess.getOutputStream().write((text + "\n").getBytes());
+    for (DebuggerCommand command : commands) {
+      final String commandText = command.getText();
+      final boolean cacheable = isCacheable(command);
+      final List<String> cachedResponses = cacheable ? myPostedCommands.getCachedResponses(commandText) : null;
+
+      if (cachedResponses != null) {
+        log("Cached:" + commandText);
+        myPostedCommands.addCached(command, cachedResponses);
+        myPendingFrameCommand = StringUtil.substringBefore(commandText, "\n");
+        continue;
+      }
+
+      if (!isQuery(commandText)) {
+        myPostedCommands.clear(); // responses can't be reused after the VM state changes
+      }
+      else if (myPendingFrameCommand != null && !getCommandName(commandText).equals(FRAME_COMMAND)) {
+        // fdb must be at the frame previous command expected
+        text.append(myPendingFrameCommand).append("\n");
+        myPostedCommands.add(null, null, 1);
+      }
+      myPendingFrameCommand = null;
+
+      if (cacheable) {
+        myPostedCommands.add(command, commandText, StringUtil.countNewLines(commandText) + 1);
+      }
+      text.append(commandText).append("\n");
+      lastSentCommand = command;
+    }
+
+    if (lastSentCommand == null) return;
+
+    setSuspended(lastSentCommand.getOutputProcessingMode() == CommandOutputProcessingType.NO_PROCESSING &&
+                 lastSentCommand.getEndVMState() == VMState.SUSPENDED);
+    log("Sent:" + text.substring(0, text.length() - 1));
+    fdbProcess.getOutputStream().write(text.toString().getBytes());
     try {
       fdbProcess.getOutputStream().flush();
     }
@@ -1220,16 +1330,148 @@ public class FlexDebugProcess extends XDebugProcess {
     return null;
   }
 
-  class MyFdbOutputReader {
+  /**
+   * Commands written to fdb whose responses are not consumed yet, in the order of writing; fdb prompt ends each response.
+   * Responses of reusable commands are cached until fdb gets a command that is not a query.
+   */
+  static class PostedCommands {
+    private final MyFdbOutputReader myReader;
+    private final LinkedList<PostedCommand> myCommands = new LinkedList<>();
+    private final Map<String, List<String>> myResponseCache = new THashMap<>();
+
+    PostedCommands(final MyFdbOutputReader reader) {
+      myReader = reader;
+    }
+
+    /**
+     * @param command null if the responses are not needed
+     * @param cacheKey null if the responses are not reusable
+     */
+    void add(@Nullable DebuggerCommand command, @Nullable String cacheKey, int responseCount) {
+      myCommands.add(new PostedCommand(command, cacheKey, responseCount));
+    }
+
+    void addCached(@NotNull DebuggerCommand command, List<String> cachedResponses) {
+      myCommands.add(new PostedCommand(command, cachedResponses));
+    }
+
+    @Nullable
+    List<String> getCachedResponses(String commandText) {
+      return myResponseCache.get(commandText);
+    }
+
+    boolean contains(DebuggerCommand command) {
+      return find(command) != null;
+    }
+
+    boolean hasUnreadResponses() {
+      for (PostedCommand posted : myCommands) {
+        if (posted.myUnreadCount > 0) return true;
+      }
+      return false;
+    }
+
+    /**
+     * Skips responses that are not read yet and forgets all posted commands, also the ones that didn't consume all their responses.
+     */
+    void clear() throws IOException {
+      readResponses(null);
+      myCommands.clear();
+      myResponseCache.clear();
+    }
+
+    String readResponse(DebuggerCommand command) throws IOException {
+      final PostedCommand posted = find(command);
+      if (posted != null) {
+        readResponses(posted);
+        if (posted.myResponses.isEmpty() && posted.myUnreadCount > 0) {
+          final String response = myReader.readLine(false);
+          if (response == null) return null;
+          posted.responseRead(response);
+        }
+        final String response = posted.myResponses.pollFirst();
+        if (posted.myResponses.isEmpty() && posted.myUnreadCount == 0) {
+          myCommands.remove(posted);
+        }
+        if (response != null) return response;
+      }
+
+      readResponses(null);
+      return myReader.readLine(command.getEndVMState() == VMState.RUNNING);
+    }
+
+    /**
+     * Reads responses of the commands posted before the given one (of all posted commands if null), they are kept until requested.
+     */
+    private void readResponses(@Nullable PostedCommand until) throws IOException {
+      for (Iterator<PostedCommand> iterator = myCommands.iterator(); iterator.hasNext(); ) {
+        final PostedCommand posted = iterator.next();
+        if (posted == until) break;
+        while (posted.myUnreadCount > 0) {
+          final String response = myReader.readLine(false);
+          if (response == null) return;
+          posted.responseRead(response);
+        }
+        if (posted.myCommand == null) iterator.remove();
+      }
+    }
+
+    @Nullable
+    private PostedCommand find(DebuggerCommand command) {
+      for (PostedCommand posted : myCommands) {
+        if (posted.myCommand == command) return posted;
+      }
+      return null;
+    }
+
+    private class PostedCommand {
+      @Nullable private final DebuggerCommand myCommand; // null if the response is not needed
+      @Nullable private final String myCacheKey;
+      private final LinkedList<String> myResponses; // read but not consumed by the command yet
+      private final List<String> myReadResponses = new ArrayList<>();
+      private int myUnreadCount;
+
+      PostedCommand(@Nullable DebuggerCommand command, @Nullable String cacheKey, int responseCount) {
+        myCommand = command;
+        myCacheKey = cacheKey;
+        myResponses = new LinkedList<>();
+        myUnreadCount = responseCount;
+      }
+
+      PostedCommand(@NotNull DebuggerCommand command, List<String> cachedResponses) {
+        myCommand = command;
+        myCacheKey = null;
+        myResponses = new LinkedList<>(cachedResponses);
+      }
+
+      void responseRead(String response) {
+        --myUnreadCount;
+        if (myCommand == null) return;
+        myResponses.add(response);
+        if (myCacheKey == null) return;
+        myReadResponses.add(response);
+        if (myUnreadCount == 0 && !response.contains("Player session terminated")) {
+          myResponseCache.put(myCacheKey, ContainerUtil.map(myReadResponses, FlexDebugProcess::stripTraceOutput));
+        }
+      }
+    }
+  }
+
+  /**
+   * Splits fdb output into responses ended by fdb prompts, several responses may come in one read and a prompt may be split between reads.
+   */
+  static class MyFdbOutputReader {
     private final InputStreamReader myReader;
     private final char[] buf = new char[8192];
     private final StringBuilder lastText = new StringBuilder();
     private int lastTextMarkerScanningStart;
     private final InputStream myInputStream;
+    private final Consumer<Boolean> mySuspendedStateConsumer;
 
-    public MyFdbOutputReader(final InputStream _inputStream) {
+    MyFdbOutputReader(final InputStream _inputStream, final Consumer<Boolean> suspendedStateConsumer) {
       myReader = FlexCommonUtils.createInputStreamReader(_inputStream);
       myInputStream = _inputStream;
+      mySuspendedStateConsumer = suspendedStateConsumer;
     }
 
     boolean hasSomeDataPending() throws IOException {
@@ -1237,17 +1479,15 @@ public class FlexDebugProcess extends XDebugProcess {
     }
 
     String readLine(boolean nonblock) throws IOException {
-      if (lastText != null) {
-        final String lastText = getNextLine(nonblock);
-        if (lastText != null) return lastText;
-      }
+      final String nextLine = getNextLine(nonblock);
+      if (nextLine != null) return nextLine;
 
       while (true) {
         int read = myReader.read(buf, 0, buf.length);
         if (read == -1) return null;
         lastText.append(buf, 0, read);
 
-        if (read < buf.length) {
+        if (read < buf.length || !hasSomeDataPending()) {
           final String lastText = getNextLine(nonblock);
           if (lastText != null) return lastText;
         }
@@ -1259,9 +1499,11 @@ public class FlexDebugProcess extends XDebugProcess {
       String marker = FDB_MARKER;
       int i = lastText.indexOf(marker, lastTextMarkerScanningStart);
 
-      if (i == -1) {
-        marker = "(y or n)";
-        i = lastText.indexOf(marker, lastTextMarkerScanningStart);
+      // the earliest prompt ends the response, the next one may be already read
+      final int confirmationIndex = lastText.indexOf(CONFIRMATION_MARKER, lastTextMarkerScanningStart);
+      if (confirmationIndex != -1 && (i == -1 || confirmationIndex < i)) {
+        marker = CONFIRMATION_MARKER;
+        i = confirmationIndex;
       }
 
       if (i == -1 &&
@@ -1278,11 +1520,12 @@ public class FlexDebugProcess extends XDebugProcess {
         lastText.delete(0, i + marker.length());
         lastTextMarkerScanningStart = 0;
         if (isBlank(lastText)) lastText.setLength(0);
-        setSuspended(marker.length() != 0);
+        mySuspendedStateConsumer.consume(marker.length() != 0);
         return result;
       }
       else {
-        lastTextMarkerScanningStart = lastText.length();
+        // the end of the text may be the beginning of a marker
+        lastTextMarkerScanningStart = Math.max(0, lastText.length() - WAITING_PLAYER_MARKER_1.length() + 1);
         result = null;
       }
       return result;
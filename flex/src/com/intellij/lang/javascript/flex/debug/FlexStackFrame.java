@@ -511,6 +511,11 @@ public class FlexStackFrame extends XStackFrame {
       myValueType = valueType;
     }
 
+    @Override
+    boolean isResponseReusable() {
+      return true;
+    }
+
     @Override
     CommandOutputProcessingMode onTextAvailable(@NonNls final String s) {
       final int offsetIndex = hasFrame ? 1:0; // frame command
@@ -286,15 +286,26 @@ class Abc {
   private final FlexByteCodeInformationProcessor processor;
   int totalSize;
   final int opSizes[] = new int[256];
+  // statistics and errors collected while parsing off the processor thread, see flushDeferredMessages()
+  private List<Runnable> deferredMessages;
 
   public Abc(final @NotNull ByteBuffer _data, @NotNull FlexByteCodeInformationProcessor _processor) {
+    this(_data, _processor, false);
+  }
+
+  /**
+   * @param deferMessages if true, the processor is not called while parsing, so parsing may run in parallel with other Abc blocks;
+   *                      collected messages are passed to the processor by {@link #flushDeferredMessages()}
+   */
+  Abc(final @NotNull ByteBuffer _data, @NotNull FlexByteCodeInformationProcessor _processor, boolean deferMessages) {
     data = _data;
     processor = _processor;
+    if (deferMessages) deferredMessages = new ArrayList<>();
 
     data.setPosition(0);
     magic = data.readInt();
 
-    _processor.dumpStat("magic " + Integer.toString(magic, 16) + "\n");
+    dumpStat("magic " + Integer.toString(magic, 16) + "\n");
 
     if (magic != (46 << 16 | 14) && magic != (46 << 16 | 15) && magic != (46 << 16 | 16)) {
       throw new Error("not an abc file.  magic=" + Integer.toString(magic, 16));
@@ -365,7 +376,10 @@ class Abc {
   Integer[] ints;
   Integer[] uints;
   Double[] doubles;
-  @NonNls String[] strings;
+  // strings are decoded on first access, most of them are never needed for building stubs
+  @NonNls private String[] strings;
+  private int[] stringOffsets;
+  private int[] stringLengths;
   @NonNls String[] namespaces;
   @NonNls String[][] nssets;
   Multiname[] names;
@@ -384,6 +398,18 @@ class Abc {
     return data.readU32();
   }
 
+  String getString(final int index) {
+    String s = strings[index];
+    if (s == null) {
+      s = strings[index] = data.getUTFBytes(stringOffsets[index], stringLengths[index]);
+    }
+    return s;
+  }
+
+  private Object getDefaultValue(final int kind, final int index) {
+    return kind == CONSTANT_Utf8 ? getString(index) : defaults[kind][index];
+  }
+
   void parseCpool() {
     int i, j;
     int n;
@@ -413,18 +439,23 @@ class Abc {
       doubles[i] = data.readDouble();
     }
 
-    reportAboutPercentage("Cpool numbers size ", data, start, processor);
+    reportAboutPercentage("Cpool numbers size ", data, start);
     start = data.getPosition();
 
     // strings
     n = readU32();
     strings = new String[n];
+    stringOffsets = new int[n];
+    stringLengths = new int[n];
     strings[0] = "";
     for (i = 1; i < n; i++) {
-      strings[i] = data.readUTFBytes(readU32());
+      final int length = readU32();
+      stringOffsets[i] = data.getPosition();
+      stringLengths[i] = length;
+      data.incPosition(length);
     }
 
-    reportAboutPercentage("Cpool strings count " + n + " size ", data, start, processor);
+    reportAboutPercentage("Cpool strings count " + n + " size ", data, start);
     start = data.getPosition();
 
     // namespaces
@@ -439,7 +470,7 @@ class Abc {
         case CONSTANT_ProtectedNs:
         case CONSTANT_StaticProtectedNs:
         case CONSTANT_StaticProtectedNs2: {
-          namespaces[i] = strings[readU32()];
+          namespaces[i] = getString(readU32());
           // todo mark kind of namespace.
           break;
         }
@@ -450,7 +481,7 @@ class Abc {
       }
     }
 
-    reportAboutPercentage("Cpool namespaces count " + n + " size ", data, start, processor);
+    reportAboutPercentage("Cpool namespaces count " + n + " size ", data, start);
     start = data.getPosition();
 
     // namespace sets
@@ -464,7 +495,7 @@ class Abc {
       }
     }
 
-    reportAboutPercentage("Cpool nssets count " + n + " size ", data, start, processor);
+    reportAboutPercentage("Cpool nssets count " + n + " size ", data, start);
     start = data.getPosition();
 
     // multinames
@@ -485,12 +516,12 @@ class Abc {
       switch (data.readByte()) {
         case CONSTANT_Qname:
         case CONSTANT_QnameA:
-          names[i] = new Multiname(new String[]{namespaces[readU32()]}, strings[readU32()]);
+          names[i] = new Multiname(new String[]{namespaces[readU32()]}, getString(readU32()));
           break;
 
         case CONSTANT_RTQname:
         case CONSTANT_RTQnameA:
-          names[i] = new Multiname(new String[]{strings[readU32()]}, null);
+          names[i] = new Multiname(new String[]{getString(readU32())}, null);
           break;
 
         case CONSTANT_RTQnameL:
@@ -505,7 +536,7 @@ class Abc {
 
         case CONSTANT_Multiname:
         case CONSTANT_MultinameA:
-          String name = strings[readU32()];
+          String name = getString(readU32());
           names[i] = new Multiname(nssets[readU32()], name);
           break;
 
@@ -585,7 +616,7 @@ class Abc {
       }
     } while (hasSomething && doneSomething);
 
-    reportAboutPercentage("Cpool names count " + n + " size ", data, start, processor);
+    reportAboutPercentage("Cpool names count " + n + " size ", data, start);
     start = data.getPosition();
 
     namespaces[0] = PUBLIC_NS;
@@ -609,7 +640,7 @@ class Abc {
         m.paramTypes[j] = names[readU32()];
         if (m.paramTypes[j] == null) m.paramTypes[j] = OpaqueAssetsType;
       }
-      m.debugName = strings[readU32()];
+      m.debugName = getString(readU32());
       m.flags = data.readByte();
 
       if ((m.flags & HAS_OPTIONAL) != 0) {
@@ -641,10 +672,10 @@ class Abc {
           }
           else {
             if (defaults[kind] == null) {
-              processor.hasError("ERROR kind=" + kind + " method_id " + i + "\n");
+              hasError("ERROR kind=" + kind + " method_id " + i + "\n");
             }
             else {
-              m.optionalValues[k] = new Multiname(null, defaults[kind][index].toString());
+              m.optionalValues[k] = new Multiname(null, getDefaultValue(kind, index).toString());
             }
           }
         }
@@ -655,7 +686,7 @@ class Abc {
           Set<String> usedNames = new THashSet<>(m.paramNames.length);
           for (int k = 0; k < param_count; ++k) {
             final int index = readU32();
-            final String name = strings[index];
+            final String name = getString(index);
             m.paramNames[k] = StringUtil.isJavaIdentifier(name) && usedNames.add(name) ? name : "_" + k;
           }
         } else {
@@ -680,7 +711,7 @@ class Abc {
       }
     }
 
-    reportAboutPercentage("MethodInfo count " + method_count + " size ", data, start, processor);
+    reportAboutPercentage("MethodInfo count " + method_count + " size ", data, start);
   }
 
   void parseMetadataInfos() {
@@ -689,15 +720,15 @@ class Abc {
     for (int i = 0; i < count; i++) {
       // MetadataInfo
       MetaData m = metadata[i] = new MetaData();
-      m.name = strings[readU32()];
+      m.name = getString(readU32());
       int values_count = readU32();
       String names[] = new String[values_count];
 
       for (int q = 0; q < values_count; ++q) {
-        names[q] = strings[readU32()]; // name
+        names[q] = getString(readU32()); // name
       }
       for (int q = 0; q < values_count; ++q) {
-        m.put(names[q], strings[readU32()]); // value
+        m.put(names[q], getString(readU32())); // value
       }
     }
   }
@@ -727,7 +758,7 @@ class Abc {
       parseTraits(t);
     }
 
-    reportAboutPercentage("InstanceInfo size ", data, start, processor);
+    reportAboutPercentage("InstanceInfo size ", data, start);
   }
 
   static final TraitType[] traitTypes = TraitType.values();
@@ -741,7 +772,7 @@ class Abc {
       TraitType kind;
 
       if (traitTypeTag >= traitTypes.length) {
-        processor.hasError("error trait kind " + traitTypeTag + "\n");
+        hasError("error trait kind " + traitTypeTag + "\n");
         kind = null;
       }
       else {
@@ -765,7 +796,7 @@ class Abc {
               slot.type = OpaqueAssetsType;
             }
             int index = readU32();
-            if (index > 0) slot.value = defaults[data.readByte()][index];
+            if (index > 0) slot.value = getDefaultValue(data.readByte(), index);
           }
           else // (kind == Class)
           {
@@ -828,7 +859,7 @@ class Abc {
       t.init.kind = TraitType.Method;
       parseTraits(t);
     }
-    reportAboutPercentage("ClassInfo size ", data, start, processor);
+    reportAboutPercentage("ClassInfo size ", data, start);
   }
 
   void parseScriptInfos() {
@@ -848,7 +879,7 @@ class Abc {
       parseTraits(t);
     }
 
-    reportAboutPercentage("ScriptInfo size ", data, start, processor);
+    reportAboutPercentage("ScriptInfo size ", data, start);
   }
 
   void parseMethodBodies() {
@@ -881,11 +912,38 @@ class Abc {
       parseTraits(m.activation = new Traits());
     }
 
-    reportAboutPercentage("MethodBodies size ", data, start, processor);
+    reportAboutPercentage("MethodBodies size ", data, start);
   }
 
-  private static void reportAboutPercentage(String s, ByteBuffer data, int start, @NotNull FlexByteCodeInformationProcessor processor) {
-    processor.dumpStat(s + (data.getPosition() - start) + " " + (int)100f * (data.getPosition() - start) / data.bytesSize() + " %\n");
+  private void reportAboutPercentage(String s, ByteBuffer data, int start) {
+    dumpStat(s + (data.getPosition() - start) + " " + (int)100f * (data.getPosition() - start) / data.bytesSize() + " %\n");
+  }
+
+  private void dumpStat(final String s) {
+    if (deferredMessages != null) {
+      deferredMessages.add(() -> processor.dumpStat(s));
+    }
+    else {
+      processor.dumpStat(s);
+    }
+  }
+
+  private void hasError(final String s) {
+    if (deferredMessages != null) {
+      deferredMessages.add(() -> processor.hasError(s));
+    }
+    else {
+      processor.hasError(s);
+    }
+  }
+
+  void flushDeferredMessages() {
+    if (deferredMessages != null) {
+      for (Runnable message : deferredMessages) {
+        message.run();
+      }
+      deferredMessages = null;
+    }
   }
 
 }
@@ -2,29 +2,42 @@ package com.intellij.lang.javascript.flex.importer;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.io.InputStream;
-import java.io.IOException;
 import java.io.ByteArrayInputStream;
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 /**
+ * Reads a range of a byte array. Nested buffers ({@link #readBytes(ByteBuffer, int)}) share the array of the parent buffer,
+ * so ABC blocks and method bodies are not copied. Positions are relative to the start of the range.
+ *
  * @author Maxim.Mossienko
 */
 class ByteBuffer {
   private byte[] bytes;
+  private int start;
+  private int end;
   private int position;
   private boolean littleEndian;
 
   void read(@NotNull InputStream inputStream) throws IOException {
     try {
-      bytes = readStream(inputStream);
+      wrap(readStream(inputStream));
     }
     finally {
       if (inputStream != null) inputStream.close();
     }
   }
 
+  void wrap(@NotNull byte[] bytes) {
+    this.bytes = bytes;
+    start = position = 0;
+    end = bytes.length;
+  }
+
   void setLittleEndian() {
     littleEndian = true;
   }
@@ -46,17 +59,47 @@ class ByteBuffer {
   }
 
   public void setPosition(final int i) {
-    position = i;
+    position = start + i;
   }
 
   public int bytesSize() {
-    return bytes.length;
-  }
+    return end - start;
+  }
+
+  /**
+   * Replaces the content with the inflated data starting at the current position.
+   *
+   * @param expectedSize size of the inflated data if known (SWF header contains it), or -1
+   */
+  public void uncompress(final int expectedSize) throws IOException {
+    if (expectedSize > 0) {
+      final Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(bytes, position, end - position);
+        final byte[] result = new byte[expectedSize];
+        int total = 0;
+        while (total < expectedSize) {
+          final int inflated = inflater.inflate(result, total, expectedSize - total);
+          if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) break;
+          total += inflated;
+        }
+        if (total == expectedSize && (inflater.finished() || inflater.getRemaining() == 0)) {
+          wrap(result);
+          return;
+        }
+      }
+      catch (DataFormatException e) {
+        throw new IOException(e);
+      }
+      finally {
+        inflater.end();
+      }
+      // header lies about the size, fall back to reading the stream
+    }
 
-  public void uncompress() throws IOException {
-    final InflaterInputStream zipInputStream = new InflaterInputStream(new ByteArrayInputStream(bytes));
+    final InflaterInputStream zipInputStream = new InflaterInputStream(new ByteArrayInputStream(bytes, position, end - position));
 
-    bytes = readStream(zipInputStream);
+    wrap(readStream(zipInputStream));
 
     zipInputStream.close();
   }
@@ -105,27 +148,27 @@ class ByteBuffer {
   }
 
   public void readBytes(ByteBuffer data2, int length) {
-    data2.bytes = new byte[length];
-    System.arraycopy(bytes, position, data2.bytes, 0, length);
+    data2.bytes = bytes;
+    data2.start = data2.position = position;
+    data2.end = position + length;
     position += length;
   }
 
   public boolean eof() {
-    return position >= bytes.length;
+    return position >= end;
   }
 
   public String readUTFBytes(int i) {
-    try {
-      final byte[] buf = new byte[i];
-      while (i > 0) {
-        buf[buf.length - i] = (byte)readByte();
-        --i;
-      }
-      return new String(buf, "utf-8");
-    }
-    catch (UnsupportedEncodingException e) {
-      throw new RuntimeException(e);
-    }
+    final String result = new String(bytes, position, i, StandardCharsets.UTF_8);
+    position += i;
+    return result;
+  }
+
+  /**
+   * Decodes a string at the given position without moving the current position.
+   */
+  public String getUTFBytes(final int position, final int length) {
+    return new String(bytes, start + position, length, StandardCharsets.UTF_8);
   }
 
   public double readDouble() {
@@ -147,11 +190,11 @@ class ByteBuffer {
   }
 
   public byte getByte(int i) {
-    return bytes[i];
+    return bytes[start + i];
   }
 
   public int getPosition() {
-    return position;
+    return position - start;
   }
 
   public void incPosition(final int length) {
@@ -50,9 +50,30 @@ public class FlexImporter {
 
   @NonNls
   public static String buildInterfaceFromStream(final InputStream in) {
+    final ByteBuffer data = new ByteBuffer();
+    try {
+      data.read(in);
+    }
+    catch (IOException ex) {
+      return "/* " + ex.getLocalizedMessage() + " */";
+    }
+    return buildInterface(data);
+  }
+
+  /**
+   * Same as {@link #buildInterfaceFromStream(InputStream)} but decodes the given array in place, without copying it.
+   */
+  @NonNls
+  public static String buildInterfaceFromBytes(@NotNull final byte[] content) {
+    final ByteBuffer data = new ByteBuffer();
+    data.wrap(content);
+    return buildInterface(data);
+  }
+
+  private static String buildInterface(@NotNull final ByteBuffer data) {
     try {
       final AbstractDumpProcessor abcDumper = new AS3InterfaceDumper();
-      processFlexByteCode(in, abcDumper);
+      processFlexByteCode(data, abcDumper);
       final String s = abcDumper.getResult();
       //saveStringAsFile(s, File.createTempFile("fleximport", ".as").getPath());
       return s;
@@ -70,9 +91,22 @@ public class FlexImporter {
     processFlexByteCode(in, new AS3InterfaceStubDumper(parent));
   }
 
+  /**
+   * Same as {@link #buildStubsInterfaceFromStream(InputStream, StubElement)} but decodes the given array in place, without copying it.
+   */
+  public static void buildStubsInterfaceFromBytes(@NotNull final byte[] content, final StubElement parent) throws Exception {
+    final ByteBuffer data = new ByteBuffer();
+    data.wrap(content);
+    processFlexByteCode(data, new AS3InterfaceStubDumper(parent));
+  }
+
   private static void processFlexByteCode(@NotNull final InputStream in, @NotNull FlexByteCodeInformationProcessor processor) throws IOException {
     ByteBuffer data = new ByteBuffer();
     data.read(in);
+    processFlexByteCode(data, processor);
+  }
+
+  private static void processFlexByteCode(@NotNull final ByteBuffer data, @NotNull FlexByteCodeInformationProcessor processor) throws IOException {
     data.setLittleEndian();
     if (data.bytesSize() == 0) return;
     int version = data.readUnsignedInt();
@@ -83,15 +117,13 @@ public class FlexImporter {
     }
     else if ((version & SWF_MAGIC) == SWF_MAGIC) {
       final int delta = 8;
-      data.setPosition(delta);
-      ByteBuffer udata = new ByteBuffer();
-      udata.setLittleEndian();
-      data.readBytes(udata, data.bytesSize() - delta);
-      int csize = udata.bytesSize();
-      udata.uncompress();
-      processor.dumpStat("decompressed swf " + csize + " -> " + udata.bytesSize() + "\n");
-      udata.setPosition(0);
-      new Swf(udata, processor);
+      // the header is followed by the length of the whole uncompressed file
+      final int uncompressedSize = data.readInt() - delta;
+      int csize = data.bytesSize() - delta;
+      data.uncompress(uncompressedSize);
+      processor.dumpStat("decompressed swf " + csize + " -> " + data.bytesSize() + "\n");
+      data.setPosition(0);
+      new Swf(data, processor);
     }
     else if ((version & SWF_MAGIC2) == SWF_MAGIC2) {
       data.setPosition(8); // skip header and length
@@ -1,11 +1,32 @@
 package com.intellij.lang.javascript.flex.importer;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.ControlFlowException;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @author Maxim.Mossienko
  */
 class Swf {
+  private static final Logger LOG = Logger.getInstance(Swf.class.getName());
+
+  private static final ExecutorService ourAbcParser =
+    AppExecutorUtil.createBoundedApplicationPoolExecutor("SWF ABC Parser", Runtime.getRuntime().availableProcessors());
+
   private static class Rect {
     int nBits;
     int xMin, xMax;
@@ -162,6 +183,9 @@ class Swf {
   }
 
   private void decodeTags() {
+    // ABC blocks are independent, so they are parsed in parallel first and then dumped in order
+    final List<Tag> tags = new ArrayList<>();
+    int abcCount = 0;
     int type, h, length;
 
     while (data.getPosition() < data.bytesSize()) {
@@ -169,39 +193,132 @@ class Swf {
 
       if (((length = h & 0x3F) == 0x3F)) length = data.readInt();
 
-      processor.dumpStat(
+      final Tag tag = new Tag(
         (type < tagNames.length ? tagNames[type] : "undefined") + " " + length + "b " + ((int)100f * length / data.bytesSize()) + "%\n");
+      tags.add(tag);
+      if (type == 0) break;
 
       switch (type) {
-        case 0:
-          return;
         case stagDoABC2:
           int pos1 = data.getPosition();
           data.readInt();
-          final String abcName = readString();
-          processor.dumpStat("\nabc name " + abcName + "\n");
+          tag.abcName = readString();
           length -= (data.getPosition() - pos1);
           // fall through
         case stagDoABC:
-          ByteBuffer data2 = new ByteBuffer();
-          data2.setLittleEndian();
-          data.readBytes(data2, length);
-          new Abc(data2, processor).dump(processor.getAbcInSwfIndent());
-          processor.append("\n");
+          tag.abcData = new ByteBuffer();
+          tag.abcData.setLittleEndian();
+          data.readBytes(tag.abcData, length);
+          abcCount++;
           break;
         default:
           data.incPosition(length);
       }
     }
+
+    if (abcCount > 1) {
+      parseAbcInParallel(tags);
+    }
+
+    for (Tag tag : tags) {
+      processor.dumpStat(tag.stat);
+      if (tag.abcName != null) processor.dumpStat("\nabc name " + tag.abcName + "\n");
+      if (tag.abcData != null) {
+        if (tag.abc != null) {
+          tag.abc.flushDeferredMessages();
+        }
+        else {
+          // not parsed yet, or parsing failed: parse here so that messages and the exception come in the usual order
+          tag.abc = new Abc(tag.abcData, processor);
+        }
+        tag.abc.dump(processor.getAbcInSwfIndent());
+        processor.append("\n");
+      }
+    }
+  }
+
+  /**
+   * Parses ABC blocks on a bounded pool while the calling (usually indexing) thread waits and checks for cancellation.
+   * Blocks that have not been parsed are parsed later in order by the caller.
+   */
+  private void parseAbcInParallel(final List<Tag> tags) {
+    // the importer is used without the application in tests
+    final ProgressIndicator indicator =
+      ApplicationManager.getApplication() != null ? ProgressManager.getInstance().getProgressIndicator() : null;
+
+    final List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (final Tag tag : tags) {
+        if (tag.abcData != null) {
+          futures.add(ourAbcParser.submit(() -> {
+            if (indicator == null || !indicator.isCanceled()) {
+              tag.parseAbc(processor);
+            }
+          }));
+        }
+      }
+
+      for (Future<?> future : futures) {
+        waitFor(future, indicator);
+      }
+    }
+    finally {
+      for (Future<?> future : futures) {
+        future.cancel(false);
+      }
+    }
+  }
+
+  private static void waitFor(final Future<?> future, @Nullable final ProgressIndicator indicator) {
+    while (true) {
+      if (indicator != null) indicator.checkCanceled();
+      try {
+        future.get(10, TimeUnit.MILLISECONDS);
+        return;
+      }
+      catch (TimeoutException ignored) {
+      }
+      catch (InterruptedException e) {
+        throw new ProcessCanceledException(e);
+      }
+      catch (ExecutionException e) {
+        // Tag.parseAbc() lets only control flow exceptions through
+        if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+        if (e.getCause() instanceof Error) throw (Error)e.getCause();
+        throw new RuntimeException(e.getCause());
+      }
+    }
+  }
+
+  private static class Tag {
+    final String stat;
+    String abcName;
+    ByteBuffer abcData;
+    Abc abc;
+
+    Tag(String stat) {
+      this.stat = stat;
+    }
+
+    void parseAbc(FlexByteCodeInformationProcessor processor) {
+      try {
+        abc = new Abc(abcData, processor, true);
+      }
+      catch (Throwable e) {
+        if (e instanceof ControlFlowException) throw e;
+        // the block is parsed again in order, so that the exception surfaces where it used to
+        LOG.info("Failed to parse ABC block in parallel", e);
+      }
+    }
   }
 
   private String readString() {
-    String s = "";
+    StringBuilder s = new StringBuilder();
     int c;
 
-    while ((c = data.readUnsignedByte()) != 0) s += (char)c;
+    while ((c = data.readUnsignedByte()) != 0) s.append((char)c);
 
-    return s;
+    return s.toString();
   }
 
   private void syncBits() {
@@ -3,7 +3,10 @@ package com.intellij.flex.compiler;
 import flex2.compiler.ILocalizableMessage;
 import flex2.compiler.common.Configuration;
 
-public class CompilationThread extends Thread {
+/**
+ * Runs one mxmlc or compc command on a worker thread of {@link FlexCompiler}.
+ */
+public class CompilationTask implements Runnable {
 
   private static int omitTraceCompilationsCount = 0;
   private static int traceCompilationsCount = 0;
@@ -14,10 +17,10 @@ public class CompilationThread extends Thread {
   private final String[] myParams;
   private final OutputLogger myLogger;
 
-  public CompilationThread(final boolean isSwf,
-                           final SdkSpecificHandler sdkSpecificHandler,
-                           final String[] params,
-                           final OutputLogger logger) {
+  public CompilationTask(final boolean isSwf,
+                         final SdkSpecificHandler sdkSpecificHandler,
+                         final String[] params,
+                         final OutputLogger logger) {
     mySwf = isSwf;
     mySdkSpecificHandler = sdkSpecificHandler;
     myParams = params;
@@ -83,7 +86,6 @@ public class CompilationThread extends Thread {
     finally {
       myLogger.log(FlexCompiler.COMPILATION_FINISHED);
       mySdkSpecificHandler.cleanThreadLocals();
-      System.gc();
     }
   }
 
@@ -8,10 +8,27 @@ import flex2.tools.VersionInfo;
 import java.io.*;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Compiler daemon for one Flex SDK. Commands have format <code>&lt;id&gt;:mxmlc ...</code> or <code>&lt;id&gt;:compc ...</code>,
+ * all output of a compilation is prefixed with its id, so several compilations share one connection.
+ * <code>Cancel:&lt;id&gt;</code> cancels one compilation, <code>Cancel</code> - all of them.
+ * Compilations run on a bounded pool of worker threads; the handler and everything loaded by the compiler
+ * (classes, SDK configuration, static tables) stay alive between compilations.
+ * <p/>
+ * The first message after connecting is <code>Protocol version:&lt;n&gt;</code>. Daemons that don't send it
+ * don't know <code>Cancel:&lt;id&gt;</code> and run each compilation on its own thread.
+ */
 public class FlexCompiler implements MessageSender {
 
   private static final String CONNECTION_SUCCESSFUL = "Connection successful";
+  private static final String PROTOCOL_VERSION = "Protocol version:";
+  // 2: compilations are cancelled one by one and run on a pool of MAX_PARALLEL_COMPILATIONS_PROPERTY threads
+  private static final int CURRENT_PROTOCOL_VERSION = 2;
+  private static final String MAX_PARALLEL_COMPILATIONS_PROPERTY = "flex.compiler.max.parallel.compilations";
 
   private static final String FINISH_COMMAND = "Finish";
   public static final String CANCEL_COMMAND = "Cancel";
@@ -24,6 +41,23 @@ public class FlexCompiler implements MessageSender {
   private DataInputStream myDataInputStream;
   private DataOutputStream myDataOutputStream;
 
+  private final SdkSpecificHandler mySdkSpecificHandler = getSdkSpecificHandler();
+  private final ExecutorService myExecutor;
+  private final Map<String, Compilation> myCompilations = new ConcurrentHashMap<String, Compilation>();
+
+  public FlexCompiler(final int maxParallelCompilations) {
+    myExecutor = Executors.newFixedThreadPool(maxParallelCompilations, new ThreadFactory() {
+      private final AtomicInteger myCounter = new AtomicInteger();
+
+      public Thread newThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, "Flex compilation " + myCounter.incrementAndGet());
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
   private void openSocket(int port) throws IOException {
     final int maxAttempts = 10;
     Socket socket;
@@ -60,9 +94,14 @@ public class FlexCompiler implements MessageSender {
       return;
     }
 
+    // a system property rather than a parameter, because older daemons fail on unknown parameters
+    final int maxParallelCompilations =
+      Integer.getInteger(MAX_PARALLEL_COMPILATIONS_PROPERTY, Runtime.getRuntime().availableProcessors()).intValue();
+
     try {
-      final FlexCompiler flexCompiler = new FlexCompiler();
+      final FlexCompiler flexCompiler = new FlexCompiler(Math.max(1, maxParallelCompilations));
       flexCompiler.openSocket(port);
+      flexCompiler.sendMessage(PROTOCOL_VERSION + CURRENT_PROTOCOL_VERSION);
       flexCompiler.processInput();
     } catch (IOException e) {
       e.printStackTrace();
@@ -100,18 +139,20 @@ public class FlexCompiler implements MessageSender {
 
       if (CANCEL_COMMAND.equals(command)) {
         cancelAllCompilations();
+      } else if (command.startsWith(CANCEL_COMMAND + ":")) {
+        cancelCompilation(command.substring(CANCEL_COMMAND.length() + 1));
       } else if (FINISH_COMMAND.equals(command)) {
         exit();
         return true;
       } else {
-        startCompilationThread(command);
+        startCompilation(command);
       }
     }
 
     return false;
   }
 
-  private void startCompilationThread(final String command) {
+  private void startCompilation(final String command) {
     final int colonPos = command.indexOf(":");
     if (colonPos <= 0) {
       sendMessage("Error: Incorrect command: [" + command + "]");
@@ -139,8 +180,7 @@ public class FlexCompiler implements MessageSender {
 
     final String logMessagePrefix = commandNumberStr + ":";
     final OutputLogger logger = new OutputLogger(this, logMessagePrefix);
-    final SdkSpecificHandler sdkSpecificHandler = getSdkSpecificHandler();
-    if (sdkSpecificHandler == null) {
+    if (mySdkSpecificHandler == null) {
       logger.log(
         "Error: Flex SDK " + SDK_MAJOR_VERSION + '.' + SDK_MINOR_VERSION + '.' + SDK_REVISION_VERSION
           + " is not supported by built-in compiler shell. Please change compiler at " +
@@ -149,14 +189,36 @@ public class FlexCompiler implements MessageSender {
       return;
     }
 
-    final CompilationThread compilationThread =
-      new CompilationThread(isSwf, sdkSpecificHandler, getParams(compilationCommand), logger);
-    compilationThread.setPriority(Thread.MAX_PRIORITY);
-    compilationThread.setDaemon(true);
-    compilationThread.start();
+    final CompilationTask task = new CompilationTask(isSwf, mySdkSpecificHandler, getParams(compilationCommand), logger);
+    final Compilation compilation = new Compilation(logger);
+    myCompilations.put(commandNumberStr, compilation);
+    try {
+      compilation.myFuture = myExecutor.submit(new Runnable() {
+        public void run() {
+          try {
+            task.run();
+          }
+          finally {
+            compilationFinished(commandNumberStr, compilation);
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      // exiting
+      myCompilations.remove(commandNumberStr);
+    }
   }
 
-  private SdkSpecificHandler getSdkSpecificHandler() {
+  private void compilationFinished(final String commandNumberStr, final Compilation compilation) {
+    myCompilations.remove(commandNumberStr, compilation);
+    if (myCompilations.isEmpty()) {
+      // collect garbage of finished compilations when it doesn't pause other ones
+      System.gc();
+    }
+  }
+
+  private static SdkSpecificHandler getSdkSpecificHandler() {
     if ("3".equals(SDK_MAJOR_VERSION)) {
       return new Flex3Handler();
     }
@@ -182,6 +244,7 @@ public class FlexCompiler implements MessageSender {
 
   private void exit() {
     cancelAllCompilations();
+    myExecutor.shutdownNow();
     try {
       myDataInputStream.close();
     } catch (IOException ignored) {
@@ -189,6 +252,30 @@ public class FlexCompiler implements MessageSender {
   }
 
   private void cancelAllCompilations() {
-    // todo implement
+    for (final String commandNumberStr : myCompilations.keySet()) {
+      cancelCompilation(commandNumberStr);
+    }
+  }
+
+  private void cancelCompilation(final String commandNumberStr) {
+    final Compilation compilation = myCompilations.remove(commandNumberStr);
+    if (compilation == null) return;
+
+    final Future<?> future = compilation.myFuture;
+    if (future != null && future.cancel(false)) {
+      // didn't start yet
+      compilation.myLogger.log(COMPILATION_FINISHED);
+    }
+    // Flex compiler can't be interrupted, let it finish silently
+    compilation.myLogger.setCancelled();
+  }
+
+  private static class Compilation {
+    private final OutputLogger myLogger;
+    private volatile Future<?> myFuture;
+
+    private Compilation(final OutputLogger logger) {
+      myLogger = logger;
+    }
   }
 }
@@ -33,6 +33,7 @@ public class OutputLogger extends LoggerAdapter implements Logger {
   private final MessageSender myMessageSender;
   private final String myLogMessagePrefix;
   private boolean myErrorsReported = false;
+  private volatile boolean myCancelled = false;
 
   public OutputLogger(final MessageSender messageSender, final String logMessagePrefix) {
     myMessageSender = messageSender;
@@ -40,6 +41,11 @@ public class OutputLogger extends LoggerAdapter implements Logger {
   }
 
   public void log(final String message) {
+    if (myCancelled) {
+      // nobody listens to this compilation any more
+      return;
+    }
+
     /*
     if (message.startsWith(IGNORED_MESSAGE_START) && message.endsWith(IGNORED_MESSAGE_END)) {
       // do not tell anything about our fake config file. See SdkFilesResolver class
@@ -95,6 +101,10 @@ public class OutputLogger extends LoggerAdapter implements Logger {
     return s == null || s.trim().length() == 0;
   }
 
+  public void setCancelled() {
+    myCancelled = true;
+  }
+
   public boolean wereErrorsReported() {
     return myErrorsReported;
   }
@@ -3,8 +3,8 @@ package com.intellij.flex.compiler;
 import flex2.tools.oem.PathResolver;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SdkFilesResolver implements PathResolver {
 
@@ -16,64 +16,25 @@ public class SdkFilesResolver implements PathResolver {
     FLEXLIB_PATH = appHome == null ? "." : appHome + File.separator + "frameworks";
   }
 
-  // slashes are messed up, but that's how it works.
-  // see DefaultsConfigurator.java: "${flexlib}/${configname}-config.xml"
-  private static final String FLEX_CONFIG_PATH = FLEXLIB_PATH + "/flex-config.xml";
-  private static final String AIR_CONFIG_PATH = FLEXLIB_PATH + "/air-config.xml";
-
-  private static File fakeConfigFile;
+  private static final File NOT_FOUND = new File("");
 
   public static SdkFilesResolver INSTANCE = new SdkFilesResolver();
 
+  // SDK doesn't change while compiler process is alive; shared by all compilations without locking
+  private final Map<String, File> myResolvedFiles = new ConcurrentHashMap<String, File>();
+
   private SdkFilesResolver() {
   }
 
   public File resolve(final String path) {
-    /*
-    if (FLEX_CONFIG_PATH.equals(path) || AIR_CONFIG_PATH.equals(path)) {
-      // We need not to show real flex-config.xml file, otherwise stupid compiler reads options from there and overrides actual options
-
-      //final File configFile = new File(path);
-      //if (configFile.exists()) {
-      //  return configFile;
-      //}
-
-      synchronized (SdkFilesResolver.class) {
-        if (fakeConfigFile == null) {
-          fakeConfigFile = createFakeConfigFile();
-        }
-        return fakeConfigFile;
-      }
+    final File cached = myResolvedFiles.get(path);
+    if (cached != null) {
+      return cached == NOT_FOUND ? null : cached;
     }
-    */
 
     final File file = new File(FLEXLIB_PATH, path);
-    if (file.exists()) {
-      return file;
-    }
-
-    return null;
-  }
-
-  private static File createFakeConfigFile() {
-    try {
-      final File file = File.createTempFile("fake-config", ".xml");
-      file.deleteOnExit();
-      final FileOutputStream fileOutputStream = new FileOutputStream(file);
-      fileOutputStream.write("<flex-config/>".getBytes());
-      fileOutputStream.flush();
-      fileOutputStream.close();
-      return file;
-    }
-    catch (IOException e) {
-      e.printStackTrace();
-    }
-    return null;
-  }
-
-  public static void removeTempFile() {
-    if (fakeConfigFile != null) {
-      fakeConfigFile.delete();
-    }
+    final boolean exists = file.exists();
+    myResolvedFiles.put(path, exists ? file : NOT_FOUND);
+    return exists ? file : null;
   }
 }
@@ -3,6 +3,7 @@ package com.intellij.flex.uiDesigner;
 import com.intellij.flex.uiDesigner.abc.ClassPoolGenerator;
 import com.intellij.flex.uiDesigner.io.AmfOutputStream;
 import com.intellij.flex.uiDesigner.io.BlockDataOutputStream;
+import com.intellij.flex.uiDesigner.io.ByteArrayOutputStreamEx;
 import com.intellij.flex.uiDesigner.io.PrimitiveAmfOutputStream;
 import com.intellij.flex.uiDesigner.io.StringRegistry;
 import com.intellij.flex.uiDesigner.libraries.*;
@@ -23,7 +24,6 @@ import com.intellij.openapi.util.AsyncResult;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.xml.XmlFile;
-import com.intellij.util.Consumer;
 import gnu.trove.THashMap;
 import gnu.trove.TObjectObjectProcedure;
 import org.jetbrains.annotations.NotNull;
@@ -47,6 +47,13 @@ public class Client implements Disposable {
   private final InfoMap<Project, ProjectInfo> registeredProjects = new InfoMap<>();
 
   private final ReentrantLock outLock = new ReentrantLock();
+  // properties refer to strings that must be written before them, so they are collected in a buffer of their own, guarded by outLock
+  private final PrimitiveAmfOutputStream propertyOut = new PrimitiveAmfOutputStream(new ByteArrayOutputStreamEx(256));
+
+  private final MessageStatistics statistics = new MessageStatistics();
+  // guarded by outLock
+  private ClientMethod messageMethod;
+  private int messageIndex;
 
   public static Client getInstance() {
     return DesignerApplicationManager.getService(Client.class);
@@ -78,9 +85,16 @@ public class Client implements Disposable {
     return registeredProjects.getElement(id);
   }
 
+  public MessageStatistics getStatistics() {
+    return statistics;
+  }
+
   @Override
   public void dispose() {
     registeredModules.dispose();
+    if (!statistics.isEmpty()) {
+      LogMessageUtil.LOG.info("Designer messages:\n" + statistics);
+    }
   }
 
   public boolean flush() {
@@ -108,6 +122,7 @@ public class Client implements Disposable {
                             @Nullable ActionCallback rejectedCallback,
                             @Nullable Runnable doneRunnable) {
     outLock.lock();
+    messageStarted(method);
     if (callback != null) {
       if (rejectedCallback != null) {
         callback.notifyWhenRejected(rejectedCallback);
@@ -115,6 +130,9 @@ public class Client implements Disposable {
       if (doneRunnable != null) {
         callback.doWhenDone(doneRunnable);
       }
+
+      final long start = System.nanoTime();
+      callback.doWhenProcessed(() -> statistics.callbackProcessed(method.name(), System.nanoTime() - start));
     }
 
     blockOut.assertStart();
@@ -123,6 +141,29 @@ public class Client implements Disposable {
     out.write(method);
   }
 
+  private void messageStarted(ClientMethod method) {
+    // message may be started while previous one is not unlocked yet, see registerDocumentReferences
+    recordMessage();
+    messageMethod = method;
+    messageIndex = blockOut.getMessageCount();
+  }
+
+  private void recordMessage() {
+    if (messageMethod != null && blockOut.getMessageCount() != messageIndex) {
+      statistics.messageWritten(messageMethod.name(), blockOut.getLastMessageSize());
+    }
+    messageMethod = null;
+  }
+
+  private void unlockOut() {
+    try {
+      recordMessage();
+    }
+    finally {
+      outLock.unlock();
+    }
+  }
+
   public void openProject(Project project) {
     boolean hasError = true;
     try {
@@ -393,7 +434,7 @@ public class Client implements Disposable {
       out.resetAfterMessage();
     }
     finally {
-      outLock.unlock();
+      unlockOut();
     }
   }
 
@@ -407,7 +448,7 @@ public class Client implements Disposable {
         blockOut.rollback();
       }
       finally {
-        outLock.unlock();
+        unlockOut();
         if (callback != null) {
           callback.setRejected();
         }
@@ -424,7 +465,7 @@ public class Client implements Disposable {
         LogMessageUtil.processInternalError(e);
       }
       finally {
-        outLock.unlock();
+        unlockOut();
       }
     }
   }
@@ -469,7 +510,7 @@ public class Client implements Disposable {
       LogMessageUtil.processInternalError(e, psiFile.getVirtualFile());
     }
     finally {
-      outLock.unlock();
+      unlockOut();
     }
 
     blockOut.rollback();
@@ -547,7 +588,7 @@ public class Client implements Disposable {
           }
         }
         finally {
-          outLock.unlock();
+          unlockOut();
         }
       }
     }
@@ -632,21 +673,40 @@ public class Client implements Disposable {
     }
   }
 
-  public ActionCallback updatePropertyOrStyle(int documentId, int componentId, Consumer<AmfOutputStream> streamConsumer) {
-    final ActionCallback callback = new ActionCallback("updatePropertyOrStyle");
-    boolean hasError = true;
+  /**
+   * @return null if properties can't be written, nothing is sent in this case
+   */
+  @Nullable
+  public ActionCallback updateProperties(int documentId, PropertiesWriter propertiesWriter) {
+    final StringRegistry.StringWriter stringWriter = new StringRegistry.StringWriter(256);
+    outLock.lock();
     try {
-      beginMessage(ClientMethod.updatePropertyOrStyle, callback);
-      out.writeUInt29(documentId);
-      out.writeUInt29(componentId);
-      streamConsumer.consume(out);
-      hasError = false;
+      // properties are written before the message is started, so nothing is sent and no callback is registered if they can't be written
+      propertyOut.reset();
+      final int count = propertiesWriter.write(propertyOut, stringWriter);
+      if (count == -1) {
+        return null;
+      }
+
+      final ActionCallback callback = new ActionCallback("updateProperties");
+      boolean hasError = true;
+      try {
+        beginMessage(ClientMethod.updateProperties, callback);
+        out.writeUInt29(documentId);
+        stringWriter.writeTo(out);
+        out.writeUInt29(count);
+        propertyOut.writeTo(out);
+        hasError = false;
+      }
+      finally {
+        finalizeMessageAndFlush(hasError, callback);
+      }
+
+      return callback;
     }
     finally {
-      finalizeMessageAndFlush(hasError, callback);
+      outLock.unlock();
     }
-
-    return callback;
   }
 
   //public AsyncResult<BufferedImage> getDocumentImage(DocumentFactoryManager.DocumentInfo documentInfo) {
@@ -712,10 +772,17 @@ public class Client implements Disposable {
     out.writeShort(id);
   }
 
+  public interface PropertiesWriter {
+    /**
+     * @return number of written properties, -1 if they can't be written
+     */
+    int write(PrimitiveAmfOutputStream out, StringRegistry.StringWriter stringWriter);
+  }
+
   private enum ClientMethod {
     openProject, closeProject, registerLibrarySet, registerModule, unregisterModule, registerDocumentFactory, updateDocumentFactory, renderDocument, renderDocumentsAndDependents,
     initStringRegistry, updateStringRegistry, fillImageClassPool, fillSwfClassPool, fillViewClassPool,
-    selectComponent, getDocumentImage, updatePropertyOrStyle, updateLocalStyleHolders;
+    selectComponent, getDocumentImage, updateProperties, updateLocalStyleHolders;
     
     public static final int METHOD_CLASS = 0;
   }
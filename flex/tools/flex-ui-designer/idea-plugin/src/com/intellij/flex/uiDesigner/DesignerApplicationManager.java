@@ -48,6 +48,7 @@ import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiTreeChangeAdapter;
 import com.intellij.psi.PsiTreeChangeEvent;
 import com.intellij.psi.css.StylesheetFile;
+import com.intellij.psi.xml.XmlAttribute;
 import com.intellij.psi.xml.XmlComment;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.psi.xml.XmlTag;
@@ -353,7 +354,7 @@ public class DesignerApplicationManager {
       final AtomicBoolean result = new AtomicBoolean();
       if (!initialRenderQueue.isEmpty()) {
         initialRenderQueue.processActions(renderAction -> {
-          if (renderAction.file == null) {
+          if (renderAction instanceof ComplexRenderAction) {
             ComplexRenderAction action = (ComplexRenderAction)renderAction;
             if (onlyStyle == action.onlyStyle) {
               action.merge(documents);
@@ -371,6 +372,12 @@ public class DesignerApplicationManager {
     }
   }
 
+  void updateProperty(DocumentInfo info, int componentId, XmlAttribute attribute) {
+    synchronized (initialRenderQueue) {
+      initialRenderQueue.addOrMerge(new PropertyUpdateAction(attribute.getProject(), info, componentId, attribute));
+    }
+  }
+
   public static String getOpenActionTitle(boolean debug) {
     return FlashUIDesignerBundle
       .message(debug ? "action.FlashUIDesigner.DebugDesignView.text" : "action.FlashUIDesigner.RunDesignView.text");
@@ -1,6 +1,5 @@
 package com.intellij.flex.uiDesigner;
 
-import com.intellij.flex.uiDesigner.io.ByteArrayOutputStreamEx;
 import com.intellij.flex.uiDesigner.io.PrimitiveAmfOutputStream;
 import com.intellij.flex.uiDesigner.io.StringRegistry;
 import com.intellij.flex.uiDesigner.mxml.MxmlUtil;
@@ -29,6 +28,8 @@ import com.intellij.xml.XmlAttributeDescriptor;
 import com.intellij.xml.XmlElementDescriptor;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Map;
+
 import static com.intellij.flex.uiDesigner.DocumentFactoryManager.DocumentInfo;
 
 final class IncrementalDocumentSynchronizer extends Update {
@@ -204,61 +205,81 @@ final class IncrementalDocumentSynchronizer extends Update {
       return true;
     }
 
-    final StringRegistry.StringWriter stringWriter = new StringRegistry.StringWriter();
-    //noinspection IOResourceOpenedButNotSafelyClosed
-    final PrimitiveAmfOutputStream dataOut = new PrimitiveAmfOutputStream(new ByteArrayOutputStreamEx(16));
-    PrimitiveWriter writer = new PrimitiveWriter(dataOut, stringWriter);
+    DesignerApplicationManager.getInstance().updateProperty(info, componentId, (XmlAttribute)valueProvider.getElement());
+    return true;
+  }
+
+  /**
+   * Values are read now, not when the attribute was changed, so a property edited several times is written once.
+   * Properties with invalid values are skipped.
+   *
+   * @param changes attribute to component id
+   * @return number of written properties, or -1 if some value can't be written as a primitive, i.e. the document must be rendered
+   */
+  static int writeProperties(Map<XmlAttribute, Integer> changes, PrimitiveAmfOutputStream out, StringRegistry.StringWriter stringWriter) {
+    PrimitiveWriter writer = new PrimitiveWriter(out, stringWriter);
     boolean needRollbackStringWriter = true;
+    int count = 0;
     try {
-      if (descriptor.isAllowsPercentage()) {
-        String value = valueProvider.getTrimmed();
-        final boolean hasPercent;
-        if (value.isEmpty() || ((hasPercent = value.endsWith("%")) && value.length() == 1)) {
-          return true;
+      for (Map.Entry<XmlAttribute, Integer> entry : changes.entrySet()) {
+        XmlAttribute attribute = entry.getKey();
+        if (!attribute.isValid() || !(attribute.getDescriptor() instanceof AnnotationBackedDescriptor)) {
+          return -1;
         }
 
-        final String name;
-        if (hasPercent) {
-          name = descriptor.getPercentProxy();
-          value = value.substring(0, value.length() - 1);
+        AnnotationBackedDescriptor descriptor = (AnnotationBackedDescriptor)attribute.getDescriptor();
+        XmlAttributeValueProvider valueProvider = new XmlAttributeValueProvider(attribute);
+        final int start = out.size();
+        try {
+          if (descriptor.isAllowsPercentage()) {
+            String value = valueProvider.getTrimmed();
+            final boolean hasPercent;
+            if (value.isEmpty() || ((hasPercent = value.endsWith("%")) && value.length() == 1)) {
+              continue;
+            }
+
+            final String name;
+            if (hasPercent) {
+              name = descriptor.getPercentProxy();
+              value = value.substring(0, value.length() - 1);
+            }
+            else {
+              name = descriptor.getName();
+            }
+
+            writePropertyHeader(entry.getValue(), descriptor.isStyle(), name, out, stringWriter);
+            out.writeAmfDouble(value);
+          }
+          else {
+            writePropertyHeader(entry.getValue(), descriptor.isStyle(), descriptor.getName(), out, stringWriter);
+            if (!writer.writeIfApplicable(valueProvider, out, descriptor)) {
+              return -1;
+            }
+          }
+          count++;
         }
-        else {
-          name = descriptor.getName();
+        catch (InvalidPropertyException ignored) {
+          out.getByteOut().setPosition(start);
         }
-
-        stringWriter.write(name, dataOut);
-        dataOut.writeAmfDouble(value);
-      }
-      else {
-        stringWriter.write(descriptor.getName(), dataOut);
-        if (!writer.writeIfApplicable(valueProvider, dataOut, descriptor)) {
-          needRollbackStringWriter = false;
-          stringWriter.rollback();
-          return false;
+        catch (NumberFormatException ignored) {
+          out.getByteOut().setPosition(start);
         }
       }
 
       needRollbackStringWriter = false;
-    }
-    catch (InvalidPropertyException ignored) {
-      return true;
-    }
-    catch (NumberFormatException ignored) {
-      return true;
+      return count;
     }
     finally {
       if (needRollbackStringWriter) {
         stringWriter.rollback();
       }
     }
-
-    Client.getInstance().updatePropertyOrStyle(info.getId(), componentId, stream -> {
-      stringWriter.writeTo(stream);
-      stream.write(descriptor.isStyle());
-      dataOut.writeTo(stream);
-    }).doWhenDone(() -> DesignerApplicationManager.createDocumentRenderedNotificationDoneHandler(true).consume(info));
-
-    return true;
   }
 
+  private static void writePropertyHeader(int componentId, boolean isStyle, String name, PrimitiveAmfOutputStream out,
+                                          StringRegistry.StringWriter stringWriter) {
+    out.writeUInt29(componentId);
+    out.write(isStyle);
+    stringWriter.write(name, out);
+  }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.intellij.flex.uiDesigner;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.intellij.flex.uiDesigner.LogMessageUtil.LOG;
+
+/**
+ * Sizes of messages sent to the designer and latencies of their callbacks, by client method.
+ * Latency is measured from the start of writing till the callback is processed, so it includes the work done by the designer.
+ */
+public final class MessageStatistics {
+  private final Map<String, Entry> entries = new TreeMap<>();
+
+  synchronized void messageWritten(String method, int size) {
+    Entry entry = getEntry(method);
+    entry.count++;
+    entry.totalSize += size;
+    entry.maxSize = Math.max(entry.maxSize, size);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(method + ": " + size + " bytes");
+    }
+  }
+
+  synchronized void callbackProcessed(String method, long latencyNanos) {
+    Entry entry = getEntry(method);
+    entry.callbackCount++;
+    entry.totalLatency += latencyNanos;
+    entry.maxLatency = Math.max(entry.maxLatency, latencyNanos);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(method + ": callback in " + TimeUnit.NANOSECONDS.toMillis(latencyNanos) + " ms");
+    }
+  }
+
+  public synchronized boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  private Entry getEntry(String method) {
+    Entry entry = entries.get(method);
+    if (entry == null) {
+      entry = new Entry();
+      entries.put(method, entry);
+    }
+    return entry;
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+      Entry entry = mapEntry.getValue();
+      builder.append(mapEntry.getKey()).append(": ").append(entry.count).append(" messages");
+      if (entry.count > 0) {
+        builder.append(", ").append(entry.totalSize / entry.count).append(" bytes avg, ").append(entry.maxSize).append(" max");
+      }
+      if (entry.callbackCount > 0) {
+        builder.append(", callback ").append(TimeUnit.NANOSECONDS.toMillis(entry.totalLatency / entry.callbackCount))
+          .append(" ms avg, ").append(TimeUnit.NANOSECONDS.toMillis(entry.maxLatency)).append(" max");
+      }
+      builder.append('\n');
+    }
+    return builder.toString();
+  }
+
+  private static final class Entry {
+    private int count;
+    private long totalSize;
+    private int maxSize;
+
+    private int callbackCount;
+    private long totalLatency;
+    private long maxLatency;
+  }
+}
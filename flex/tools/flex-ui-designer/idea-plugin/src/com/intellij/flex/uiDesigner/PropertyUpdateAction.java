@@ -0,0 +1,69 @@
+package com.intellij.flex.uiDesigner;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ActionCallback;
+import com.intellij.openapi.util.AsyncResult;
+import com.intellij.psi.xml.XmlAttribute;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.intellij.flex.uiDesigner.DocumentFactoryManager.DocumentInfo;
+
+/**
+ * Sends changed attribute values of a document in one message. Edits of the document made while the action waits in
+ * {@link RenderActionQueue} are merged into it, so rapid edits don't produce a message each.
+ */
+class PropertyUpdateAction extends RenderActionQueue.RenderAction<AsyncResult<DocumentInfo>> {
+  private final DocumentInfo info;
+  // attribute -> component id
+  private final Map<XmlAttribute, Integer> changes = new LinkedHashMap<>();
+  private boolean started;
+
+  PropertyUpdateAction(@NotNull Project project, @NotNull DocumentInfo info, int componentId, @NotNull XmlAttribute attribute) {
+    super(project, null, new AsyncResult<>());
+    this.info = info;
+    changes.put(attribute, componentId);
+  }
+
+  @Override
+  protected boolean isNeedEdt() {
+    return false;
+  }
+
+  @Override
+  protected synchronized boolean merge(RenderActionQueue.RenderAction action) {
+    if (started || !(action instanceof PropertyUpdateAction) || ((PropertyUpdateAction)action).info != info) {
+      return false;
+    }
+
+    changes.putAll(((PropertyUpdateAction)action).changes);
+    return true;
+  }
+
+  @Override
+  protected void doRun() {
+    synchronized (this) {
+      started = true;
+    }
+
+    ActionCallback callback = ReadAction.compute(() -> Client.getInstance().updateProperties(
+      info.getId(), (out, stringWriter) -> IncrementalDocumentSynchronizer.writeProperties(changes, out, stringWriter)));
+    if (callback == null) {
+      Document document = FileDocumentManager.getInstance().getCachedDocument(info.getElement());
+      if (document != null) {
+        DesignerApplicationManager.getInstance().renderDocumentsAndCheckLocalStyleModification(new Document[]{document}, false, false);
+      }
+      result.setRejected();
+      return;
+    }
+
+    callback.notifyWhenRejected(result);
+    callback.doWhenDone(() -> result.setDone(info));
+    result.doWhenDone(DesignerApplicationManager.createDocumentRenderedNotificationDoneHandler(true));
+  }
+}
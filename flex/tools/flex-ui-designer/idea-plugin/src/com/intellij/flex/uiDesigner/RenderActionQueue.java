@@ -41,6 +41,31 @@ class RenderActionQueue implements Runnable {
     }
   }
 
+  /**
+   * Adds the action unless the last queued action {@link RenderAction#merge merges} it. Only the last action may merge,
+   * so that the work of the given action isn't done ahead of actions queued before it. The first action doesn't merge once it is running.
+   */
+  public void addOrMerge(final RenderAction renderAction) {
+    final RenderAction lastAction = getLastWaitingAction();
+    if (lastAction == null || !lastAction.merge(renderAction)) {
+      add(renderAction);
+    }
+  }
+
+  @Nullable
+  private RenderAction getLastWaitingAction() {
+    final Ref<RenderAction> lastAction = new Ref<>();
+    processActions(action -> {
+      lastAction.set(action);
+      return true;
+    });
+    // the first action is running unless it waits for resume
+    if (queue.size() == 1 && !wasPending) {
+      return null;
+    }
+    return lastAction.get();
+  }
+
   private void execute(RenderAction renderAction) {
     if (suspended) {
       assert !wasPending;
@@ -124,6 +149,14 @@ class RenderActionQueue implements Runnable {
 
     abstract protected boolean isNeedEdt();
 
+    /**
+     * @param action action that is going to be queued after this one
+     * @return true if this action will do the work of the given one as well
+     */
+    protected boolean merge(RenderAction action) {
+      return false;
+    }
+
     @Override
     public final void run() {
       ComponentManager disposable = project == null ? ApplicationManager.getApplication() : project;
@@ -28,6 +28,24 @@ abstract class SwfTranscoder extends AbcEncoder {
 
   // in will be closed
   protected void readSource(InputStream in, long inputLength) throws IOException {
+    readSource(readBody(in, inputLength, partialHeader));
+  }
+
+  /**
+   * @param data uncompressed body, as returned by {@link #readBody}
+   */
+  protected void readSource(byte[] data) throws IOException {
+    buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+
+    readFrameSizeFrameRateAndFrameCount(data[0]);
+  }
+
+  /**
+   * Reads and, if compressed, inflates the swf body, i.e. everything after the partial header. Doesn't depend on the transcoder state,
+   * so may be called on any thread.
+   * @param in will be closed
+   */
+  protected static byte[] readBody(InputStream in, long inputLength, byte[] partialHeader) throws IOException {
     final int uncompressedBodyLength;
     final boolean compressed;
     byte[] data;
@@ -61,9 +79,7 @@ abstract class SwfTranscoder extends AbcEncoder {
       }
     }
 
-    buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
-
-    readFrameSizeFrameRateAndFrameCount(data[0]);
+    return data;
   }
 
   protected void readFrameSizeFrameRateAndFrameCount(byte b) throws IOException {
@@ -17,6 +17,7 @@ public class BlockDataOutputStream extends AbstractByteArrayOutputStream impleme
   private final TLinkedList<Marker> markers = new TLinkedList<>();
 
   private int messageCounter;
+  private int lastMessageSize;
 
   public BlockDataOutputStream() {
     this(64 * 1024);
@@ -56,8 +57,20 @@ public class BlockDataOutputStream extends AbstractByteArrayOutputStream impleme
     out = null;
   }
 
+  public int getMessageCount() {
+    return messageCounter;
+  }
+
+  /**
+   * Size of the last finished message, data ranges inserted by markers are not counted
+   */
+  public int getLastMessageSize() {
+    return lastMessageSize;
+  }
+
   private void writeHeader() {
-    IOUtil.writeInt(count - lastBlockBegin - SERVICE_DATA_SIZE, buffer, lastBlockBegin);
+    lastMessageSize = count - lastBlockBegin - SERVICE_DATA_SIZE;
+    IOUtil.writeInt(lastMessageSize, buffer, lastBlockBegin);
     IOUtil.writeInt(messageCounter++, buffer, lastBlockBegin + 4);
   }
 
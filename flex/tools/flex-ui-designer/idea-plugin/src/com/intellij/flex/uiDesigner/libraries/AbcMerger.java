@@ -53,11 +53,26 @@ class AbcMerger extends AbcTranscoder {
     lastWrittenPosition = buffer.position();
   }
 
+  /**
+   * Reads and inflates the library swf. Doesn't touch the merger state, so libraries may be read on other threads
+   * while the merger processes previous ones.
+   */
+  static byte[] readSwf(Library library) throws IOException {
+    VirtualFile file = library.getSwfFile();
+    return readBody(file.getInputStream(), file.getLength(), new byte[PARTIAL_HEADER_LENGTH]);
+  }
+
   public void process(Library library) throws IOException {
-    this.library = library;
+    process(library, readSwf(library));
+  }
 
-    VirtualFile file = library.getSwfFile();
-    process(file.getInputStream(), (int)file.getLength());
+  /**
+   * @param swfBody result of {@link #readSwf(Library)}
+   */
+  public void process(Library library, byte[] swfBody) throws IOException {
+    this.library = library;
+    readSource(swfBody);
+    processSource();
   }
 
   public void process(InputStream in) throws IOException {
@@ -66,6 +81,10 @@ class AbcMerger extends AbcTranscoder {
 
   public void process(InputStream in, int length) throws IOException {
     readSource(in, length);
+    processSource();
+  }
+
+  private void processSource() throws IOException {
     processTags(null);
     library = null;
 
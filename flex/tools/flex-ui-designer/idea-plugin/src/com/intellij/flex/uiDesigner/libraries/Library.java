@@ -8,6 +8,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.io.Info;
 
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 
 public class Library extends Info<VirtualFile> {
@@ -24,6 +27,9 @@ public class Library extends Info<VirtualFile> {
   // en_US => {"layout", "components"}
   public final Map<String, THashSet<String>> resourceBundles = new THashMap<>();
 
+  private String contentHash;
+  private long contentHashTimeStamp = -1;
+
   Library(@NotNull VirtualFile file) {
     super(file);
   }
@@ -62,6 +68,33 @@ public class Library extends Info<VirtualFile> {
     return element;
   }
 
+  /**
+   * SHA-1 of the catalog and swf, computed once per library file time stamp. Copies of the same library (e.g. the same Flex SDK
+   * in several locations) have equal hashes.
+   */
+  synchronized String getContentHash() throws IOException {
+    final long timeStamp = element.getTimeStamp();
+    if (contentHash == null || contentHashTimeStamp != timeStamp) {
+      final MessageDigest digest;
+      try {
+        digest = MessageDigest.getInstance("SHA-1");
+      }
+      catch (NoSuchAlgorithmException e) {
+        throw new RuntimeException(e);
+      }
+
+      digest.update(getCatalogFile().contentsToByteArray());
+      digest.update(getSwfFile().contentsToByteArray());
+      final StringBuilder builder = new StringBuilder(40);
+      for (byte b : digest.digest()) {
+        builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      contentHash = builder.toString();
+      contentHashTimeStamp = timeStamp;
+    }
+    return contentHash;
+  }
+
   @Override
   public String toString() {
     return getFile().getNameWithoutExtension();
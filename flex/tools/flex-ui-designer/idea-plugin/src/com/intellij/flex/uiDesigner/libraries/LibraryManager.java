@@ -22,7 +22,6 @@ import com.intellij.openapi.roots.ModuleRootEvent;
 import com.intellij.openapi.roots.ModuleRootListener;
 import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.util.Pair;
-import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.util.ArrayUtil;
@@ -32,6 +31,7 @@ import gnu.trove.THashMap;
 import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.ide.PooledThreadExecutor;
 import org.jetbrains.io.InfoMap;
 import org.jetbrains.io.RetainCondition;
 
@@ -39,6 +39,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.channels.ClosedByInterruptException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 @SuppressWarnings("MethodMayBeStatic")
 public class LibraryManager implements Disposable {
@@ -210,23 +212,46 @@ public class LibraryManager implements Disposable {
     return globalDefinitions;
   }
 
-  private String createKey(List<Library> libraries, boolean isSdk) {
-    // we don't depend on library order
-    final VirtualFile[] files = new VirtualFile[libraries.size()];
-    for (int i = 0, librariesSize = libraries.size(); i < librariesSize; i++) {
-      files[i] = libraries.get(i).getFile();
+  /**
+   * Key is the sorted set of library content hashes, so the merged library set is shared by modules and projects that use the same
+   * libraries (or copies of them), in memory ({@link #librarySets}) and on disk ({@link LibrariesData#librarySets}).
+   */
+  private static String createKey(List<Library> libraries, boolean isSdk) throws InitException {
+    // hashes are cached by library, so only the first registration of a library reads it
+    final List<Future<String>> futures = new ArrayList<>(libraries.size());
+    for (Library library : libraries) {
+      futures.add(PooledThreadExecutor.INSTANCE.submit(library::getContentHash));
     }
-    
-    Arrays.sort(files, (o1, o2) -> StringUtil.compare(o1.getPath(), o2.getPath(), false));
-    
+
+    final String[] hashes = new String[libraries.size()];
+    try {
+      for (int i = 0; i < hashes.length; i++) {
+        hashes[i] = futures.get(i).get();
+      }
+    }
+    catch (InterruptedException e) {
+      throw new InitException(new ClosedByInterruptException());
+    }
+    catch (ExecutionException e) {
+      throw new InitException(e.getCause(), "error.sort.libraries");
+    }
+    finally {
+      for (Future<String> future : futures) {
+        future.cancel(true);
+      }
+    }
+
+    // we don't depend on library order
+    Arrays.sort(hashes);
+
     final StringBuilder stringBuilder = StringBuilderSpinAllocator.alloc();
     try {
       if (isSdk) {
         stringBuilder.append('_');
       }
 
-      for (VirtualFile file : files) {
-        stringBuilder.append(file.getTimeStamp()).append(file.getPath()).append(':');
+      for (String hash : hashes) {
+        stringBuilder.append(hash).append(':');
       }
 
       return stringBuilder.toString();
@@ -248,10 +273,10 @@ public class LibraryManager implements Disposable {
         data.librarySets.put(key, result);
       }
       else {
-        final String[] libraryPaths = result.libraryPaths;
-        final List<Library> filteredLibraries = new ArrayList<>(libraryPaths.length);
+        final String[] libraryHashes = result.libraryHashes;
+        final List<Library> filteredLibraries = new ArrayList<>(libraryHashes.length);
         for (Library library : libraries) {
-          if (ArrayUtil.indexOf(libraryPaths, library.getFile().getPath()) != -1) {
+          if (ArrayUtil.indexOf(libraryHashes, library.getContentHash()) != -1) {
             filteredLibraries.add(library);
           }
         }
@@ -6,21 +6,26 @@ import com.intellij.flex.uiDesigner.abc.DecoderException;
 import com.intellij.flex.uiDesigner.abc.Encoder;
 import com.intellij.flex.uiDesigner.io.IOUtil;
 import com.intellij.openapi.util.Condition;
+import com.intellij.util.ExceptionUtil;
 import gnu.trove.THashMap;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
+import org.jetbrains.ide.PooledThreadExecutor;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import static com.intellij.flex.uiDesigner.libraries.Definition.ResolvedState;
 
 public class LibrarySorter {
+  // inflated swf bodies are big, so only a few libraries are read ahead of the merger
+  private static final int PREFETCH_COUNT = 3;
+
   @Nullable
   private final DefinitionProcessor definitionProcessor;
   @Nullable
@@ -55,6 +60,7 @@ public class LibrarySorter {
     final THashMap<CharSequence, Definition> definitionMap = new THashMap<>(libraries.size() * 128, AbcTranscoder.HASHING_STRATEGY);
     final List<LibrarySetItem> unsortedItems = collectItems(libraries, definitionMap, isExternal);
     final AbcMerger abcMerger = new AbcMerger(definitionMap, outFile, definitionProcessor);
+    final SwfReader swfReader = new SwfReader(unsortedItems);
     try {
       final ArrayList<Library> resourceOrStyleHolders = new ArrayList<>(unsortedItems.size());
       for (LibrarySetItem item : unsortedItems) {
@@ -69,7 +75,7 @@ public class LibrarySorter {
           resourceOrStyleHolders.add(item.library);
         }
 
-        abcMerger.process(item.library);
+        abcMerger.process(item.library, swfReader.next());
       }
       
       if (definitionMapProcessor != null) {
@@ -92,10 +98,68 @@ public class LibrarySorter {
       return new SortResult(returnDefinitionMap ? definitionMap : null, resourceOrStyleHolders);
     }
     finally {
+      swfReader.cancel();
       abcMerger.close();
     }
   }
 
+  /**
+   * Merging is sequential (symbol ids and overloaded definitions depend on library order), but reading and inflating isn't:
+   * swfs of the next {@link #PREFETCH_COUNT} libraries are read on pooled threads while the current one is merged.
+   */
+  private static class SwfReader {
+    private final Iterator<LibrarySetItem> items;
+    private final Deque<Future<byte[]>> swfBodies = new ArrayDeque<>(PREFETCH_COUNT);
+
+    SwfReader(List<LibrarySetItem> items) {
+      this.items = items.iterator();
+      prefetch();
+    }
+
+    /**
+     * @return swf body of the next library that has definitions
+     */
+    byte[] next() throws IOException {
+      final Future<byte[]> swfBody = swfBodies.pollFirst();
+      prefetch();
+      return getSwfBody(swfBody);
+    }
+
+    private void prefetch() {
+      while (swfBodies.size() < PREFETCH_COUNT && items.hasNext()) {
+        final LibrarySetItem item = items.next();
+        if (item.hasDefinitions()) {
+          final Library library = item.library;
+          swfBodies.addLast(PooledThreadExecutor.INSTANCE.submit(() -> AbcMerger.readSwf(library)));
+        }
+      }
+    }
+
+    void cancel() {
+      for (Future<byte[]> swfBody : swfBodies) {
+        swfBody.cancel(true);
+      }
+      swfBodies.clear();
+    }
+  }
+
+  private static byte[] getSwfBody(Future<byte[]> future) throws IOException {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      throw new ClosedByInterruptException();
+    }
+    catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException)cause;
+      }
+      ExceptionUtil.rethrowUnchecked(cause);
+      throw new IOException(cause);
+    }
+  }
+
   private static Decoder createDecoder(Definition definition) {
     final Decoder decoder = new Decoder(definition.doAbcData, definition.doAbcData.abcModifier);
     definition.doAbcData = null;
@@ -151,21 +215,21 @@ public class LibrarySorter {
     final @Nullable THashMap<CharSequence, Definition> definitionMap;
     final List<Library> libraries;
 
-    // only if restored from cache
-    final String[] libraryPaths;
+    // only if restored from cache, content hashes of libraries
+    final String[] libraryHashes;
 
     int id;
 
     SortResult(@Nullable THashMap<CharSequence, Definition> definitionMap, List<Library> libraries) {
       this.definitionMap = definitionMap;
       this.libraries = libraries;
-      libraryPaths = null;
+      libraryHashes = null;
     }
 
-    SortResult(@Nullable THashMap<CharSequence, Definition> definitionMap, String[] libraryPaths) {
+    SortResult(@Nullable THashMap<CharSequence, Definition> definitionMap, String[] libraryHashes) {
       this.definitionMap = definitionMap;
       libraries = null;
-      this.libraryPaths = libraryPaths;
+      this.libraryHashes = libraryHashes;
     }
   }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.intellij.flex.uiDesigner;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.testFramework.LightPlatformTestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+public class ClientTest extends LightPlatformTestCase {
+  public void testNothingIsSentIfPropertiesCantBeWritten() throws Exception {
+    ByteArrayOutputStream socketOut = new ByteArrayOutputStream();
+    final Client client = new Client();
+    client.setOut(socketOut);
+    try {
+      final Client.PropertiesWriter writer = (out, stringWriter) -> {
+        out.writeUInt29(42);
+        out.writeAmfDouble("100");
+        return -1;
+      };
+
+      assertNull(client.updateProperties(1, writer));
+      assertEquals(0, socketOut.size());
+      assertTrue(client.getStatistics().isEmpty());
+
+      // the client isn't left locked
+      ApplicationManager.getApplication().executeOnPooledThread(() -> assertNull(client.updateProperties(1, writer)))
+        .get(10, TimeUnit.SECONDS);
+    }
+    finally {
+      client.dispose();
+    }
+  }
+}
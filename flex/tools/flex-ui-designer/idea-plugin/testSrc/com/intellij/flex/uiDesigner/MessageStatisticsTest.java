@@ -0,0 +1,33 @@
+package com.intellij.flex.uiDesigner;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.intellij.flex.uiDesigner.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class MessageStatisticsTest {
+  @Test
+  public void empty() {
+    MessageStatistics statistics = new MessageStatistics();
+    assertThat(statistics.isEmpty(), equalTo(true));
+    assertThat(statistics.toString(), equalTo(""));
+  }
+
+  @Test
+  public void sizesAndLatencies() {
+    MessageStatistics statistics = new MessageStatistics();
+    statistics.messageWritten("updateProperties", 10);
+    statistics.messageWritten("updateProperties", 20);
+    statistics.callbackProcessed("updateProperties", TimeUnit.MILLISECONDS.toNanos(2));
+    statistics.callbackProcessed("updateProperties", TimeUnit.MILLISECONDS.toNanos(4));
+    statistics.messageWritten("selectComponent", 8);
+    statistics.callbackProcessed("renderDocument", TimeUnit.MILLISECONDS.toNanos(1));
+
+    assertThat(statistics.isEmpty(), equalTo(false));
+    assertThat(statistics.toString(), equalTo("renderDocument: 0 messages, callback 1 ms avg, 1 max\n" +
+                                              "selectComponent: 1 messages, 8 bytes avg, 8 max\n" +
+                                              "updateProperties: 2 messages, 15 bytes avg, 20 max, callback 3 ms avg, 4 max\n"));
+  }
+}
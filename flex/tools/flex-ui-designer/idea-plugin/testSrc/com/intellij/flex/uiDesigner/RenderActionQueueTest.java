@@ -0,0 +1,123 @@
+package com.intellij.flex.uiDesigner;
+
+import com.intellij.openapi.util.AsyncResult;
+import com.intellij.testFramework.LightPlatformTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RenderActionQueueTest extends LightPlatformTestCase {
+  private final RenderActionQueue queue = new RenderActionQueue();
+  private final List<String> log = new ArrayList<>();
+
+  public void testMergeIntoLastWaitingAction() {
+    TestAction running = new TestAction("a", true);
+    queue.addOrMerge(running);
+    // the running action doesn't merge
+    TestAction waiting = new TestAction("b", true);
+    queue.addOrMerge(waiting);
+    queue.addOrMerge(new TestAction("c", true));
+    queue.addOrMerge(new TestAction("d", true));
+    assertLog("a[]");
+
+    running.finish();
+    assertLog("a[]", "b[c, d]");
+
+    waiting.finish();
+    assertTrue(queue.isEmpty());
+  }
+
+  public void testNoMergeAheadOfOtherAction() {
+    TestAction running = new TestAction("a", true);
+    TestAction update = new TestAction("b", true);
+    TestAction complex = new TestAction("complex", false);
+    TestAction nextUpdate = new TestAction("c", true);
+    queue.addOrMerge(running);
+    queue.addOrMerge(update);
+    queue.add(complex);
+    queue.addOrMerge(nextUpdate);
+    queue.addOrMerge(new TestAction("d", true));
+
+    running.finish();
+    update.finish();
+    complex.finish();
+    assertLog("a[]", "b[]", "complex[]", "c[d]");
+    nextUpdate.finish();
+    assertTrue(queue.isEmpty());
+  }
+
+  public void testMergeIntoFirstActionWaitingForResume() {
+    queue.suspend();
+    TestAction pending = new TestAction("a", true);
+    queue.addOrMerge(pending);
+    queue.addOrMerge(new TestAction("b", true));
+    assertLog();
+
+    queue.resume();
+    assertLog("a[b]");
+    pending.finish();
+    assertTrue(queue.isEmpty());
+  }
+
+  public void testNoMergeIntoRunningActionWhenSuspended() {
+    TestAction running = new TestAction("a", true);
+    queue.addOrMerge(running);
+    queue.suspend();
+    TestAction waiting = new TestAction("b", true);
+    queue.addOrMerge(waiting);
+
+    running.finish();
+    queue.addOrMerge(new TestAction("c", true));
+    assertLog("a[]");
+
+    queue.resume();
+    assertLog("a[]", "b[c]");
+    waiting.finish();
+    assertTrue(queue.isEmpty());
+  }
+
+  private void assertLog(@NotNull String... expected) {
+    assertEquals(Arrays.asList(expected), log);
+  }
+
+  private class TestAction extends RenderActionQueue.RenderAction<AsyncResult<String>> {
+    private final String name;
+    private final boolean mergeable;
+    private final List<String> merged = new ArrayList<>();
+    private boolean started;
+
+    TestAction(@NotNull String name, boolean mergeable) {
+      super(null, null, new AsyncResult<>());
+      this.name = name;
+      this.mergeable = mergeable;
+    }
+
+    @Override
+    protected boolean isNeedEdt() {
+      return true;
+    }
+
+    @Override
+    protected boolean merge(RenderActionQueue.RenderAction action) {
+      if (started || !mergeable || !(action instanceof TestAction) || !((TestAction)action).mergeable) {
+        return false;
+      }
+
+      merged.add(((TestAction)action).name);
+      return true;
+    }
+
+    @Override
+    protected void doRun() {
+      started = true;
+      log.add(name + merged);
+    }
+
+    void finish() {
+      assertTrue(started);
+      result.setDone(name);
+    }
+  }
+}
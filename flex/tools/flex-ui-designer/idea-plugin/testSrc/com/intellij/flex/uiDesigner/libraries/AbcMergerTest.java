@@ -38,6 +38,13 @@ public class AbcMergerTest {
            createLibrary("ds_release.swc"));
   }
 
+  @Test
+  public void contentHash() throws IOException {
+    final String hash = createLibrary("MinimalComps_0_9_10.swc").getContentHash();
+    Assert.assertEquals(hash, createLibrary("MinimalComps_0_9_10.swc").getContentHash());
+    Assert.assertFalse(hash.equals(createLibrary("as3corelib-0.93.swc").getContentHash()));
+  }
+
   private static LightLibrary createLibrary(String path) throws IOException {
     return new LightLibrary((new File(DesignerTests.getTestDataPath(), "lib/" + path)));
   }
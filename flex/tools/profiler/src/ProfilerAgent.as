@@ -35,8 +35,6 @@ public class ProfilerAgent extends Sprite {
   private var id2SampleInfo:Dictionary = new Dictionary();
   private var object2Id:Dictionary = new Dictionary(true);
   private var clsStat:Dictionary = new Dictionary();
-  private var typeDict:Object = {};
-  private var typeDictSize:int = 0;
   private var cpuSamplingStarted:Boolean;
 
   private var collectingLiveObjects:Boolean = false;
@@ -126,17 +124,12 @@ public class ProfilerAgent extends Sprite {
         clsStat[cls] = object - 1;
 
         if (needToSend && collectingLiveObjects) {
-          var encodedType:String = typeDict[info[0]];
-          var stackFrameSize:uint = info[1] == null ? 0 : info[1].length;
-          socket.writeUTF("d\x00" + stackFrameSize + " " + deletedObjectSample.id + " " + encodedType + " " + info[2]);
-          if (stackFrameSize > 0) writeStack(info[1], info[1].length);
-          socket.flush();
+          writeObjectSample(DELETE_OBJECT_SAMPLE, deletedObjectSample.id, info);
         }
       } else if (cpuSamplingStarted && connected) {
         var lastSampleToCheck:Sample = lastCPUSample;
         lastCPUSample = s;
         var stackFrameCount:uint = (s.stack == null) ? 0:s.stack.length;
-        socket.writeUTF("s\x00" + (s.time - lastSampleTime) + " " + s.stack.length);
 
         var matchedCount:int = 0;
         var key:String;
@@ -152,29 +145,24 @@ public class ProfilerAgent extends Sprite {
           }
         }
 
-        if (stackFrameCount > matchedCount) {
-          writeStack(s.stack, stackFrameCount, matchedCount);
-        }
-        if (matchedCount != 0) socket.writeUTF("u>:" + matchedCount);
+        var frameIds:Array = getFrameIds(s.stack, stackFrameCount - matchedCount);
+        socket.writeByte(CPU_SAMPLE);
+        socket.writeInt(s.time - lastSampleTime);
+        socket.writeInt(frameIds.length);
+        socket.writeInt(matchedCount);
+        writeIds(frameIds);
       }
       lastSampleTime = s.time;
     }
 
     if (connected && collectingLiveObjects) {
       for (var sid:Object in createdIds2Send){
-        var info:Array = id2SampleInfo[sid];
-        var encodedType:String = typeDict[info[0]];
-        if (encodedType == null) {
-          typeDict[nos.type] = String(typeDictSize++);
-          encodedType = getQualifiedClassName(info[0]);
-        }
-        var stackFrameSize:uint = info[1] == null ? 0 : info[1].length;
-        socket.writeUTF("c\x00" + stackFrameSize + " " + sid + " " + encodedType + " " + info[2]);
-        if (stackFrameSize > 0) writeStack(info[1], info[1].length);
+        writeObjectSample(CREATE_OBJECT_SAMPLE, uint(sid), id2SampleInfo[sid]);
       }
     }
 
     if (connected) {
+      socket.writeByte(BATCH_END);
       socket.flush();
     }
 
@@ -182,22 +170,55 @@ public class ProfilerAgent extends Sprite {
     startSampling();
   }
 
-  private function writeStack(stack:Object, stackFrameCount:int, matchedCount:int = 0):void {
-    var key:String;
-    var value:String;
+  // see BinarySamplesDecoder
+  private static const TEXT:int = 0;
+  private static const STRING:int = 1;
+  private static const CPU_SAMPLE:int = 2;
+  private static const CREATE_OBJECT_SAMPLE:int = 3;
+  private static const DELETE_OBJECT_SAMPLE:int = 4;
+  private static const BATCH_END:int = 5;
+
+  private function writeText(text:String):void {
+    socket.writeByte(TEXT);
+    socket.writeUTF(text);
+  }
 
+  private function writeObjectSample(kind:int, id:uint, info:Array):void {
+    var typeId:uint = getStringId(getQualifiedClassName(info[0]));
+    var frameIds:Array = getFrameIds(info[1], info[1] == null ? 0 : info[1].length);
+    socket.writeByte(kind);
+    socket.writeInt(id);
+    socket.writeInt(typeId);
+    socket.writeInt(info[2]);
+    socket.writeInt(frameIds.length);
+    writeIds(frameIds);
+  }
+
+  // names must be sent before the sample that refers to them
+  private function getFrameIds(stack:Object, count:int):Array {
+    var result:Array = [];
     for each(var frame:* in stack) {
-      key = frame.toString();
-      value = stringDict[key];
-      if (value == null) {
-        ++stringDictSize;
-        stringDict[key] = stringDictSize.toString();
-        value = key;
-      }
-      socket.writeUTF(value);
-      --stackFrameCount;
+      if (result.length == count) break;
+      result.push(getStringId(frame.toString()));
+    }
+    return result;
+  }
 
-      if (stackFrameCount == matchedCount) break;
+  private function getStringId(key:String):uint {
+    var value:* = stringDict[key];
+    if (value == undefined) {
+      ++stringDictSize;
+      stringDict[key] = stringDictSize;
+      socket.writeByte(STRING);
+      socket.writeUTF(key);
+      return stringDictSize;
+    }
+    return value;
+  }
+
+  private function writeIds(ids:Array):void {
+    for each(var id:uint in ids) {
+      socket.writeInt(id);
     }
   }
 
@@ -268,7 +289,7 @@ public class ProfilerAgent extends Sprite {
   private static const STOP_COLLECTING_LIVE_OBJECTS:int = 6;
   private static const VERSION_COMMAND_MARKER:String = "v\x00 ";
 
-  private static const VERSION:int = 4;
+  private static const VERSION:int = 5;
 
   private static const END_COMMAND_MARKER:String = "e\x00 ";
   private static const SI_COMMAND_MARKER:String = "si\x00 ";
@@ -282,7 +303,7 @@ public class ProfilerAgent extends Sprite {
     if (i == START_CPU_PROFILING) {
       if (!cpuSamplingStarted) {
         trace("started cpu profiling");
-        socket.writeUTF(END_COMMAND_MARKER + i);
+        writeText(END_COMMAND_MARKER + i);
         socket.flush();
         cpuSamplingStarted = true;
       }
@@ -291,7 +312,7 @@ public class ProfilerAgent extends Sprite {
         cpuSamplingStarted = false;
         pauseSampling();
         trace("stopped cpu profiling");
-        socket.writeUTF(END_COMMAND_MARKER + i);
+        writeText(END_COMMAND_MARKER + i);
         socket.flush();
         clearSlidingStuff();
         startSampling();
@@ -305,37 +326,28 @@ public class ProfilerAgent extends Sprite {
 
       collectingLiveObjects = true;
 
-      var typeDict:Object = {};
-      var typeDictSize:uint = 0;
       var objectCount:uint = 0;
 
       for(var l:* in id2SampleInfo) {
-        var a:Array = id2SampleInfo[l];
-        var c:Class = a[0];
-        var encodedType:String = typeDict[c];
-        if (encodedType == null) {
-          typeDict[c] = String(typeDictSize ++);
-          encodedType = getQualifiedClassName(c);
-        }
-        var stackFrameSize:uint = a[1] == null ? 0:a[1].length;
-        socket.writeUTF("c\x00" + stackFrameSize + " " + l + " "+encodedType + " " + a[2]);
-        if (stackFrameSize > 0) writeStack(a[1], a[1].length);
+        writeObjectSample(CREATE_OBJECT_SAMPLE, uint(l), id2SampleInfo[l]);
 
         ++objectCount;
         if (objectCount == 500) {
+          socket.writeByte(BATCH_END);
           socket.flush();
           objectCount = 0;
         }
       }
+      socket.writeByte(BATCH_END);
 
-      socket.writeUTF(END_COMMAND_MARKER + i);
+      writeText(END_COMMAND_MARKER + i);
       socket.flush();
       startSampling();
     } else if (i == DO_GC) {
       pauseSampling();
       var totalMemory:uint = System.totalMemory;
       System.gc();
-      socket.writeUTF(END_COMMAND_MARKER + i + " "+totalMemory + "/" + System.totalMemory);
+      writeText(END_COMMAND_MARKER + i + " "+totalMemory + "/" + System.totalMemory);
       socket.flush();
       startSampling();
     } else {
@@ -344,7 +356,7 @@ public class ProfilerAgent extends Sprite {
   }
 
   private function doReachabilityDump():void {
-    socket.writeUTF(SI_COMMAND_MARKER);
+    writeText(SI_COMMAND_MARKER);
     var usedClasses:Dictionary = new Dictionary();
 
     for (var o:Object in object2Id) {
@@ -366,7 +378,7 @@ public class ProfilerAgent extends Sprite {
             dump += "," + i;
           }
         }
-        if (dump.length != 0) socket.writeUTF(dump);
+        if (dump.length != 0) writeText(dump);
       }
 
       usedClasses[cls] = "";
@@ -383,10 +395,10 @@ public class ProfilerAgent extends Sprite {
         }
       }
 
-      if (dump.length > 0) socket.writeUTF(dump)
+      if (dump.length > 0) writeText(dump)
     }
 
-    socket.writeUTF("EndSnapshot");
+    writeText("EndSnapshot");
     socket.flush();
   }
 
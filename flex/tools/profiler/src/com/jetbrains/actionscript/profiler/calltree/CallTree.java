@@ -1,44 +1,58 @@
 package com.jetbrains.actionscript.profiler.calltree;
 
 import com.intellij.openapi.util.Pair;
-import com.intellij.util.ArrayUtil;
 import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import gnu.trove.TIntArrayList;
+import gnu.trove.TLongIntHashMap;
+import gnu.trove.TObjectIntHashMap;
 import gnu.trove.THashSet;
 
 import java.util.*;
 
+/**
+ * Call tree stored in primitive arrays, so that snapshots of long profiling sessions don't take much heap.
+ * A node is an index: {@link #ROOT} is the root node without a frame, frames are referred to by their ids.
+ * Children of a node form a linked list ({@link #myFirstChild}, {@link #myNextSibling}),
+ * a child with the given frame is found by the (parent, frame id) key in {@link #myChildIndex}.
+ */
 public class CallTree {
-  private final CallTreeNode root;
+  static final int ROOT = 0;
+  static final int NO_NODE = -1;
 
-  public CallTree() {
-    root = new CallTreeNode();
-  }
+  private final List<FrameInfo> myFrames = new ArrayList<>();
+  private final TObjectIntHashMap<FrameInfo> myFrameIds = new TObjectIntHashMap<>(); // frame -> id + 1
 
-  CallTree(CallTreeNode root) {
-    this.root = root;
-  }
+  private int myNodeCount;
+  private int[] myFrameId = new int[256];
+  private int[] myFirstChild = new int[256];
+  private int[] myNextSibling = new int[256];
+  private long[] myDuration = new long[256];
+  private final TLongIntHashMap myChildIndex = new TLongIntHashMap(); // root is nobody's child, so 0 means 'no child'
 
-  CallTreeNode getRoot() {
-    return root;
+  public CallTree() {
+    createNode(-1, -1);
   }
 
   public void addFrames(FrameInfo[] frames, long duration) {
-    root.addChildren(Arrays.asList(ArrayUtil.reverseArray(frames)), duration);
+    int node = ROOT;
+    for (int i = frames.length - 1; i >= 0; i--) {
+      node = getOrCreateChild(node, frames[i], duration);
+    }
   }
 
   /*
    * @return pair <cumulative time map, self time map>
    */
   public Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getTimeMaps() {
-    return TimeMapBuilder.buildTimeMaps(root, root.getChildren());
+    return TimeMapBuilder.buildTimeMaps(this, getChildren(ROOT));
   }
 
   /*
    * @return pair <cumulative time map, self time map>
    */
   public Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCallersTimeMaps(FrameInfo[] frames) {
-    List<CallTreeNode> calls = CallerFinder.findCallsByFrames(root, frames);
-    Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> timeMaps = TimeMapBuilder.buildTimeMaps(root, calls);
+    TIntArrayList calls = CallerFinder.findCallsByFrames(this, frames);
+    Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> timeMaps = TimeMapBuilder.buildTimeMaps(this, calls);
     Set<FrameInfo> callerNames = getNamesOfNodes(calls);
     Map<FrameInfo, Long> filteredCountMap = filterMap(timeMaps.getFirst(), callerNames);
     Map<FrameInfo, Long> filteredSelfTimeMap = filterMap(timeMaps.getSecond(), callerNames);
@@ -49,8 +63,138 @@ public class CallTree {
    * @return pair <cumulative time map, self time map>
    */
   public Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCalleesTimeMaps(FrameInfo[] frames) {
-    List<CallTreeNode> calls = CalleeFinder.findCallsByFrameName(root, frames);
-    return TimeMapBuilder.buildTimeMaps(root, calls);
+    TIntArrayList calls = CalleeFinder.findCallsByFrameName(this, frames);
+    return TimeMapBuilder.buildTimeMaps(this, calls);
+  }
+
+  int getNodeCount() {
+    return myNodeCount;
+  }
+
+  int getFrameCount() {
+    return myFrames.size();
+  }
+
+  FrameInfo getFrameInfo(int node) {
+    return myFrames.get(myFrameId[node]);
+  }
+
+  FrameInfo getFrameById(int frameId) {
+    return myFrames.get(frameId);
+  }
+
+  int getFrameId(int node) {
+    return myFrameId[node];
+  }
+
+  /**
+   * @return -1 if there's no node with such frame
+   */
+  int findFrameId(FrameInfo frame) {
+    return myFrameIds.get(frame) - 1;
+  }
+
+  long getCumulativeTiming(int node) {
+    return myDuration[node];
+  }
+
+  int getFirstChild(int node) {
+    return myFirstChild[node];
+  }
+
+  int getNextSibling(int node) {
+    return myNextSibling[node];
+  }
+
+  TIntArrayList getChildren(int node) {
+    TIntArrayList result = new TIntArrayList();
+    for (int child = myFirstChild[node]; child != NO_NODE; child = myNextSibling[child]) {
+      result.add(child);
+    }
+    return result;
+  }
+
+  long calcChildrenTiming(int node) {
+    long result = 0;
+    for (int child = myFirstChild[node]; child != NO_NODE; child = myNextSibling[child]) {
+      result += myDuration[child];
+    }
+    return result;
+  }
+
+  int findChild(int node, int frameId) {
+    if (frameId < 0) return NO_NODE;
+    final int child = myChildIndex.get(key(node, frameId));
+    return child == ROOT ? NO_NODE : child;
+  }
+
+  /**
+   * @return frame ids to be passed to {@link #getChildDeep(int, int[])}, -1 for frames that aren't in the tree
+   */
+  int[] findFrameIds(FrameInfo[] frames) {
+    final int[] result = new int[frames.length];
+    for (int i = 0; i < frames.length; i++) {
+      result[i] = findFrameId(frames[i]);
+    }
+    return result;
+  }
+
+  /**
+   * @param frameIds ids of frames from caller to callee
+   * @return {@link #NO_NODE} if there's no such call chain under the node
+   */
+  int getChildDeep(int node, int[] frameIds) {
+    for (int frameId : frameIds) {
+      node = findChild(node, frameId);
+      if (node == NO_NODE) return NO_NODE;
+    }
+    return node;
+  }
+
+  /**
+   * Adds the duration to the child with the given frame, creating the child if needed.
+   */
+  int getOrCreateChild(int node, FrameInfo frame, long duration) {
+    final int frameId = getOrCreateFrameId(frame);
+    int child = findChild(node, frameId);
+    if (child == NO_NODE) {
+      child = createNode(node, frameId);
+    }
+    myDuration[child] += duration;
+    return child;
+  }
+
+  private int getOrCreateFrameId(FrameInfo frame) {
+    final int existing = myFrameIds.get(frame);
+    if (existing > 0) return existing - 1;
+    final int id = myFrames.size();
+    myFrames.add(frame);
+    myFrameIds.put(frame, id + 1);
+    return id;
+  }
+
+  private int createNode(int parent, int frameId) {
+    if (myNodeCount == myFrameId.length) {
+      final int newLength = myFrameId.length * 2;
+      myFrameId = Arrays.copyOf(myFrameId, newLength);
+      myFirstChild = Arrays.copyOf(myFirstChild, newLength);
+      myNextSibling = Arrays.copyOf(myNextSibling, newLength);
+      myDuration = Arrays.copyOf(myDuration, newLength);
+    }
+    final int node = myNodeCount++;
+    myFrameId[node] = frameId;
+    myFirstChild[node] = NO_NODE;
+    myNextSibling[node] = NO_NODE;
+    if (parent >= 0) {
+      myNextSibling[node] = myFirstChild[parent];
+      myFirstChild[parent] = node;
+      myChildIndex.put(key(parent, frameId), node);
+    }
+    return node;
+  }
+
+  private static long key(int node, int frameId) {
+    return ((long)node << 32) | (frameId & 0xFFFFFFFFL);
   }
 
   private static Map<FrameInfo, Long> filterMap(Map<FrameInfo, Long> first, Set<FrameInfo> callerNames) {
@@ -58,10 +202,10 @@ public class CallTree {
     return first;
   }
 
-  private static Set<FrameInfo> getNamesOfNodes(Collection<CallTreeNode> nodes) {
+  private Set<FrameInfo> getNamesOfNodes(TIntArrayList nodes) {
     THashSet<FrameInfo> names = new THashSet<>();
-    for (CallTreeNode node : nodes) {
-      names.add(node.getFrameInfo());
+    for (int i = 0; i < nodes.size(); i++) {
+      names.add(getFrameInfo(nodes.get(i)));
     }
     return names;
   }
@@ -1,26 +1,29 @@
 package com.jetbrains.actionscript.profiler.calltree;
 
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+
 /**
  * @author: Fedor.Korotkov
  */
 public class CallTreeUtil {
   public static CallTree filterSystemStuff(CallTree tree) {
-    return new CallTree(filterSystemStuffImpl(tree.getRoot()));
+    CallTree result = new CallTree();
+    filterSystemStuffImpl(tree, CallTree.ROOT, result, CallTree.ROOT);
+    return result;
   }
 
-  private static CallTreeNode filterSystemStuffImpl(CallTreeNode node) {
-    CallTreeNode result = new CallTreeNode(node.getFrameInfo(), node.getCumulativeTiming());
-
-    for (CallTreeNode child : node.getChildren()) {
-      CallTreeNode newChild = filterSystemStuffImpl(child);
-      if (newChild.getFrameInfo().isSystem()) {
-        result.addChildrenRecursive(newChild.getChildren());
+  /**
+   * Copies children of the node, children of system frames are merged into the nearest non-system parent.
+   */
+  private static void filterSystemStuffImpl(CallTree tree, int node, CallTree result, int resultNode) {
+    for (int child = tree.getFirstChild(node); child != CallTree.NO_NODE; child = tree.getNextSibling(child)) {
+      FrameInfo frame = tree.getFrameInfo(child);
+      if (frame.isSystem()) {
+        filterSystemStuffImpl(tree, child, result, resultNode);
       }
       else {
-        result.addChildRecursive(newChild);
+        filterSystemStuffImpl(tree, child, result, result.getOrCreateChild(resultNode, frame, tree.getCumulativeTiming(child)));
       }
     }
-
-    return result;
   }
 }
@@ -3,59 +3,70 @@ package com.jetbrains.actionscript.profiler.calltree;
 import com.intellij.openapi.util.Pair;
 import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
 import gnu.trove.THashMap;
-import gnu.trove.THashSet;
+import gnu.trove.TIntArrayList;
 
-import java.util.List;
 import java.util.Map;
 
 class TimeMapBuilder {
-  private TimeMapBuilder() {
+  private final CallTree myTree;
+  private final boolean[] myTrackedCalls;
+  // indexed by frame id
+  private final long[] myCount;
+  private final long[] mySelfCount;
+  private final boolean[] myHasCount;
+  private final boolean[] myHasSelfCount;
+
+  private TimeMapBuilder(CallTree tree, TIntArrayList calls) {
+    myTree = tree;
+    myTrackedCalls = new boolean[tree.getNodeCount()];
+    for (int i = 0; i < calls.size(); i++) {
+      myTrackedCalls[calls.get(i)] = true;
+    }
+    final int frameCount = tree.getFrameCount();
+    myCount = new long[frameCount];
+    mySelfCount = new long[frameCount];
+    myHasCount = new boolean[frameCount];
+    myHasSelfCount = new boolean[frameCount];
   }
 
   /*
   * @return pair <cumulative time map, self time map>
   */
-  static Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> buildTimeMaps(CallTreeNode root, List<CallTreeNode> calls) {
-    Map<FrameInfo, Long> countMap = new THashMap<>();
-    Map<FrameInfo, Long> selfCountMap = new THashMap<>();
-    THashSet<CallTreeNode> trackedCalls = new THashSet<>(calls);
-
-    for (CallTreeNode node : root.getChildren()) {
-      fillTimeMaps(node, countMap, selfCountMap, trackedCalls.contains(node), trackedCalls);
+  static Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> buildTimeMaps(CallTree tree, TIntArrayList calls) {
+    final TimeMapBuilder builder = new TimeMapBuilder(tree, calls);
+    for (int node = tree.getFirstChild(CallTree.ROOT); node != CallTree.NO_NODE; node = tree.getNextSibling(node)) {
+      builder.fillTimeMaps(node, builder.myTrackedCalls[node]);
     }
-    return Pair.create(countMap, selfCountMap);
+    return Pair.create(builder.toMap(builder.myCount, builder.myHasCount), builder.toMap(builder.mySelfCount, builder.myHasSelfCount));
   }
 
-  private static void fillTimeMaps(CallTreeNode node,
-                                   Map<FrameInfo, Long> countMap,
-                                   Map<FrameInfo, Long> selfCountMap,
-                                   boolean tracking,
-                                   THashSet<CallTreeNode> trackedCalls) {
+  private void fillTimeMaps(int node, boolean tracking) {
+    final int frameId = myTree.getFrameId(node);
     if (tracking) {
-      updateSelfTime(node, selfCountMap);
+      mySelfCount[frameId] += myTree.getCumulativeTiming(node) - myTree.calcChildrenTiming(node);
+      myHasSelfCount[frameId] = true;
     }
 
     //save value before subcalls
-    Long countBefore = countMap.get(node.getFrameInfo());
-    if (countBefore == null) {
-      countBefore = 0L;
-    }
-    for (CallTreeNode child : node.getChildren()) {
-      fillTimeMaps(child, countMap, selfCountMap, tracking || trackedCalls.contains(child), trackedCalls);
+    final long countBefore = myCount[frameId];
+    for (int child = myTree.getFirstChild(node); child != CallTree.NO_NODE; child = myTree.getNextSibling(child)) {
+      fillTimeMaps(child, tracking || myTrackedCalls[child]);
     }
     if (tracking) {
       //rewrite values that were added in subcalls.
       //cause of that we get value only of the nearest node to the root
-      countMap.put(node.getFrameInfo(), countBefore + node.getCumulativeTiming());
+      myCount[frameId] = countBefore + myTree.getCumulativeTiming(node);
+      myHasCount[frameId] = true;
     }
   }
 
-  private static void updateSelfTime(CallTreeNode node, Map<FrameInfo, Long> selfCountMap) {
-    long currentSelfTime = node.getCumulativeTiming() - node.calcSelfTiming();
-    Long selfTime = selfCountMap.get(node.getFrameInfo());
-    if (selfTime == null) {
-      selfTime = 0L;
+  private Map<FrameInfo, Long> toMap(long[] values, boolean[] present) {
+    final Map<FrameInfo, Long> result = new THashMap<>();
+    for (int frameId = 0; frameId < values.length; frameId++) {
+      if (present[frameId]) {
+        result.put(myTree.getFrameById(frameId), values[frameId]);
+      }
     }
-    selfCountMap.put(node.getFrameInfo(), selfTime + currentSelfTime);
+    return result;
   }
 }
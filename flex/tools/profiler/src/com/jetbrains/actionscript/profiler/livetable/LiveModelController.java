@@ -1,181 +1,107 @@
 package com.jetbrains.actionscript.profiler.livetable;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.Computable;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.jetbrains.actionscript.profiler.base.SortableListTreeTableModel;
 import com.jetbrains.actionscript.profiler.sampler.*;
 import com.jetbrains.actionscript.profiler.util.ResolveUtil;
+import gnu.trove.THashMap;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.MutableTreeNode;
 import javax.swing.tree.TreeNode;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Map;
 
 /**
+ * Samples are aggregated in {@link LiveObjectsIndex} by the thread that reads them. The view periodically takes a snapshot
+ * off the EDT ({@link #updateSnapshot}) and then merges it into the tree table model ({@link #apply}).
+ *
  * @author: Fedor.Korotkov
  */
 public class LiveModelController implements ObjectSampleHandler {
   private static final int BYTES_IN_KB = 1000;
 
-  private final List<Sample> cache = new LinkedList<>();
-  private final ConcurrentLinkedQueue<Sample> queue = new ConcurrentLinkedQueue<>();
+  private final LiveObjectsIndex index = new LiveObjectsIndex();
+  private volatile List<LiveObjectsIndex.Entry> snapshot = null;
 
-  private final List<SizeInfoNode> filteredClasses = new ArrayList<>();
-  private GlobalSearchScope scope;
-  
   private volatile int allocatedMemorySize = 0;
 
-  public void updateScope(GlobalSearchScope scope) {
-    this.scope = scope;
-  }
-
   public int getAllocatedMemorySize() {
     return allocatedMemorySize / BYTES_IN_KB;
   }
 
-  public void apply(SortableListTreeTableModel model) {
-    while (!queue.isEmpty()) {
-      cache.add(queue.poll());
-    }
-    final Iterator<Sample> iterator = cache.iterator();
-    while (iterator.hasNext()) {
-      final Sample sample = iterator.next();
-      if (sample instanceof CreateObjectSample) {
-        applyCreate(model, (CreateObjectSample)sample);
-        iterator.remove();
-      }
-      else if (sample instanceof DeleteObjectSample && applyDelete(model, (DeleteObjectSample)sample)) {
-        iterator.remove();
+  /**
+   * Copies current live objects and filters classes by scope. Must not be called on the EDT.
+   */
+  public void updateSnapshot(@Nullable final GlobalSearchScope scope) {
+    final List<LiveObjectsIndex.Entry> classes = new ArrayList<>();
+    for (LiveObjectsIndex.Entry classEntry : index.snapshot().getChildren()) {
+      final String className = (String)classEntry.getKey();
+      if (scope == null ||
+          ApplicationManager.getApplication().runReadAction((Computable<Boolean>)() -> ResolveUtil.containsInScope(className, scope))) {
+        classes.add(classEntry);
       }
     }
-    removeUselessNodes((MutableTreeNode)model.getRoot());
-
-    filterByScope(model);
+    snapshot = classes;
   }
 
-  private void filterByScope(SortableListTreeTableModel model) {
-    final MutableTreeNode root = (MutableTreeNode)model.getRoot();
-    int i = 0;
-    Iterator<SizeInfoNode> iterator = filteredClasses.iterator();
-    while (iterator.hasNext()) {
-      final SizeInfoNode node = iterator.next();
-      if (scope == null || ResolveUtil.containsInScope(node.getQName(), scope)) {
-        root.insert(node, root.getChildCount());
-        iterator.remove();
-        ++i;
-      }
-    }
-    while (i < root.getChildCount()) {
-      final SizeInfoNode child = (SizeInfoNode)root.getChildAt(i);
-      if (scope != null && !ResolveUtil.containsInScope(child.getQName(), scope)) {
-        root.remove(i);
-        filteredClasses.add(child);
-      }
-      else {
-        ++i;
-      }
+  /**
+   * Updates the model with the last snapshot. Existing nodes are kept, so expanded and selected paths stay valid.
+   */
+  public void apply(SortableListTreeTableModel model) {
+    final List<LiveObjectsIndex.Entry> classes = snapshot;
+    if (classes == null) {
+      return;
     }
+    snapshot = null;
+    merge((DefaultMutableTreeNode)model.getRoot(), classes);
   }
 
-  private static void removeUselessNodes(MutableTreeNode root) {
-    for (int i = 0; i < root.getChildCount(); ++i) {
-      MutableTreeNode child = (MutableTreeNode)root.getChildAt(i);
+  private static void merge(DefaultMutableTreeNode node, Iterable<LiveObjectsIndex.Entry> entries) {
+    final Map<Object, SizeInfoNode> existingChildren = new THashMap<>();
+    for (int i = 0; i < node.getChildCount(); ++i) {
+      final TreeNode child = node.getChildAt(i);
       if (child instanceof SizeInfoNode) {
-        if (((SizeInfoNode)child).getCount() <= 0) {
-          root.remove(child);
-          continue;
-        }
+        existingChildren.put(getKey((SizeInfoNode)child), (SizeInfoNode)child);
       }
-      removeUselessNodes(child);
-    }
-  }
-
-  private void applyCreate(SortableListTreeTableModel model,
-                           CreateObjectSample sample) {
-    final String className = sample.className;
-    final DefaultMutableTreeNode root = (DefaultMutableTreeNode)model.getRoot();
-    SizeInfoNode classNode = findChildByValue(root, className);
-    if (classNode == null) {
-      classNode = new SizeInfoNode(className, null, 0, 0);
-      root.insert(classNode, root.getChildCount());
     }
-    classNode.incSize(sample.size);
 
-    SizeInfoNode node = classNode;
-    for (FrameInfo frameInfo : sample.frames) {
-      SizeInfoNode frameNode = findChildByValue(node, frameInfo.getQName());
-      if (frameNode == null) {
-        frameNode = new SizeInfoNode(frameInfo.toSimpleString(), frameInfo, 0, 0);
-        node.insert(frameNode, node.getChildCount());
+    for (LiveObjectsIndex.Entry entry : entries) {
+      SizeInfoNode child = existingChildren.remove(entry.getKey());
+      if (child == null) {
+        child = createNode(entry);
+        node.insert(child, node.getChildCount());
       }
-      node = frameNode;
-      node.incSize(sample.size);
-    }
-  }
-
-  private boolean applyDelete(SortableListTreeTableModel model,
-                              DeleteObjectSample sample) {
-    final List<SizeInfoNode> nodesForUpdate = new ArrayList<>();
-    final String className = sample.className;
-    final DefaultMutableTreeNode root = (DefaultMutableTreeNode)model.getRoot();
-    SizeInfoNode classNode = findChildByValue(root, className);
-    if (classNode == null) {
-      return false;
-    }
-    nodesForUpdate.add(classNode);
-
-    SizeInfoNode node = classNode;
-    for (FrameInfo frameInfo : sample.frames) {
-      final SizeInfoNode frameNode = findChildByValue(node, frameInfo.getQName());
-      if (frameNode == null) {
-        return false;
+      else {
+        child.setSizeAndCount(entry.getSize(), entry.getCount());
       }
-      nodesForUpdate.add(frameNode);
-      node = frameNode;
-    }
-    for (SizeInfoNode sizeInfoNode : nodesForUpdate) {
-      sizeInfoNode.decSize(sample.size);
+      merge(child, entry.getChildren());
     }
-    return true;
-  }
 
-  @Nullable
-  private SizeInfoNode findChildByValue(TreeNode root, String name) {
-    for (int i = 0; i < root.getChildCount(); ++i) {
-      final TreeNode child = root.getChildAt(i);
-      if (!(child instanceof SizeInfoNode)) {
-        continue;
-      }
-      final SizeInfoNode sizeInfoNode = (SizeInfoNode)child;
-      if (matchByName(name, sizeInfoNode)) {
-        return (SizeInfoNode)child;
-      }
+    for (SizeInfoNode removed : existingChildren.values()) {
+      node.remove(removed);
     }
+  }
 
-
-    for (SizeInfoNode filteredNode : filteredClasses) {
-      if (matchByName(name, filteredNode)) {
-        return filteredNode;
-      }
+  private static SizeInfoNode createNode(LiveObjectsIndex.Entry entry) {
+    final Object key = entry.getKey();
+    if (key instanceof FrameInfo) {
+      return new SizeInfoNode(((FrameInfo)key).toSimpleString(), (FrameInfo)key, entry.getSize(), entry.getCount());
     }
-    return null;
+    return new SizeInfoNode((String)key, null, entry.getSize(), entry.getCount());
   }
 
-  private static boolean matchByName(String name, SizeInfoNode sizeInfoNode) {
-    if (sizeInfoNode.isMethod()) {
-      return name.equals(sizeInfoNode.getQName());
-    }
-    return name.equals(sizeInfoNode.getUserObject());
+  private static Object getKey(SizeInfoNode node) {
+    return node.isMethod() ? node.getFrameInfo() : node.getUserObject();
   }
 
   @Override
   public void processCreateSample(CreateObjectSample createObjectSample) {
     if (createObjectSample.className != null) {
-      queue.add(createObjectSample);
+      index.create(createObjectSample.className, createObjectSample.frames, createObjectSample.size);
       allocatedMemorySize += createObjectSample.size;
     }
   }
@@ -183,7 +109,7 @@ public class LiveModelController implements ObjectSampleHandler {
   @Override
   public void processDeleteSample(DeleteObjectSample deleteObjectSample) {
     if (deleteObjectSample.className != null) {
-      queue.add(deleteObjectSample);
+      index.delete(deleteObjectSample.className, deleteObjectSample.frames, deleteObjectSample.size);
       allocatedMemorySize -= deleteObjectSample.size;
     }
   }
@@ -0,0 +1,121 @@
+package com.jetbrains.actionscript.profiler.livetable;
+
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Live object counts by class and allocation stack. Updated by the thread that reads samples, children are found by hash,
+ * so a sample costs O(stack depth) however many classes are alive. The UI works with {@link #snapshot()} copies.
+ */
+class LiveObjectsIndex {
+  private final Entry myRoot = new Entry(null);
+
+  synchronized void create(String className, FrameInfo[] frames, int size) {
+    Entry entry = myRoot.getOrCreateChild(className);
+    entry.add(size, 1);
+    for (FrameInfo frame : frames) {
+      entry = entry.getOrCreateChild(frame);
+      entry.add(size, 1);
+    }
+  }
+
+  /**
+   * @return false if the object was allocated before live objects collection started, i.e. there's no such allocation path
+   */
+  synchronized boolean delete(String className, FrameInfo[] frames, int size) {
+    final Entry[] path = new Entry[frames.length + 1];
+    Entry entry = myRoot.getChild(className);
+    for (int i = 0; ; i++) {
+      if (entry == null) return false;
+      path[i] = entry;
+      if (i == frames.length) break;
+      entry = entry.getChild(frames[i]);
+    }
+
+    Entry parent = myRoot;
+    for (Entry pathEntry : path) {
+      pathEntry.add(-size, -1);
+      if (pathEntry.myCount <= 0) {
+        parent.myChildren.remove(pathEntry.myKey);
+        break;
+      }
+      parent = pathEntry;
+    }
+    return true;
+  }
+
+  synchronized Entry snapshot() {
+    return myRoot.copy();
+  }
+
+  static class Entry {
+    /**
+     * Class name for top level entries, {@link FrameInfo} for allocation frames, null for the root
+     */
+    @Nullable private final Object myKey;
+    private long mySize;
+    private int myCount;
+    @Nullable private Map<Object, Entry> myChildren;
+
+    private Entry(@Nullable Object key) {
+      myKey = key;
+    }
+
+    @Nullable
+    Object getKey() {
+      return myKey;
+    }
+
+    long getSize() {
+      return mySize;
+    }
+
+    int getCount() {
+      return myCount;
+    }
+
+    Collection<Entry> getChildren() {
+      return myChildren != null ? myChildren.values() : Collections.emptyList();
+    }
+
+    @Nullable
+    Entry getChild(Object key) {
+      return myChildren != null ? myChildren.get(key) : null;
+    }
+
+    private Entry getOrCreateChild(Object key) {
+      if (myChildren == null) {
+        myChildren = new THashMap<>(2);
+      }
+      Entry child = myChildren.get(key);
+      if (child == null) {
+        child = new Entry(key);
+        myChildren.put(key, child);
+      }
+      return child;
+    }
+
+    private void add(long size, int count) {
+      mySize += size;
+      myCount += count;
+    }
+
+    private Entry copy() {
+      final Entry result = new Entry(myKey);
+      result.mySize = mySize;
+      result.myCount = myCount;
+      if (myChildren != null && !myChildren.isEmpty()) {
+        result.myChildren = new THashMap<>(myChildren.size());
+        for (Entry child : myChildren.values()) {
+          result.myChildren.put(child.myKey, child.copy());
+        }
+      }
+      return result;
+    }
+  }
+}
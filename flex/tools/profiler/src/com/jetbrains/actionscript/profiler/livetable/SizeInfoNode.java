@@ -48,15 +48,9 @@ public class SizeInfoNode extends DefaultMutableTreeNode implements FrameInfoPro
     return count;
   }
 
-  public void incSize(long size) {
-    this.size += size;
-    ++count;
-  }
-
-
-  public void decSize(long size) {
-    this.size -= size;
-    --count;
+  public void setSizeAndCount(long size, int count) {
+    this.size = size;
+    this.count = count;
   }
 
   public boolean isMethod() {
@@ -0,0 +1,170 @@
+package com.jetbrains.actionscript.profiler.model;
+
+import com.intellij.javascript.flex.mxml.schema.CodeContext;
+import com.intellij.lang.javascript.psi.JSCommonTypeNames;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.ArrayUtil;
+import com.jetbrains.actionscript.profiler.sampler.*;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes sample records of the agent protocol version 5. After the version handshake each record starts with a tag byte,
+ * numbers are big-endian ints as written by flash.net.Socket. Frame and type names are sent once as {@link #STRING} records
+ * and then referred to by their number (starting with 1, in order of appearance), so neither the agent nor the reader
+ * thread formats or parses text per sample. Samples are passed to the consumer in batches, one batch per agent frame.
+ */
+class BinarySamplesDecoder {
+  private static final Logger LOG = Logger.getInstance(BinarySamplesDecoder.class.getName());
+
+  static final int TEXT = 0;                  // UTF string handled by text packet processors (command results, etc.)
+  static final int STRING = 1;                // UTF string: frame or type name
+  static final int CPU_SAMPLE = 2;            // duration, new frame count, count of frames shared with previous sample, new frames
+  static final int CREATE_OBJECT_SAMPLE = 3;  // object id, type, size, frame count, frames
+  static final int DELETE_OBJECT_SAMPLE = 4;  // object id, type, size, frame count, frames
+  static final int BATCH_END = 5;
+
+  private final ProfilerDataConsumer myConsumer;
+  private final FrameInfoBuilder myFrameInfoBuilder;
+
+  private String[] myStrings = new String[1024];
+  private FrameInfo[] myFrames = new FrameInfo[1024];
+  private String[] myClassNames = new String[1024];
+  private int myStringCount;
+
+  private FrameInfo[] myLastCpuFrames = FrameInfo.EMPTY_FRAME_INFO_ARRAY;
+  private List<Sample> myBatch = new ArrayList<>();
+  private int myCpuSamples;
+  private int myMemorySamples;
+
+  BinarySamplesDecoder(ProfilerDataConsumer consumer) {
+    myConsumer = consumer;
+    myFrameInfoBuilder = consumer.getFrameInfoBuilder();
+  }
+
+  void decode(int tag, DataInput in) throws IOException {
+    switch (tag) {
+      case STRING:
+        addString(in.readUTF());
+        break;
+
+      case CPU_SAMPLE: {
+        final long duration = in.readInt();
+        final int newFrameCount = readCount(in);
+        final int sharedFrameCount = readCount(in);
+        if (sharedFrameCount > myLastCpuFrames.length) {
+          throw new IOException("Shared frame count " + sharedFrameCount + " exceeds previous sample length " + myLastCpuFrames.length);
+        }
+        final FrameInfo[] frames = createFrames(newFrameCount + sharedFrameCount);
+        for (int i = 0; i < newFrameCount; ++i) {
+          frames[i] = getFrame(in.readInt());
+        }
+        System.arraycopy(myLastCpuFrames, myLastCpuFrames.length - sharedFrameCount, frames, newFrameCount, sharedFrameCount);
+        myLastCpuFrames = frames;
+        ++myCpuSamples;
+        myBatch.add(new Sample(duration, frames));
+        break;
+      }
+
+      case CREATE_OBJECT_SAMPLE:
+      case DELETE_OBJECT_SAMPLE: {
+        final int id = in.readInt();
+        final String className = getClassName(in.readInt());
+        final int size = in.readInt();
+        final FrameInfo[] frames = createFrames(readCount(in));
+        for (int i = 0; i < frames.length; ++i) {
+          frames[i] = getFrame(in.readInt());
+        }
+        ++myMemorySamples;
+        myBatch.add(tag == CREATE_OBJECT_SAMPLE ? new CreateObjectSample(0, frames, id, className, size)
+                                                : new DeleteObjectSample(0, frames, id, className, size));
+        break;
+      }
+
+      case BATCH_END:
+        flush();
+        break;
+
+      default:
+        throw new IOException("Unexpected record: " + tag);
+    }
+  }
+
+  void flush() {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("batch," + System.currentTimeMillis() + "," + myCpuSamples + "," + myMemorySamples);
+    }
+    myCpuSamples = 0;
+    myMemorySamples = 0;
+
+    if (myBatch.isEmpty()) return;
+    final List<Sample> batch = myBatch;
+    myBatch = new ArrayList<>(batch.size());
+    myConsumer.process(batch);
+  }
+
+  /**
+   * Agent starts numbering of names from scratch when CPU profiling stops.
+   */
+  void clearProfilingState() {
+    flush();
+    myStrings = new String[1024];
+    myFrames = new FrameInfo[1024];
+    myClassNames = new String[1024];
+    myStringCount = 0;
+    myLastCpuFrames = FrameInfo.EMPTY_FRAME_INFO_ARRAY;
+  }
+
+  private void addString(String s) {
+    if (myStringCount + 1 == myStrings.length) {
+      final int newLength = myStrings.length * 2;
+      myStrings = ArrayUtil.realloc(myStrings, newLength);
+      final FrameInfo[] frames = new FrameInfo[newLength];
+      System.arraycopy(myFrames, 0, frames, 0, myFrames.length);
+      myFrames = frames;
+      myClassNames = ArrayUtil.realloc(myClassNames, newLength);
+    }
+    myStrings[++myStringCount] = s;
+  }
+
+  private String getString(int index) throws IOException {
+    if (index <= 0 || index > myStringCount) throw new IOException("Unknown string: " + index);
+    return myStrings[index];
+  }
+
+  private FrameInfo getFrame(int index) throws IOException {
+    final String s = getString(index);
+    FrameInfo frame = myFrames[index];
+    if (frame == null) {
+      frame = myFrameInfoBuilder.buildInstance(s);
+      myFrames[index] = frame;
+    }
+    return frame;
+  }
+
+  private String getClassName(int index) throws IOException {
+    final String s = getString(index);
+    String className = myClassNames[index];
+    if (className == null) {
+      className = s.replace("::", ".");
+      if (className.startsWith(CodeContext.AS3_VEC_VECTOR_QUALIFIED_NAME)) {
+        className = JSCommonTypeNames.VECTOR_CLASS_NAME + className.substring(CodeContext.AS3_VEC_VECTOR_QUALIFIED_NAME.length());
+      }
+      myClassNames[index] = className;
+    }
+    return className;
+  }
+
+  private static int readCount(DataInput in) throws IOException {
+    final int count = in.readInt();
+    if (count < 0) throw new IOException("Negative count: " + count);
+    return count;
+  }
+
+  private static FrameInfo[] createFrames(int count) {
+    return count > 0 ? new FrameInfo[count] : FrameInfo.EMPTY_FRAME_INFO_ARRAY;
+  }
+}
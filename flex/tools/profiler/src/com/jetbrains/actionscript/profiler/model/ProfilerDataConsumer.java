@@ -2,15 +2,18 @@ package com.jetbrains.actionscript.profiler.model;
 
 import com.jetbrains.actionscript.profiler.sampler.CreateObjectSample;
 import com.jetbrains.actionscript.profiler.sampler.DeleteObjectSample;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfoBuilder;
 import com.jetbrains.actionscript.profiler.sampler.ObjectSampleHandler;
 import com.jetbrains.actionscript.profiler.sampler.Sample;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 public class ProfilerDataConsumer {
   private final ProfileData profileData = new ProfileData();
+  private final FrameInfoBuilder frameInfoBuilder = new FrameInfoBuilder();
   @Nullable private final ObjectSampleHandler objectSampleHandler;
 
   public ProfilerDataConsumer(@Nullable ObjectSampleHandler objectSampleHandler) {
@@ -21,6 +24,16 @@ public class ProfilerDataConsumer {
     return profileData;
   }
 
+  public FrameInfoBuilder getFrameInfoBuilder() {
+    return frameInfoBuilder;
+  }
+
+  public void process(List<Sample> samples) {
+    for (Sample sample : samples) {
+      process(sample);
+    }
+  }
+
   public void process(Sample sample) {
     if (sample instanceof CreateObjectSample) {
       final CreateObjectSample createObjectSample = (CreateObjectSample)sample;
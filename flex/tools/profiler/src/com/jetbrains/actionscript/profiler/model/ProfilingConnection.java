@@ -1,10 +1,7 @@
 package com.jetbrains.actionscript.profiler.model;
 
-import com.intellij.javascript.flex.mxml.schema.CodeContext;
-import com.intellij.lang.javascript.psi.JSCommonTypeNames;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
-import com.jetbrains.actionscript.profiler.sampler.*;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
@@ -25,7 +22,9 @@ public class ProfilingConnection {
   private final Map<String, PacketProcessor> myInitialString2ProcessorsMap = new HashMap<>();
   private final Callback myIoHandler;
   private final int myPort;
-  private static final int ourAgentVersion = 4;
+  private static final int ourAgentVersion = 5;
+  private final BinarySamplesDecoder mySamplesDecoder;
+  private boolean myBinaryMode;
   private boolean myAbortingSocketConnection;
   private boolean myDisposed;
 
@@ -36,26 +35,7 @@ public class ProfilingConnection {
       new PolicyFileRequestProcessor(port)
     );
 
-    BatchSamplesProcessor samplesProcessor = new BatchSamplesProcessor(sampleProcessor);
-    myInitialString2ProcessorsMap.put(
-      BatchSamplesProcessor.BATCH_MARKER,
-      samplesProcessor
-    );
-
-    myInitialString2ProcessorsMap.put(
-      BatchSamplesProcessor.CREATE_OBJECT_SAMPLE_MARKER,
-      samplesProcessor
-    );
-
-    myInitialString2ProcessorsMap.put(
-      BatchSamplesProcessor.SAMPLE_MARKER,
-      samplesProcessor
-    );
-
-    myInitialString2ProcessorsMap.put(
-      BatchSamplesProcessor.DELETE_OBJECT_SAMPLE_MARKER,
-      samplesProcessor
-    );
+    mySamplesDecoder = new BinarySamplesDecoder(sampleProcessor);
 
     myInitialString2ProcessorsMap.put(
       FinishCommandProcessor.END_COMMAND_MARKER,
@@ -78,11 +58,12 @@ public class ProfilingConnection {
   void connect() {
     myAbortingSocketConnection = false;
     myDisposed = false;
+    myBinaryMode = false;
     ensurePolicyServedEvenOnFlashSecurityPort();
     try {
       myServerSocket = new ServerSocket(myPort);
       Socket socket = myServerSocket.accept();
-      myInputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      myInputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
       myOutputStream = socket.getOutputStream();
       myServerSocket.close();
       myServerSocket = null;
@@ -101,39 +82,26 @@ public class ProfilingConnection {
     }
 
     ApplicationManager.getApplication().executeOnPooledThread(() -> {
-      int bytesRead = 0;
       try {
         while (true) {
-          String x = myInputStream.readUTF();
-          if (x == null) break;
-          LOG.debug(x);
-          bytesRead += x.length();
-          try {
-            if (myCurrentPacketProcessor == null) {
-              String marker = x;
-              int i = x.indexOf('\0');
-              if (i != -1) marker = x.substring(0, i + 1);
-              myCurrentPacketProcessor = myInitialString2ProcessorsMap.get(marker);
-              if (myCurrentPacketProcessor != null) {
-                myCurrentPacketProcessor.startingPacket(x);
-              }
-            }
-            if (myCurrentPacketProcessor != null) {
-              PacketProcessor.ProcessingResult processingResult = myCurrentPacketProcessor.process(x);
-              if (processingResult == PacketProcessor.ProcessingResult.FINISHED) myCurrentPacketProcessor = null;
-              if (processingResult == PacketProcessor.ProcessingResult.STOP) return;
+          if (myBinaryMode) {
+            final int tag = myInputStream.readUnsignedByte();
+            if (tag == BinarySamplesDecoder.TEXT) {
+              // e.g. command result: samples received before it must be visible to its callback
+              mySamplesDecoder.flush();
+              if (!processText(myInputStream.readUTF())) return;
             }
             else {
-              LOG.warn("No processing:" + x);
+              mySamplesDecoder.decode(tag, myInputStream);
             }
           }
-          catch (Exception e) {
-            LOG.error(e);
+          else {
+            if (!processText(myInputStream.readUTF())) return;
           }
         }
       }
       catch (IOException ex) {
-        LOG.debug("Bytes read:" + bytesRead);
+        mySamplesDecoder.flush();
         myIoHandler.finished(null, ex);
       }
       catch (Throwable t) {
@@ -142,6 +110,36 @@ public class ProfilingConnection {
     });
   }
 
+  /**
+   * @return false if reading must be stopped
+   */
+  private boolean processText(String x) {
+    LOG.debug(x);
+    try {
+      if (myCurrentPacketProcessor == null) {
+        String marker = x;
+        int i = x.indexOf('\0');
+        if (i != -1) marker = x.substring(0, i + 1);
+        myCurrentPacketProcessor = myInitialString2ProcessorsMap.get(marker);
+        if (myCurrentPacketProcessor != null) {
+          myCurrentPacketProcessor.startingPacket(x);
+        }
+      }
+      if (myCurrentPacketProcessor != null) {
+        PacketProcessor.ProcessingResult processingResult = myCurrentPacketProcessor.process(x);
+        if (processingResult == PacketProcessor.ProcessingResult.FINISHED) myCurrentPacketProcessor = null;
+        if (processingResult == PacketProcessor.ProcessingResult.STOP) return false;
+      }
+      else {
+        LOG.warn("No processing:" + x);
+      }
+    }
+    catch (Exception e) {
+      LOG.error(e);
+    }
+    return true;
+  }
+
   private void ensurePolicyServedEvenOnFlashSecurityPort() {
     ApplicationManager.getApplication().executeOnPooledThread(() -> {
       try {
@@ -169,8 +167,7 @@ public class ProfilingConnection {
   private static final int STOP_COLLECTING_LIVE_OBJECTS = 6;
 
   private void clearProfilingState() {
-    final PacketProcessor processor = myInitialString2ProcessorsMap.get(BatchSamplesProcessor.BATCH_MARKER);
-    ((BatchSamplesProcessor)processor).clearProfilingState();
+    mySamplesDecoder.clearProfilingState();
   }
 
   interface Callback {
@@ -269,178 +266,6 @@ public class ProfilingConnection {
            "</cross-domain-policy>\0";
   }
 
-  static class BatchSamplesProcessor extends PacketProcessor {
-    private static final String BATCH_MARKER = "b\0";
-    private static final String SAMPLE_MARKER = "s\0";
-    private static final String CREATE_OBJECT_SAMPLE_MARKER = "c\0";
-    private static final String DELETE_OBJECT_SAMPLE_MARKER = "d\0";
-
-    private final ProfilerDataConsumer mySampleProcessor;
-
-    private long sampleDuration = -1;
-    private int frameIndex;
-
-    private final Map<String, String> dictionary = new HashMap<>(1000);
-    private final Map<String, String> typeDictionary = new HashMap<>(1000);
-    private FrameInfo[] frames;
-    private String type;
-    private String specialArgs;
-    static final int INDEX = SAMPLE_MARKER.length();
-    private int cpuSamples;
-    private int memorySamples;
-    private Sample lastCpuSample;
-    private Sample lastCreateObjectSample;
-    private final FrameInfoBuilder frameInfoBuilder = new FrameInfoBuilder();
-
-    public BatchSamplesProcessor(ProfilerDataConsumer sampleProcessor) {
-      this.mySampleProcessor = sampleProcessor;
-    }
-
-    @Override
-    ProcessingResult process(String output) throws IOException {
-      if (frameIndex == -1) {
-        if (output.startsWith(BATCH_MARKER)) return ProcessingResult.FINISHED;
-
-        int i = INDEX + 1; //output.indexOf(' ', INDEX);
-        final boolean cpuSample = output.startsWith(SAMPLE_MARKER);
-
-        if (cpuSample) {
-          i = output.indexOf(' ', INDEX);
-          sampleDuration = Long.parseLong(output.substring(INDEX, i));
-          i += 2;
-        }
-
-        if (cpuSample ||
-            output.startsWith(CREATE_OBJECT_SAMPLE_MARKER) ||
-            output.startsWith(DELETE_OBJECT_SAMPLE_MARKER)) {
-          int i2 = output.indexOf(' ', i);
-          int frameCount = Integer.parseInt(output.substring(i - 1, i2 != -1 ? i2 : output.length()));
-          frames = frameCount > 0 ? new FrameInfo[frameCount] : FrameInfo.EMPTY_FRAME_INFO_ARRAY;
-          frameIndex = 0;
-          type = output;
-          specialArgs = i2 != -1 ? output.substring(i2 + 1) : "";
-
-          return maybeFinishSample();
-        }
-      }
-
-      if (frames != null && frameIndex >= 0 && frameIndex < frames.length) {
-
-        char ch = output.charAt(0);
-        if (output.startsWith("u>:")) {
-          int count = Integer.parseInt(output.substring(output.indexOf(':') + 1));
-          Sample s =
-            type.startsWith(CREATE_OBJECT_SAMPLE_MARKER) ? lastCreateObjectSample : type.startsWith(SAMPLE_MARKER) ? lastCpuSample : null;
-          for (int i = s.frames.length - count; i < s.frames.length; ++i) {
-            frames[frameIndex++] = s.frames[i];
-          }
-        }
-        else {
-          if (Character.isDigit(ch)) {
-            output = dictionary.get(output);
-          }
-          else {
-            dictionary.put("" + (dictionary.size() + 1), output);
-          }
-
-          frames[frameIndex++] = frameInfoBuilder.buildInstance(output);
-        }
-        return maybeFinishSample();
-      }
-
-      LOG.warn("Unexpected:" + output);
-
-      return ProcessingResult.FINISHED;
-    }
-
-    private ProcessingResult maybeFinishSample() {
-      if (frameIndex == frames.length) {
-        Sample sample;
-        if (type.startsWith(CREATE_OBJECT_SAMPLE_MARKER)) {
-          ++memorySamples;
-          final int endIndex = specialArgs.indexOf(' ');
-          final int endIndex2 = specialArgs.indexOf(' ', endIndex + 1);
-
-          final int id = Integer.parseInt(specialArgs.substring(0, endIndex));
-          String className = specialArgs.substring(endIndex + 1, endIndex2);
-          className = getClassName(className);
-          final int size = Integer.parseInt(specialArgs.substring(endIndex2 + 1));
-          sample = new CreateObjectSample(
-            sampleDuration,
-            frames,
-            id,
-            className,
-            size
-          );
-          lastCreateObjectSample = sample;
-        }
-        else if (type.startsWith(DELETE_OBJECT_SAMPLE_MARKER)) {
-          ++memorySamples;
-          final int endIndex = specialArgs.indexOf(' ');
-          int endIndex2 = specialArgs.indexOf(' ', endIndex + 1);
-          if (endIndex2 == -1) endIndex2 = specialArgs.length();
-          final int id = Integer.parseInt(specialArgs.substring(0, endIndex));
-          String type = specialArgs.substring(endIndex + 1, endIndex2);
-          final int size = endIndex2 != specialArgs.length() ? Integer.parseInt(specialArgs.substring(endIndex2 + 1)) : 0;
-          if (type != null) {
-            type = getClassName(type);
-            mySampleProcessor.process(new DeleteObjectSample(sampleDuration, frames, id, type, size));
-          }
-          return ProcessingResult.FINISHED;
-        }
-        else {
-          ++cpuSamples;
-          sample = new Sample(sampleDuration, frames);
-          lastCpuSample = sample;
-        }
-        mySampleProcessor.process(sample);
-        frameIndex = -1;
-        return ProcessingResult.FINISHED;
-      }
-      else {
-        return ProcessingResult.CONTINUE;
-      }
-    }
-
-    private String getClassName(String className) {
-      if (Character.isDigit(className.charAt(0))) {
-        className = typeDictionary.get(className);
-      }
-      else {
-        className = className.replace("::", ".");
-        if (className.startsWith(CodeContext.AS3_VEC_VECTOR_QUALIFIED_NAME)) {
-          className = JSCommonTypeNames.VECTOR_CLASS_NAME + className.substring(CodeContext.AS3_VEC_VECTOR_QUALIFIED_NAME.length());
-        }
-        typeDictionary.put(String.valueOf(typeDictionary.size()), className);
-      }
-      return className;
-    }
-
-    void startingPacket(String output) {
-      if (output.startsWith(BATCH_MARKER)) {
-        if (LOG.isDebugEnabled()) {
-          LOG.debug(output + "," + System.currentTimeMillis() + "," + cpuSamples + "," + memorySamples);
-        }
-        memorySamples = 0;
-        cpuSamples = 0;
-      }
-
-      frameIndex = -1;
-      frames = null;
-      type = null;
-      specialArgs = null;
-    }
-
-    private void clearProfilingState() {
-      dictionary.clear();
-      typeDictionary.clear();
-      lastCpuSample = null;
-      lastCreateObjectSample = null;
-      cpuSamples = 0;
-      memorySamples = 0;
-    }
-  }
-
   class FinishCommandProcessor extends PacketProcessor {
     static final String END_COMMAND_MARKER = "e\0";
 
@@ -466,6 +291,10 @@ public class ProfilingConnection {
         myOutputStream.close();
         myInputStream.close();
       }
+      else {
+        // everything after the handshake consists of binary records
+        myBinaryMode = true;
+      }
       return ProcessingResult.FINISHED;
     }
   }
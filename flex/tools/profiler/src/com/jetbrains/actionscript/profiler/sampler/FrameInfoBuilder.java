@@ -1,19 +1,50 @@
 package com.jetbrains.actionscript.profiler.sampler;
 
 import com.intellij.lang.javascript.psi.JSFunction;
-import com.intellij.openapi.util.text.StringUtil;
-import gnu.trove.THashMap;
-
-import java.util.Map;
 
 /**
+ * Parses frame strings sent by the profiler agent, e.g. <code>com.test::Foo/get bar()[C:\src;com\test;Foo.as:90]</code>.
+ * <p/>
+ * The parser works over char ranges of a reused buffer, only the resulting field values are created as strings, and they
+ * are interned, so frames of one class share package, file and directory names. Parsed frames, canonical frame
+ * instances and interned strings are kept in fixed-capacity direct-mapped tables: a colliding entry evicts the previous one,
+ * so memory doesn't grow with the length of the profiling session.
+ *
  * @author: Fedor.Korotkov
  */
 public class FrameInfoBuilder {
-  private final String[] suffixes = {"$", "$cinit()"};
-  private final Map<String, FrameInfo> cache = new THashMap<>();
-  private final Map<FrameInfo, FrameInfo> cacheInstances = new THashMap<>();
-  private final int UNKNOWN_LINE = -1;
+  private static final String[] SUFFIXES = {"$", "$cinit()"};
+  private static final int UNKNOWN_LINE = -1;
+  static final int DEFAULT_CAPACITY = 1 << 14;
+
+  private final int myMask;
+  private final String[] myKeys;
+  private final FrameInfo[] myFrames;
+  private final FrameInfo[] myInstances;
+  private final String[] myStrings;
+
+  private char[] myChars = new char[256];
+  private char[] myBuffer = new char[256];
+
+  // written by the thread that builds frames only
+  private volatile long myHitCount;
+  private volatile long myMissCount;
+
+  public FrameInfoBuilder() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity power of 2
+   */
+  FrameInfoBuilder(int capacity) {
+    assert Integer.bitCount(capacity) == 1 : capacity;
+    myMask = capacity - 1;
+    myKeys = new String[capacity];
+    myFrames = new FrameInfo[capacity];
+    myInstances = new FrameInfo[capacity];
+    myStrings = new String[capacity];
+  }
 
   FrameInfo[] buildInstances(String[] frames) {
     FrameInfo[] result = new FrameInfo[frames.length];
@@ -24,73 +55,99 @@ public class FrameInfoBuilder {
   }
 
   public FrameInfo buildInstance(String data) {
-    FrameInfo result = cache.get(data);
-    if (result == null) {
-      result = createInstance(data);
-      FrameInfo cashedInstance = cacheInstances.get(result);
-      //do NOT put anonymous in cache
-      if (!result.isAnonymous() && cashedInstance != null) {
-        int fileLine = Math.min(cashedInstance.getFileLine(), result.getFileLine());
+    final int slot = slot(data.hashCode());
+    FrameInfo result = myFrames[slot];
+    if (result != null && data.equals(myKeys[slot])) {
+      ++myHitCount;
+      return result;
+    }
+    ++myMissCount;
+
+    result = createInstance(data);
+    //do NOT put anonymous in cache
+    if (!result.isAnonymous()) {
+      final int instanceSlot = slot(result.hashCode());
+      final FrameInfo cachedInstance = myInstances[instanceSlot];
+      if (cachedInstance != null && cachedInstance.equals(result)) {
+        int fileLine = Math.min(cachedInstance.getFileLine(), result.getFileLine());
         if (fileLine != -1) {
-          cashedInstance.setFileLine(fileLine);
+          cachedInstance.setFileLine(fileLine);
         }
-        result = cashedInstance;
+        result = cachedInstance;
       }
-      else if (!result.isAnonymous()) {
-        cacheInstances.put(result, result);
+      else {
+        myInstances[instanceSlot] = result;
       }
-      cache.put(data, result);
     }
+    myKeys[slot] = data;
+    myFrames[slot] = result;
     return result;
   }
 
+  public long getHitCount() {
+    return myHitCount;
+  }
+
+  public long getMissCount() {
+    return myMissCount;
+  }
+
   public FrameInfo createInstance(final String data) {
+    final int length = data.length();
+    if (myChars.length < length) {
+      myChars = new char[Math.max(length, myChars.length * 2)];
+      myBuffer = new char[myChars.length];
+    }
+    final char[] chars = myChars;
+    data.getChars(0, length, chars, 0);
+
     int line = UNKNOWN_LINE;
     String dir = null;
     String packageName = null;
     String filename = null;
 
-    final int i = data.indexOf('[');
-    final int i2 = data.indexOf(']', i);
+    final int i = indexOf(chars, '[', 0, length);
+    final int i2 = i == -1 ? -1 : indexOf(chars, ']', i, length);
 
     if (i != -1 && i2 != -1) { // try navigate from debug info [path;package path;file:line] , btw it can be invalid for SDK
-      String s = data.substring(i + 1, i2);
-      int i3 = s.indexOf(';');
-      int i4 = s.indexOf(';', i3 + 1);
+      final int i3 = indexOf(chars, ';', i + 1, i2);
+      final int i4 = i3 == -1 ? -1 : indexOf(chars, ';', i3 + 1, i2);
 
-      if (i3 != -1) {
-        dir = s.substring(0, i3);
-        packageName = s.substring(i3 + 1, i4);
-        filename = s.substring(i4 + 1);
+      if (i4 != -1) {
+        dir = intern(chars, i + 1, i3);
+        for (int k = i3 + 1; k < i4; k++) {
+          final char c = chars[k];
+          myBuffer[k] = c == '\\' || c == '/' ? '.' : c;
+        }
+        packageName = intern(myBuffer, i3 + 1, i4);
 
-        packageName = packageName.replace('\\', '.').replace('/', '.');
-        final int endIndex = filename.indexOf(':');
+        final int endIndex = indexOf(chars, ':', i4 + 1, i2);
         line = 0;
         if (endIndex != -1) {
-          line = Integer.parseInt(filename.substring(endIndex + 1));
-          filename = filename.substring(0, endIndex);
+          line = parseInt(chars, endIndex + 1, i2);
+          filename = intern(chars, i4 + 1, endIndex);
+        }
+        else {
+          filename = intern(chars, i4 + 1, i2);
         }
-
-        String className = packageName;
-        if (className.length() > 0) className += ".";
-        className += filename.substring(0, filename.indexOf('.'));
       }
     }
 
-    String s = data;
-    if (i != -1) s = s.substring(0, i);
-    int packageEnd = s.indexOf("::");
-    int methodNameStart = s.indexOf('/');
-    if (methodNameStart < packageEnd) {
-      //namespace
-      packageEnd = -1;
-    }
-    String qName = methodNameStart != -1 ? s.substring(0, methodNameStart) : s;
-    qName = StringUtil.replace(qName, "::", ".");
+    final int end = i != -1 ? i : length;
+    int methodNameStart = indexOf(chars, '/', 0, end);
 
-    for (String suffix : suffixes) {
-      if (qName.endsWith(suffix)) {
-        qName = qName.substring(0, qName.length() - suffix.length());
+    // qName with '::' replaced by '.'
+    int qNameLength = 0;
+    for (int k = 0, qNameEnd = methodNameStart != -1 ? methodNameStart : end; k < qNameEnd; k++) {
+      myBuffer[qNameLength++] = chars[k];
+      if (chars[k] == ':' && k + 1 < qNameEnd && chars[k + 1] == ':') {
+        myBuffer[qNameLength - 1] = '.';
+        k++;
+      }
+    }
+    for (String suffix : SUFFIXES) {
+      if (endsWith(myBuffer, qNameLength, suffix)) {
+        qNameLength -= suffix.length();
         break;
       }
     }
@@ -99,45 +156,122 @@ public class FrameInfoBuilder {
     String namespace = null;
     JSFunction.FunctionKind kind = null;
 
-    final int constructorStart = qName.indexOf('(');
+    final int constructorStart = indexOf(myBuffer, '(', 0, qNameLength);
     if (methodNameStart == -1 && constructorStart != -1) {
-      qName = qName.substring(0, constructorStart);
-      methodName = qName.substring(qName.lastIndexOf('.') + 1);
+      qNameLength = constructorStart;
+      methodName = intern(myBuffer, lastIndexOf(myBuffer, '.', qNameLength) + 1, qNameLength);
     }
     else if (methodNameStart != -1) {
       ++methodNameStart;
-      int methodNameEnd = s.indexOf('(', methodNameStart);
-      if (methodNameEnd == -1) methodNameEnd = s.length();
-      int possibleGetSet = s.indexOf(' ', methodNameStart);
+      int methodNameEnd = indexOf(chars, '(', methodNameStart, end);
+      if (methodNameEnd == -1) methodNameEnd = end;
+      final int possibleGetSet = indexOf(chars, ' ', methodNameStart, methodNameEnd);
       final int oldMethodStart = methodNameStart;
       if (possibleGetSet != -1) methodNameStart = possibleGetSet + 1;
-      methodName = s.substring(methodNameStart, methodNameEnd);
-      final int nsStart = methodName.indexOf("::");
+      final int nsStart = indexOf(chars, "::", methodNameStart, methodNameEnd);
       if (nsStart != -1) {
-        namespace = methodName.substring(0, nsStart);
-        methodName = methodName.substring(nsStart + "::".length());
+        namespace = intern(chars, methodNameStart, nsStart);
+        methodName = intern(chars, nsStart + "::".length(), methodNameEnd);
+      }
+      else {
+        methodName = intern(chars, methodNameStart, methodNameEnd);
       }
 
       if (possibleGetSet != -1) {
-        String getOrSet = s.substring(oldMethodStart, possibleGetSet);
-        if ("get".equals(getOrSet)) {
+        if (regionEquals(chars, oldMethodStart, possibleGetSet, "get")) {
           kind = JSFunction.FunctionKind.GETTER;
         }
-        else if ("set".equals(getOrSet)) kind = JSFunction.FunctionKind.SETTER;
+        else if (regionEquals(chars, oldMethodStart, possibleGetSet, "set")) kind = JSFunction.FunctionKind.SETTER;
       }
 
       if ("ctor".equals(methodName)) {
-        methodName = qName.substring(qName.lastIndexOf('.') + 1);
+        methodName = intern(myBuffer, lastIndexOf(myBuffer, '.', qNameLength) + 1, qNameLength);
       }
     }
 
-    if (qName.length() == 0 && data.matches("\\[.*\\]\\(\\)")) {
-      methodName = data.substring(1, data.length() - 3);
+    if (qNameLength == 0 && isSystemFrame(chars, length)) {
+      methodName = intern(chars, 1, length - 3);
     }
 
-    if (packageName == null && qName.lastIndexOf('.') != -1) {
-      packageName = qName.substring(0, qName.lastIndexOf('.'));
+    final int lastDot = lastIndexOf(myBuffer, '.', qNameLength);
+    if (packageName == null && lastDot != -1) {
+      packageName = intern(myBuffer, 0, lastDot);
     }
+    final String qName = intern(myBuffer, 0, qNameLength);
     return new FrameInfo(dir, filename, line, packageName, qName, methodName, kind, namespace);
   }
+
+  private String intern(char[] chars, int start, int end) {
+    int hash = 0;
+    for (int k = start; k < end; k++) {
+      hash = 31 * hash + chars[k];
+    }
+    final int slot = slot(hash);
+    String result = myStrings[slot];
+    if (result == null || !regionEquals(chars, start, end, result)) {
+      result = new String(chars, start, end - start);
+      myStrings[slot] = result;
+    }
+    return result;
+  }
+
+  private int slot(int hash) {
+    return (hash ^ (hash >>> 16)) & myMask;
+  }
+
+  /**
+   * [name]()
+   */
+  private static boolean isSystemFrame(char[] chars, int length) {
+    if (length < 4 || chars[0] != '[' || !regionEquals(chars, length - 3, length, "]()")) {
+      return false;
+    }
+    for (int k = 1; k < length - 3; k++) {
+      if (chars[k] == '\n' || chars[k] == '\r') return false;
+    }
+    return true;
+  }
+
+  private static int parseInt(char[] chars, int start, int end) {
+    int result = 0;
+    for (int k = start; k < end; k++) {
+      final int digit = chars[k] - '0';
+      if (digit < 0 || digit > 9) return UNKNOWN_LINE;
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  private static int indexOf(char[] chars, char c, int start, int end) {
+    for (int k = start; k < end; k++) {
+      if (chars[k] == c) return k;
+    }
+    return -1;
+  }
+
+  private static int indexOf(char[] chars, String s, int start, int end) {
+    for (int k = start; k + s.length() <= end; k++) {
+      if (regionEquals(chars, k, k + s.length(), s)) return k;
+    }
+    return -1;
+  }
+
+  private static int lastIndexOf(char[] chars, char c, int end) {
+    for (int k = end - 1; k >= 0; k--) {
+      if (chars[k] == c) return k;
+    }
+    return -1;
+  }
+
+  private static boolean endsWith(char[] chars, int length, String suffix) {
+    return length >= suffix.length() && regionEquals(chars, length - suffix.length(), length, suffix);
+  }
+
+  private static boolean regionEquals(char[] chars, int start, int end, String s) {
+    if (end - start != s.length()) return false;
+    for (int k = start; k < end; k++) {
+      if (chars[k] != s.charAt(k - start)) return false;
+    }
+    return true;
+  }
 }
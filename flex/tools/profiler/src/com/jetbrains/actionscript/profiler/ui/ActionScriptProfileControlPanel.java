@@ -11,6 +11,7 @@ import com.intellij.ui.ColoredTreeCellRenderer;
 import com.intellij.ui.PopupHandler;
 import com.intellij.util.Alarm;
 import com.intellij.util.EditSourceOnDoubleClickHandler;
+import com.intellij.util.ui.UIUtil;
 import com.jetbrains.actionscript.profiler.ProfilerBundle;
 import com.jetbrains.actionscript.profiler.base.NavigatableTree;
 import com.jetbrains.actionscript.profiler.base.ProfilerActionGroup;
@@ -18,6 +19,7 @@ import com.jetbrains.actionscript.profiler.livetable.LiveModelController;
 import com.jetbrains.actionscript.profiler.model.ActionScriptProfileSettings;
 import com.jetbrains.actionscript.profiler.model.ProfilerDataConsumer;
 import com.jetbrains.actionscript.profiler.model.ProfilingManager;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfoBuilder;
 import com.jetbrains.actionscript.profiler.ui.node.CPUSnapshotNode;
 import com.jetbrains.actionscript.profiler.ui.node.LiveObjectsNode;
 import icons.FlexProfilerIcons;
@@ -35,6 +37,7 @@ public class ActionScriptProfileControlPanel implements ProfilerActionGroup, Dis
   private JPanel mainPanel;
   private NavigatableTree snapshotTree;
   private JLabel myStatusLabel;
+  private JLabel myFrameCacheLabel;
   private final DefaultTreeModel treeModel;
 
   private ProfilingManager profilingManager;
@@ -46,6 +49,8 @@ public class ActionScriptProfileControlPanel implements ProfilerActionGroup, Dis
 
   private final Alarm myAlarm = new Alarm();
   private static final int MINUTE = 60 * 1000;
+  private static final int STATISTICS_UPDATE_PERIOD = 2000;
+  private final Timer myStatisticsTimer;
 
   public ActionScriptProfileControlPanel(String runConfigurationName, final Module module) {
     this.runConfigurationName = runConfigurationName;
@@ -56,6 +61,9 @@ public class ActionScriptProfileControlPanel implements ProfilerActionGroup, Dis
     snapshotTree.setRootVisible(false);
 
     setupComponents();
+
+    myStatisticsTimer = UIUtil.createNamedTimer("ActionScriptProfilerStatistics", STATISTICS_UPDATE_PERIOD, e -> updateStatistics());
+    myStatisticsTimer.start();
   }
 
   public JPanel getMainPanel() {
@@ -76,6 +84,16 @@ public class ActionScriptProfileControlPanel implements ProfilerActionGroup, Dis
     ApplicationManager.getApplication().invokeLater(() -> myStatusLabel.setText(status));
   }
 
+  private void updateStatistics() {
+    final ProfilerDataConsumer consumer = profilerDataConsumer;
+    if (consumer == null) {
+      return;
+    }
+    final FrameInfoBuilder frameInfoBuilder = consumer.getFrameInfoBuilder();
+    myFrameCacheLabel.setText(
+      ProfilerBundle.message("frame.cache.statistics", frameInfoBuilder.getHitCount(), frameInfoBuilder.getMissCount()));
+  }
+
   private void setupComponents() {
     EditSourceOnDoubleClickHandler.install(snapshotTree);
     PopupHandler.installPopupHandler(snapshotTree, PROFILER_SNAPSHOT_GROUP_ID, ActionPlaces.UNKNOWN);
@@ -145,6 +163,7 @@ public class ActionScriptProfileControlPanel implements ProfilerActionGroup, Dis
 
   @Override
   public void dispose() {
+    myStatisticsTimer.stop();
     profilingManager.dispose();
     Disposer.dispose(myAlarm);
   }
@@ -6,6 +6,7 @@ import com.intellij.ide.util.scopeChooser.ScopeDescriptor;
 import com.intellij.lang.javascript.psi.ecmal4.JSClass;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.ActionPlaces;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.DumbServiceImpl;
 import com.intellij.openapi.project.Project;
@@ -44,6 +45,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author: Fedor.Korotkov
@@ -51,6 +53,7 @@ import java.util.List;
 public class LiveObjectsView extends ProfileView implements Disposable {
   private static final Logger LOG = Logger.getInstance(LiveObjectsView.class.getName());
   private static final int MS_COLUMN_WIDTH = 140;
+  private static final int REFRESH_PERIOD = 2000;
   private JCheckBox liveUpdatesCheckBox;
   private LiveObjectsTreeTable liveObjectsTreeTable;
   private JPanel mainPanel;
@@ -61,6 +64,8 @@ public class LiveObjectsView extends ProfileView implements Disposable {
   private final ProfilingManager profilingManager;
 
   private Timer updateTimer = null;
+  private final AtomicBoolean updating = new AtomicBoolean();
+  private volatile boolean disposed;
 
   public LiveObjectsView(VirtualFile file, Project project) {
     super(file, project);
@@ -71,21 +76,30 @@ public class LiveObjectsView extends ProfileView implements Disposable {
     if (controller == null || profilingManager == null) {
       return;
     }
-    updateTimer = UIUtil.createNamedTimer("LiveObjects", 2000, new ActionListener() {
+    updateTimer = UIUtil.createNamedTimer("LiveObjects", REFRESH_PERIOD, new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent e) {
         if (!liveUpdatesCheckBox.isSelected() || DumbServiceImpl.getInstance(getProject()).isDumb()) {
           return;
         }
-        final List<TreePath> paths = TreeUtil.collectExpandedPaths(liveObjectsTreeTable.getTree());
-        final TreePath selectionPath = liveObjectsTreeTable.getTree().getSelectionPath();
-        controller.updateScope(getCurrentScope());
-        controller.apply(liveObjectsTreeTable.getSortableTreeTableModel());
-        liveObjectsTreeTable.reload();
-        TreeUtil.restoreExpandedPaths(liveObjectsTreeTable.getTree(), paths);
-        liveObjectsTreeTable.getTree().setSelectionPath(selectionPath);
-
-        myAllocatedMemory.setText(ProfilerBundle.message("allocated.memory.size", controller.getAllocatedMemorySize()));
+        // previous snapshot isn't shown yet
+        if (!updating.compareAndSet(false, true)) {
+          return;
+        }
+        final GlobalSearchScope scope = getCurrentScope();
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+          try {
+            controller.updateSnapshot(scope);
+          }
+          finally {
+            ApplicationManager.getApplication().invokeLater(() -> {
+              updating.set(false);
+              if (!disposed) {
+                showSnapshot();
+              }
+            });
+          }
+        });
       }
     });
     updateTimer.setInitialDelay(1000);
@@ -126,6 +140,17 @@ public class LiveObjectsView extends ProfileView implements Disposable {
     });
   }
 
+  private void showSnapshot() {
+    final List<TreePath> paths = TreeUtil.collectExpandedPaths(liveObjectsTreeTable.getTree());
+    final TreePath selectionPath = liveObjectsTreeTable.getTree().getSelectionPath();
+    controller.apply(liveObjectsTreeTable.getSortableTreeTableModel());
+    liveObjectsTreeTable.reload();
+    TreeUtil.restoreExpandedPaths(liveObjectsTreeTable.getTree(), paths);
+    liveObjectsTreeTable.getTree().setSelectionPath(selectionPath);
+
+    myAllocatedMemory.setText(ProfilerBundle.message("allocated.memory.size", controller.getAllocatedMemorySize()));
+  }
+
   @Override
   protected void uiSettingsChange() {
     super.uiSettingsChange();
@@ -188,6 +213,7 @@ public class LiveObjectsView extends ProfileView implements Disposable {
   @Override
   public void dispose() {
     super.dispose();
+    disposed = true;
     if (updateTimer != null) {
       updateTimer.stop();
     }
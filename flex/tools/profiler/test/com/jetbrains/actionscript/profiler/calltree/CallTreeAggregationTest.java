@@ -0,0 +1,307 @@
+package com.jetbrains.actionscript.profiler.calltree;
+
+import com.intellij.openapi.util.Pair;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.util.ArrayUtil;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import com.jetbrains.actionscript.profiler.sampler.FrameUtil;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import junit.framework.TestCase;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Time maps of {@link CallTree} must be the same as the ones computed over a tree of node objects,
+ * which is how call trees were stored before, see {@link ReferenceNode}. The node-based tree is also the baseline for heap usage.
+ */
+public class CallTreeAggregationTest extends TestCase {
+  private static final int METHOD_COUNT = 40;
+
+  private final FrameInfo[] myMethods = new FrameInfo[METHOD_COUNT];
+  private final FrameInfo mySystemFrame = FrameUtil.getFrameInfo("");
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    for (int i = 0; i < myMethods.length; i++) {
+      myMethods[i] = FrameUtil.getFrameInfo("com.example.Class" + (i % 7) + ".method" + i);
+    }
+  }
+
+  private List<FrameInfo[]> generateSamples(final Random random, final int sampleCount) {
+    final List<FrameInfo[]> samples = new ArrayList<>();
+    for (int i = 0; i < sampleCount; i++) {
+      final FrameInfo[] frames = new FrameInfo[1 + random.nextInt(12)];
+      for (int j = 0; j < frames.length; j++) {
+        // few methods, so that there are recursive calls and the same chains under different callers
+        frames[j] = random.nextInt(10) == 0 ? mySystemFrame : myMethods[random.nextInt(10 + j % 5)];
+      }
+      samples.add(frames);
+    }
+    return samples;
+  }
+
+  private FrameInfo[] randomChain(final Random random) {
+    final FrameInfo[] frames = new FrameInfo[1 + random.nextInt(3)];
+    for (int i = 0; i < frames.length; i++) {
+      frames[i] = myMethods[random.nextInt(15)];
+    }
+    return frames;
+  }
+
+  public void testSameAsReference() {
+    for (int seed = 0; seed < 20; seed++) {
+      final Random random = new Random(seed);
+      final CallTree callTree = new CallTree();
+      final ReferenceNode reference = new ReferenceNode(null);
+      for (FrameInfo[] frames : generateSamples(random, 500)) {
+        final long duration = 1 + random.nextInt(10);
+        callTree.addFrames(frames, duration);
+        reference.addFrames(frames, duration);
+      }
+
+      assertSameTimeMaps(reference, callTree, random);
+      assertSameTimeMaps(reference.filterSystemStuff(), CallTreeUtil.filterSystemStuff(callTree), random);
+    }
+  }
+
+  public void testEmptyTree() {
+    final CallTree callTree = new CallTree();
+    final FrameInfo[] frames = {myMethods[0]};
+    assertTrue(callTree.getTimeMaps().getFirst().isEmpty());
+    assertTrue(callTree.getCallersTimeMaps(frames).getFirst().isEmpty());
+    assertTrue(callTree.getCalleesTimeMaps(frames).getFirst().isEmpty());
+    assertTrue(callTree.getCallersTimeMaps(FrameInfo.EMPTY_FRAME_INFO_ARRAY).getFirst().isEmpty());
+  }
+
+  public void testQueries() {
+    final Random random = new Random(0);
+    final CallTree callTree = new CallTree();
+    for (FrameInfo[] frames : generateSamples(random, 100_000)) {
+      callTree.addFrames(frames, 1 + random.nextInt(10));
+    }
+    final FrameInfo[] frames = {myMethods[7]};
+    PlatformTestUtil.startPerformanceTest("Call tree queries", 5_000, () -> {
+      assertFalse(callTree.getTimeMaps().getFirst().isEmpty());
+      assertFalse(callTree.getCallersTimeMaps(frames).getFirst().isEmpty());
+      assertFalse(callTree.getCalleesTimeMaps(frames).getFirst().isEmpty());
+      assertTrue(CallTreeUtil.filterSystemStuff(callTree).getNodeCount() <= callTree.getNodeCount());
+    }).assertTiming();
+  }
+
+  public void testRetainedHeap() {
+    // long session: deep stacks over a few thousand methods, most samples create new nodes
+    final FrameInfo[] methods = new FrameInfo[3000];
+    for (int i = 0; i < methods.length; i++) {
+      methods[i] = FrameUtil.getFrameInfo("com.example.Class" + (i % 300) + ".method" + i);
+    }
+    final Random random = new Random(0);
+    final List<FrameInfo[]> samples = new ArrayList<>();
+    for (int i = 0; i < 20_000; i++) {
+      final FrameInfo[] frames = new FrameInfo[10 + random.nextInt(20)];
+      for (int j = 0; j < frames.length; j++) {
+        frames[j] = methods[j < frames.length / 2 ? random.nextInt(methods.length) : (frames.length - j) * 7];
+      }
+      samples.add(frames);
+    }
+
+    final long callTreeSize = measureRetainedHeap(() -> {
+      final CallTree callTree = new CallTree();
+      for (FrameInfo[] frames : samples) {
+        callTree.addFrames(frames, 1);
+      }
+      return callTree;
+    });
+    final long referenceSize = measureRetainedHeap(() -> {
+      final ReferenceNode reference = new ReferenceNode(null);
+      for (FrameInfo[] frames : samples) {
+        reference.addFrames(frames, 1);
+      }
+      return reference;
+    });
+
+    final String message = "call tree: " + callTreeSize + " bytes, node-based tree: " + referenceSize + " bytes";
+    assertTrue(message, callTreeSize > 0);
+    assertTrue(message, callTreeSize * 2 <= referenceSize);
+  }
+
+  /**
+   * Heap that the built object keeps reachable: the difference between the used heap after garbage collection with and without it.
+   */
+  private static long measureRetainedHeap(final Supplier<?> builder) {
+    final long before = getUsedHeapAfterGc();
+    final Object result = builder.get();
+    final long after = getUsedHeapAfterGc();
+    assertNotNull(result); // keeps the object reachable until the heap is measured
+    return after - before;
+  }
+
+  private static long getUsedHeapAfterGc() {
+    final Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private void assertSameTimeMaps(final ReferenceNode reference, final CallTree callTree, final Random random) {
+    assertEquals(reference.getTimeMaps(), callTree.getTimeMaps());
+    for (int i = 0; i < 20; i++) {
+      final FrameInfo[] frames = randomChain(random);
+      final String message = Arrays.toString(frames);
+      assertEquals(message, reference.getCallersTimeMaps(frames), callTree.getCallersTimeMaps(frames));
+      assertEquals(message, reference.getCalleesTimeMaps(frames), callTree.getCalleesTimeMaps(frames));
+    }
+  }
+
+  /**
+   * Node of a call tree as it was stored before {@link CallTree} switched to arrays, with the same aggregation code.
+   */
+  private static class ReferenceNode {
+    private final FrameInfo myFrameInfo;
+    private long myDuration;
+    private final Map<FrameInfo, ReferenceNode> myChildren = new LinkedHashMap<>();
+
+    private ReferenceNode(FrameInfo frameInfo) {
+      myFrameInfo = frameInfo;
+    }
+
+    void addFrames(FrameInfo[] frames, long duration) {
+      ReferenceNode node = this;
+      for (FrameInfo frame : ArrayUtil.reverseArray(frames)) {
+        ReferenceNode child = node.myChildren.get(frame);
+        if (child == null) {
+          child = new ReferenceNode(frame);
+          node.myChildren.put(frame, child);
+        }
+        child.myDuration += duration;
+        node = child;
+      }
+    }
+
+    ReferenceNode getChildDeep(FrameInfo[] frames) {
+      ReferenceNode node = this;
+      for (FrameInfo frame : frames) {
+        node = node.myChildren.get(frame);
+        if (node == null) return null;
+      }
+      return node;
+    }
+
+    Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getTimeMaps() {
+      return buildTimeMaps(myChildren.values());
+    }
+
+    Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCallersTimeMaps(FrameInfo[] frames) {
+      final List<ReferenceNode> calls = new ArrayList<>();
+      if (frames.length > 0) {
+        final FrameInfo[] reversed = ArrayUtil.reverseArray(frames);
+        for (ReferenceNode child : myChildren.values()) {
+          child.fillCallers(calls, reversed, new ArrayList<>());
+        }
+      }
+      final Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> timeMaps = buildTimeMaps(calls);
+      final Set<FrameInfo> callerNames = new THashSet<>();
+      for (ReferenceNode call : calls) {
+        callerNames.add(call.myFrameInfo);
+      }
+      timeMaps.getFirst().keySet().retainAll(callerNames);
+      timeMaps.getSecond().keySet().retainAll(callerNames);
+      return timeMaps;
+    }
+
+    private void fillCallers(List<ReferenceNode> result, FrameInfo[] frames, List<FrameInfo> callChainAddedFrames) {
+      final boolean needAdd = !callChainAddedFrames.contains(myFrameInfo) && getChildDeep(frames) != null;
+      if (needAdd) {
+        result.add(this);
+        callChainAddedFrames.add(myFrameInfo);
+      }
+      for (ReferenceNode child : myChildren.values()) {
+        child.fillCallers(result, frames, callChainAddedFrames);
+      }
+      if (needAdd) {
+        callChainAddedFrames.remove(callChainAddedFrames.size() - 1);
+      }
+    }
+
+    Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCalleesTimeMaps(FrameInfo[] frames) {
+      final List<ReferenceNode> calls = new ArrayList<>();
+      fillCallees(ArrayUtil.reverseArray(frames), calls);
+      return buildTimeMaps(calls);
+    }
+
+    private void fillCallees(FrameInfo[] frames, List<ReferenceNode> result) {
+      final ReferenceNode deepChild = getChildDeep(frames);
+      if (deepChild != null) {
+        result.addAll(deepChild.myChildren.values());
+      }
+      for (ReferenceNode child : myChildren.values()) {
+        child.fillCallees(frames, result);
+      }
+    }
+
+    private Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> buildTimeMaps(Collection<ReferenceNode> calls) {
+      final Map<FrameInfo, Long> countMap = new THashMap<>();
+      final Map<FrameInfo, Long> selfCountMap = new THashMap<>();
+      final Set<ReferenceNode> trackedCalls = Collections.newSetFromMap(new IdentityHashMap<>());
+      trackedCalls.addAll(calls);
+      for (ReferenceNode child : myChildren.values()) {
+        child.fillTimeMaps(countMap, selfCountMap, trackedCalls.contains(child), trackedCalls);
+      }
+      return Pair.create(countMap, selfCountMap);
+    }
+
+    private void fillTimeMaps(Map<FrameInfo, Long> countMap,
+                              Map<FrameInfo, Long> selfCountMap,
+                              boolean tracking,
+                              Set<ReferenceNode> trackedCalls) {
+      if (tracking) {
+        long childrenTiming = 0;
+        for (ReferenceNode child : myChildren.values()) {
+          childrenTiming += child.myDuration;
+        }
+        final Long selfTime = selfCountMap.get(myFrameInfo);
+        selfCountMap.put(myFrameInfo, (selfTime == null ? 0 : selfTime) + myDuration - childrenTiming);
+      }
+
+      final Long countBefore = countMap.get(myFrameInfo);
+      for (ReferenceNode child : myChildren.values()) {
+        child.fillTimeMaps(countMap, selfCountMap, tracking || trackedCalls.contains(child), trackedCalls);
+      }
+      if (tracking) {
+        countMap.put(myFrameInfo, (countBefore == null ? 0 : countBefore) + myDuration);
+      }
+    }
+
+    ReferenceNode filterSystemStuff() {
+      final ReferenceNode result = new ReferenceNode(myFrameInfo);
+      result.myDuration = myDuration;
+      for (ReferenceNode child : myChildren.values()) {
+        final ReferenceNode newChild = child.filterSystemStuff();
+        if (newChild.myFrameInfo.isSystem()) {
+          for (ReferenceNode grandChild : newChild.myChildren.values()) {
+            result.addChildRecursive(grandChild);
+          }
+        }
+        else {
+          result.addChildRecursive(newChild);
+        }
+      }
+      return result;
+    }
+
+    private void addChildRecursive(ReferenceNode newChild) {
+      final ReferenceNode child = myChildren.get(newChild.myFrameInfo);
+      if (child == null) {
+        myChildren.put(newChild.myFrameInfo, newChild);
+        return;
+      }
+      child.myDuration += newChild.myDuration;
+      for (ReferenceNode grandChild : newChild.myChildren.values()) {
+        child.addChildRecursive(grandChild);
+      }
+    }
+  }
+}
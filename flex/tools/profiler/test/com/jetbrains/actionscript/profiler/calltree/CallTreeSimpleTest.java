@@ -16,4 +16,8 @@ public class CallTreeSimpleTest extends CallTreeTest {
   public void testSimpleNested() throws IOException {
     doTest("simple_nested.xml", "simple_nested_results.xml");
   }
+
+  public void testDuplicateSiblings() throws IOException {
+    doTest("simple_duplicates.xml", "simple_duplicates_results.xml");
+  }
 }
@@ -11,26 +11,37 @@ public class CallTreeTestUtil {
   }
 
   public static CallTree getCallTreeFromXmlFile(@NotNull XmlTag rootTag) {
-    CallTreeNode root = getCallTreeNodeFromXmlTag(rootTag);
-    return new CallTree(root);
+    CallTree callTree = new CallTree();
+    addChildrenFromXmlTag(callTree, CallTree.ROOT, rootTag, Integer.MAX_VALUE);
+    return callTree;
   }
 
-  private static CallTreeNode getCallTreeNodeFromXmlTag(XmlTag rootTag) {
-    int count = Integer.MAX_VALUE;
-    String countStr = rootTag.getAttributeValue("count");
-    if (countStr != null) {
-      count = Integer.parseInt(countStr);
+  private static void addChildrenFromXmlTag(CallTree callTree, int node, XmlTag tag, int count) {
+    if (tag.isEmpty()) {
+      return;
     }
-    FrameInfo frameInfo = FrameUtil.getFrameInfo(rootTag.getName());
-    CallTreeNode node = new CallTreeNode(frameInfo, count);
-    if (rootTag.isEmpty()) {
-      return node;
+    for (XmlTag childTag : tag.getSubTags()) {
+      int childCount = getCount(childTag);
+      FrameInfo frameInfo = FrameUtil.getFrameInfo(childTag.getName());
+      int child = callTree.getOrCreateChild(node, frameInfo, childCount);
+      addChildrenFromXmlTag(callTree, child, childTag, childCount);
+      // checked per tag: sibling tags with the same frame are merged into one node of the tree
+      Assert.assertTrue("Bad edge " + tag.getName() + "->" + childTag.getName(), calcChildrenCount(childTag) <= count);
     }
-    for (XmlTag childTag : rootTag.getSubTags()) {
-      CallTreeNode childNode = getCallTreeNodeFromXmlTag(childTag);
-      node.addChildRecursive(childNode);
-      Assert.assertTrue("Bad edge " + node.getFrameInfo() + "->" + childNode.getFrameInfo(), childNode.calcSelfTiming() <= count);
+  }
+
+  private static long calcChildrenCount(XmlTag tag) {
+    long result = 0;
+    if (!tag.isEmpty()) {
+      for (XmlTag childTag : tag.getSubTags()) {
+        result += getCount(childTag);
+      }
     }
-    return node;
+    return result;
+  }
+
+  private static int getCount(XmlTag tag) {
+    String countStr = tag.getAttributeValue("count");
+    return countStr != null ? Integer.parseInt(countStr) : Integer.MAX_VALUE;
   }
 }
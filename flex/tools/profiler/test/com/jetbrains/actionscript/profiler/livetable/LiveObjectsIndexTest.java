@@ -0,0 +1,74 @@
+package com.jetbrains.actionscript.profiler.livetable;
+
+import com.intellij.testFramework.PlatformTestUtil;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import com.jetbrains.actionscript.profiler.sampler.FrameUtil;
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class LiveObjectsIndexTest extends TestCase {
+  private static final FrameInfo FOO = FrameUtil.getFrameInfo("foo");
+  private static final FrameInfo BAR = FrameUtil.getFrameInfo("bar");
+
+  public void testCreateAndDelete() {
+    final LiveObjectsIndex index = new LiveObjectsIndex();
+    index.create("Sprite", new FrameInfo[]{FOO, BAR}, 10);
+    index.create("Sprite", new FrameInfo[]{FOO}, 20);
+    index.create("Shape", new FrameInfo[]{BAR}, 5);
+
+    LiveObjectsIndex.Entry root = index.snapshot();
+    assertEquals(2, root.getChildren().size());
+    final LiveObjectsIndex.Entry sprite = root.getChild("Sprite");
+    assertEquals(2, sprite.getCount());
+    assertEquals(30, sprite.getSize());
+    assertEquals(1, sprite.getChildren().size());
+    assertEquals(2, sprite.getChild(FOO).getCount());
+    assertEquals(10, sprite.getChild(FOO).getChild(BAR).getSize());
+
+    assertTrue(index.delete("Sprite", new FrameInfo[]{FOO, BAR}, 10));
+    assertTrue(index.delete("Shape", new FrameInfo[]{BAR}, 5));
+
+    // snapshot is a copy
+    assertEquals(2, sprite.getCount());
+
+    root = index.snapshot();
+    assertNull(root.getChild("Shape"));
+    assertEquals(1, root.getChild("Sprite").getCount());
+    assertEquals(20, root.getChild("Sprite").getSize());
+    assertNull(root.getChild("Sprite").getChild(FOO).getChild(BAR));
+  }
+
+  public void testDeleteUnknown() {
+    final LiveObjectsIndex index = new LiveObjectsIndex();
+    index.create("Sprite", new FrameInfo[]{FOO}, 10);
+    assertFalse(index.delete("Shape", new FrameInfo[]{FOO}, 10));
+    assertFalse(index.delete("Sprite", new FrameInfo[]{FOO, BAR}, 10));
+    assertEquals(1, index.snapshot().getChild("Sprite").getChild(FOO).getCount());
+  }
+
+  public void testManyClasses() {
+    final FrameInfo[] frames = new FrameInfo[200];
+    for (int i = 0; i < frames.length; i++) {
+      frames[i] = FrameUtil.getFrameInfo("method" + i);
+    }
+    final String[] classes = new String[5000];
+    for (int i = 0; i < classes.length; i++) {
+      classes[i] = "com.example.Class" + i;
+    }
+
+    PlatformTestUtil.startPerformanceTest("Live objects aggregation", 3_000, () -> {
+      final LiveObjectsIndex index = new LiveObjectsIndex();
+      final Random random = new Random(0);
+      for (int i = 0; i < 300_000; i++) {
+        final String className = classes[random.nextInt(classes.length)];
+        final FrameInfo[] stack = {frames[random.nextInt(frames.length)], frames[i % 10], frames[0]};
+        index.create(className, stack, 16);
+        if (i % 2 == 0) {
+          index.delete(className, stack, 16);
+        }
+      }
+      assertFalse(index.snapshot().getChildren().isEmpty());
+    }).assertTiming();
+  }
+}
@@ -0,0 +1,208 @@
+package com.jetbrains.actionscript.profiler.model;
+
+import com.intellij.testFramework.PlatformTestUtil;
+import com.jetbrains.actionscript.profiler.sampler.*;
+import junit.framework.TestCase;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BinarySamplesDecoderTest extends TestCase {
+
+  public void testDecoding() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final FakeAgent agent = new FakeAgent(new DataOutputStream(bytes));
+    agent.writeCpuSample(5, new String[]{"foo::Bar/baz()", "foo::Bar/run()", "global/main()"}, 0);
+    agent.writeCpuSample(7, new String[]{"foo::Bar/qux()"}, 2);
+    agent.writeObjectSample(BinarySamplesDecoder.CREATE_OBJECT_SAMPLE, 42, "__AS3__.vec::Vector.<int>", 16, new String[]{"foo::Bar/baz()"});
+    agent.writeObjectSample(BinarySamplesDecoder.DELETE_OBJECT_SAMPLE, 42, "__AS3__.vec::Vector.<int>", 16, new String[0]);
+    agent.writeBatchEnd();
+
+    final List<List<Sample>> batches = new ArrayList<>();
+    final BinarySamplesDecoder decoder = new BinarySamplesDecoder(new ProfilerDataConsumer(null) {
+      @Override
+      public void process(List<Sample> samples) {
+        batches.add(samples);
+      }
+    });
+    decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), decoder);
+
+    assertEquals(1, batches.size());
+    final List<Sample> samples = batches.get(0);
+    assertEquals(4, samples.size());
+
+    final Sample first = samples.get(0);
+    assertEquals(5, first.duration);
+    assertEquals(3, first.frames.length);
+    assertEquals("foo.Bar", first.frames[0].getQName());
+    assertEquals("baz", first.frames[0].getMethodName());
+
+    final Sample second = samples.get(1);
+    assertEquals(7, second.duration);
+    assertEquals(3, second.frames.length);
+    assertEquals("qux", second.frames[0].getMethodName());
+    assertSame(first.frames[1], second.frames[1]);
+    assertSame(first.frames[2], second.frames[2]);
+
+    final CreateObjectSample created = (CreateObjectSample)samples.get(2);
+    assertEquals(42, created.id);
+    assertEquals(16, created.size);
+    assertEquals("Vector.<int>", created.className);
+    assertSame(first.frames[0], created.frames[0]);
+
+    final DeleteObjectSample deleted = (DeleteObjectSample)samples.get(3);
+    assertEquals(42, deleted.id);
+    assertSame(created.className, deleted.className);
+    assertEquals(0, deleted.frames.length);
+  }
+
+  public void testUnknownString() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(BinarySamplesDecoder.CPU_SAMPLE);
+    out.writeInt(1);
+    out.writeInt(1);
+    out.writeInt(0);
+    out.writeInt(1);
+
+    try {
+      decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), new BinarySamplesDecoder(new ProfilerDataConsumer(null)));
+      fail();
+    }
+    catch (IOException e) {
+      assertEquals("Unknown string: 1", e.getMessage());
+    }
+  }
+
+  /**
+   * Fake agent sends CPU samples with deep stacks through a local socket, as fast as the reading side can take them.
+   */
+  public void testThroughput() throws Exception {
+    final int sampleCount = 200_000;
+    final String[] names = new String[500];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = "com.example.package" + (i % 20) + "::Class" + i + "/method" + i + "()[/src;com/example;Class" + i + ".as:" + i + "]";
+    }
+
+    PlatformTestUtil.startPerformanceTest("Profiler samples decoding", 3_000, () -> {
+      final int[] received = new int[1];
+      final BinarySamplesDecoder decoder = new BinarySamplesDecoder(new ProfilerDataConsumer(null) {
+        @Override
+        public void process(List<Sample> samples) {
+          received[0] += samples.size();
+        }
+      });
+
+      try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+        final Thread agentThread = new Thread(() -> {
+          try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort())) {
+            final FakeAgent agent = new FakeAgent(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+            for (int i = 0; i < sampleCount; i++) {
+              final String[] stack = new String[5];
+              for (int j = 0; j < stack.length; j++) {
+                stack[j] = names[(i * 7 + j * 13) % names.length];
+              }
+              agent.writeCpuSample(i % 10, stack, 15);
+              if (i % 1000 == 999) agent.writeBatchEnd();
+            }
+            agent.writeBatchEnd();
+            agent.myOut.flush();
+          }
+          catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        }, "Fake profiler agent");
+        agentThread.start();
+
+        try (Socket socket = serverSocket.accept()) {
+          decode(new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024)), decoder);
+        }
+        agentThread.join();
+      }
+
+      assertEquals(sampleCount, received[0]);
+    }).assertTiming();
+  }
+
+  private static void decode(DataInputStream in, BinarySamplesDecoder decoder) throws IOException {
+    while (true) {
+      final int tag = in.read();
+      if (tag == -1) break;
+      decoder.decode(tag, in);
+    }
+    decoder.flush();
+  }
+
+  /**
+   * Writes records the same way ProfilerAgent.as does.
+   */
+  private static class FakeAgent {
+    private final DataOutputStream myOut;
+    private final Map<String, Integer> myStringIds = new HashMap<>();
+    private int myLastCpuFrameCount;
+
+    FakeAgent(DataOutputStream out) {
+      myOut = out;
+    }
+
+    /**
+     * @param sharedFrameCount number of frames at the bottom of the stack that are the same as in the previous CPU sample
+     */
+    void writeCpuSample(int duration, String[] newFrames, int sharedFrameCount) throws IOException {
+      final int[] ids = getIds(newFrames);
+      final int shared = Math.min(sharedFrameCount, myLastCpuFrameCount);
+      myOut.writeByte(BinarySamplesDecoder.CPU_SAMPLE);
+      myOut.writeInt(duration);
+      myOut.writeInt(ids.length);
+      myOut.writeInt(shared);
+      writeIds(ids);
+      myLastCpuFrameCount = ids.length + shared;
+    }
+
+    void writeObjectSample(int kind, int id, String type, int size, String[] frames) throws IOException {
+      final int typeId = getId(type);
+      final int[] ids = getIds(frames);
+      myOut.writeByte(kind);
+      myOut.writeInt(id);
+      myOut.writeInt(typeId);
+      myOut.writeInt(size);
+      myOut.writeInt(ids.length);
+      writeIds(ids);
+    }
+
+    void writeBatchEnd() throws IOException {
+      myOut.writeByte(BinarySamplesDecoder.BATCH_END);
+    }
+
+    private int[] getIds(String[] names) throws IOException {
+      final int[] ids = new int[names.length];
+      for (int i = 0; i < names.length; i++) {
+        ids[i] = getId(names[i]);
+      }
+      return ids;
+    }
+
+    private int getId(String name) throws IOException {
+      Integer id = myStringIds.get(name);
+      if (id == null) {
+        id = myStringIds.size() + 1;
+        myStringIds.put(name, id);
+        myOut.writeByte(BinarySamplesDecoder.STRING);
+        myOut.writeUTF(name);
+      }
+      return id;
+    }
+
+    private void writeIds(int[] ids) throws IOException {
+      for (int id : ids) {
+        myOut.writeInt(id);
+      }
+    }
+  }
+}
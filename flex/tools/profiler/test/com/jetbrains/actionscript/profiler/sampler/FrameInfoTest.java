@@ -109,6 +109,35 @@ public class FrameInfoTest extends TestCase {
     assertTrue(frameInfoBuilder.buildInstance(render).isSystem());
   }
 
+  public void testCache() {
+    final FrameInfoBuilder frameInfoBuilder = new FrameInfoBuilder(1024);
+    final String data = "com.test::Foo/bar()[C:\\src;com\\test;Foo.as:90]";
+    final FrameInfo frameInfo = frameInfoBuilder.buildInstance(data);
+    assertSame(frameInfo, frameInfoBuilder.buildInstance(new String(data)));
+    assertEquals(1, frameInfoBuilder.getHitCount());
+    assertEquals(1, frameInfoBuilder.getMissCount());
+
+    // same method at other line is the same frame
+    assertSame(frameInfo, frameInfoBuilder.buildInstance("com.test::Foo/bar()[C:\\src;com\\test;Foo.as:80]"));
+    assertEquals(80, frameInfo.getFileLine());
+
+    final FrameInfo other = frameInfoBuilder.buildInstance("com.test::Bar/bar()[C:\\src;com\\test;Bar.as:90]");
+    assertSame(frameInfo.getPackageName(), other.getPackageName());
+    assertSame(frameInfo.getFileDirectory(), other.getFileDirectory());
+  }
+
+  public void testCacheIsBounded() {
+    final FrameInfoBuilder frameInfoBuilder = new FrameInfoBuilder(16);
+    for (int i = 0; i < 1000; i++) {
+      final FrameInfo frameInfo = frameInfoBuilder.buildInstance("com.test::Foo" + i + "/bar()");
+      assertEquals("com.test.Foo" + i, frameInfo.getQName());
+    }
+    assertEquals(0, frameInfoBuilder.getHitCount());
+    assertEquals(1000, frameInfoBuilder.getMissCount());
+    assertEquals("com.test.Foo999", frameInfoBuilder.buildInstance("com.test::Foo999/bar()").getQName());
+    assertEquals(1, frameInfoBuilder.getHitCount());
+  }
+
   public void testNamespace() {
     check("Array/http://adobe.com/AS3/2006/builtin::push()",
           null,